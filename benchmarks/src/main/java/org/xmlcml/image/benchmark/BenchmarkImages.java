@@ -0,0 +1,93 @@
+package org.xmlcml.image.benchmark;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/** input images for benchmarks.
+ *
+ * names are either paths relative to the test resources of imageanalysis
+ * (e.g. "lines/maltoryzine.png") or "synthetic:size" for a size x size drawing
+ * of lines, circles and text which is the same on every run.
+ *
+ * the resource directory is the system property imageanalysis.images, else
+ * src/test/resources/org/xmlcml/image here or in the parent directory.
+ */
+public class BenchmarkImages {
+
+	public static final String IMAGE_DIR_PROPERTY = "imageanalysis.images";
+	public static final String SYNTHETIC = "synthetic:";
+
+	private static final String TEST_IMAGE_PATH = "src/test/resources/org/xmlcml/image";
+	private static final long SEED = 31415926L;
+
+	public static BufferedImage readImage(String name) throws IOException {
+		if (name.startsWith(SYNTHETIC)) {
+			return createSyntheticImage(Integer.parseInt(name.substring(SYNTHETIC.length())));
+		}
+		File file = new File(getImageDir(), name);
+		BufferedImage image = ImageIO.read(file);
+		if (image == null) {
+			throw new IOException("cannot read image: "+file);
+		}
+		return image;
+	}
+
+	private static File getImageDir() throws IOException {
+		String property = System.getProperty(IMAGE_DIR_PROPERTY);
+		if (property != null) {
+			return new File(property);
+		}
+		File dir = new File(TEST_IMAGE_PATH);
+		if (!dir.isDirectory()) {
+			dir = new File("..", TEST_IMAGE_PATH);
+		}
+		if (!dir.isDirectory()) {
+			throw new IOException("cannot find test images; set -D"+IMAGE_DIR_PROPERTY);
+		}
+		return dir;
+	}
+
+	/** black lines, circles and characters on white.
+	 *
+	 * the density of features is independent of size.
+	 *
+	 * @param size
+	 * @return TYPE_INT_RGB image
+	 */
+	public static BufferedImage createSyntheticImage(int size) {
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, size, size);
+		g.setColor(Color.BLACK);
+		g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 14));
+		Random random = new Random(SEED);
+		int features = size * size / 4096;
+		for (int i = 0; i < features; i++) {
+			int x = random.nextInt(size);
+			int y = random.nextInt(size);
+			g.setStroke(new BasicStroke(1 + random.nextInt(4)));
+			switch (random.nextInt(3)) {
+			case 0:
+				g.drawLine(x, y, x + random.nextInt(81) - 40, y + random.nextInt(81) - 40);
+				break;
+			case 1:
+				int r = 3 + random.nextInt(20);
+				g.drawOval(x - r, y - r, 2 * r, 2 * r);
+				break;
+			default:
+				g.drawString(String.valueOf((char) ('A' + random.nextInt(26))), x, y);
+			}
+		}
+		g.dispose();
+		return image;
+	}
+}
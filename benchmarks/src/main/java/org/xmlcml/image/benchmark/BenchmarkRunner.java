@@ -0,0 +1,49 @@
+package org.xmlcml.image.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** runs benchmarks with JSON results and allocation rates by default.
+ *
+ * takes the usual JMH command line. Unless given there, results are written as
+ * JSON to target/jmh-result.json and the gc profiler reports allocation rates
+ * (gc.alloc.rate.norm is bytes per operation).
+ *
+ * on Java 9+ forks are given access to sun.awt.image, which boofCV's
+ * ConvertBufferedImage uses.
+ */
+public class BenchmarkRunner {
+
+	public static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+	private static final String EXPORT_AWT_IMAGE = "--add-exports=java.desktop/sun.awt.image=ALL-UNNAMED";
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList() ||
+				commandLineOptions.shouldListProfilers() || commandLineOptions.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLineOptions);
+		if (!commandLineOptions.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLineOptions.getResult().hasValue()) {
+			new File(DEFAULT_RESULT_FILE).getParentFile().mkdirs();
+			builder.result(DEFAULT_RESULT_FILE);
+		}
+		if (commandLineOptions.getProfilers().isEmpty()) {
+			builder.addProfiler(GCProfiler.class);
+		}
+		if (!System.getProperty("java.specification.version").startsWith("1.")) {
+			builder.jvmArgsAppend(EXPORT_AWT_IMAGE);
+		}
+		new Runner(builder.build()).run();
+	}
+}
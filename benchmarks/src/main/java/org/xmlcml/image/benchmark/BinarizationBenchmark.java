@@ -0,0 +1,53 @@
+package org.xmlcml.image.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlcml.image.BinaryImage;
+import org.xmlcml.image.ImageUtil;
+
+/** binarization of raw images.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinarizationBenchmark {
+
+	@Param({"processing/IMG_20131119_180112.jpg", "text/gibbons.png", "synthetic:1024", "synthetic:4096"})
+	public String image;
+
+	@Param({"128"})
+	public int threshold;
+
+	private BufferedImage rawImage;
+
+	@Setup
+	public void setup() throws IOException {
+		rawImage = BenchmarkImages.readImage(image);
+	}
+
+	@Benchmark
+	public BufferedImage boofCVBinarization() {
+		return ImageUtil.boofCVBinarization(rawImage, threshold);
+	}
+
+	@Benchmark
+	public BinaryImage boofCVBinarizeToBinaryImage() {
+		return ImageUtil.boofCVBinarizeToBinaryImage(rawImage, threshold);
+	}
+}
@@ -0,0 +1,61 @@
+package org.xmlcml.image.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlcml.euclid.Real2;
+import org.xmlcml.image.geom.DouglasPeucker;
+
+/** reduction of noisy polylines.
+ *
+ * the polyline is a spiral of unit steps with +-0.5 pixel noise, as from a
+ * traced pixel edge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DouglasPeuckerBenchmark {
+
+	@Param({"100", "10000", "1000000"})
+	public int points;
+
+	@Param({"1.0"})
+	public double tolerance;
+
+	private List<Real2> shape;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(271828L);
+		shape = new ArrayList<Real2>(points);
+		double angle = 0.0;
+		for (int i = 0; i < points; i++) {
+			double radius = 10.0 + 0.01 * i;
+			angle += 1.0 / radius;
+			shape.add(new Real2(
+					radius * Math.cos(angle) + random.nextDouble() - 0.5,
+					radius * Math.sin(angle) + random.nextDouble() - 0.5));
+		}
+	}
+
+	@Benchmark
+	public List<Real2> reduce() {
+		return new DouglasPeucker(tolerance).reduce(shape);
+	}
+}
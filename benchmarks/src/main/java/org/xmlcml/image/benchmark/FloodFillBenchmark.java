@@ -0,0 +1,61 @@
+package org.xmlcml.image.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlcml.image.BinaryImage;
+import org.xmlcml.image.ImageUtil;
+import org.xmlcml.image.pixel.BinaryImageFloodFill;
+import org.xmlcml.image.pixel.ImageFloodFill;
+import org.xmlcml.image.pixel.PixelIslandList;
+import org.xmlcml.image.processing.LookupZhangSuenThinning;
+
+/** extraction of islands from thinned images.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FloodFillBenchmark {
+
+	@Param({"processing/IMG_20131119_180112.jpg", "text/gibbons.png", "synthetic:1024", "synthetic:4096"})
+	public String image;
+
+	private BinaryImage thinnedBinaryImage;
+	private BufferedImage thinnedImage;
+
+	@Setup
+	public void setup() throws IOException {
+		BinaryImage binaryImage = ImageUtil.boofCVBinarizeToBinaryImage(BenchmarkImages.readImage(image), 128);
+		thinnedBinaryImage = ImageUtil.thin(binaryImage, new LookupZhangSuenThinning());
+		thinnedImage = thinnedBinaryImage.createBufferedImage();
+	}
+
+	@Benchmark
+	public PixelIslandList imageFloodFill() {
+		ImageFloodFill floodFill = new ImageFloodFill(thinnedImage);
+		floodFill.setDiagonal(true);
+		return floodFill.getIslandList();
+	}
+
+	@Benchmark
+	public PixelIslandList binaryImageFloodFill() {
+		BinaryImageFloodFill floodFill = new BinaryImageFloodFill(thinnedBinaryImage);
+		floodFill.setDiagonal(true);
+		return floodFill.getIslandList();
+	}
+}
@@ -0,0 +1,75 @@
+package org.xmlcml.image.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlcml.image.pixel.PixelGraph;
+import org.xmlcml.image.pixel.PixelIsland;
+import org.xmlcml.image.pixel.PixelIslandList;
+import org.xmlcml.image.pixel.PixelNucleusFactory;
+import org.xmlcml.image.pixel.PixelNucleusList;
+
+/** nucleus and graph creation on super-thinned islands.
+ *
+ * both cache results on the islands and their pixels, so each invocation works
+ * on fresh clones of the islands; cloning is done before the timed call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PixelGraphBenchmark {
+
+	@Param({"lines/maltoryzine.png", "processing/IMG_20131119_180112.jpg", "synthetic:1024"})
+	public String image;
+
+	private PixelIslandList superThinnedIslands;
+	private List<PixelIsland> islands;
+
+	@Setup(Level.Trial)
+	public void setupIslands() throws IOException {
+		superThinnedIslands = PixelIslandList.createSuperThinnedPixelIslandListNew(BenchmarkImages.readImage(image));
+	}
+
+	@Setup(Level.Invocation)
+	public void cloneIslands() {
+		islands = new ArrayList<PixelIsland>(superThinnedIslands.size());
+		for (PixelIsland island : superThinnedIslands) {
+			islands.add(PixelIsland.createSeparateIslandWithClonedPixels(island.getPixelList(), true));
+		}
+	}
+
+	@Benchmark
+	public List<PixelNucleusList> createNucleusList() {
+		List<PixelNucleusList> nucleusLists = new ArrayList<PixelNucleusList>(islands.size());
+		for (PixelIsland island : islands) {
+			nucleusLists.add(new PixelNucleusFactory(island).getOrCreateNucleusList());
+		}
+		return nucleusLists;
+	}
+
+	@Benchmark
+	public List<PixelGraph> createGraph() {
+		List<PixelGraph> graphs = new ArrayList<PixelGraph>(islands.size());
+		for (PixelIsland island : islands) {
+			graphs.add(PixelGraph.createGraph(island));
+		}
+		return graphs;
+	}
+}
@@ -0,0 +1,70 @@
+package org.xmlcml.image.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlcml.image.BinaryImage;
+import org.xmlcml.image.ImageUtil;
+import org.xmlcml.image.processing.HilditchThinning;
+import org.xmlcml.image.processing.LookupZhangSuenThinning;
+import org.xmlcml.image.processing.ParallelZhangSuenThinning;
+import org.xmlcml.image.processing.Thinning;
+import org.xmlcml.image.processing.ZhangSuenThinning;
+
+/** thinning of binarized images.
+ *
+ * each invocation thins a fresh copy of the binary image; the copy is a few
+ * array copies and is included in the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThinningBenchmark {
+
+	@Param({"processing/IMG_20131119_180112.jpg", "text/gibbons.png", "synthetic:1024", "synthetic:4096"})
+	public String image;
+
+	@Param({"zhangSuen", "hilditch", "lookupZhangSuen", "parallelZhangSuen"})
+	public String thinning;
+
+	private BinaryImage binaryImage;
+
+	@Setup
+	public void setup() throws IOException {
+		binaryImage = ImageUtil.boofCVBinarizeToBinaryImage(BenchmarkImages.readImage(image), 128);
+	}
+
+	@Benchmark
+	public BinaryImage thin() {
+		Thinning thinner = createThinning(new BinaryImage(binaryImage));
+		thinner.doThinning();
+		return thinner.getBinaryImage();
+	}
+
+	private Thinning createThinning(BinaryImage copy) {
+		if ("zhangSuen".equals(thinning)) {
+			return new ZhangSuenThinning(copy);
+		} else if ("hilditch".equals(thinning)) {
+			return new HilditchThinning(copy);
+		} else if ("lookupZhangSuen".equals(thinning)) {
+			return new LookupZhangSuenThinning(copy);
+		} else if ("parallelZhangSuen".equals(thinning)) {
+			return new ParallelZhangSuenThinning(copy);
+		}
+		throw new RuntimeException("unknown thinning: "+thinning);
+	}
+}
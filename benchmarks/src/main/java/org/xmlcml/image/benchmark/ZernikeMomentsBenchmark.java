@@ -0,0 +1,49 @@
+package org.xmlcml.image.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlcml.image.moments.ZernikeMoments;
+
+/** Zernike moments of all black pixels in an image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZernikeMomentsBenchmark {
+
+	@Param({"lines/maltoryzine.png", "synthetic:256"})
+	public String image;
+
+	@Param({"8", "16"})
+	public int order;
+
+	private ZernikeMoments zernikeMoments;
+
+	@Setup
+	public void setup() throws IOException {
+		zernikeMoments = new ZernikeMoments();
+		zernikeMoments.readImage(BenchmarkImages.readImage(image));
+	}
+
+	// Complex is package-private
+	@Benchmark
+	public List<?> zer_mmts() {
+		return zernikeMoments.zer_mmts(order);
+	}
+}
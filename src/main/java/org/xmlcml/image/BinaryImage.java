@@ -0,0 +1,331 @@
+package org.xmlcml.image;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+
+/** bit-packed black/white image.
+ *
+ * One bit per pixel, packed into long words row by row (bit x & 63 of word x >> 6
+ * of the row). Set bits are black (foreground). Bits beyond the width in the last
+ * word of each row are always 0, so rows can be scanned a word at a time.
+ *
+ * Used between binarization, thinning and island extraction in place of
+ * BufferedImage or int[][] (1/32 of the memory of int[][]).
+ *
+ * Neighbourhood masks (getNeighbourMask()) have bit 0..7 = p2..p9 in the order
+ * N, NE, E, SE, S, SW, W, NW as in the thinning literature.
+ */
+public class BinaryImage {
+
+	public final static int N = 0x01;
+	public final static int NE = 0x02;
+	public final static int E = 0x04;
+	public final static int SE = 0x08;
+	public final static int S = 0x10;
+	public final static int SW = 0x20;
+	public final static int W = 0x40;
+	public final static int NW = 0x80;
+
+	private int width;
+	private int height;
+	private int wordsPerRow;
+	private long[] words;
+
+	public BinaryImage(int width, int height) {
+		if (width < 0 || height < 0) {
+			throw new RuntimeException("bad size: "+width+" x "+height);
+		}
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = (width + 63) >> 6;
+		this.words = new long[wordsPerRow * height];
+	}
+
+	public BinaryImage(BinaryImage binaryImage) {
+		this.width = binaryImage.width;
+		this.height = binaryImage.height;
+		this.wordsPerRow = binaryImage.wordsPerRow;
+		this.words = Arrays.copyOf(binaryImage.words, binaryImage.words.length);
+	}
+
+	/** pixels which are exactly black (as Thinning has always done).
+	 *
+	 * @param image
+	 * @return
+	 */
+	public static BinaryImage createBinaryImage(BufferedImage image) {
+		BinaryImage binaryImage = new BinaryImage(image.getWidth(), image.getHeight());
+		ImageRaster raster = new ImageRaster(image);
+		int black = Color.BLACK.getRGB();
+		int[] row = null;
+		for (int y = 0; y < binaryImage.height; y++) {
+			row = raster.getRGBRow(y, row);
+			for (int x = 0; x < binaryImage.width; x++) {
+				if (row[x] == black) {
+					binaryImage.set(x, y);
+				}
+			}
+		}
+		return binaryImage;
+	}
+
+	/** from array of 0/1 values indexed as [y][x].
+	 *
+	 * @param binary any non-zero value is set
+	 * @return
+	 */
+	public static BinaryImage createBinaryImage(int[][] binary) {
+		int height = binary.length;
+		int width = height == 0 ? 0 : binary[0].length;
+		BinaryImage binaryImage = new BinaryImage(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (binary[y][x] != 0) {
+					binaryImage.set(x, y);
+				}
+			}
+		}
+		return binaryImage;
+	}
+
+	/** array of 0/1 values indexed as [y][x].
+	 *
+	 * @return new array
+	 */
+	public int[][] createIntArray() {
+		int[][] binary = new int[height][width];
+		for (int y = 0; y < height; y++) {
+			for (int x = nextSetBit(0, y); x < width; x = nextSetBit(x + 1, y)) {
+				binary[y][x] = 1;
+			}
+		}
+		return binary;
+	}
+
+	/** gray image with set pixels black (0) and others white (255).
+	 *
+	 * this is the form produced by ImageUtil.boofCVBinarization().
+	 *
+	 * @return
+	 */
+	public BufferedImage createBufferedImage() {
+		BufferedImage image = new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_BYTE_GRAY);
+		byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		int stride = image.getWidth();
+		Arrays.fill(data, (byte) 0xff);
+		for (int y = 0; y < height; y++) {
+			for (int x = nextSetBit(0, y); x < width; x = nextSetBit(x + 1, y)) {
+				data[y * stride + x] = 0;
+			}
+		}
+		return image;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	/** the backing words, row by row.
+	 *
+	 * @return live array
+	 */
+	public long[] getWords() {
+		return words;
+	}
+
+	/** is pixel set.
+	 *
+	 * @param x
+	 * @param y
+	 * @return false if outside image
+	 */
+	public boolean get(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			return false;
+		}
+		return (words[y * wordsPerRow + (x >> 6)] & (1L << x)) != 0;
+	}
+
+	/** pixel as 0 or 1.
+	 *
+	 * @param x
+	 * @param y
+	 * @return 0 if outside image
+	 */
+	public int getBit(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			return 0;
+		}
+		return (int) (words[y * wordsPerRow + (x >> 6)] >>> x) & 1;
+	}
+
+	public void set(int x, int y) {
+		checkBounds(x, y);
+		words[y * wordsPerRow + (x >> 6)] |= 1L << x;
+	}
+
+	public void clear(int x, int y) {
+		checkBounds(x, y);
+		words[y * wordsPerRow + (x >> 6)] &= ~(1L << x);
+	}
+
+	public void set(int x, int y, boolean value) {
+		if (value) {
+			set(x, y);
+		} else {
+			clear(x, y);
+		}
+	}
+
+	private void checkBounds(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			throw new ArrayIndexOutOfBoundsException("pixel outside "+width+" x "+height+": "+x+","+y);
+		}
+	}
+
+	/** sets pixels from (inclusive) to (exclusive) in row y.
+	 *
+	 */
+	public void setRange(int y, int from, int to) {
+		if (from >= to) {
+			return;
+		}
+		checkBounds(from, y);
+		checkBounds(to - 1, y);
+		int base = y * wordsPerRow;
+		int fromWord = from >> 6;
+		int toWord = (to - 1) >> 6;
+		long fromMask = -1L << from;
+		long toMask = -1L >>> -to;
+		if (fromWord == toWord) {
+			words[base + fromWord] |= fromMask & toMask;
+		} else {
+			words[base + fromWord] |= fromMask;
+			for (int word = fromWord + 1; word < toWord; word++) {
+				words[base + word] = -1L;
+			}
+			words[base + toWord] |= toMask;
+		}
+	}
+
+	/** first set pixel at or after x in row y.
+	 *
+	 * @return width if none
+	 */
+	public int nextSetBit(int x, int y) {
+		if (x >= width) {
+			return width;
+		}
+		x = Math.max(x, 0);
+		int base = y * wordsPerRow;
+		int word = x >> 6;
+		long bits = words[base + word] & (-1L << x);
+		while (bits == 0) {
+			if (++word == wordsPerRow) {
+				return width;
+			}
+			bits = words[base + word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/** first unset pixel at or after x in row y.
+	 *
+	 * @return width if none
+	 */
+	public int nextClearBit(int x, int y) {
+		if (x >= width) {
+			return width;
+		}
+		x = Math.max(x, 0);
+		int base = y * wordsPerRow;
+		int word = x >> 6;
+		long bits = ~words[base + word] & (-1L << x);
+		while (bits == 0) {
+			if (++word == wordsPerRow) {
+				return width;
+			}
+			bits = ~words[base + word];
+		}
+		return Math.min(width, (word << 6) + Long.numberOfTrailingZeros(bits));
+	}
+
+	/** three pixels x-1, x, x+1 of row y as bits 0, 1, 2.
+	 *
+	 */
+	private int getRowBits3(int x, int y) {
+		if (y < 0 || y >= height) {
+			return 0;
+		}
+		int base = y * wordsPerRow;
+		int first = x - 1;
+		if (first >= 0 && (first & 63) <= 61) {
+			// all in one word; bits beyond width are 0
+			return (int) (words[base + (first >> 6)] >>> first) & 7;
+		}
+		return getBit(first, y) | (getBit(x, y) << 1) | (getBit(x + 1, y) << 2);
+	}
+
+	/** the 8 neighbours of x,y as a mask.
+	 *
+	 * bit 0..7 = N, NE, E, SE, S, SW, W, NW (p2..p9). Pixels outside the image are 0.
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int getNeighbourMask(int x, int y) {
+		int above = getRowBits3(x, y - 1);
+		int row = getRowBits3(x, y);
+		int below = getRowBits3(x, y + 1);
+		return ((above >> 1) & 1)        // N
+				| ((above >> 1) & 2)     // NE
+				| (row & 4)              // E
+				| ((below << 1) & 8)     // SE
+				| ((below << 3) & 0x10)  // S
+				| ((below << 5) & 0x20)  // SW
+				| ((row << 6) & 0x40)    // W
+				| ((above << 7) & 0x80); // NW
+	}
+
+	/** number of set pixels.
+	 *
+	 * @return
+	 */
+	public int cardinality() {
+		int count = 0;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof BinaryImage)) {
+			return false;
+		}
+		BinaryImage other = (BinaryImage) obj;
+		return width == other.width && height == other.height && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * width + height) + Arrays.hashCode(words);
+	}
+
+	@Override
+	public String toString() {
+		return "BinaryImage "+width+" x "+height+"; set: "+cardinality();
+	}
+}
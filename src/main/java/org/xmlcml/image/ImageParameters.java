@@ -10,6 +10,7 @@ public class ImageParameters extends AbstractParameters {
 	private double lineWidth;
 	private String fill;
 	private Real2Range minimumIslandSize;
+	private int largestIslandCount;
 
 	public ImageParameters() {
 		setDefaults();
@@ -22,6 +23,7 @@ public class ImageParameters extends AbstractParameters {
 		fill = "none";
 //		minimumIslandSize = new Real2Range(new RealRange(0, 100), new RealRange(0, 100));
 		minimumIslandSize = null;
+		largestIslandCount = 0;
 	}
 	
 	public Real2Range getMinimumIslandSize() {
@@ -32,6 +34,17 @@ public class ImageParameters extends AbstractParameters {
 		this.minimumIslandSize = minimumIslandSize;
 	}
 
+	/** number of largest islands to build; 0 for all.
+	 * 
+	 */
+	public int getLargestIslandCount() {
+		return largestIslandCount;
+	}
+
+	public void setLargestIslandCount(int largestIslandCount) {
+		this.largestIslandCount = largestIslandCount;
+	}
+
 	public double getSegmentTolerance() {
 		return segmentTolerance;
 	}
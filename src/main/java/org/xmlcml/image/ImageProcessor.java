@@ -3,6 +3,7 @@ package org.xmlcml.image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.imageio.ImageIO;
 
@@ -16,6 +17,7 @@ import org.xmlcml.image.colour.ColorUtilities;
 import org.xmlcml.image.pixel.MainPixelProcessor;
 import org.xmlcml.image.pixel.PixelIsland;
 import org.xmlcml.image.pixel.PixelIslandList;
+import org.xmlcml.image.processing.ParallelZhangSuenThinning;
 import org.xmlcml.image.processing.Thinning;
 import org.xmlcml.image.processing.ZhangSuenThinning;
 import org.xmlcml.image.slice.XSlice;
@@ -78,6 +80,13 @@ public class ImageProcessor {
 
 	private BufferedImage thinnedImage;
 
+	// pixels after binarization (and thinning); image is only created from them on demand
+	private BinaryImage binaryImage;
+
+	private BinaryImage binarizedBinaryImage;
+
+	private boolean thinned;
+
 	public ImageProcessor() {
 		setDefaults();
 		clearVariables();
@@ -104,6 +113,7 @@ public class ImageProcessor {
 		mainProcessor.clearVariables();
 
 		image = null;
+		binaryImage = null;
 		inputFile = null;
 		// outputDir = null;
 	}
@@ -130,12 +140,30 @@ public class ImageProcessor {
 
 	public void setImage(BufferedImage img) {
 		this.image = img;
+		this.binaryImage = null;
 	}
 
+	/** current image.
+	 * 
+	 * after binarization this is created from getBinaryImage() on first call.
+	 * 
+	 * @return
+	 */
 	public BufferedImage getImage() {
+		if (image == null && binaryImage != null) {
+			image = binaryImage.createBufferedImage();
+		}
 		return this.image;
 	}
 
+	/** pixels after binarization and thinning.
+	 * 
+	 * @return null if not binarized
+	 */
+	public BinaryImage getBinaryImage() {
+		return binaryImage;
+	}
+
 	public void setThinning(Thinning thinning) {
 		this.thinning = thinning;
 	}
@@ -188,29 +216,49 @@ public class ImageProcessor {
 		mainProcessor.clearVariables();
 		binarizedImage = null;
 		thinnedImage = null;
+		binarizedBinaryImage = null;
+		thinned = false;
 		this.setImage(img);
 		if (debug) {
 			String filename = TARGET + "/" + base + "/" + RAW_IMAGE_PNG;
 			ImageIOUtil.writeImageQuietly(this.image, filename);
 		}
 		if (this.binarize) {
-			ColorUtilities.convertTransparentToWhite(image);
-			this.image = ImageUtil.boofCVBinarization(this.image, threshold);
-			this.binarizedImage = this.image;
+			processBinaryImage();
+		} else if (thinning != null) {
+			image = ImageUtil.thin(this.image, thinning);
+			this.thinnedImage = this.image;
+			thinned = true;
 			if (debug) {
-				String filename = TARGET + "/" + base + "/" + BINARIZED_PNG;
+				String filename = TARGET + "/" + base + "/" + THINNED_PNG;
 				ImageIOUtil.writeImageQuietly(this.image, filename);
 			}
 		}
+		return getImage();
+	}
+
+	/** binarizes and thins image as bits.
+	 * 
+	 */
+	private void processBinaryImage() {
+		ColorUtilities.convertTransparentToWhite(image);
+		binaryImage = ImageUtil.boofCVBinarizeToBinaryImage(image, threshold);
+		image = null;
+		if (debug) {
+			String filename = TARGET + "/" + base + "/" + BINARIZED_PNG;
+			ImageIOUtil.writeImageQuietly(binaryImage.createBufferedImage(), filename);
+		}
 		if (thinning != null) {
-			image = ImageUtil.thin(this.image, thinning);
-			this.thinnedImage = this.image;
+			binarizedBinaryImage = new BinaryImage(binaryImage);
+			ImageUtil.thin(binaryImage, thinning);
+			thinned = true;
 			if (debug) {
 				String filename = TARGET + "/" + base + "/" + THINNED_PNG;
-				ImageIOUtil.writeImageQuietly(this.image, filename);
+				ImageIOUtil.writeImageQuietly(binaryImage.createBufferedImage(), filename);
 			}
+		} else {
+			binarizedBinaryImage = binaryImage;
 		}
-		return this.image;
 	}
 
 	public Thinning getThinning() {
@@ -300,21 +348,21 @@ public class ImageProcessor {
 
 	public BufferedImage processImageFile() {
 		readImageFile();
-		if (image != null) {
+		if (image != null || binaryImage != null) {
 			if (colorAnalyzer != null) {
-				colorAnalyzer.setInputImage(image);
+				colorAnalyzer.setInputImage(getImage());
 				colorAnalyzer.setOutputDirectory(outputDir);
 				colorAnalyzer.run();
 			} else {
-				image = processImage(image);
+				image = processImage(getImage());
 			}
 		}
 
-		return image;
+		return getImage();
 	}
 
 	public void readImageFile() {
-		if (image == null) {
+		if (image == null && binaryImage == null) {
 			if (inputFile == null || !inputFile.exists()) {
 				throw new RuntimeException("File does not exist: " + inputFile);
 			}
@@ -416,7 +464,9 @@ public class ImageProcessor {
 		System.err.println("       " + THRESH + " " + THRESH1
 				+ "    threshold (default: " + getDefaultThreshold() + ")");
 		System.err.println("       " + THINNING + " " + THINNING1
-				+ "    thinning ('none', 'z' (ZhangSuen))");
+				+ "    thinning ('none', 'z' (ZhangSuen), 'zp' (ZhangSuen in parallel strips))");
+		System.err.println("       " + MainPixelProcessor.LARGEST + " " + MainPixelProcessor.LARGEST1
+				+ "     only build the largest n islands (default: all)");
 	}
 
 	protected void parseArgs(ArgIterator argIterator) {
@@ -505,6 +555,10 @@ public class ImageProcessor {
 			setThinning(null);
 		} else if (thinningS.equalsIgnoreCase("z")) {
 			setThinning(new ZhangSuenThinning());
+		} else if (thinningS.equalsIgnoreCase("zp")) {
+			ParallelZhangSuenThinning thinning = new ParallelZhangSuenThinning();
+			thinning.setForkJoinPool(ForkJoinPool.commonPool());
+			setThinning(thinning);
 		} else {
 			LOG.error("unknown thinning argument: " + thinningS);
 		}
@@ -527,7 +581,7 @@ public class ImageProcessor {
 
 	void runCommands() {
 		ensurePixelProcessor();
-		if (this.image == null) {
+		if (this.image == null && binaryImage == null) {
 			if (inputFile != null) {
 				processImageFile();
 			} else {
@@ -578,6 +632,7 @@ public class ImageProcessor {
 		if (xSliceList == null) {
 			SVGG g = new SVGG();
 			xSliceList = new XSliceList();
+			BufferedImage image = getImage();
 			int width = image.getWidth();
 			for (int x = 0; x < width; x++) {
 				XSlice xSlice = XSlice.getBinarySlice(image, x);
@@ -597,10 +652,16 @@ public class ImageProcessor {
 	}
 
 	public BufferedImage getBinarizedImage() {
+		if (binarizedImage == null && binarizedBinaryImage != null) {
+			binarizedImage = (binarizedBinaryImage == binaryImage) ? getImage() : binarizedBinaryImage.createBufferedImage();
+		}
 		return binarizedImage;
 	}
 
 	public BufferedImage getThinnedImage() {
+		if (thinnedImage == null && thinned) {
+			thinnedImage = getImage();
+		}
 		return thinnedImage;
 	}
 }
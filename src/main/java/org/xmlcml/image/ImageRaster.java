@@ -0,0 +1,245 @@
+package org.xmlcml.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/** fast per-pixel access to a BufferedImage.
+ *
+ * BufferedImage.getRGB(x, y) converts through the ColorModel for every call. This
+ * takes the backing array from the DataBuffer once and reads it directly for
+ * TYPE_INT_RGB, TYPE_INT_ARGB, TYPE_BYTE_GRAY, TYPE_BYTE_BINARY, TYPE_BYTE_INDEXED,
+ * TYPE_3BYTE_BGR and TYPE_4BYTE_ABGR. Byte gray and indexed pixels are converted with a
+ * lookup table built from the image's ColorModel, so getRGB() returns exactly what
+ * BufferedImage.getRGB() would. Other types fall back to BufferedImage.getRGB().
+ *
+ * Reads are safe from several threads as long as the image is not being written.
+ */
+public class ImageRaster {
+
+	private enum Access {
+		INT_RGB,
+		INT_ARGB,
+		BYTE_LOOKUP,
+		BYTE_PACKED,
+		BYTE_BGR,
+		BYTE_ABGR,
+		IMAGE
+	}
+
+	private BufferedImage image;
+	private int width;
+	private int height;
+	private Access access;
+	private int[] intData;
+	private byte[] byteData;
+	// array index of pixel (0,0); pixel (x,y) is at offset + y * scanlineStride + x * pixelStride
+	private int offset;
+	private int scanlineStride;
+	private int pixelStride;
+	private int[] bandOffsets;
+	// for packed pixels
+	private int bitsPerPixel;
+	private int dataBitOffset;
+	private int pixelMask;
+	private int[] lookup;
+
+	public ImageRaster(BufferedImage image) {
+		this.image = image;
+		this.width = image.getWidth();
+		this.height = image.getHeight();
+		access = Access.IMAGE;
+		try {
+			setAccess();
+		} catch (RuntimeException e) {
+			// unusual layout; BufferedImage.getRGB() will do
+			access = Access.IMAGE;
+		}
+	}
+
+	private void setAccess() {
+		WritableRaster raster = image.getRaster();
+		SampleModel sampleModel = raster.getSampleModel();
+		DataBuffer dataBuffer = raster.getDataBuffer();
+		if (dataBuffer.getNumBanks() != 1) {
+			return;
+		}
+		int tx = raster.getSampleModelTranslateX();
+		int ty = raster.getSampleModelTranslateY();
+		int type = image.getType();
+		if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) &&
+				dataBuffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel) {
+			intData = ((DataBufferInt) dataBuffer).getData();
+			scanlineStride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+			pixelStride = 1;
+			offset = dataBuffer.getOffset() - ty * scanlineStride - tx;
+			access = (type == BufferedImage.TYPE_INT_RGB) ? Access.INT_RGB : Access.INT_ARGB;
+		} else if (type == BufferedImage.TYPE_BYTE_BINARY &&
+				dataBuffer instanceof DataBufferByte && sampleModel instanceof MultiPixelPackedSampleModel) {
+			MultiPixelPackedSampleModel packedModel = (MultiPixelPackedSampleModel) sampleModel;
+			byteData = ((DataBufferByte) dataBuffer).getData();
+			scanlineStride = packedModel.getScanlineStride();
+			bitsPerPixel = packedModel.getPixelBitStride();
+			pixelMask = (1 << bitsPerPixel) - 1;
+			dataBitOffset = packedModel.getDataBitOffset() - tx * bitsPerPixel;
+			offset = dataBuffer.getOffset() - ty * scanlineStride;
+			lookup = createLookup(1 << bitsPerPixel);
+			access = Access.BYTE_PACKED;
+		} else if ((type == BufferedImage.TYPE_BYTE_GRAY || type == BufferedImage.TYPE_BYTE_INDEXED ||
+				type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR) &&
+				dataBuffer instanceof DataBufferByte && sampleModel instanceof ComponentSampleModel) {
+			ComponentSampleModel componentModel = (ComponentSampleModel) sampleModel;
+			byteData = ((DataBufferByte) dataBuffer).getData();
+			scanlineStride = componentModel.getScanlineStride();
+			pixelStride = componentModel.getPixelStride();
+			bandOffsets = componentModel.getBandOffsets();
+			offset = dataBuffer.getOffset() - ty * scanlineStride - tx * pixelStride;
+			if (type == BufferedImage.TYPE_3BYTE_BGR) {
+				access = Access.BYTE_BGR;
+			} else if (type == BufferedImage.TYPE_4BYTE_ABGR) {
+				access = Access.BYTE_ABGR;
+			} else {
+				lookup = createLookup(256);
+				offset += bandOffsets[0];
+				access = Access.BYTE_LOOKUP;
+			}
+		}
+	}
+
+	/** rgb for each possible pixel value, as the ColorModel converts it.
+	 *
+	 */
+	private int[] createLookup(int size) {
+		ColorModel colorModel = image.getColorModel();
+		int[] lookup = new int[size];
+		byte[] pixel = new byte[1];
+		for (int i = 0; i < size; i++) {
+			pixel[0] = (byte) i;
+			lookup[i] = colorModel.getRGB(pixel);
+		}
+		return lookup;
+	}
+
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/** rgb of pixel in default (sRGB) model.
+	 *
+	 * @param x
+	 * @param y
+	 * @return as BufferedImage.getRGB(x, y)
+	 * @throws ArrayIndexOutOfBoundsException if x,y is outside the image (as BufferedImage)
+	 */
+	public int getRGB(int x, int y) {
+		checkBounds(x, y);
+		return getRGBInside(x, y);
+	}
+
+	private void checkBounds(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds: "+x+","+y);
+		}
+	}
+
+	private int getRGBInside(int x, int y) {
+		switch (access) {
+		case INT_RGB:
+			return intData[offset + y * scanlineStride + x] | 0xff000000;
+		case INT_ARGB:
+			return intData[offset + y * scanlineStride + x];
+		case BYTE_LOOKUP:
+			return lookup[byteData[offset + y * scanlineStride + x * pixelStride] & 0xff];
+		case BYTE_PACKED: {
+			int bit = x * bitsPerPixel + dataBitOffset;
+			int value = byteData[offset + y * scanlineStride + (bit >> 3)];
+			int shift = 8 - bitsPerPixel - (bit & 7);
+			return lookup[(value >> shift) & pixelMask];
+		}
+		case BYTE_BGR: {
+			int i = offset + y * scanlineStride + x * pixelStride;
+			return 0xff000000 |
+					((byteData[i + bandOffsets[0]] & 0xff) << 16) |
+					((byteData[i + bandOffsets[1]] & 0xff) << 8) |
+					(byteData[i + bandOffsets[2]] & 0xff);
+		}
+		case BYTE_ABGR: {
+			int i = offset + y * scanlineStride + x * pixelStride;
+			return ((byteData[i + bandOffsets[3]] & 0xff) << 24) |
+					((byteData[i + bandOffsets[0]] & 0xff) << 16) |
+					((byteData[i + bandOffsets[1]] & 0xff) << 8) |
+					(byteData[i + bandOffsets[2]] & 0xff);
+		}
+		default:
+			return image.getRGB(x, y);
+		}
+	}
+
+	/** reads a row of rgb values.
+	 *
+	 * @param y
+	 * @param row if null or too short a new array is created
+	 * @return row
+	 */
+	public int[] getRGBRow(int y, int[] row) {
+		if (row == null || row.length < width) {
+			row = new int[width];
+		}
+		if (y < 0 || y >= height) {
+			throw new ArrayIndexOutOfBoundsException("Row out of bounds: "+y);
+		}
+		if (access == Access.INT_ARGB) {
+			System.arraycopy(intData, offset + y * scanlineStride, row, 0, width);
+		} else {
+			for (int x = 0; x < width; x++) {
+				row[x] = getRGBInside(x, y);
+			}
+		}
+		return row;
+	}
+
+	/** sets rgb of pixel.
+	 *
+	 * direct for int images, else through BufferedImage.setRGB().
+	 *
+	 * @param x
+	 * @param y
+	 * @param rgb
+	 */
+	public void setRGB(int x, int y, int rgb) {
+		checkBounds(x, y);
+		if (access == Access.INT_RGB) {
+			intData[offset + y * scanlineStride + x] = rgb & 0x00ffffff;
+		} else if (access == Access.INT_ARGB) {
+			intData[offset + y * scanlineStride + x] = rgb;
+		} else {
+			image.setRGB(x, y, rgb);
+		}
+	}
+
+	/** gray value of pixel.
+	 *
+	 * @param x
+	 * @param y
+	 * @return as ImageUtil.getGray(image, x, y)
+	 */
+	public int getGray(int x, int y) {
+		return ImageUtil.getGray(getRGB(x, y));
+	}
+
+}
@@ -5,6 +5,12 @@ import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.imageio.ImageIO;
 
@@ -23,8 +29,8 @@ import org.xmlcml.graphics.svg.SVGG;
 import org.xmlcml.graphics.svg.SVGRect;
 import org.xmlcml.graphics.svg.SVGSVG;
 import org.xmlcml.image.processing.HilditchThinning;
+import org.xmlcml.image.processing.LookupZhangSuenThinning;
 import org.xmlcml.image.processing.Thinning;
-import org.xmlcml.image.processing.ZhangSuenThinning;
 
 import boofcv.alg.filter.binary.ThresholdImageOps;
 import boofcv.core.image.ConvertBufferedImage;
@@ -46,7 +52,7 @@ public class ImageUtil {
 	public static int[] RGB = {RED, GREEN, BLUE};
 
 	public static BufferedImage zhangSuenThin(BufferedImage image) {
-		Thinning thinningService = new ZhangSuenThinning(image);
+		Thinning thinningService = new LookupZhangSuenThinning(image);
 		thinningService.doThinning();
 		image = thinningService.getThinnedImage();
 		return image;
@@ -66,6 +72,18 @@ public class ImageUtil {
 		return image;
 	}
 
+	/** thins binaryImage in place.
+	 * 
+	 * @param binaryImage
+	 * @param thinning
+	 * @return binaryImage
+	 */
+	public static BinaryImage thin(BinaryImage binaryImage, Thinning thinning) {
+		thinning.createBinary(binaryImage);
+		thinning.doThinning();
+		return thinning.getBinaryImage();
+	}
+
 	
 	public static BufferedImage boofCVBinarization(BufferedImage image, int threshold) {
 		ImageUInt8 input = ConvertBufferedImage.convertFrom(image,(ImageUInt8)null);
@@ -75,6 +93,30 @@ public class ImageUtil {
 		return outputImage;
 	}
 
+	/** binarizes as boofCVBinarization() but without creating an image.
+	 * 
+	 * pixels which boofCVBinarization() renders black are set.
+	 * 
+	 * @param image
+	 * @param threshold gray values below this are set
+	 * @return
+	 */
+	public static BinaryImage boofCVBinarizeToBinaryImage(BufferedImage image, int threshold) {
+		ImageUInt8 input = ConvertBufferedImage.convertFrom(image,(ImageUInt8)null);
+		int width = input.getWidth();
+		int height = input.getHeight();
+		BinaryImage binaryImage = new BinaryImage(width, height);
+		for (int y = 0; y < height; y++) {
+			int index = input.startIndex + y * input.stride;
+			for (int x = 0; x < width; x++) {
+				if ((input.data[index + x] & 0xff) < threshold) {
+					binaryImage.set(x, y);
+				}
+			}
+		}
+		return binaryImage;
+	}
+
 
 	/** extracts a subimage translated to 0,0.
 	 * 
@@ -121,10 +163,12 @@ public class ImageUtil {
 		Real2 centre2 = new Real2(0.0, 0.0);
 		double sumGray = 0.0;
 		double sumGray2 = 0.0;
+		ImageRaster raster = new ImageRaster(image);
+		ImageRaster raster2 = new ImageRaster(image2);
 		for (int i = 0; i < xrange; i++) {
 			for (int j = 0; j < yrange; j++) {
-				int gray = getGray(image, i,j);
-				int gray2 = getGray(image2, i,j);
+				int gray = raster.getGray(i, j);
+				int gray2 = raster2.getGray(i, j);
 				if (gray < 0 || gray2 < 0) {
 					throw new RuntimeException("bad gray value "+Integer.toHexString(gray)+" "+Integer.toHexString(gray2));
 				}
@@ -212,6 +256,10 @@ public class ImageUtil {
 		return (alpha & 0xff) ;
 	}
 	
+	/** gray value of a single pixel.
+	 * 
+	 * for loops over an image use ImageRaster.getGray().
+	 */
 	public static int getGray(BufferedImage image, int x, int y) {
 		return getGray(image.getRGB(x, y));
 	}
@@ -225,9 +273,10 @@ public class ImageUtil {
 		int cols = image.getWidth();
 		int rows = image.getHeight();
 		IntMatrix matrix = new IntMatrix(rows, cols, 0);
+		ImageRaster raster = new ImageRaster(image);
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < cols; j++) {
-				int gray = ImageUtil.getGray(image, j, i);
+				int gray = raster.getGray(j, i);
 				matrix.setElementAt(i,  j, gray);
 			}
 		}
@@ -498,4 +547,39 @@ public class ImageUtil {
 		return "r="+channels[RED]+",g="+channels[GREEN]+",b="+channels[BLUE];
 	}
 
+	/** runs tasks on pool (or in turn if pool is null).
+	 * 
+	 * shared by the classes that take a ForkJoinPool.
+	 * 
+	 * @return results in order of tasks
+	 * @throws RuntimeException thrown by a task is rethrown unchanged
+	 */
+	public static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>(tasks.size());
+		try {
+			if (pool == null || tasks.size() < 2) {
+				for (Callable<T> task : tasks) {
+					results.add(task.call());
+				}
+			} else {
+				for (Future<T> future : pool.invokeAll(tasks)) {
+					results.add(future.get());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("tasks interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException("task failed", e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException("task failed", e);
+		}
+		return results;
+	}
+
 }
@@ -19,6 +19,7 @@ import org.xmlcml.euclid.IntSet;
 import org.xmlcml.graphics.image.ImageIOUtil;
 import org.xmlcml.graphics.svg.SVGG;
 import org.xmlcml.graphics.svg.SVGSVG;
+import org.xmlcml.image.ImageRaster;
 import org.xmlcml.image.ImageUtil;
 import org.xmlcml.image.pixel.PixelList;
 
@@ -115,9 +116,10 @@ public class ColorAnalyzer {
 	public Multiset<Integer> createColorSet() {
 		IntRange xRange = xyRange.getXRange();
 		IntRange yRange = xyRange.getYRange();
+		ImageRaster raster = new ImageRaster(inputImage);
 		for (int jy = yRange.getMin(); jy <= yRange.getMax(); jy++) {
 			for (int ix = xRange.getMin(); ix <= xRange.getMax(); ix++) {
-				int color = inputImage.getRGB(ix, jy);
+				int color = raster.getRGB(ix, jy);
 				if (fourbits) {
 					color = color & 0xF0F0F0;
 				}
@@ -129,9 +131,10 @@ public class ColorAnalyzer {
 
 	public Multiset<Integer> createColorSetNew() {
 		this.colorSet = HashMultiset.create();
+		ImageRaster raster = new ImageRaster(currentImage);
 		for (int jy = 0; jy < currentImage.getHeight(); jy++) {
 			for (int ix = 0; ix < currentImage.getWidth(); ix++) {
-				int color = currentImage.getRGB(ix, jy);
+				int color = raster.getRGB(ix, jy);
 				colorSet.add(color);
 			}
 		}
@@ -7,6 +7,7 @@ import org.apache.log4j.Logger;
 import org.xmlcml.euclid.ArrayBase.Trim;
 import org.xmlcml.euclid.IntArray;
 import org.xmlcml.euclid.IntMatrix;
+import org.xmlcml.image.ImageRaster;
 import org.xmlcml.image.ImageUtil;
 
 /** holds the RGB channels for a buffered image as matrices
@@ -92,12 +93,13 @@ public class RGBMatrix {
 		int[][] mr = new int[xmax][ymax];
 		int[][] mg = new int[xmax][ymax];
 		int[][] mb = new int[xmax][ymax];
+		ImageRaster raster = new ImageRaster(image);
 		for (int x = 0; x < xmax; x++) {
 			mr[x] = new int[ymax];
 			mg[x] = new int[ymax];
 			mb[x] = new int[ymax];
 			for (int y = 0; y < ymax; y++) {
-				int rgb = image.getRGB(x, y);
+				int rgb = raster.getRGB(x, y);
 				mr[x][y] = ImageUtil.getRed(rgb);
 				mg[x][y] = ImageUtil.getGreen(rgb);
 				mb[x][y] = ImageUtil.getBlue(rgb);
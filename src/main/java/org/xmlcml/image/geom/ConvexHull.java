@@ -4,6 +4,11 @@ import java.awt.Button;
 import java.util.ArrayList;
 import java.util.Random;
 
+/** quickhull demo on random points.
+ * 
+ * @deprecated for islands use PixelIsland.getOrCreateShape()
+ */
+@Deprecated
 public class ConvexHull {
 	public static final long serialVersionUID = 1L;
 
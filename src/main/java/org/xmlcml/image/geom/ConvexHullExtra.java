@@ -5,7 +5,10 @@ import java.util.ArrayList;
 
 /**
  * class to Implement Convex Hull Algorithms in 2D-Space.
+ * 
+ * @deprecated for islands use PixelIsland.getOrCreateShape()
  */
+@Deprecated
 public class ConvexHullExtra {
 
 //public ArrayList<Line2>  ConvexHull_BruteForce(ArrayList<Point2> points)
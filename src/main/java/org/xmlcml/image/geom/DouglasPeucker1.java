@@ -39,6 +39,11 @@ import org.xmlcml.euclid.Real2;
 	 * 
 	 */
 
+/** recursive RDP on Real2 lists.
+ * 
+ * @deprecated use DouglasPeuckerSimplifier (as DouglasPeucker does)
+ */
+@Deprecated
 public class DouglasPeucker1 {
 	
 	List<Real2> properRDP(List<Real2> points, double epsilon) {
@@ -0,0 +1,415 @@
+package org.xmlcml.image.geom;
+
+import java.util.Arrays;
+
+import org.xmlcml.euclid.Real2;
+import org.xmlcml.euclid.Real2Array;
+
+/** Douglas-Peucker reduction of x,y coordinate arrays.
+ *
+ * the engine behind DouglasPeucker and PixelEdge.getOrCreateSegmentList(). Same tolerance
+ * test, same optional corner finding (cornerFindingWindow etc.) and same treatment of closed
+ * shapes (first and last points within 1.5) as DouglasPeucker always had, but on primitive
+ * arrays and with an explicit stack instead of recursion.
+ *
+ * work arrays are kept and reused, so once they are big enough reduce(coords, n, kept)
+ * allocates nothing. An instance is therefore not thread-safe; use one per thread.
+ *
+ * with corner finding the point chosen in a range may lie outside it; the most deviating
+ * point is then used instead (DouglasPeucker used to recurse on the same range again).
+ */
+public class DouglasPeuckerSimplifier {
+
+	private static final double CLOSED_TOLERANCE = 1.5;
+
+	private double tolerance;
+	private boolean cornerFinding;
+	private int cornerFindingWindow;
+	private double relativeCornernessThresholdForCornerAggregation;
+	private double allowedDifferenceCornerMaximumDeviating;
+	private int maxNumberCornersToSearch;
+
+	// shape being reduced (rotated if closed)
+	private double[] xy = new double[0];
+	private boolean[] marked = new boolean[0];
+	private int[] stack = new int[0];
+	private double[] cornernesses = new double[0];
+	private int[] positionsCorners = new int[0];
+	private int positionGreatestCornerness;
+	private int positionSecondGreatestCornerness;
+	private double maxDeviation;
+	// candidate corners of a range in a binary heap ordered as java.util.PriorityQueue
+	private int[] heap = new int[0];
+	private int[] heapCornerIndex = new int[0];
+	private double[] heapDeviation = new double[0];
+	private int heapSize;
+
+	public DouglasPeuckerSimplifier(double tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	public DouglasPeuckerSimplifier(double tolerance, int cornerFindingWindow, double relativeCornernessThresholdForCornerAggregation, double allowedDifferenceCornerMaximumDeviating, int maxNumberCornersToSearch) {
+		this.tolerance = tolerance;
+		this.cornerFinding = true;
+		this.cornerFindingWindow = cornerFindingWindow;
+		this.relativeCornernessThresholdForCornerAggregation = relativeCornernessThresholdForCornerAggregation;
+		this.allowedDifferenceCornerMaximumDeviating = allowedDifferenceCornerMaximumDeviating;
+		this.maxNumberCornersToSearch = maxNumberCornersToSearch;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/** indices of the points kept.
+	 *
+	 * @param coords x0, y0, x1, y1...
+	 * @param n number of points
+	 * @param kept filled with indices of kept points in output order; length at least n
+	 * @return number of points kept
+	 */
+	public int reduce(double[] coords, int n, int[] kept) {
+		ensureCapacity(n);
+		System.arraycopy(coords, 0, xy, 0, 2 * n);
+		return reduce(n, kept);
+	}
+
+	/** indices of the points kept.
+	 *
+	 * as reduce(double[], int, int[]) for integer (pixel) coordinates.
+	 */
+	public int reduce(int[] coords, int n, int[] kept) {
+		ensureCapacity(n);
+		for (int i = 0; i < 2 * n; i++) {
+			xy[i] = coords[i];
+		}
+		return reduce(n, kept);
+	}
+
+	/** kept points.
+	 *
+	 * @param coords x0, y0, x1, y1...
+	 * @return new array of kept x, y
+	 */
+	public double[] reduce(double[] coords) {
+		int n = coords.length / 2;
+		int[] kept = new int[n];
+		int count = reduce(coords, n, kept);
+		double[] reduced = new double[2 * count];
+		for (int i = 0; i < count; i++) {
+			reduced[2 * i] = coords[2 * kept[i]];
+			reduced[2 * i + 1] = coords[2 * kept[i] + 1];
+		}
+		return reduced;
+	}
+
+	/** kept points of integer coordinates x0, y0, x1, y1...
+	 *
+	 */
+	public Real2Array reduceToArray(int[] coords) {
+		int n = coords.length / 2;
+		int[] kept = new int[n];
+		int count = reduce(coords, n, kept);
+		Real2Array points = new Real2Array();
+		for (int i = 0; i < count; i++) {
+			points.add(new Real2(coords[2 * kept[i]], coords[2 * kept[i] + 1]));
+		}
+		return points;
+	}
+
+	/** kept points (the same Real2s).
+	 *
+	 */
+	public Real2Array reduceToArray(Real2Array points) {
+		int n = points.size();
+		double[] coords = new double[2 * n];
+		for (int i = 0; i < n; i++) {
+			Real2 point = points.get(i);
+			coords[2 * i] = point.getX();
+			coords[2 * i + 1] = point.getY();
+		}
+		int[] kept = new int[n];
+		int count = reduce(coords, n, kept);
+		Real2Array reduced = new Real2Array();
+		for (int i = 0; i < count; i++) {
+			reduced.add(points.get(kept[i]));
+		}
+		return reduced;
+	}
+
+	private void ensureCapacity(int n) {
+		if (marked.length < n) {
+			int size = Math.max(n, 2 * marked.length);
+			xy = new double[2 * size];
+			marked = new boolean[size];
+			stack = new int[2 * size];
+			cornernesses = new double[size];
+			positionsCorners = new int[size];
+			heap = new int[size];
+			heapCornerIndex = new int[size];
+			heapDeviation = new double[size];
+		}
+	}
+
+	private int reduce(int n, int[] kept) {
+		if (n < 3) {
+			for (int i = 0; i < n; i++) {
+				kept[i] = i;
+			}
+			return n;
+		}
+		Arrays.fill(marked, 0, n, false);
+		marked[0] = true;
+		marked[n - 1] = true;
+		int rotation = 0;
+		if (cornerFinding) {
+			positionGreatestCornerness = 0;
+			positionSecondGreatestCornerness = 0;
+			calculateCornernesses(n);
+		}
+		// without corner finding split is 0 and nothing is rotated
+		if (cornerFinding && isClosed(n)) {
+			rotation = positionGreatestCornerness;
+			rotate(n, rotation);
+			int split = positionSecondGreatestCornerness - positionGreatestCornerness;
+			if (split < 0) {
+				split += n;
+			}
+			marked[split] = true;
+			calculateCornernesses(n);
+			douglasPeuckerReduction(0, split);
+			douglasPeuckerReduction(split, n - 1);
+		} else {
+			douglasPeuckerReduction(0, n - 1);
+		}
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (marked[i]) {
+				kept[count++] = (i + rotation) % n;
+			}
+		}
+		return count;
+	}
+
+	private boolean isClosed(int n) {
+		return Math.abs(xy[0] - xy[2 * n - 2]) < CLOSED_TOLERANCE &&
+				Math.abs(xy[1] - xy[2 * n - 1]) < CLOSED_TOLERANCE;
+	}
+
+	/** as Collections.rotate(shape, -distance).
+	 *
+	 */
+	private void rotate(int n, int distance) {
+		if (distance == 0) {
+			return;
+		}
+		reverse(0, distance - 1);
+		reverse(distance, n - 1);
+		reverse(0, n - 1);
+	}
+
+	private void reverse(int i, int j) {
+		for (; i < j; i++, j--) {
+			double x = xy[2 * i];
+			double y = xy[2 * i + 1];
+			xy[2 * i] = xy[2 * j];
+			xy[2 * i + 1] = xy[2 * j + 1];
+			xy[2 * j] = x;
+			xy[2 * j + 1] = y;
+		}
+	}
+
+	/** distance of each point from the centroid of the window round it, and the local
+	 * maximum of that near each point.
+	 *
+	 */
+	private void calculateCornernesses(int n) {
+		int w = cornerFindingWindow;
+		Arrays.fill(cornernesses, 0, n, 0.0);
+		Arrays.fill(positionsCorners, 0, n, 0);
+		double greatestCornerness = 0;
+		double secondGreatestCornerness = 0;
+		for (int idx = 1; idx < n - 1; idx++) {
+			if (idx - w >= 0 && idx + w <= n - 1) {
+				double sumX = 0;
+				double sumY = 0;
+				for (int idx2 = idx - w; idx2 <= idx + w; idx2++) {
+					sumX += xy[2 * idx2];
+					sumY += xy[2 * idx2 + 1];
+				}
+				double dx = sumX / (2 * w + 1) - xy[2 * idx];
+				double dy = sumY / (2 * w + 1) - xy[2 * idx + 1];
+				cornernesses[idx] = Math.sqrt(dx * dx + dy * dy);
+			}
+			if (idx > w * 2) {
+				// first two candidates in descending order of cornerness (earlier first if equal)
+				int best = -1;
+				int second = -1;
+				int first = idx - w * 2;
+				if (cornernesses[first] >= cornernesses[first + 1]) {
+					best = first;
+				}
+				if (cornernesses[idx] >= cornernesses[idx - 1]) {
+					if (best < 0 || cornernesses[idx] > cornernesses[best]) {
+						second = best;
+						best = idx;
+					} else {
+						second = idx;
+					}
+				}
+				for (int idx2 = first + 1; idx2 < idx; idx2++) {
+					double thisCornerness = cornernesses[idx2];
+					if (thisCornerness >= cornernesses[idx2 - 1] && thisCornerness >= cornernesses[idx2 + 1]) {
+						if (best < 0 || thisCornerness > cornernesses[best]) {
+							second = best;
+							best = idx2;
+						} else if (second < 0 || thisCornerness > cornernesses[second]) {
+							second = idx2;
+						}
+					}
+				}
+				int position = (second < 0 || cornernesses[second] < relativeCornernessThresholdForCornerAggregation * cornernesses[best]) ?
+						best : (best + second) / 2;
+				int centre = idx - w;
+				positionsCorners[centre] = position;
+				if (cornernesses[centre] > greatestCornerness) {
+					secondGreatestCornerness = greatestCornerness;
+					positionSecondGreatestCornerness = positionGreatestCornerness;
+					greatestCornerness = cornernesses[centre];
+					positionGreatestCornerness = position;
+				} else if (cornernesses[centre] > secondGreatestCornerness) {
+					secondGreatestCornerness = cornernesses[centre];
+					positionSecondGreatestCornerness = position;
+				}
+			}
+		}
+	}
+
+	/** marks the points to keep between firstIdx and lastIdx.
+	 *
+	 */
+	private void douglasPeuckerReduction(int firstIdx, int lastIdx) {
+		int top = 0;
+		stack[top++] = firstIdx;
+		stack[top++] = lastIdx;
+		while (top > 0) {
+			int last = stack[--top];
+			int first = stack[--top];
+			// overlapping indexes
+			if (last <= first + 1) {
+				continue;
+			}
+			int idxMax = findMaximallyDeviatingPoint(first, last);
+			if (maxDeviation > tolerance) {
+				marked[idxMax] = true;
+				stack[top++] = idxMax;
+				stack[top++] = last;
+				stack[top++] = first;
+				stack[top++] = idxMax;
+			}
+		}
+	}
+
+	private int findMaximallyDeviatingPoint(int firstIdx, int lastIdx) {
+		maxDeviation = 0.0;
+		int indexOfMaxDeviation = 0;
+		heapSize = 0;
+		boolean searchCorners = cornerFinding && maxNumberCornersToSearch > 0;
+		double xs = xy[2 * firstIdx];
+		double ys = xy[2 * firstIdx + 1];
+		double xe = xy[2 * lastIdx];
+		double ye = xy[2 * lastIdx + 1];
+		for (int idx = firstIdx + 1; idx < lastIdx; idx++) {
+			double distance = orthogonalDistance(xy[2 * idx], xy[2 * idx + 1], xs, ys, xe, ye);
+			// the point with the greatest distance
+			if (distance > maxDeviation) {
+				maxDeviation = distance;
+				indexOfMaxDeviation = idx;
+			}
+			if (searchCorners && idx > firstIdx + cornerFindingWindow && idx < lastIdx - cornerFindingWindow) {
+				offerCorner(positionsCorners[idx], distance);
+			}
+		}
+		if (heapSize > 0) {
+			int cornerIndex = indexOfMaxDeviation;
+			int i = 0;
+			int c = pollCorner();
+			while (c >= 0 && i < maxNumberCornersToSearch) {
+				if (maxDeviation - heapDeviation[c] < allowedDifferenceCornerMaximumDeviating && heapDeviation[c] > tolerance) {
+					cornerIndex = heapCornerIndex[c];
+				}
+				int previousIndex = heapCornerIndex[c];
+				c = pollCorner();
+				i += (c >= 0 && heapCornerIndex[c] != previousIndex) ? 1 : 0;
+			}
+			if (cornerIndex > firstIdx && cornerIndex < lastIdx) {
+				indexOfMaxDeviation = cornerIndex;
+			}
+		}
+		return indexOfMaxDeviation;
+	}
+
+	/** distance of point from the line through lineStart and lineEnd.
+	 *
+	 */
+	private static double orthogonalDistance(double x, double y, double xs, double ys, double xe, double ye) {
+		double area = Math.abs((ys * xe + ye * x + y * xs - ye * xs - y * xe - ys * x) / 2.0);
+		double bottom = Math.hypot(ys - ye, xs - xe);
+		return (area / bottom * 2.0);
+	}
+
+	/** corners are polled in descending cornerness; equal cornernesses in the order
+	 * java.util.PriorityQueue gives them.
+	 *
+	 */
+	private void offerCorner(int cornerIndex, double deviation) {
+		int entry = heapSize;
+		heapCornerIndex[entry] = cornerIndex;
+		heapDeviation[entry] = deviation;
+		int k = heapSize++;
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			int e = heap[parent];
+			if (compareCorners(entry, e) >= 0) {
+				break;
+			}
+			heap[k] = e;
+			k = parent;
+		}
+		heap[k] = entry;
+	}
+
+	/** @return entry or -1 if none
+	 */
+	private int pollCorner() {
+		if (heapSize == 0) {
+			return -1;
+		}
+		int result = heap[0];
+		int n = --heapSize;
+		int x = heap[n];
+		if (n > 0) {
+			int k = 0;
+			int half = n >>> 1;
+			while (k < half) {
+				int child = (k << 1) + 1;
+				int c = heap[child];
+				int right = child + 1;
+				if (right < n && compareCorners(c, heap[right]) > 0) {
+					c = heap[child = right];
+				}
+				if (compareCorners(x, c) <= 0) {
+					break;
+				}
+				heap[k] = c;
+				k = child;
+			}
+			heap[k] = x;
+		}
+		return result;
+	}
+
+	private int compareCorners(int entry1, int entry2) {
+		return Double.compare(cornernesses[heapCornerIndex[entry2]], cornernesses[heapCornerIndex[entry1]]);
+	}
+}
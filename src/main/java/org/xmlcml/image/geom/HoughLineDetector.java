@@ -0,0 +1,684 @@
+package org.xmlcml.image.geom;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.log4j.Logger;
+import org.xmlcml.euclid.Real2;
+import org.xmlcml.graphics.svg.SVGLine;
+import org.xmlcml.graphics.svg.SVGSVG;
+import org.xmlcml.image.BinaryImage;
+import org.xmlcml.image.ImageRaster;
+import org.xmlcml.image.ImageUtil;
+
+/** line segments at any angle by a Hough transform of the binarised image.
+ *
+ * set pixels vote into an int accumulator [theta][rho] with precomputed sin/cos tables;
+ * each thread owns a block of theta rows so no votes are shared. Above maxVotingPixels the
+ * voters are a random sample (probabilistic Hough after Kiryati et al.) and the threshold
+ * is scaled to match. Peaks (local maxima with threshold votes above the background expected
+ * from the image's density) are taken strongest first: pixels in runs near the peak's line
+ * are fitted by least squares, runs along the fitted line (gaps up to maxLineGap) of at least
+ * minLineLength become segments and their pixels are not used again.
+ *
+ * coordinates are pixel coordinates (x right, y down); theta is the angle of the line's normal.
+ */
+public class HoughLineDetector extends AbstractDetector {
+
+	private static final Logger LOG = Logger.getLogger(HoughLineDetector.class);
+
+	public final static int DEFAULT_THETA_COUNT = 360;
+	public final static int DEFAULT_THRESHOLD = 50;
+	public final static int DEFAULT_MAX_LINE_GAP = 3;
+	public final static int DEFAULT_LINE_WIDTH = 3;
+	// the band, 2 * (lineWidth / 2) + 1 pixels, must fit in 64 bits
+	public final static int MAX_LINE_WIDTH = 63;
+	public final static int DEFAULT_MAX_VOTING_PIXELS = 200000;
+	public final static int DEFAULT_GRAY_CUTOFF = 128;
+	// half-width of the band round a peak's line used for the fit
+	private static final int FIT_HALF_WIDTH = 2;
+	private static final int FIT_ITERATIONS = 3;
+
+	private int thetaCount = DEFAULT_THETA_COUNT;
+	private int threshold = DEFAULT_THRESHOLD;
+	private int minLineLength = LineDetector.MINLEN;
+	private int maxLineGap = DEFAULT_MAX_LINE_GAP;
+	private int lineWidth = DEFAULT_LINE_WIDTH;
+	private int maxVotingPixels = DEFAULT_MAX_VOTING_PIXELS;
+	private int grayCutoff = DEFAULT_GRAY_CUTOFF;
+	private long seed = 0L;
+	private ForkJoinPool forkJoinPool;
+
+	private BinaryImage binaryImage;
+	private BinaryImage usedImage;
+	private double[] cosTable;
+	private double[] sinTable;
+	private int rhoOffset;
+	private int rhoCount;
+	private int[] accumulator;
+	// current line and the hits along it, indexed by major
+	private boolean horizontal;
+	private double slope;
+	private double intercept;
+	private int[] hitCounts;
+	private long[] minorSums;
+	private int hitFrom;
+	private int hitTo;
+	private int[] runs = new int[16];
+	// x1, y1, x2, y2 for each segment
+	private double[] segments = new double[64];
+	private int segmentCount;
+
+	public HoughLineDetector() {
+	}
+
+	@Override
+	protected void process() {
+		detect(createBinaryImage(inputImage, grayCutoff));
+		outputImage = binaryImage.createBufferedImage();
+	}
+
+	/** pixels darker than cutoff (mean of red, green and blue).
+	 *
+	 * @param image
+	 * @param cutoff 0-255
+	 * @return
+	 */
+	public static BinaryImage createBinaryImage(BufferedImage image, int cutoff) {
+		BinaryImage binaryImage = new BinaryImage(image.getWidth(), image.getHeight());
+		ImageRaster raster = new ImageRaster(image);
+		int[] row = null;
+		for (int y = 0; y < image.getHeight(); y++) {
+			row = raster.getRGBRow(y, row);
+			for (int x = 0; x < image.getWidth(); x++) {
+				int rgb = row[x];
+				int gray = (((rgb >> 16) & 0xff) + ((rgb >> 8) & 0xff) + (rgb & 0xff)) / 3;
+				if (gray < cutoff) {
+					binaryImage.set(x, y);
+				}
+			}
+		}
+		return binaryImage;
+	}
+
+	/** finds segments in a binary image (replaces any earlier ones) and creates the svg.
+	 *
+	 * the image is not changed.
+	 *
+	 * @param binaryImage
+	 * @return number of segments
+	 */
+	public int detect(BinaryImage binaryImage) {
+		this.binaryImage = binaryImage;
+		usedImage = new BinaryImage(binaryImage.getWidth(), binaryImage.getHeight());
+		segmentCount = 0;
+		createTables();
+		int[] points = getVotingPoints();
+		int totalPixels = binaryImage.cardinality();
+		int voteThreshold = totalPixels == 0 ? 1 :
+			Math.max(1, (int) Math.ceil((double) threshold * (points.length / 2) / totalPixels));
+		double density = (points.length / 2) / ((double) binaryImage.getWidth() * binaryImage.getHeight());
+		vote(points);
+		long[] peaks = findPeaks(voteThreshold, density);
+		int majorSize = Math.max(binaryImage.getWidth(), binaryImage.getHeight());
+		hitCounts = new int[majorSize];
+		minorSums = new long[majorSize];
+		hitFrom = 0;
+		hitTo = -1;
+		LOG.trace("pixels: " + totalPixels + " voters: " + points.length / 2 + " peaks: " + peaks.length);
+		for (int i = peaks.length - 1; i >= 0; i--) {
+			int cell = (int) peaks[i];
+			addSegments(cell / rhoCount, cell % rhoCount - rhoOffset);
+		}
+		accumulator = null;
+		usedImage = null;
+		hitCounts = null;
+		minorSums = null;
+		createSvg();
+		return segmentCount;
+	}
+
+	private void createTables() {
+		cosTable = new double[thetaCount];
+		sinTable = new double[thetaCount];
+		for (int t = 0; t < thetaCount; t++) {
+			double theta = Math.PI * t / thetaCount;
+			cosTable[t] = Math.cos(theta);
+			sinTable[t] = Math.sin(theta);
+		}
+		int width = binaryImage.getWidth();
+		int height = binaryImage.getHeight();
+		rhoOffset = (int) Math.ceil(Math.sqrt((double) width * width + (double) height * height)) + 1;
+		rhoCount = 2 * rhoOffset + 1;
+	}
+
+	/** coordinates of set pixels; a random sample if there are more than maxVotingPixels.
+	 *
+	 * @return x0, y0, x1, y1...
+	 */
+	private int[] getVotingPoints() {
+		int count = binaryImage.cardinality();
+		int[] points = new int[2 * count];
+		int n = 0;
+		for (int y = 0; y < binaryImage.getHeight(); y++) {
+			for (int x = binaryImage.nextSetBit(0, y); x < binaryImage.getWidth(); x = binaryImage.nextSetBit(x + 1, y)) {
+				points[n++] = x;
+				points[n++] = y;
+			}
+		}
+		if (count <= maxVotingPixels) {
+			return points;
+		}
+		// partial Fisher-Yates shuffle of the first maxVotingPixels points
+		Random random = new Random(seed);
+		for (int i = 0; i < maxVotingPixels; i++) {
+			int j = i + random.nextInt(count - i);
+			int x = points[2 * i];
+			int y = points[2 * i + 1];
+			points[2 * i] = points[2 * j];
+			points[2 * i + 1] = points[2 * j + 1];
+			points[2 * j] = x;
+			points[2 * j + 1] = y;
+		}
+		return Arrays.copyOf(points, 2 * maxVotingPixels);
+	}
+
+	/** fills the accumulator; each task owns a block of theta rows.
+	 *
+	 */
+	private void vote(final int[] points) {
+		accumulator = new int[thetaCount * rhoCount];
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+		for (final int[] block : createThetaBlocks()) {
+			tasks.add(new Callable<Boolean>() {
+				public Boolean call() {
+					for (int t = block[0]; t < block[1]; t++) {
+						int row = t * rhoCount;
+						double cos = cosTable[t];
+						// + 0.5 rounds as the index is never negative
+						double offset = row + rhoOffset + 0.5;
+						double sin = sinTable[t];
+						for (int i = 0; i < points.length; i += 2) {
+							accumulator[(int) (points[i] * cos + points[i + 1] * sin + offset)]++;
+						}
+					}
+					return true;
+				}
+			});
+		}
+		ImageUtil.invokeAll(forkJoinPool, tasks);
+	}
+
+	/** cells which are local maxima with at least threshold votes more than background.
+	 *
+	 * background is the votes expected from pixels scattered at the image's density along
+	 * the part of the line inside the image; it keeps text and noise on full pages from
+	 * making peaks everywhere.
+	 *
+	 * @param density voters per pixel
+	 * @return votes << 32 | cell, ascending
+	 */
+	private long[] findPeaks(final int voteThreshold, final double density) {
+		List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>();
+		for (final int[] block : createThetaBlocks()) {
+			tasks.add(new Callable<long[]>() {
+				public long[] call() {
+					long[] peaks = new long[16];
+					int n = 0;
+					for (int t = block[0]; t < block[1]; t++) {
+						for (int r = 0; r < rhoCount; r++) {
+							int cell = t * rhoCount + r;
+							int votes = accumulator[cell];
+							if (votes >= voteThreshold &&
+									votes >= voteThreshold + density * getChordLength(t, r - rhoOffset) &&
+									isPeak(t, r, votes)) {
+								if (n == peaks.length) {
+									peaks = Arrays.copyOf(peaks, 2 * n);
+								}
+								peaks[n++] = ((long) votes << 32) | cell;
+							}
+						}
+					}
+					return Arrays.copyOf(peaks, n);
+				}
+			});
+		}
+		int total = 0;
+		List<long[]> blockPeaks = ImageUtil.invokeAll(forkJoinPool, tasks);
+		for (long[] peaks : blockPeaks) {
+			total += peaks.length;
+		}
+		long[] allPeaks = new long[total];
+		int n = 0;
+		for (long[] peaks : blockPeaks) {
+			System.arraycopy(peaks, 0, allPeaks, n, peaks.length);
+			n += peaks.length;
+		}
+		Arrays.sort(allPeaks);
+		return allPeaks;
+	}
+
+	/** length of the line of cell (t, rho) inside the image.
+	 *
+	 */
+	private double getChordLength(int t, int rho) {
+		double cos = cosTable[t];
+		double sin = sinTable[t];
+		// points (rho cos - s sin, rho sin + s cos) clipped to the image
+		double sMin = -Double.MAX_VALUE;
+		double sMax = Double.MAX_VALUE;
+		double[] origins = {rho * cos, rho * sin};
+		double[] directions = {-sin, cos};
+		double[] sizes = {binaryImage.getWidth(), binaryImage.getHeight()};
+		for (int i = 0; i < 2; i++) {
+			if (Math.abs(directions[i]) < 1.0e-12) {
+				if (origins[i] < 0 || origins[i] > sizes[i]) {
+					return 0.0;
+				}
+			} else {
+				double s0 = -origins[i] / directions[i];
+				double s1 = (sizes[i] - origins[i]) / directions[i];
+				sMin = Math.max(sMin, Math.min(s0, s1));
+				sMax = Math.min(sMax, Math.max(s0, s1));
+			}
+		}
+		return Math.max(0.0, sMax - sMin);
+	}
+
+	/** greater than the 8 neighbours before it and not less than those after it.
+	 *
+	 * theta wraps round: the row before 0 is the last row with rho negated.
+	 */
+	private boolean isPeak(int t, int r, int votes) {
+		int cell = t * rhoCount + r;
+		for (int dt = -1; dt <= 1; dt++) {
+			for (int dr = -1; dr <= 1; dr++) {
+				if (dt == 0 && dr == 0) {
+					continue;
+				}
+				int tt = t + dt;
+				int rr = r + dr;
+				if (tt < 0 || tt >= thetaCount) {
+					tt = (tt + thetaCount) % thetaCount;
+					rr = rhoCount - 1 - rr;
+				}
+				if (rr < 0 || rr >= rhoCount) {
+					continue;
+				}
+				int neighbour = tt * rhoCount + rr;
+				int neighbourVotes = accumulator[neighbour];
+				if (neighbourVotes > votes || (neighbourVotes == votes && neighbour < cell)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/** splits theta rows into blocks, one per task.
+	 *
+	 * @return from (inclusive), to (exclusive)
+	 */
+	private List<int[]> createThetaBlocks() {
+		int blockCount = forkJoinPool == null ? 1 : Math.min(thetaCount, 4 * forkJoinPool.getParallelism());
+		List<int[]> blocks = new ArrayList<int[]>(blockCount);
+		for (int i = 0; i < blockCount; i++) {
+			blocks.add(new int[] {i * thetaCount / blockCount, (i + 1) * thetaCount / blockCount});
+		}
+		return blocks;
+	}
+
+	/** segments on the line of one peak from pixels not yet used.
+	 *
+	 * the line is refitted (a few times) to the pixels in runs near it so slightly skewed
+	 * lines are followed to their ends.
+	 */
+	private void addSegments(int t, int rho) {
+		setLine(cosTable[t], sinTable[t], rho);
+		for (int i = 0; i < FIT_ITERATIONS; i++) {
+			collectHits(FIT_HALF_WIDTH);
+			if (!fitLine(findRuns())) {
+				return;
+			}
+		}
+		collectHits(lineWidth / 2);
+		int count = findRuns();
+		for (int i = 0; i < count; i++) {
+			addRun(runs[2 * i], runs[2 * i + 1], lineWidth / 2);
+		}
+	}
+
+	/** current line x cos + y sin = rho as minor = intercept + slope * major.
+	 *
+	 * major is x for lines nearer horizontal, else y.
+	 */
+	private void setLine(double cos, double sin, double rho) {
+		horizontal = Math.abs(sin) >= Math.abs(cos);
+		slope = horizontal ? -cos / sin : -sin / cos;
+		intercept = horizontal ? rho / sin : rho / cos;
+	}
+
+	private int getMinor(int major) {
+		return (int) Math.floor(intercept + slope * major + 0.5);
+	}
+
+	/** counts unused set pixels within halfWidth across the current line at each major.
+	 *
+	 * rows are scanned a word at a time between the columns the band can reach.
+	 */
+	private void collectHits(int halfWidth) {
+		for (int major = hitFrom; major <= hitTo; major++) {
+			hitCounts[major] = 0;
+			minorSums[major] = 0;
+		}
+		hitFrom = Integer.MAX_VALUE;
+		hitTo = -1;
+		int width = binaryImage.getWidth();
+		int height = binaryImage.getHeight();
+		int wordsPerRow = binaryImage.getWordsPerRow();
+		long[] words = binaryImage.getWords();
+		long[] usedWords = usedImage.getWords();
+		if (horizontal) {
+			double minor0 = intercept;
+			double minor1 = intercept + slope * (width - 1);
+			int yMin = Math.max(0, (int) Math.floor(Math.min(minor0, minor1)) - halfWidth - 1);
+			int yMax = Math.min(height - 1, (int) Math.ceil(Math.max(minor0, minor1)) + halfWidth + 1);
+			for (int y = yMin; y <= yMax; y++) {
+				int xMin = 0;
+				int xMax = width - 1;
+				if (slope != 0.0) {
+					double x0 = (y - halfWidth - 1 - intercept) / slope;
+					double x1 = (y + halfWidth + 1 - intercept) / slope;
+					xMin = Math.max(xMin, (int) Math.floor(Math.min(x0, x1)));
+					xMax = Math.min(xMax, (int) Math.ceil(Math.max(x0, x1)));
+				}
+				if (xMin > xMax) {
+					continue;
+				}
+				int row = y * wordsPerRow;
+				for (int w = xMin >> 6; w <= xMax >> 6; w++) {
+					long bits = words[row + w] & ~usedWords[row + w];
+					if (w == xMin >> 6) {
+						bits &= -1L << xMin;
+					}
+					if (w == xMax >> 6) {
+						bits &= -1L >>> (63 - (xMax & 63));
+					}
+					while (bits != 0) {
+						int x = (w << 6) + Long.numberOfTrailingZeros(bits);
+						bits &= bits - 1;
+						if (Math.abs(y - getMinor(x)) <= halfWidth) {
+							addHit(x, y);
+						}
+					}
+				}
+			}
+		} else {
+			for (int y = 0; y < height; y++) {
+				int minor = getMinor(y);
+				int xMin = Math.max(0, minor - halfWidth);
+				int xMax = Math.min(width - 1, minor + halfWidth);
+				if (xMin > xMax) {
+					continue;
+				}
+				// the band (at most 64 pixels) shifted down to bit 0
+				int word = y * wordsPerRow + (xMin >> 6);
+				long bits = (words[word] & ~usedWords[word]) >>> xMin;
+				if ((xMin & 63) != 0 && (xMax >> 6) != (xMin >> 6)) {
+					bits |= (words[word + 1] & ~usedWords[word + 1]) << (64 - (xMin & 63));
+				}
+				bits &= -1L >>> (63 - (xMax - xMin));
+				while (bits != 0) {
+					addHit(y, xMin + Long.numberOfTrailingZeros(bits));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	private void addHit(int major, int minor) {
+		hitCounts[major]++;
+		minorSums[major] += minor;
+		hitFrom = Math.min(hitFrom, major);
+		hitTo = Math.max(hitTo, major);
+	}
+
+	/** runs of hits (gaps up to maxLineGap) at least minLineLength long.
+	 *
+	 * @return number of runs; ends (inclusive) are in runs
+	 */
+	private int findRuns() {
+		double stepLength = Math.sqrt(1.0 + slope * slope);
+		int count = 0;
+		int runStart = -1;
+		int runEnd = -1;
+		for (int major = hitFrom; major <= hitTo + maxLineGap + 1; major++) {
+			boolean hit = major <= hitTo && hitCounts[major] > 0;
+			if (runStart >= 0 && (major > hitTo || (hit && major - runEnd - 1 > maxLineGap))) {
+				if ((runEnd - runStart) * stepLength >= minLineLength) {
+					if (2 * count + 2 > runs.length) {
+						runs = Arrays.copyOf(runs, 2 * runs.length);
+					}
+					runs[2 * count] = runStart;
+					runs[2 * count + 1] = runEnd;
+					count++;
+				}
+				runStart = -1;
+			}
+			if (hit) {
+				if (runStart < 0) {
+					runStart = major;
+				}
+				runEnd = major;
+			}
+		}
+		return count;
+	}
+
+	/** least squares line (minor on major) through the hits in the runs found.
+	 *
+	 * @param runCount
+	 * @return false if the hits do not define a line
+	 */
+	private boolean fitLine(int runCount) {
+		double n = 0;
+		double sumMajor = 0;
+		double sumMinor = 0;
+		double sumMajorMajor = 0;
+		double sumMajorMinor = 0;
+		for (int i = 0; i < runCount; i++) {
+			for (int major = runs[2 * i]; major <= runs[2 * i + 1]; major++) {
+				int count = hitCounts[major];
+				n += count;
+				sumMajor += (double) count * major;
+				sumMajorMajor += (double) count * major * major;
+				sumMinor += minorSums[major];
+				sumMajorMinor += (double) major * minorSums[major];
+			}
+		}
+		double variance = n * sumMajorMajor - sumMajor * sumMajor;
+		if (n < 2 || variance <= 0.0) {
+			return false;
+		}
+		double b = (n * sumMajorMinor - sumMajor * sumMinor) / variance;
+		double a = (sumMinor - b * sumMajor) / n;
+		double norm = Math.sqrt(1.0 + b * b);
+		if (horizontal) {
+			setLine(-b / norm, 1.0 / norm, a / norm);
+		} else {
+			setLine(1.0 / norm, -b / norm, a / norm);
+		}
+		return true;
+	}
+
+	/** adds a segment between majors start and end on the current line.
+	 *
+	 * its pixels (in a band one pixel wider than the one searched) are marked used.
+	 */
+	private void addRun(int start, int end, int halfWidth) {
+		for (int major = start; major <= end; major++) {
+			int minor = getMinor(major);
+			for (int m = minor - halfWidth - 1; m <= minor + halfWidth + 1; m++) {
+				int x = horizontal ? major : m;
+				int y = horizontal ? m : major;
+				if (binaryImage.get(x, y)) {
+					usedImage.set(x, y);
+				}
+			}
+		}
+		double minor0 = intercept + slope * start;
+		double minor1 = intercept + slope * end;
+		if (horizontal) {
+			addSegment(start, minor0, end, minor1);
+		} else {
+			addSegment(minor0, start, minor1, end);
+		}
+	}
+
+	private void addSegment(double x1, double y1, double x2, double y2) {
+		if (4 * segmentCount + 4 > segments.length) {
+			segments = Arrays.copyOf(segments, 2 * segments.length);
+		}
+		segments[4 * segmentCount] = x1;
+		segments[4 * segmentCount + 1] = y1;
+		segments[4 * segmentCount + 2] = x2;
+		segments[4 * segmentCount + 3] = y2;
+		segmentCount++;
+	}
+
+	/** lines as LineDetector draws them: nearly horizontal red, nearly vertical blue, others green.
+	 *
+	 */
+	private void createSvg() {
+		svg = new SVGSVG();
+		for (SVGLine line : getLines()) {
+			svg.appendChild(line);
+		}
+	}
+
+	/** segments in order found (longest lines tend to come first).
+	 *
+	 * @return new lines
+	 */
+	public List<SVGLine> getLines() {
+		List<SVGLine> lines = new ArrayList<SVGLine>(segmentCount);
+		for (int i = 0; i < segmentCount; i++) {
+			double[] segment = getSegment(i);
+			SVGLine line = new SVGLine(new Real2(segment[0], segment[1]), new Real2(segment[2], segment[3]));
+			double angle = Math.abs(getAngle(i));
+			line.setStroke(angle < 10.0 || angle > 170.0 ? "red" : (angle > 80.0 && angle < 100.0 ? "blue" : "green"));
+			lines.add(line);
+		}
+		return lines;
+	}
+
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+
+	/** ends of segment i.
+	 *
+	 * @return new double[] {x1, y1, x2, y2}
+	 */
+	public double[] getSegment(int i) {
+		if (i < 0 || i >= segmentCount) {
+			throw new IndexOutOfBoundsException("segment " + i + " of " + segmentCount);
+		}
+		return Arrays.copyOfRange(segments, 4 * i, 4 * i + 4);
+	}
+
+	public double getLength(int i) {
+		double[] segment = getSegment(i);
+		return Math.sqrt((segment[2] - segment[0]) * (segment[2] - segment[0]) +
+				(segment[3] - segment[1]) * (segment[3] - segment[1]));
+	}
+
+	/** angle of segment i from x towards y (down the screen).
+	 *
+	 * @return degrees, -90 to 180
+	 */
+	public double getAngle(int i) {
+		double[] segment = getSegment(i);
+		return Math.toDegrees(Math.atan2(segment[3] - segment[1], segment[2] - segment[0]));
+	}
+
+	/** the binary image after detect() or readImageFile().
+	 *
+	 */
+	public BinaryImage getBinaryImage() {
+		return binaryImage;
+	}
+
+	/** number of angles in 0 to 180 degrees (default 360, 0.5 degree).
+	 *
+	 */
+	public void setThetaCount(int thetaCount) {
+		if (thetaCount < 1) {
+			throw new RuntimeException("bad theta count: " + thetaCount);
+		}
+		this.thetaCount = thetaCount;
+	}
+
+	/** votes (pixels on a line) needed for a peak.
+	 *
+	 */
+	public void setThreshold(int threshold) {
+		this.threshold = threshold;
+	}
+
+	public void setMinLineLength(int minLineLength) {
+		this.minLineLength = minLineLength;
+	}
+
+	/** largest gap (in steps along the line) within a segment.
+	 *
+	 */
+	public void setMaxLineGap(int maxLineGap) {
+		this.maxLineGap = maxLineGap;
+	}
+
+	/** width of the band along a line whose pixels belong to it (default 3).
+	 *
+	 * @param lineWidth 1 to MAX_LINE_WIDTH (a band is scanned within one 64-bit word per row)
+	 */
+	public void setLineWidth(int lineWidth) {
+		if (lineWidth < 1 || lineWidth > MAX_LINE_WIDTH) {
+			throw new RuntimeException("bad line width: " + lineWidth);
+		}
+		this.lineWidth = lineWidth;
+	}
+
+	/** above this the voters are a random sample.
+	 *
+	 */
+	public void setMaxVotingPixels(int maxVotingPixels) {
+		this.maxVotingPixels = maxVotingPixels;
+	}
+
+	/** pixels with mean red, green and blue below this are set (default 128).
+	 *
+	 */
+	public void setGrayCutoff(int grayCutoff) {
+		this.grayCutoff = grayCutoff;
+	}
+
+	/** seed for the sample of voters.
+	 *
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/** pool for voting and peak finding.
+	 *
+	 * @param forkJoinPool if null (default) everything is done on the calling thread
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+}
@@ -18,7 +18,9 @@ import static java.lang.Math.sqrt;
  * @see <a
  *      href="http://en.wikipedia.org/wiki/Ramer-Douglas-Peucker_algorithm">Ramer-Douglas-Peucker
  *      algorithm</a>
+ * @deprecated for curves use DouglasPeuckerSimplifier (as DouglasPeucker does)
  */
+@Deprecated
 public class RamerDouglasPeucker {
 
 	private double epsilon;
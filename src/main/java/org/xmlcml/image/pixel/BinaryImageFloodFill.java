@@ -0,0 +1,36 @@
+package org.xmlcml.image.pixel;
+
+import org.xmlcml.image.BinaryImage;
+
+/** fills islands of set pixels in a BinaryImage.
+ * 
+ * runs are found a word (64 pixels) at a time.
+ */
+public class BinaryImageFloodFill extends FloodFill {
+
+	private BinaryImage binaryImage;
+
+	public BinaryImageFloodFill(BinaryImage binaryImage) {
+		super(binaryImage.getWidth(), binaryImage.getHeight());
+		this.binaryImage = binaryImage;
+	}
+
+	@Override
+	protected boolean isBlack(int posX, int posY) {
+		return binaryImage.get(posX, posY);
+	}
+
+	@Override
+	protected int nextBlack(int posX, int posY) {
+		return binaryImage.nextSetBit(posX, posY);
+	}
+
+	@Override
+	protected int nextWhite(int posX, int posY) {
+		return binaryImage.nextClearBit(posX, posY);
+	}
+
+	public BinaryImage getBinaryImage() {
+		return binaryImage;
+	}
+}
@@ -1,60 +1,336 @@
 package org.xmlcml.image.pixel;
 
-import java.awt.Point;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import org.xmlcml.image.BinaryImage;
+
+/** extracts connected islands of black pixels.
+ *
+ * fill() labels the whole area in one raster pass over horizontal runs, joining runs
+ * which touch runs on the previous row (union-find), so isBlack() is called once per pixel.
+ * addNextUnpaintedBlack() fills from a single seed with a scanline (span) fill.
+ *
+ * Both emit each island as PixelSpans, which the PixelIsland keeps; no objects are created
+ * per pixel until pixel-level access is needed (see PixelIsland). Islands are listed in raster order of their first pixel and
+ * their pixels are in breadth-first order from that pixel (or the seed), as in
+ * the original queue-based fill.
+ *
+ * An optional PixelIslandFilter is tested on the statistics of each component's spans;
+ * rejected components are painted but never built into islands.
+ *
+ * If largestIslandCount is set, fill() keeps only the sizes of the components in a bounded
+ * heap and builds just the largest; they are the first largestIslandCount islands of
+ * a full list after PixelIslandList.sortBySizeDescending().
+ *
+ */
 public abstract class FloodFill {
 
 	// informed by
 	// http://stackoverflow.com/questions/2783204/flood-fill-using-a-stack
 
-	protected boolean[][] painted;
+	/** strips are not made smaller than this when labelling concurrently */
+	public static final int MIN_STRIP_HEIGHT = 32;
+
+	protected BinaryImage painted;
 	protected boolean diagonal = false;
 	protected PixelIslandList islandList;
 	protected int width;
 	protected int height;
 
+	private ForkJoinPool forkJoinPool;
+	private PixelIslandFilter islandFilter;
+	private int rejectedCount;
+	private int largestIslandCount;
+
 	protected FloodFill(int width, int height) {
 		this.width = width;
 		this.height = height;
 	}
-	
+
 	protected abstract boolean isBlack(int posX, int posY);
-	
+
+	/** first black pixel at or after posX in row posY.
+	 * 
+	 * subclasses with packed pixels can skip several at once.
+	 * 
+	 * @return width if none
+	 */
+	protected int nextBlack(int posX, int posY) {
+		while (posX < width && !isBlack(posX, posY)) {
+			posX++;
+		}
+		return posX;
+	}
+
+	/** first non-black pixel at or after posX in row posY.
+	 * 
+	 * @return width if none
+	 */
+	protected int nextWhite(int posX, int posY) {
+		while (posX < width && isBlack(posX, posY)) {
+			posX++;
+		}
+		return posX;
+	}
+
 	public void fill() {
-		painted = new boolean[height][width];
+		ensureIslandList();
+		RunTable runs = (forkJoinPool == null || height < 2 * MIN_STRIP_HEIGHT) ?
+				labelRows(0, height) : labelStrips();
+		List<PixelSpans> spansList = runs.createSpansList();
+		List<PixelSpans> acceptedSpansList = new ArrayList<PixelSpans>(spansList.size());
+		List<PixelIslandStatistics> statisticsList = new ArrayList<PixelIslandStatistics>(spansList.size());
+		for (PixelSpans spans : spansList) {
+			PixelIslandStatistics statistics = spans.createStatistics(getXOffset(), getYOffset());
+			if (accept(statistics, islandList.size() + acceptedSpansList.size())) {
+				acceptedSpansList.add(spans);
+				statisticsList.add(statistics);
+			}
+		}
+		if (largestIslandCount > 0 && acceptedSpansList.size() > largestIslandCount) {
+			retainLargest(acceptedSpansList, statisticsList);
+		}
+		for (PixelIsland island : createIslands(acceptedSpansList, statisticsList)) {
+			add(island);
+		}
+	}
+
+	/** removes all but the largestIslandCount largest components, keeping their order.
+	 * 
+	 * of equal sizes the later component wins, as in sortBySizeDescending() (a stable
+	 * ascending sort which is then reversed).
+	 */
+	private void retainLargest(List<PixelSpans> spansList, List<PixelIslandStatistics> statisticsList) {
+		final int[] areas = new int[statisticsList.size()];
+		for (int i = 0; i < areas.length; i++) {
+			areas[i] = statisticsList.get(i).getArea();
+		}
+		// smallest (then earliest) at the head
+		PriorityQueue<Integer> heap = new PriorityQueue<Integer>(largestIslandCount, new Comparator<Integer>() {
+			public int compare(Integer i0, Integer i1) {
+				int diff = areas[i0] - areas[i1];
+				return (diff != 0) ? diff : i0 - i1;
+			}
+		});
+		for (int i = 0; i < areas.length; i++) {
+			if (heap.size() < largestIslandCount) {
+				heap.add(i);
+			} else if (areas[i] >= areas[heap.peek()]) {
+				heap.poll();
+				heap.add(i);
+			}
+		}
+		int[] kept = new int[heap.size()];
+		int k = 0;
+		for (Integer i : heap) {
+			kept[k++] = i;
+		}
+		Arrays.sort(kept);
+		List<PixelSpans> keptSpans = new ArrayList<PixelSpans>(kept.length);
+		List<PixelIslandStatistics> keptStatistics = new ArrayList<PixelIslandStatistics>(kept.length);
+		for (int i : kept) {
+			keptSpans.add(spansList.get(i));
+			keptStatistics.add(statisticsList.get(i));
+		}
+		spansList.clear();
+		spansList.addAll(keptSpans);
+		statisticsList.clear();
+		statisticsList.addAll(keptStatistics);
+	}
+
+	private boolean accept(PixelIslandStatistics statistics, int acceptedCount) {
+		if (islandFilter == null || islandFilter.accept(statistics, acceptedCount)) {
+			return true;
+		}
+		rejectedCount++;
+		return false;
+	}
+
+	/** labels horizontal strips concurrently and joins runs across strip boundaries.
+	 * 
+	 * strips are concatenated in order and the earliest run remains the root, so the
+	 * result is identical to labelRows(0, height).
+	 */
+	private RunTable labelStrips() {
+		int stripCount = Math.min(height / MIN_STRIP_HEIGHT, 4 * forkJoinPool.getParallelism());
+		int stripHeight = (height + stripCount - 1) / stripCount;
+		List<Callable<RunTable>> tasks = new ArrayList<Callable<RunTable>>();
+		for (int y = 0; y < height; y += stripHeight) {
+			final int ymin = y;
+			final int ymax = Math.min(height, y + stripHeight);
+			tasks.add(new Callable<RunTable>() {
+				public RunTable call() {
+					return labelRows(ymin, ymax);
+				}
+			});
+		}
+		RunTable runs = new RunTable(diagonal, height);
+		for (Future<RunTable> future : forkJoinPool.invokeAll(tasks)) {
+			runs.append(getResult(future));
+		}
+		return runs;
+	}
+
+	private static <T> T getResult(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("fill interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("cannot fill", e.getCause());
+		}
+	}
 
-		for (int i = 0; i < height; i++) {
-			for (int j = 0; j < width; j++) {
-				addNextUnpaintedBlack(i, j);
+	/** finds black runs row by row and joins those which touch.
+	 * 
+	 * @param ymin first row
+	 * @param ymax last row (exclusive)
+	 */
+	private RunTable labelRows(int ymin, int ymax) {
+		RunTable runs = new RunTable(diagonal, ymax - ymin);
+		for (int y = ymin; y < ymax; y++) {
+			runs.startRow();
+			int x = nextBlack(0, y);
+			while (x < width) {
+				int xmin = x;
+				x = nextWhite(x + 1, y);
+				runs.addRun(y, xmin, x - 1);
+				x = nextBlack(x, y);
 			}
+			runs.endRow();
 		}
+		return runs;
 	}
-	
+
+	/** creates islands in spans order; concurrently if there is a pool.
+	 * 
+	 */
+	private List<PixelIsland> createIslands(final List<PixelSpans> spansList, final List<PixelIslandStatistics> statisticsList) {
+		List<PixelIsland> islands = new ArrayList<PixelIsland>(spansList.size());
+		if (forkJoinPool == null || spansList.size() < 2) {
+			for (int i = 0; i < spansList.size(); i++) {
+				PixelSpans spans = spansList.get(i);
+				islands.add(createIsland(spans, spans.getXMin(0), spans.getY(0), statisticsList.get(i)));
+			}
+		} else {
+			List<Callable<PixelIsland>> tasks = new ArrayList<Callable<PixelIsland>>(spansList.size());
+			for (int i = 0; i < spansList.size(); i++) {
+				final PixelSpans spans = spansList.get(i);
+				final PixelIslandStatistics statistics = statisticsList.get(i);
+				tasks.add(new Callable<PixelIsland>() {
+					public PixelIsland call() {
+						return createIsland(spans, spans.getXMin(0), spans.getY(0), statistics);
+					}
+				});
+			}
+			for (Future<PixelIsland> future : forkJoinPool.invokeAll(tasks)) {
+				islands.add(getResult(future));
+			}
+		}
+		return islands;
+	}
+
+	/** fills the island containing (j, i) unless already painted.
+	 *
+	 * the island is only added if the filter (if any) accepts it.
+	 *
+	 * @param i row
+	 * @param j column
+	 */
 	protected void addNextUnpaintedBlack(int i, int j) {
-		if (isBlack(j, i) && !painted[i][j]) {
-
-			Queue<Point> queue = new LinkedList<Point>();
-			queue.add(new Point(j, i));
-
-			PixelList pixelList = new PixelList();
-			while (!queue.isEmpty()) {
-				Point p = queue.remove();
-				if (isInsideImage(p)) {
-					if (!painted[p.y][p.x] && isBlack(p.x, p.y)) {
-						painted[p.y][p.x] = true;
-						pixelList.add(getPixelFromPoint(p));
-						addNewPoints(queue, p);
+		if (painted == null) {
+			painted = new BinaryImage(width, height);
+		}
+		if (!painted.get(j, i) && isBlack(j, i)) {
+			PixelSpans spans = fillSpans(j, i);
+			PixelIslandStatistics statistics = spans.createStatistics(getXOffset(), getYOffset());
+			ensureIslandList();
+			if (accept(statistics, islandList.size())) {
+				add(createIsland(spans, j, i, statistics));
+			}
+		}
+	}
+
+	/** scanline fill from seed, painting as it goes.
+	 *
+	 * @param x seed
+	 * @param y seed
+	 * @return spans in fill order
+	 */
+	private PixelSpans fillSpans(int x, int y) {
+		PixelSpans spans = new PixelSpans();
+		int d = diagonal ? 1 : 0;
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = x;
+		stack[top++] = y;
+		while (top > 0) {
+			int sy = stack[--top];
+			int sx = stack[--top];
+			if (painted.get(sx, sy) || !isBlack(sx, sy)) {
+				continue;
+			}
+			int xmin = sx;
+			while (xmin > 0 && !painted.get(xmin - 1, sy) && isBlack(xmin - 1, sy)) {
+				xmin--;
+			}
+			int xmax = sx;
+			while (xmax < width - 1 && !painted.get(xmax + 1, sy) && isBlack(xmax + 1, sy)) {
+				xmax++;
+			}
+			painted.setRange(sy, xmin, xmax + 1);
+			spans.add(sy, xmin, xmax);
+			for (int ny = sy - 1; ny <= sy + 1; ny += 2) {
+				if (ny < 0 || ny >= height) {
+					continue;
+				}
+				boolean inRun = false;
+				for (int nx = Math.max(0, xmin - d); nx <= Math.min(width - 1, xmax + d); nx++) {
+					if (!painted.get(nx, ny) && isBlack(nx, ny)) {
+						if (!inRun) {
+							if (top + 2 > stack.length) {
+								stack = Arrays.copyOf(stack, 2 * stack.length);
+							}
+							stack[top++] = nx;
+							stack[top++] = ny;
+							inRun = true;
+						}
+					} else {
+						inRun = false;
 					}
 				}
 			}
-			add(PixelIsland.createSeparateIslandWithClonedPixels(pixelList, true));
 		}
+		return spans;
+	}
+
+	/** offset added to fill coordinates to give pixel coordinates.
+	 *
+	 * @return 0 unless the fill area is a window on a larger space
+	 */
+	protected int getXOffset() {
+		return 0;
+	}
+
+	protected int getYOffset() {
+		return 0;
 	}
 
-	protected Pixel getPixelFromPoint(Point p) {
-		return new Pixel(p);
+	private PixelIsland createIsland(PixelSpans spans, int seedX, int seedY, PixelIslandStatistics statistics) {
+		spans.translate(getXOffset(), getYOffset());
+		spans.trimToSize();
+		PixelIsland island = new PixelIsland(spans, seedX + getXOffset(), seedY + getYOffset(), diagonal);
+		island.setStatistics(statistics);
+		return island;
 	}
 
 	private void add(PixelIsland island) {
@@ -67,7 +343,7 @@ public abstract class FloodFill {
 			islandList = new PixelIslandList();
 		}
 	}
-	
+
 	public PixelIslandList getIslandList() {
 		ensureIslandList();
 		fill();
@@ -79,25 +355,195 @@ public abstract class FloodFill {
 		return islandList;
 	}
 
-	private boolean isInsideImage(Point p) {
-		return (p.x >= 0) && (p.x < width && (p.y >= 0) && (p.y < height));
+	public void setDiagonal(boolean b) {
+		this.diagonal = b;
 	}
 
-	private void addNewPoints(Queue<Point> queue, Point p) {
-		queue.add(new Point(p.x + 1, p.y));
-		queue.add(new Point(p.x - 1, p.y));
-		queue.add(new Point(p.x, p.y + 1));
-		queue.add(new Point(p.x, p.y - 1));
-		if (diagonal) {
-			queue.add(new Point(p.x + 1, p.y + 1));
-			queue.add(new Point(p.x - 1, p.y + 1));
-			queue.add(new Point(p.x - 1, p.y - 1));
-			queue.add(new Point(p.x + 1, p.y - 1));
-		}
+	/** pool for labelling strips of the area and building islands concurrently.
+	 * 
+	 * isBlack() must then be safe to call from several threads.
+	 * 
+	 * @param forkJoinPool if null (default) fill() runs on the calling thread
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
 	}
 
-	public void setDiagonal(boolean b) {
-		this.diagonal = b;
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/** islands to keep; tested before each island is built.
+	 * 
+	 * @param islandFilter if null (default) all islands are kept
+	 */
+	public void setIslandFilter(PixelIslandFilter islandFilter) {
+		this.islandFilter = islandFilter;
+	}
+
+	public PixelIslandFilter getIslandFilter() {
+		return islandFilter;
+	}
+
+	/** build only the largest islands in fill().
+	 * 
+	 * components are still all labelled; only their sizes are compared.
+	 * 
+	 * @param largestIslandCount if 0 (default) all islands are built
+	 */
+	public void setLargestIslandCount(int largestIslandCount) {
+		this.largestIslandCount = largestIslandCount;
+	}
+
+	public int getLargestIslandCount() {
+		return largestIslandCount;
+	}
+
+	/** number of components rejected by the filter so far.
+	 * 
+	 */
+	public int getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/** horizontal runs of black pixels with a union-find forest over their indexes.
+	 * 
+	 * runs are held in raster order and each root is the first run of its component.
+	 */
+	private static class RunTable {
+
+		private int[] runY;
+		private int[] runXMin;
+		private int[] runXMax;
+		private int[] parent;
+		private int runCount;
+		private int d;
+		// runs on the first row are 0..firstRowEnd; those on the last row lastRowStart..runCount
+		private int firstRowEnd = -1;
+		private int lastRowStart;
+		private int rowStart;
+
+		RunTable(boolean diagonal, int capacity) {
+			capacity = Math.max(16, capacity);
+			runY = new int[capacity];
+			runXMin = new int[capacity];
+			runXMax = new int[capacity];
+			parent = new int[capacity];
+			d = diagonal ? 1 : 0;
+		}
+
+		void startRow() {
+			rowStart = runCount;
+		}
+
+		void endRow() {
+			if (firstRowEnd < 0) {
+				firstRowEnd = runCount;
+			} else {
+				joinRows(lastRowStart, rowStart, rowStart, runCount);
+			}
+			lastRowStart = rowStart;
+		}
+
+		void addRun(int y, int xmin, int xmax) {
+			ensureCapacity(runCount + 1);
+			runY[runCount] = y;
+			runXMin[runCount] = xmin;
+			runXMax[runCount] = xmax;
+			parent[runCount] = runCount;
+			runCount++;
+		}
+
+		private void ensureCapacity(int n) {
+			if (n > runY.length) {
+				int capacity = Math.max(n, 2 * runY.length);
+				runY = Arrays.copyOf(runY, capacity);
+				runXMin = Arrays.copyOf(runXMin, capacity);
+				runXMax = Arrays.copyOf(runXMax, capacity);
+				parent = Arrays.copyOf(parent, capacity);
+			}
+		}
+
+		/** joins runs in one row to touching runs in the row above.
+		 * 
+		 * both rows are sorted by x so this is a single merge pass.
+		 */
+		private void joinRows(int prevStart, int prevEnd, int start, int end) {
+			int prev = prevStart;
+			for (int run = start; run < end; run++) {
+				while (prev < prevEnd && runXMax[prev] < runXMin[run] - d) {
+					prev++;
+				}
+				for (int p = prev; p < prevEnd && runXMin[p] <= runXMax[run] + d; p++) {
+					union(p, run);
+				}
+			}
+		}
+
+		/** adds the runs of the following strip and joins across the boundary.
+		 * 
+		 */
+		void append(RunTable strip) {
+			if (strip.firstRowEnd < 0) {
+				return;
+			}
+			int offset = runCount;
+			ensureCapacity(runCount + strip.runCount);
+			System.arraycopy(strip.runY, 0, runY, offset, strip.runCount);
+			System.arraycopy(strip.runXMin, 0, runXMin, offset, strip.runCount);
+			System.arraycopy(strip.runXMax, 0, runXMax, offset, strip.runCount);
+			for (int i = 0; i < strip.runCount; i++) {
+				parent[offset + i] = strip.parent[i] + offset;
+			}
+			runCount += strip.runCount;
+			if (firstRowEnd < 0) {
+				firstRowEnd = offset + strip.firstRowEnd;
+			} else {
+				joinRows(lastRowStart, offset, offset, offset + strip.firstRowEnd);
+			}
+			lastRowStart = offset + strip.lastRowStart;
+		}
+
+		private int find(int run) {
+			while (parent[run] != run) {
+				parent[run] = parent[parent[run]];
+				run = parent[run];
+			}
+			return run;
+		}
+
+		/** joins components; the lower (earlier) root wins.
+		 *
+		 */
+		private void union(int run0, int run1) {
+			int root0 = find(run0);
+			int root1 = find(run1);
+			if (root0 < root1) {
+				parent[root1] = root0;
+			} else if (root1 < root0) {
+				parent[root0] = root1;
+			}
+		}
+
+		/** spans for each component in order of first run.
+		 * 
+		 */
+		List<PixelSpans> createSpansList() {
+			List<PixelSpans> spansList = new ArrayList<PixelSpans>();
+			int[] component = new int[runCount];
+			for (int run = 0; run < runCount; run++) {
+				int root = find(run);
+				// root <= run so its component is already known
+				if (root == run) {
+					component[run] = spansList.size();
+					spansList.add(new PixelSpans());
+				} else {
+					component[run] = component[root];
+				}
+				spansList.get(component[run]).add(runY[run], runXMin[run], runXMax[run]);
+			}
+			return spansList;
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -5,20 +5,25 @@ import java.io.File;
 
 import javax.imageio.ImageIO;
 
+import org.xmlcml.image.ImageRaster;
+
 public class ImageFloodFill extends FloodFill {
 
 	private BufferedImage image;
+	private ImageRaster raster;
 	private int threshold;
 	
 	public ImageFloodFill(BufferedImage image, int threshold) {
 		super(image.getWidth(), image.getHeight());
 		this.image = image;
+		this.raster = new ImageRaster(image);
 		this.threshold = threshold;
 	}
 	
 	public ImageFloodFill(BufferedImage image) {
 		super(image.getWidth(), image.getHeight());
 		this.image = image;
+		this.raster = new ImageRaster(image);
 		this.threshold = 128;
 	}
 
@@ -36,7 +41,7 @@ public class ImageFloodFill extends FloodFill {
 	@Override
 	protected boolean isBlack(int posX, int posY) {
 		if (image != null) {
-			int color = image.getRGB(posX, posY);
+			int color = raster.getRGB(posX, posY);
 			int brightness = (color & 0xFF) + ((color >> 2) & 0xFF) + ((color >> 4) & 0xFF);
 			brightness /= 3;
 			return brightness < threshold;
@@ -45,4 +50,4 @@ public class ImageFloodFill extends FloodFill {
 		}
 	}
 	
-}
\ No newline at end of file
+}
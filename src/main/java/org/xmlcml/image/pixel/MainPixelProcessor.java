@@ -4,9 +4,11 @@ import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
 import org.xmlcml.image.ArgIterator;
+import org.xmlcml.image.BinaryImage;
 import org.xmlcml.image.ImageParameters;
 import org.xmlcml.image.ImageProcessor;
 import org.xmlcml.image.processing.Thinning;
@@ -31,6 +33,8 @@ public class MainPixelProcessor {
 	public static final String ISLAND = "-y";
 	public static final String ISLAND1 = "--island";
 	public final static String TOLERANCE1 = "--tolerance";
+	public static final String LARGEST = "-k";
+	public static final String LARGEST1 = "--largest";
 
 	private PixelIslandList pixelIslandList;
 	private int maxIsland;
@@ -40,6 +44,7 @@ public class MainPixelProcessor {
 	private File outputDir;
 	private int selectedIslandIndex;
 	private ImageParameters parameters;
+	private ForkJoinPool analysisPool;
 
 	
 	public MainPixelProcessor(ImageProcessor imageProcessor) {
@@ -108,15 +113,21 @@ public class MainPixelProcessor {
 	 * @return
 	 */
 	public PixelIslandList getOrCreatePixelIslandList(boolean superThinning) {
-		if (pixelIslandList == null && getImage() != null) {
-			FloodFill floodFill = new ImageFloodFill(image);
+		BinaryImage binaryImage = (image == null && imageProcessor != null) ? imageProcessor.getBinaryImage() : null;
+		if (pixelIslandList == null && (binaryImage != null || getImage() != null)) {
+			FloodFill floodFill = (binaryImage != null) ? new BinaryImageFloodFill(binaryImage) : new ImageFloodFill(image);
 			floodFill.setDiagonal(true);
-			pixelIslandList = floodFill.getIslandList();
 			ImageParameters parameters = getParameters();
+			if (parameters != null && parameters.getMinimumIslandSize() != null) {
+				// small islands are rejected before they are built
+				floodFill.setIslandFilter(new PixelIslandFilter().setMinimumSize(parameters.getMinimumIslandSize()));
+			}
 			if (parameters != null) {
-				pixelIslandList.removeIslandsLessThan(parameters.getMinimumIslandSize());
-				LOG.trace("after remove islands: " + pixelIslandList.size());
+				floodFill.setLargestIslandCount(parameters.getLargestIslandCount());
 			}
+			pixelIslandList = floodFill.getIslandList();
+			LOG.trace("islands: " + pixelIslandList.size() + "; rejected: " + floodFill.getRejectedCount());
+			pixelIslandList.setForkJoinPool(analysisPool);
 			/*BufferedImage b = new BufferedImage(450, 170, BufferedImage.TYPE_INT_ARGB);
 			java.awt.Graphics g = b.getGraphics();
 			g.setColor(Color.BLACK);
@@ -148,6 +159,22 @@ public class MainPixelProcessor {
 		return maxIsland;
 	}
 
+	/** pool for analysing islands concurrently (see PixelIslandList.setForkJoinPool()).
+	 * 
+	 * @param analysisPool if null (default) islands are analysed in turn
+	 */
+	public MainPixelProcessor setAnalysisPool(ForkJoinPool analysisPool) {
+		this.analysisPool = analysisPool;
+		if (pixelIslandList != null) {
+			pixelIslandList.setForkJoinPool(analysisPool);
+		}
+		return this;
+	}
+
+	public ForkJoinPool getAnalysisPool() {
+		return analysisPool;
+	}
+
 	public MainPixelProcessor setOutputDir(File outputDir) {
 		this.outputDir = outputDir;
 		return this;
@@ -179,6 +206,11 @@ public class MainPixelProcessor {
 				setSelectedIsland(value);
 			}
 			
+		} else if (arg.equals(LARGEST) || arg.equals(LARGEST1)) {
+			Integer value = argIterator.getSingleIntegerValue();
+			if (value != null) {
+				this.parameters.setLargestIslandCount(value);
+			}
 		} else {
 			found = false;
 		}
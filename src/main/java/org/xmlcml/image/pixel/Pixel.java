@@ -25,21 +25,39 @@ public class Pixel {
 		USED,
 	};
 	
-	Point point;
+	// coordinates held as ints rather than a java.awt.Point to save an object per pixel
+	int x;
+	int y;
 	private PixelList neighbourList;
+	// bit i set if there is a neighbour at NEIGHBOUR_OFFSETS8[i]; NO_MASK if not yet known
+	private int neighbourMask = NO_MASK;
 	PixelIsland island;
 	int value = 0;
 
+	// same order as calculateNeighbourCoordList(); bit i of neighbourMask is NEIGHBOUR_OFFSETS8[i]
+	static final int[][] NEIGHBOUR_OFFSETS8 = {
+		{1, 0}, {-1, 0}, {1, 1}, {-1, 1}, {0, 1}, {0, -1}, {1, -1}, {-1, -1},
+	};
+	private static final int NO_MASK = -1;
+	static final int ORTHOGONAL_MASK = 0x33;
+	static final int DIAGONAL_MASK = 0xcc;
+	// bit for offset (dx, dy) at [(dy + 1) * 3 + dx + 1]; -1 for the centre
+	private static final int[] OFFSET_BITS = {7, 5, 6, 1, -1, 0, 3, 4, 2};
+	// bit for each bit of BinaryImage.getNeighbourMask() (N, NE, E, SE, S, SW, W, NW)
+	private static final int[] COMPASS_BITS = {5, 6, 0, 2, 4, 3, 1, 7};
+	private static final int[] MASK_BY_COMPASS_MASK = createMaskByCompassMask();
+
 	public Pixel(Point p) {
-		this.point = p;
+		this(p.x, p.y);
 	}
 
 	public Pixel(int x, int y) {
-		this(new Point(x, y));
+		this.x = x;
+		this.y = y;
 	}
 
 	public Pixel(Int2 xy) {
-		this(new Point(xy.getX(), xy.getY()));
+		this(xy.getX(), xy.getY());
 	}
 
 	/** creates deep copy of Pixel without island.
@@ -49,17 +67,32 @@ public class Pixel {
 	 * @param pixel
 	 */
 	public Pixel(Pixel pixel) {
-		this(new Point(pixel.point));
+		this(pixel.x, pixel.y);
 	}
 
 	public Int2 getInt2() {
-		return point == null ? null : new Int2(point.x, point.y);
+		return new Int2(x, y);
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
 	}
 	
 	public PixelIsland getIsland() {
 		return island;
 	}
 
+	/** neighbours in the island.
+	 * 
+	 * the list is cached; use removeNeighbour() rather than editing it.
+	 * 
+	 * @param island
+	 * @return
+	 */
 	public PixelList getOrCreateNeighbours(PixelIsland island) {
 		island.ensurePopulatedMapAndRanges();
 		this.island = island;
@@ -69,21 +102,145 @@ public class Pixel {
 
 	private void getOrCreateNeighbourList(PixelIsland island) {
 		if (neighbourList == null) {
-			createNeighbourList(island);
+			neighbourList = createNeighbourList(island, getOrCreateNeighbourMask(island));
 		}
 	}
 
+	/** neighbours for the set bits of mask, looked up directly in the island's map.
+	 * 
+	 */
+	private PixelList createNeighbourList(PixelIsland island, int mask) {
+		PixelList pixelList = new PixelList(Integer.bitCount(mask));
+		PixelCoordinateMap pixelByCoordMap = island.getPixelByCoordMap();
+		for (int bit = 0; bit < NEIGHBOUR_OFFSETS8.length; bit++) {
+			if ((mask & (1 << bit)) != 0) {
+				Pixel pixel = pixelByCoordMap.get(x + NEIGHBOUR_OFFSETS8[bit][0], y + NEIGHBOUR_OFFSETS8[bit][1]);
+				if (pixel != null) {
+					pixelList.add(pixel);
+				}
+			}
+		}
+		return pixelList;
+	}
+
 	public PixelList createNeighbourList(PixelIsland island) {
-		neighbourList = new PixelList();
-		List<Int2> coordList = calculateNeighbourCoordList(island);
-		for (Int2 coord : coordList) {
-			Pixel pixel = island.getPixelByCoordMap().get(coord);
-			if (pixel != null) {
-				neighbourList.add(pixel);
+		neighbourList = new PixelList(8);
+		neighbourMask = 0;
+		PixelCoordinateMap pixelByCoordMap = island.getPixelByCoordMap();
+		int bits = island.getDiagonal() ? 0xff : ORTHOGONAL_MASK;
+		for (int bit = 0; bit < NEIGHBOUR_OFFSETS8.length; bit++) {
+			if ((bits & (1 << bit)) != 0) {
+				Pixel pixel = pixelByCoordMap.get(x + NEIGHBOUR_OFFSETS8[bit][0], y + NEIGHBOUR_OFFSETS8[bit][1]);
+				if (pixel != null) {
+					neighbourList.add(pixel);
+					neighbourMask |= 1 << bit;
+				}
 			}
 		}
 		return neighbourList;
 	}
+
+	/** neighbours in the island as bits.
+	 * 
+	 * bit i is set if there is a neighbour at offset i of (+1,0), (-1,0), (+1,+1), (-1,+1),
+	 * (0,+1), (0,-1), (+1,-1), (-1,-1); diagonal bits are only set in diagonal islands.
+	 * Agrees with getOrCreateNeighbours() but does not create the list.
+	 * 
+	 * @param island
+	 * @return
+	 */
+	public int getOrCreateNeighbourMask(PixelIsland island) {
+		island.ensurePopulatedMapAndRanges();
+		this.island = island;
+		if (neighbourMask == NO_MASK) {
+			// masks of the whole island at once if possible
+			island.createPendingNeighbourMasks();
+		}
+		if (neighbourMask == NO_MASK) {
+			neighbourMask = createNeighbourMask(island);
+		}
+		return neighbourMask;
+	}
+
+	/** sets the mask if not yet known (as PixelIsland.createPendingNeighbourMasks()).
+	 * 
+	 */
+	void setNeighbourMaskIfUnknown(int mask) {
+		if (neighbourMask == NO_MASK) {
+			neighbourMask = mask;
+		}
+	}
+
+	/** neighbour mask from a mask of BinaryImage.getNeighbourMask().
+	 * 
+	 */
+	static int getMaskFromCompassMask(int compassMask) {
+		return MASK_BY_COMPASS_MASK[compassMask];
+	}
+
+	private static int[] createMaskByCompassMask() {
+		int[] masks = new int[256];
+		for (int compassMask = 0; compassMask < 256; compassMask++) {
+			for (int bit = 0; bit < 8; bit++) {
+				if ((compassMask & (1 << bit)) != 0) {
+					masks[compassMask] |= 1 << COMPASS_BITS[bit];
+				}
+			}
+		}
+		return masks;
+	}
+
+	private int createNeighbourMask(PixelIsland island) {
+		PixelCoordinateMap pixelByCoordMap = island.getPixelByCoordMap();
+		int bits = island.getDiagonal() ? 0xff : ORTHOGONAL_MASK;
+		int mask = 0;
+		for (int bit = 0; bit < NEIGHBOUR_OFFSETS8.length; bit++) {
+			if ((bits & (1 << bit)) != 0 &&
+					pixelByCoordMap.containsKey(x + NEIGHBOUR_OFFSETS8[bit][0], y + NEIGHBOUR_OFFSETS8[bit][1])) {
+				mask |= 1 << bit;
+			}
+		}
+		return mask;
+	}
+
+	public int getNeighbourCount(PixelIsland island) {
+		return Integer.bitCount(getOrCreateNeighbourMask(island));
+	}
+
+	public int getOrthogonalNeighbourCount(PixelIsland island) {
+		return Integer.bitCount(getOrCreateNeighbourMask(island) & ORTHOGONAL_MASK);
+	}
+
+	public int getDiagonalNeighbourCount(PixelIsland island) {
+		return Integer.bitCount(getOrCreateNeighbourMask(island) & DIAGONAL_MASK);
+	}
+
+	/** bit in neighbour mask for pixel.
+	 * 
+	 * @return -1 if pixel is not adjacent
+	 */
+	private int getNeighbourBit(Pixel pixel) {
+		int dx = pixel.x - x;
+		int dy = pixel.y - y;
+		if (dx < -1 || dx > 1 || dy < -1 || dy > 1) {
+			return -1;
+		}
+		return OFFSET_BITS[(dy + 1) * 3 + dx + 1];
+	}
+
+	/** removes pixel from cached neighbours (list and mask).
+	 * 
+	 * @param pixel
+	 */
+	void removeNeighbour(Pixel pixel) {
+		if (neighbourList != null) {
+			neighbourList.remove(pixel);
+		}
+		int bit = getNeighbourBit(pixel);
+		if (neighbourMask != NO_MASK && bit >= 0) {
+			neighbourMask &= ~(1 << bit);
+		}
+	}
 	
 	/** creates neighbourList for neighbours of neighbours.
 	 * 
@@ -114,17 +271,17 @@ public class Pixel {
 	
 	public List<Int2> calculateNeighbourCoordList(boolean diagonal) {
 		List<Int2> coordList = new ArrayList<Int2>();
-		coordList.add(new Int2(point.x + 1, point.y));
-		coordList.add(new Int2(point.x - 1, point.y));
+		coordList.add(new Int2(x + 1, y));
+		coordList.add(new Int2(x - 1, y));
 		if (diagonal) {
-			coordList.add(new Int2(point.x + 1, point.y + 1));
-			coordList.add(new Int2(point.x - 1, point.y + 1));
+			coordList.add(new Int2(x + 1, y + 1));
+			coordList.add(new Int2(x - 1, y + 1));
 		}
-		coordList.add(new Int2(point.x, point.y + 1));
-		coordList.add(new Int2(point.x, point.y - 1));
+		coordList.add(new Int2(x, y + 1));
+		coordList.add(new Int2(x, y - 1));
 		if (diagonal) {
-			coordList.add(new Int2(point.x + 1, point.y - 1));
-			coordList.add(new Int2(point.x - 1, point.y - 1));
+			coordList.add(new Int2(x + 1, y - 1));
+			coordList.add(new Int2(x - 1, y - 1));
 		}
 		return coordList;
 	}
@@ -141,7 +298,7 @@ public class Pixel {
 	 */
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		sb.append(""+((point == null) ? "null" : this.getInt2()));
+		sb.append(""+this.getInt2());
 		return sb.toString();
 	}
 
@@ -158,12 +315,16 @@ public class Pixel {
 		return sb.toString();
 	}
 
+	/** same value as the former java.awt.Point-based hash so that iteration
+	 * order of hashed Pixel collections is unchanged.
+	 */
 	@Override
 	public int hashCode() {
 		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((point == null) ? 0 : point.hashCode());
-		return result;
+		long bits = Double.doubleToLongBits(x);
+		bits ^= Double.doubleToLongBits(y) * 31;
+		int pointHash = ((int) bits) ^ ((int) (bits >> 32));
+		return prime + pointHash;
 	}
 
 	@Override
@@ -175,12 +336,7 @@ public class Pixel {
 		if (getClass() != obj.getClass())
 			return false;
 		Pixel other = (Pixel) obj;
-		if (point == null) {
-			if (other.point != null)
-				return false;
-		} else if (!point.equals(other.point))
-			return false;
-		return true;
+		return x == other.x && y == other.y;
 	}
 
 	public void remove(PixelIsland island) {
@@ -188,11 +344,13 @@ public class Pixel {
 	}
 
 	public void setInt2(Int2 int2) {
-		point = new Point(int2.getX(), int2.getY());
+		x = int2.getX();
+		y = int2.getY();
 	}
 
 	public void clearNeighbours() {
 		this.neighbourList = null;
+		this.neighbourMask = NO_MASK;
 	}
 
 	public SVGRect getSVGRect() {
@@ -201,8 +359,8 @@ public class Pixel {
 
 	public SVGRect getSVGRect(int size, String color) {
 		SVGRect rect = new SVGRect(
-				new Real2(this.point.getX(), this.point.getY()),
-				new Real2(this.point.getX() + size, this.point.getY() + size));
+				new Real2(x, y),
+				new Real2(x + size, y + size));
 		rect.setFill(color);
 		rect.setStroke(null);
 		return rect;
@@ -210,8 +368,8 @@ public class Pixel {
 
 	public SVGRect getSVGRect(double width, double height, String color) {
 		SVGRect rect = new SVGRect(
-				new Real2(this.point.getX(), this.point.getY()),
-				new Real2(this.point.getX() + width, this.point.getY() + height));
+				new Real2(x, y),
+				new Real2(x + width, y + height));
 		rect.setFill(color);
 		rect.setStroke(null);
 		return rect;
@@ -241,19 +399,17 @@ public class Pixel {
 	}
 
 	public boolean isOrthogonalNeighbour(Pixel pixel) {
-		if (pixel == null || pixel.getInt2() == null || this.getInt2() == null) {
+		if (pixel == null) {
 			return false;
 		}
-		Int2 vector = this.getInt2().subtract(pixel.getInt2());
-		return Math.abs(vector.getX()) + Math.abs(vector.getY()) == 1;
+		return Math.abs(x - pixel.x) + Math.abs(y - pixel.y) == 1;
 	}
 
 	public boolean isDiagonalNeighbour(Pixel pixel) {
-		if (pixel == null || pixel.getInt2() == null || this.getInt2() == null) {
+		if (pixel == null) {
 			return false;
 		}
-		Int2 vector = this.getInt2().subtract(pixel.getInt2());
-		return Math.abs(vector.getX()) == 1 && Math.abs(vector.getY()) == 1;
+		return Math.abs(x - pixel.x) == 1 && Math.abs(y - pixel.y) == 1;
 	}
 
 	public boolean isKnightsMove(Pixel pixel) {
@@ -285,44 +441,32 @@ public class Pixel {
 		return compare;
 	}
 	
+	/** diagonal neighbours from the mask.
+	 * 
+	 * new list, in the order of getOrCreateNeighbours().
+	 */
 	PixelList getDiagonalNeighbours(PixelIsland island) {
-		PixelList neighbours = getOrCreateNeighbours(island);
-		PixelList pixelList = new PixelList();
-		for (Pixel neighbour : neighbours) {
-			if (isDiagonalNeighbour(neighbour)) {
-				pixelList.add(neighbour);
-			}
-		}
-		return pixelList;
+		return createNeighbourList(island, getOrCreateNeighbourMask(island) & DIAGONAL_MASK);
 	}
 
+	/** orthogonal neighbours from the mask.
+	 * 
+	 * new list, in the order of getOrCreateNeighbours().
+	 */
 	public PixelList getOrthogonalNeighbours(PixelIsland island) {
-		PixelList neighbours = getOrCreateNeighbours(island);
-		PixelList pixelList = new PixelList();
-		for (Pixel neighbour : neighbours) {
-			if (isOrthogonalNeighbour(neighbour)) {
-				pixelList.add(neighbour);
-			}
-		}
-		return pixelList;
+		return createNeighbourList(island, getOrCreateNeighbourMask(island) & ORTHOGONAL_MASK);
 	}
 
 	boolean isConnectedAny(PixelIsland island, int neighbourCount) {
-		PixelList neighbours = getOrCreateNeighbours(island);
-		boolean connected = (neighbours.size() != neighbourCount) ? false : true;
-		return connected;
+		return getNeighbourCount(island) == neighbourCount;
 	}
 
 	boolean is1ConnectedAny(PixelIsland island) {
-		PixelList neighbours = getOrCreateNeighbours(island);
-		boolean connected = (neighbours.size() != 1) ? false : true;
-		return connected;
+		return getNeighbourCount(island) == 1;
 	}
 
 	boolean is2ConnectedAny(PixelIsland island) {
-		PixelList neighbours = getOrCreateNeighbours(island);
-		boolean connected = (neighbours.size() != 2) ? false : true;
-		return connected;
+		return getNeighbourCount(island) == 2;
 	}
 
 	/** get mass centre of pixels with units weights.
@@ -368,8 +512,8 @@ public class Pixel {
 	}
 
 	public boolean isTjunctionCentre(PixelIsland island) {
-		return this.getOrthogonalNeighbours(island).size() == 3 && 
-				this.getDiagonalNeighbours(island).size() == 0;
+		return this.getOrthogonalNeighbourCount(island) == 3 && 
+				this.getDiagonalNeighbourCount(island) == 0;
 	}
 
 	/** do 3 pixels form a right angle of neighbours.
@@ -398,11 +542,39 @@ public class Pixel {
 		computeNeighbours(island);
 	}
 
+	/** removes this from the cached neighbours of its neighbours.
+	 * 
+	 * neighbours without cached neighbours get masks (from the island without this).
+	 */
 	void removeFromNeighbourNeighbourList(PixelIsland pixelIsland) {
-		PixelList neighbours = getOrCreateNeighbours(pixelIsland);
-		for (Pixel neighbour : neighbours) {
-			PixelList neighbourList = neighbour.getOrCreateNeighbours(pixelIsland);
-			boolean removed = neighbourList.remove(this);
+		if (neighbourList != null) {
+			for (Pixel neighbour : neighbourList) {
+				neighbour.getOrCreateNeighbourMask(pixelIsland);
+				neighbour.removeNeighbour(this);
+			}
+		} else {
+			int mask = getOrCreateNeighbourMask(pixelIsland);
+			PixelCoordinateMap pixelByCoordMap = pixelIsland.getPixelByCoordMap();
+			for (int bit = 0; bit < NEIGHBOUR_OFFSETS8.length; bit++) {
+				if ((mask & (1 << bit)) != 0) {
+					Pixel neighbour = pixelByCoordMap.get(x + NEIGHBOUR_OFFSETS8[bit][0], y + NEIGHBOUR_OFFSETS8[bit][1]);
+					if (neighbour != null) {
+						neighbour.getOrCreateNeighbourMask(pixelIsland);
+						neighbour.removeNeighbour(this);
+					}
+				}
+			}
+		}
+	}
+
+	/** recomputes cached neighbours of this and of its neighbours after this is added to island.
+	 * 
+	 * @param island
+	 */
+	void updateNeighbourNeighbours(PixelIsland island) {
+		createNeighbourList(island);
+		for (Pixel neighbour : neighbourList) {
+			neighbour.createNeighbourList(island);
 		}
 	}
 
@@ -0,0 +1,303 @@
+package org.xmlcml.image.pixel;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.xmlcml.euclid.Int2Range;
+import org.xmlcml.euclid.IntRange;
+import org.xmlcml.euclid.Real2;
+import org.xmlcml.euclid.Real2Array;
+
+/** Freeman chain code of an 8-connected run of pixels.
+ *
+ * a start pixel and one direction (3 bits) for each step to the next pixel; 21 steps are
+ * packed in each long. Counts of each direction and the bounding box are kept as steps are
+ * added so length, bounding box and direction histogram need no pass over the steps.
+ * Pixels are only made when asked for (createPixelList()).
+ *
+ * directions are counterclockwise on the screen (y down) from East:
+ * 0 (+1,0), 1 (+1,-1), 2 (0,-1), 3 (-1,-1), 4 (-1,0), 5 (-1,+1), 6 (0,+1), 7 (+1,+1).
+ *
+ * string form is the start and the directions, e.g. (2,0)4456 for (2,0)(1,0)(0,0)(-1,1)(-1,2).
+ */
+public class PixelChainCode {
+
+	public static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+	public static final int[] DY = {0, -1, -1, -1, 0, 1, 1, 1};
+	private static final double SQRT2 = Math.sqrt(2.0);
+	private static final int STEPS_PER_LONG = 21;
+	// direction by (dy + 1) * 3 + (dx + 1); -1 if not a neighbour
+	private static final int[] DIRECTION_BY_OFFSET = {3, 2, 1, 4, -1, 0, 5, 6, 7};
+	private static final Pattern CHAIN_PATTERN = Pattern.compile("\\((\\-?\\d+),(\\-?\\d+)\\)([0-7]*)");
+
+	private int startX;
+	private int startY;
+	private int endX;
+	private int endY;
+	private int xMin;
+	private int xMax;
+	private int yMin;
+	private int yMax;
+	private int stepCount;
+	private long[] steps = new long[1];
+	private int[] histogram = new int[8];
+
+	/** chain of one pixel.
+	 *
+	 */
+	public PixelChainCode(int x, int y) {
+		startX = endX = xMin = xMax = x;
+		startY = endY = yMin = yMax = y;
+	}
+
+	/** chain through pixels in list order.
+	 *
+	 * @param pixelList
+	 * @return null if empty or successive pixels are not 8-neighbours
+	 */
+	public static PixelChainCode createChainCode(PixelList pixelList) {
+		if (pixelList == null || pixelList.size() == 0) {
+			return null;
+		}
+		Pixel first = pixelList.get(0);
+		PixelChainCode chainCode = new PixelChainCode(first.x, first.y);
+		for (int i = 1; i < pixelList.size(); i++) {
+			Pixel pixel = pixelList.get(i);
+			if (!chainCode.addPoint(pixel.x, pixel.y)) {
+				return null;
+			}
+		}
+		return chainCode;
+	}
+
+	/** chain from its string form.
+	 *
+	 * @param chainS e.g. (2,0)4456
+	 * @return null if not parsable
+	 */
+	public static PixelChainCode createChainCode(String chainS) {
+		Matcher matcher = chainS == null ? null : CHAIN_PATTERN.matcher(chainS.trim());
+		if (matcher == null || !matcher.matches()) {
+			return null;
+		}
+		PixelChainCode chainCode = new PixelChainCode(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+		String directions = matcher.group(3);
+		for (int i = 0; i < directions.length(); i++) {
+			chainCode.addStep(directions.charAt(i) - '0');
+		}
+		return chainCode;
+	}
+
+	/** direction from a pixel to its neighbour.
+	 *
+	 * @return -1 if dx,dy is not an 8-neighbour offset
+	 */
+	public static int getDirection(int dx, int dy) {
+		return (dx < -1 || dx > 1 || dy < -1 || dy > 1) ? -1 : DIRECTION_BY_OFFSET[(dy + 1) * 3 + dx + 1];
+	}
+
+	/** adds a step from the end pixel.
+	 *
+	 * @param direction 0-7
+	 */
+	public void addStep(int direction) {
+		if (direction < 0 || direction > 7) {
+			throw new RuntimeException("bad direction: " + direction);
+		}
+		int word = stepCount / STEPS_PER_LONG;
+		if (word == steps.length) {
+			steps = Arrays.copyOf(steps, 2 * steps.length);
+		}
+		steps[word] |= ((long) direction) << (3 * (stepCount % STEPS_PER_LONG));
+		stepCount++;
+		histogram[direction]++;
+		endX += DX[direction];
+		endY += DY[direction];
+		xMin = Math.min(xMin, endX);
+		xMax = Math.max(xMax, endX);
+		yMin = Math.min(yMin, endY);
+		yMax = Math.max(yMax, endY);
+	}
+
+	/** adds a step from the end pixel to x,y.
+	 *
+	 * @return false (and nothing added) if x,y is not an 8-neighbour of the end pixel
+	 */
+	public boolean addPoint(int x, int y) {
+		int direction = getDirection(x - endX, y - endY);
+		if (direction < 0) {
+			return false;
+		}
+		addStep(direction);
+		return true;
+	}
+
+	/** direction of step i (0 .. getStepCount() - 1).
+	 *
+	 */
+	public int getStep(int i) {
+		if (i < 0 || i >= stepCount) {
+			throw new IndexOutOfBoundsException("step " + i + " of " + stepCount);
+		}
+		return (int) (steps[i / STEPS_PER_LONG] >>> (3 * (i % STEPS_PER_LONG))) & 7;
+	}
+
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	/** number of pixels (steps + 1).
+	 *
+	 */
+	public int size() {
+		return stepCount + 1;
+	}
+
+	public int getStartX() {
+		return startX;
+	}
+
+	public int getStartY() {
+		return startY;
+	}
+
+	public int getEndX() {
+		return endX;
+	}
+
+	public int getEndY() {
+		return endY;
+	}
+
+	/** does the chain end on its start pixel.
+	 *
+	 */
+	public boolean isClosed() {
+		return stepCount > 0 && endX == startX && endY == startY;
+	}
+
+	/** number of steps in each direction.
+	 *
+	 * @return new int[8]
+	 */
+	public int[] getDirectionHistogram() {
+		return Arrays.copyOf(histogram, histogram.length);
+	}
+
+	public int getOrthogonalStepCount() {
+		return histogram[0] + histogram[2] + histogram[4] + histogram[6];
+	}
+
+	public int getDiagonalStepCount() {
+		return histogram[1] + histogram[3] + histogram[5] + histogram[7];
+	}
+
+	/** length along the pixel centres; diagonal steps are sqrt(2).
+	 *
+	 */
+	public double getLength() {
+		return getOrthogonalStepCount() + SQRT2 * getDiagonalStepCount();
+	}
+
+	/** new bounding box of all pixels.
+	 *
+	 */
+	public Int2Range getIntBoundingBox() {
+		return new Int2Range(new IntRange(xMin, xMax), new IntRange(yMin, yMax));
+	}
+
+	/** change of direction from step i - 1 to step i in units of 45 degrees.
+	 *
+	 * positive is counterclockwise on the screen; a reversal is -4.
+	 *
+	 * @param i 1 .. getStepCount() - 1
+	 */
+	public int getTurn(int i) {
+		return ((getStep(i) - getStep(i - 1) + 4) & 7) - 4;
+	}
+
+	/** sum of turns in units of 45 degrees (8 for one counterclockwise circuit).
+	 *
+	 */
+	public int getTotalTurn() {
+		int total = 0;
+		for (int i = 1; i < stepCount; i++) {
+			total += getTurn(i);
+		}
+		return total;
+	}
+
+	/** sum of absolute turns in units of 45 degrees.
+	 *
+	 */
+	public int getTotalAbsoluteTurn() {
+		int total = 0;
+		for (int i = 1; i < stepCount; i++) {
+			total += Math.abs(getTurn(i));
+		}
+		return total;
+	}
+
+	/** total absolute turn in radians divided by length.
+	 *
+	 * @return 0 for chains of fewer than 2 steps
+	 */
+	public double getMeanCurvature() {
+		return stepCount < 2 ? 0.0 : getTotalAbsoluteTurn() * Math.PI / 4.0 / getLength();
+	}
+
+	/** coordinates of all pixels in order.
+	 *
+	 * @return new int[2 * size()] as x0, y0, x1, y1...
+	 */
+	public int[] createCoordinates() {
+		int[] coords = new int[2 * size()];
+		int x = startX;
+		int y = startY;
+		coords[0] = x;
+		coords[1] = y;
+		for (int i = 0; i < stepCount; i++) {
+			int direction = getStep(i);
+			x += DX[direction];
+			y += DY[direction];
+			coords[2 * i + 2] = x;
+			coords[2 * i + 3] = y;
+		}
+		return coords;
+	}
+
+	/** new pixels in chain order.
+	 *
+	 */
+	public PixelList createPixelList() {
+		int[] coords = createCoordinates();
+		PixelList pixelList = new PixelList();
+		for (int i = 0; i < coords.length; i += 2) {
+			pixelList.add(new Pixel(coords[i], coords[i + 1]));
+		}
+		return pixelList;
+	}
+
+	/** pixel coordinates as in PixelList.getReal2Array().
+	 *
+	 */
+	public Real2Array createReal2Array() {
+		int[] coords = createCoordinates();
+		Real2Array points = new Real2Array();
+		for (int i = 0; i < coords.length; i += 2) {
+			points.add(new Real2(coords[i], coords[i + 1]));
+		}
+		return points;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("(" + startX + "," + startY + ")");
+		for (int i = 0; i < stepCount; i++) {
+			sb.append((char) ('0' + getStep(i)));
+		}
+		return sb.toString();
+	}
+}
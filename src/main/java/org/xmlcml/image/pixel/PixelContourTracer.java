@@ -0,0 +1,332 @@
+package org.xmlcml.image.pixel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.xmlcml.euclid.Int2Range;
+import org.xmlcml.euclid.Real2;
+import org.xmlcml.euclid.Real2Array;
+import org.xmlcml.graphics.svg.SVGPolygon;
+import org.xmlcml.image.BinaryImage;
+
+/** all outer and hole borders of an island in one raster scan.
+ *
+ * border following after Suzuki and Abe (1985). The island's bitmap is scanned once; each
+ * border is followed when its first pixel is met and labelled so it is not started again.
+ * Pixels are 8-connected and holes 4-connected. Unlike PixelOutliner nothing is removed
+ * from pixel lists and every border closes.
+ *
+ * contours are numbered in the order they are found (top to bottom, left to right).
+ * Each has a parent: the hole round an outer border or the outer border round a hole;
+ * top-level outer borders have parent -1. Contour pixels are in tracing order (outer
+ * borders counterclockwise on the screen, holes clockwise) and a pixel on a one-pixel-wide
+ * part appears once for each time the border passes it.
+ */
+public class PixelContourTracer {
+
+	private final static Logger LOG = Logger.getLogger(PixelContourTracer.class);
+
+	// clockwise on the screen (y down) from East
+	private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+	private static final int[] DY = {0, 1, 1, 1, 0, -1, -1, -1};
+
+	private PixelIsland island;
+	private int xMin;
+	private int yMin;
+
+	private boolean traced;
+	private int contourCount;
+	private boolean[] holes = new boolean[16];
+	private int[] parents = new int[16];
+	// pixels of contour i are contourPixels[2 * contourStarts[i]] .. [2 * contourStarts[i + 1]]
+	private int[] contourStarts = new int[17];
+	private int[] contourPixels = new int[256];
+	private int contourPixelCount;
+
+	public PixelContourTracer(PixelIsland island) {
+		this.island = island;
+	}
+
+	/** follows all borders (only once).
+	 *
+	 * @return number of contours
+	 */
+	public int traceContours() {
+		if (!traced) {
+			traced = true;
+			if (island.size() > 0) {
+				traceAll();
+			}
+		}
+		return contourCount;
+	}
+
+	private void traceAll() {
+		BinaryImage image = island.getOrCreateBinaryImage();
+		Int2Range bbox = island.getIntBoundingBox();
+		xMin = bbox.getXRange().getMin();
+		yMin = bbox.getYRange().getMin();
+		// one blank pixel all round so no neighbour is outside
+		int width = image.getWidth() + 2;
+		int height = image.getHeight() + 2;
+		int[] labels = new int[width * height];
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = image.nextSetBit(0, y); x < image.getWidth(); x = image.nextSetBit(x + 1, y)) {
+				labels[(y + 1) * width + x + 1] = 1;
+			}
+		}
+		// border numbers (NBD) start at 2; border 1 is the frame, a hole with no parent
+		List<Integer> borderParents = new ArrayList<Integer>();
+		List<Boolean> borderHoles = new ArrayList<Boolean>();
+		borderParents.add(0);
+		borderHoles.add(Boolean.TRUE);
+		borderParents.add(0);
+		borderHoles.add(Boolean.TRUE);
+		int nbd = 1;
+		for (int y = 1; y < height - 1; y++) {
+			int lnbd = 1;
+			for (int x = 1; x < width - 1; x++) {
+				int p = y * width + x;
+				int f = labels[p];
+				if (f == 0) {
+					continue;
+				}
+				boolean start = false;
+				boolean hole = false;
+				int fromX = 0;
+				if (f == 1 && labels[p - 1] == 0) {
+					start = true;
+					fromX = x - 1;
+				} else if (f >= 1 && labels[p + 1] == 0) {
+					start = true;
+					hole = true;
+					fromX = x + 1;
+					if (f > 1) {
+						lnbd = f;
+					}
+				}
+				if (start) {
+					nbd++;
+					boolean lastHole = borderHoles.get(lnbd);
+					int parent = (hole == lastHole) ? borderParents.get(lnbd) : lnbd;
+					borderParents.add(parent);
+					borderHoles.add(hole);
+					followBorder(labels, width, x, y, fromX, y, nbd);
+					addContour(hole, parent - 2);
+				}
+				f = labels[p];
+				if (f != 1) {
+					lnbd = Math.abs(f);
+				}
+			}
+		}
+		LOG.trace("contours: " + contourCount);
+	}
+
+	/** follows one border and labels it nbd.
+	 *
+	 */
+	private void followBorder(int[] labels, int width, int x, int y, int fromX, int fromY, int nbd) {
+		int p = y * width + x;
+		// clockwise from the start's background neighbour to the last pixel of the border
+		int first = getDirection(fromX - x, fromY - y);
+		int lastDirection = -1;
+		for (int k = 0; k < 8; k++) {
+			int d = (first + k) & 7;
+			if (labels[p + DY[d] * width + DX[d]] != 0) {
+				lastDirection = d;
+				break;
+			}
+		}
+		if (lastDirection < 0) {
+			// single pixel
+			labels[p] = -nbd;
+			addContourPixel(x, y);
+			return;
+		}
+		int lastX = x + DX[lastDirection];
+		int lastY = y + DY[lastDirection];
+		int previousX = lastX;
+		int previousY = lastY;
+		int currentX = x;
+		int currentY = y;
+		while (true) {
+			int current = currentY * width + currentX;
+			// counterclockwise round current, starting after previous
+			int d = getDirection(previousX - currentX, previousY - currentY);
+			boolean eastIsBackground = false;
+			int nextX = 0;
+			int nextY = 0;
+			for (int k = 1; k <= 8; k++) {
+				int e = (d - k + 8) & 7;
+				int q = current + DY[e] * width + DX[e];
+				if (labels[q] != 0) {
+					nextX = currentX + DX[e];
+					nextY = currentY + DY[e];
+					break;
+				}
+				if (e == 0) {
+					eastIsBackground = true;
+				}
+			}
+			if (eastIsBackground) {
+				labels[current] = -nbd;
+			} else if (labels[current] == 1) {
+				labels[current] = nbd;
+			}
+			addContourPixel(currentX, currentY);
+			if (nextX == x && nextY == y && currentX == lastX && currentY == lastY) {
+				break;
+			}
+			previousX = currentX;
+			previousY = currentY;
+			currentX = nextX;
+			currentY = nextY;
+		}
+	}
+
+	private static int getDirection(int dx, int dy) {
+		for (int d = 0; d < 8; d++) {
+			if (DX[d] == dx && DY[d] == dy) {
+				return d;
+			}
+		}
+		throw new RuntimeException("not a neighbour: " + dx + "," + dy);
+	}
+
+	/** pixels are in the raster with its 1-pixel margin.
+	 *
+	 */
+	private void addContourPixel(int x, int y) {
+		if (2 * contourPixelCount + 2 > contourPixels.length) {
+			contourPixels = Arrays.copyOf(contourPixels, 2 * contourPixels.length);
+		}
+		contourPixels[2 * contourPixelCount] = x - 1 + xMin;
+		contourPixels[2 * contourPixelCount + 1] = y - 1 + yMin;
+		contourPixelCount++;
+	}
+
+	private void addContour(boolean hole, int parent) {
+		if (contourCount + 1 > holes.length) {
+			holes = Arrays.copyOf(holes, 2 * holes.length);
+			parents = Arrays.copyOf(parents, 2 * parents.length);
+			contourStarts = Arrays.copyOf(contourStarts, 2 * holes.length + 1);
+		}
+		holes[contourCount] = hole;
+		parents[contourCount] = parent;
+		contourCount++;
+		contourStarts[contourCount] = contourPixelCount;
+	}
+
+	public int getContourCount() {
+		traceContours();
+		return contourCount;
+	}
+
+	public boolean isHole(int contour) {
+		traceContours();
+		return holes[contour];
+	}
+
+	/** hole round an outer border or outer border round a hole.
+	 *
+	 * @return -1 for top-level outer borders
+	 */
+	public int getParent(int contour) {
+		traceContours();
+		return parents[contour];
+	}
+
+	/** 0 for top-level outer borders, 1 for their holes, 2 for outer borders inside those...
+	 *
+	 */
+	public int getDepth(int contour) {
+		int depth = 0;
+		for (int parent = getParent(contour); parent >= 0; parent = parents[parent]) {
+			depth++;
+		}
+		return depth;
+	}
+
+	public int getContourPixelCount(int contour) {
+		traceContours();
+		return contourStarts[contour + 1] - contourStarts[contour];
+	}
+
+	/** new pixels with the coordinates of the island.
+	 *
+	 */
+	public PixelList getContourPixels(int contour) {
+		traceContours();
+		PixelList pixelList = new PixelList();
+		for (int i = contourStarts[contour]; i < contourStarts[contour + 1]; i++) {
+			pixelList.add(new Pixel(contourPixels[2 * i], contourPixels[2 * i + 1]));
+		}
+		return pixelList;
+	}
+
+	/** contour pixels as a chain code.
+	 *
+	 * the step from the last pixel back to the first is not included.
+	 */
+	public PixelChainCode createChainCode(int contour) {
+		traceContours();
+		int start = contourStarts[contour];
+		PixelChainCode chainCode = new PixelChainCode(contourPixels[2 * start], contourPixels[2 * start + 1]);
+		for (int i = start + 1; i < contourStarts[contour + 1]; i++) {
+			if (!chainCode.addPoint(contourPixels[2 * i], contourPixels[2 * i + 1])) {
+				throw new RuntimeException("contour pixels not connected at " + i);
+			}
+		}
+		return chainCode;
+	}
+
+	/** all contours in the order found.
+	 *
+	 */
+	public PixelRingList createRingList() {
+		PixelRingList ringList = new PixelRingList();
+		for (int contour = 0; contour < getContourCount(); contour++) {
+			ringList.add(getContourPixels(contour));
+		}
+		return ringList;
+	}
+
+	/** outer borders (hole == false) or holes (hole == true).
+	 *
+	 */
+	public PixelRingList createRingList(boolean hole) {
+		PixelRingList ringList = new PixelRingList();
+		for (int contour = 0; contour < getContourCount(); contour++) {
+			if (holes[contour] == hole) {
+				ringList.add(getContourPixels(contour));
+			}
+		}
+		return ringList;
+	}
+
+	/** polygon through the centres of the contour pixels.
+	 *
+	 */
+	public SVGPolygon createPolygon(int contour) {
+		traceContours();
+		Real2Array r2a = new Real2Array();
+		for (int i = contourStarts[contour]; i < contourStarts[contour + 1]; i++) {
+			r2a.add(new Real2(contourPixels[2 * i] + 0.5, contourPixels[2 * i + 1] + 0.5));
+		}
+		SVGPolygon polygon = new SVGPolygon(r2a);
+		polygon.setStrokeWidth(0.1);
+		polygon.setFill("none");
+		return polygon;
+	}
+
+	public List<SVGPolygon> createPolygonList() {
+		List<SVGPolygon> polygonList = new ArrayList<SVGPolygon>();
+		for (int contour = 0; contour < getContourCount(); contour++) {
+			polygonList.add(createPolygon(contour));
+		}
+		return polygonList;
+	}
+}
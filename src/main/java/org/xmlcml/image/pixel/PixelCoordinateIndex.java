@@ -0,0 +1,186 @@
+package org.xmlcml.image.pixel;
+
+import java.util.Arrays;
+
+/** open-addressing table from pixel coordinates to non-negative ints.
+ *
+ * Replaces HashMap&lt;Int2, ...&gt; where only coordinates are looked up. The x,y pair
+ * is packed into a long key so no Int2 or Map.Entry objects are created per pixel.
+ *
+ * Linear probing with backward-shift deletion, so there are no tombstones
+ * and repeated add/remove (as in thinning) does not degrade lookups.
+ *
+ */
+public class PixelCoordinateIndex {
+
+	private static final int ABSENT = -1;
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+	private int resizeAt;
+
+	public PixelCoordinateIndex() {
+		this(MIN_CAPACITY / 2);
+	}
+
+	/**
+	 * @param expectedSize number of coordinates expected (table is not resized below this)
+	 */
+	public PixelCoordinateIndex(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 3 / 4 < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, ABSENT);
+		mask = capacity - 1;
+		resizeAt = capacity * 3 / 4;
+	}
+
+	/** packs coordinates into a single long.
+	 *
+	 * @param x
+	 * @param y
+	 * @return x in high word, y in low word
+	 */
+	public static long createKey(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+
+	public static int getX(long key) {
+		return (int) (key >> 32);
+	}
+
+	public static int getY(long key) {
+		return (int) key;
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/** value stored for x,y.
+	 *
+	 * @param x
+	 * @param y
+	 * @return value or -1 if absent
+	 */
+	public int get(int x, int y) {
+		long key = createKey(x, y);
+		for (int i = slot(key); values[i] != ABSENT; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return values[i];
+			}
+		}
+		return ABSENT;
+	}
+
+	public boolean contains(int x, int y) {
+		return get(x, y) != ABSENT;
+	}
+
+	/** stores value for x,y.
+	 *
+	 * @param x
+	 * @param y
+	 * @param value must be non-negative
+	 * @return previous value or -1
+	 */
+	public int put(int x, int y, int value) {
+		if (value < 0) {
+			throw new RuntimeException("index values must be non-negative: "+value);
+		}
+		long key = createKey(x, y);
+		int i = slot(key);
+		for (; values[i] != ABSENT; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				int old = values[i];
+				values[i] = value;
+				return old;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > resizeAt) {
+			rehash(keys.length << 1);
+		}
+		return ABSENT;
+	}
+
+	/** removes x,y.
+	 *
+	 * @param x
+	 * @param y
+	 * @return removed value or -1 if absent
+	 */
+	public int remove(int x, int y) {
+		long key = createKey(x, y);
+		int i = slot(key);
+		for (; values[i] != ABSENT; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				int old = values[i];
+				shiftBack(i);
+				size--;
+				return old;
+			}
+		}
+		return ABSENT;
+	}
+
+	/** closes the gap at i by moving later members of the probe chain back.
+	 *
+	 */
+	private void shiftBack(int gap) {
+		int i = gap;
+		while (true) {
+			i = (i + 1) & mask;
+			if (values[i] == ABSENT) {
+				break;
+			}
+			int home = slot(keys[i]);
+			// can the entry at i legally move into gap? (home not cyclically in (gap, i])
+			boolean move = (gap <= i) ? (home <= gap || home > i) : (home <= gap && home > i);
+			if (move) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		values[gap] = ABSENT;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != ABSENT) {
+				long key = oldKeys[i];
+				int j = slot(key);
+				while (values[j] != ABSENT) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = key;
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		Arrays.fill(values, ABSENT);
+		size = 0;
+	}
+}
@@ -0,0 +1,191 @@
+package org.xmlcml.image.pixel;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.xmlcml.euclid.Int2;
+
+/** Map from coordinates to Pixels backed by primitive arrays.
+ *
+ * Drop-in replacement for HashMap&lt;Int2, Pixel&gt; in PixelIsland and PixelList.
+ * Pixels are held densely in an array and located through a PixelCoordinateIndex,
+ * so there are no Int2 keys or Map.Entry objects per pixel. Int2 keys are only created
+ * if the map is iterated through entrySet().
+ *
+ * get(int, int) avoids creating an Int2 for lookups.
+ *
+ */
+public class PixelCoordinateMap extends AbstractMap<Int2, Pixel> {
+
+	private static final int DEFAULT_CAPACITY = 4;
+
+	private PixelCoordinateIndex index;
+	private Pixel[] pixels;
+	private int[] coords; // packed x,y matching pixels
+	private int size;
+
+	public PixelCoordinateMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PixelCoordinateMap(int expectedSize) {
+		expectedSize = Math.max(expectedSize, 1);
+		index = new PixelCoordinateIndex(expectedSize);
+		pixels = new Pixel[expectedSize];
+		coords = new int[2 * expectedSize];
+	}
+
+	/** get pixel at coordinates.
+	 *
+	 * @param x
+	 * @param y
+	 * @return pixel or null
+	 */
+	public Pixel get(int x, int y) {
+		int i = index.get(x, y);
+		return i < 0 ? null : pixels[i];
+	}
+
+	public boolean containsKey(int x, int y) {
+		return index.contains(x, y);
+	}
+
+	@Override
+	public Pixel get(Object key) {
+		if (!(key instanceof Int2)) {
+			return null;
+		}
+		Int2 xy = (Int2) key;
+		return get(xy.getX(), xy.getY());
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (!(key instanceof Int2)) {
+			return false;
+		}
+		Int2 xy = (Int2) key;
+		return containsKey(xy.getX(), xy.getY());
+	}
+
+	@Override
+	public Pixel put(Int2 key, Pixel pixel) {
+		return put(key.getX(), key.getY(), pixel);
+	}
+
+	public Pixel put(int x, int y, Pixel pixel) {
+		int i = index.get(x, y);
+		if (i >= 0) {
+			Pixel old = pixels[i];
+			pixels[i] = pixel;
+			return old;
+		}
+		ensureCapacity(size + 1);
+		pixels[size] = pixel;
+		coords[2 * size] = x;
+		coords[2 * size + 1] = y;
+		index.put(x, y, size);
+		size++;
+		return null;
+	}
+
+	private void ensureCapacity(int n) {
+		if (n > pixels.length) {
+			int capacity = Math.max(n, pixels.length * 2);
+			pixels = Arrays.copyOf(pixels, capacity);
+			coords = Arrays.copyOf(coords, 2 * capacity);
+		}
+	}
+
+	@Override
+	public Pixel remove(Object key) {
+		if (!(key instanceof Int2)) {
+			return null;
+		}
+		Int2 xy = (Int2) key;
+		return remove(xy.getX(), xy.getY());
+	}
+
+	/** removes pixel at x,y.
+	 *
+	 * the last entry is moved into the gap so removal is O(1)
+	 *
+	 * @param x
+	 * @param y
+	 * @return removed pixel or null
+	 */
+	public Pixel remove(int x, int y) {
+		int i = index.remove(x, y);
+		if (i < 0) {
+			return null;
+		}
+		Pixel old = pixels[i];
+		int last = size - 1;
+		if (i != last) {
+			pixels[i] = pixels[last];
+			coords[2 * i] = coords[2 * last];
+			coords[2 * i + 1] = coords[2 * last + 1];
+			index.put(coords[2 * i], coords[2 * i + 1], i);
+		}
+		pixels[last] = null;
+		size--;
+		return old;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		index.clear();
+		Arrays.fill(pixels, 0, size, null);
+		size = 0;
+	}
+
+	@Override
+	public Set<Entry<Int2, Pixel>> entrySet() {
+		return new AbstractSet<Entry<Int2, Pixel>>() {
+			@Override
+			public Iterator<Entry<Int2, Pixel>> iterator() {
+				return new Iterator<Entry<Int2, Pixel>>() {
+					private int next = 0;
+					private int current = -1;
+
+					public boolean hasNext() {
+						return next < size;
+					}
+
+					public Entry<Int2, Pixel> next() {
+						if (next >= size) {
+							throw new NoSuchElementException();
+						}
+						current = next++;
+						return new SimpleImmutableEntry<Int2, Pixel>(
+								new Int2(coords[2 * current], coords[2 * current + 1]), pixels[current]);
+					}
+
+					public void remove() {
+						if (current < 0) {
+							throw new IllegalStateException();
+						}
+						PixelCoordinateMap.this.remove(coords[2 * current], coords[2 * current + 1]);
+						// last entry has been moved into current
+						next = current;
+						current = -1;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+}
@@ -11,7 +11,7 @@ import org.xmlcml.euclid.Real2Array;
 import org.xmlcml.graphics.svg.SVGG;
 import org.xmlcml.graphics.svg.SVGLine;
 import org.xmlcml.graphics.svg.SVGRect;
-import org.xmlcml.image.geom.DouglasPeucker;
+import org.xmlcml.image.geom.DouglasPeuckerSimplifier;
 
 public class PixelEdge {
 
@@ -21,6 +21,9 @@ public class PixelEdge {
 
 	private PixelNodeList nodeList;
 	private PixelList pixelList; // pixels in order
+	private PixelChainCode chainCode; // pixels as chain code until pixelList is needed
+	private Pixel firstPixel; // end pixels kept while held as chain code
+	private Pixel lastPixel;
 	private PixelIsland island;
 	private PixelSegmentList segmentList;
 	private String id;
@@ -69,7 +72,7 @@ public class PixelEdge {
 	}
 	
 	private void ensurePixelList() {
-		if (pixelList == null) {
+		if (getPixelList() == null) {
 			pixelList = new PixelList();
 		}
 	}
@@ -79,10 +82,73 @@ public class PixelEdge {
 		this.pixelList.addAll(pixelList);
 	}
 	
+	/** pixels in order.
+	 * 
+	 * if the edge is held as a chain code the pixels are made now and replace it.
+	 * 
+	 * @return
+	 */
 	public PixelList getPixelList() {
+		if (pixelList == null && chainCode != null) {
+			// the end pixels keep their identity
+			int[] coords = chainCode.createCoordinates();
+			int last = coords.length / 2 - 1;
+			pixelList = new PixelList();
+			for (int i = 0; i <= last; i++) {
+				Pixel pixel = (i == 0 && firstPixel != null) ? firstPixel :
+					((i == last && lastPixel != null) ? lastPixel : new Pixel(coords[2 * i], coords[2 * i + 1]));
+				pixelList.add(pixel);
+			}
+			chainCode = null;
+			firstPixel = null;
+			lastPixel = null;
+		}
 		return pixelList;
 	}
 	
+	/** holds the pixels as a chain code (replaces any pixelList).
+	 * 
+	 * @param chainCode
+	 */
+	public void setChainCode(PixelChainCode chainCode) {
+		this.chainCode = chainCode;
+		this.pixelList = null;
+		this.firstPixel = null;
+		this.lastPixel = null;
+		this.boundingBox = null;
+		this.segmentList = null;
+	}
+	
+	/** chain code of the pixels.
+	 * 
+	 * @return the chain code held; else new chain code from the pixelList; null if
+	 * there are no pixels or they are not 8-connected
+	 */
+	public PixelChainCode getChainCode() {
+		return chainCode != null ? chainCode : PixelChainCode.createChainCode(pixelList);
+	}
+	
+	/** replaces the pixelList by a chain code to save memory.
+	 * 
+	 * the first and last Pixel are kept, so getFirst() and getLast() return the same objects
+	 * as before and getPixelList() puts them back at the ends.
+	 * 
+	 * @return false if the pixels are not 8-connected (and are kept)
+	 */
+	public boolean compactToChainCode() {
+		if (chainCode == null) {
+			PixelChainCode newChainCode = PixelChainCode.createChainCode(pixelList);
+			if (newChainCode == null) {
+				return false;
+			}
+			chainCode = newChainCode;
+			firstPixel = pixelList.get(0);
+			lastPixel = pixelList.get(pixelList.size() - 1);
+			pixelList = null;
+		}
+		return true;
+	}
+	
 	/** gets pixelNodes at end of edge.
 	 * 
 	 * normally 2; but for single cycles there are no nodes.
@@ -99,19 +165,42 @@ public class PixelEdge {
 	 * @return null if no list or i is outside range
 	 */
 	public Pixel get(int i) {
-		return (pixelList == null || size() == 0 || i < 0 || i >= size()) ? null : pixelList.get(i);
+		return (size() == 0 || i < 0 || i >= size()) ? null : getPixelList().get(i);
 	}
 	
+	/** first pixel.
+	 * 
+	 * if held as a chain code this is the pixel kept by compactToChainCode(); after
+	 * setChainCode() it is made on the first call and the same object returned afterwards.
+	 */
 	public Pixel getFirst() {
+		if (chainCode != null) {
+			if (firstPixel == null) {
+				firstPixel = new Pixel(chainCode.getStartX(), chainCode.getStartY());
+			}
+			return firstPixel;
+		}
 		return get(0);
 	}
 
+	/** last pixel (see getFirst()).
+	 * 
+	 */
 	public Pixel getLast() {
+		if (chainCode != null) {
+			if (chainCode.getStepCount() == 0) {
+				return getFirst();
+			}
+			if (lastPixel == null) {
+				lastPixel = new Pixel(chainCode.getEndX(), chainCode.getEndY());
+			}
+			return lastPixel;
+		}
 		return get(size() - 1);
 	}
 	
 	public int size() {
-		return (pixelList == null) ? 0 : pixelList.size();
+		return chainCode != null ? chainCode.size() : (pixelList == null ? 0 : pixelList.size());
 	}
 
 	public PixelNode getPixelNode(int i) {
@@ -125,12 +214,12 @@ public class PixelEdge {
 	}
 	
 	public String toString() {
-		String s = "pixelList: "+pixelList+"; nodeList: "+nodeList;
+		String s = "pixelList: "+getPixelList()+"; nodeList: "+nodeList;
 		return s;
 	}
 
 	public boolean equalsIgnoreOrder(String listString) {
-		boolean equals = pixelList.toString().equals(listString);
+		boolean equals = getPixelList().toString().equals(listString);
 		if (!equals) {
 			PixelList newList = new PixelList(pixelList);
 			newList.reverse();
@@ -159,13 +248,23 @@ public class PixelEdge {
 	public PixelSegmentList getOrCreateSegmentList(double tolerance, Integer cornerFindingWindow, Double relativeCornernessThresholdForCornerAggregation, Double allowedDifferenceCornerMaximumDeviating, Integer maxNumberCornersToSearch) {
 		if (segmentList == null) {
 			boolean improvedDouglasPeucker = cornerFindingWindow != null && relativeCornernessThresholdForCornerAggregation != null && allowedDifferenceCornerMaximumDeviating != null && maxNumberCornersToSearch != null;
-			DouglasPeucker douglasPeucker = (improvedDouglasPeucker ? new DouglasPeucker(tolerance, cornerFindingWindow, relativeCornernessThresholdForCornerAggregation, allowedDifferenceCornerMaximumDeviating, maxNumberCornersToSearch) : new DouglasPeucker(tolerance));
-			Real2Array points = pixelList.getReal2Array();
+			DouglasPeuckerSimplifier simplifier = (improvedDouglasPeucker ? new DouglasPeuckerSimplifier(tolerance, cornerFindingWindow, relativeCornernessThresholdForCornerAggregation, allowedDifferenceCornerMaximumDeviating, maxNumberCornersToSearch) : new DouglasPeuckerSimplifier(tolerance));
+			getOrCreateSegmentList(simplifier);
+		}
+		return segmentList;
+	}
+
+	/** segments made with a given simplifier.
+	 * 
+	 * used by PixelGraph.createSegmentLists() with one simplifier per thread.
+	 */
+	PixelSegmentList getOrCreateSegmentList(DouglasPeuckerSimplifier simplifier) {
+		if (segmentList == null) {
 			if (nodeList == null || nodeList.size() != 2) {
 				throw new RuntimeException("Segmentation requires 2 nodes");
 			}
 			boolean isCyclic = nodeList.get(0).getInt2().equals(nodeList.get(1).getInt2());
-			Real2Array pointArray = douglasPeucker.reduceToArray(points);
+			Real2Array pointArray = simplifier.reduceToArray(getCoordinates());
 			if (isCyclic) {
 				Real2 point0 = pointArray.get(0);
 				pointArray.setElement(pointArray.size() - 1, new Real2(point0));
@@ -176,6 +275,22 @@ public class PixelEdge {
 		return segmentList;
 	}
 
+	/** x0, y0, x1, y1... of the pixels without making pixels.
+	 * 
+	 */
+	private int[] getCoordinates() {
+		if (chainCode != null) {
+			return chainCode.createCoordinates();
+		}
+		int[] coords = new int[2 * size()];
+		for (int i = 0; i < size(); i++) {
+			Pixel pixel = pixelList.get(i);
+			coords[2 * i] = pixel.x;
+			coords[2 * i + 1] = pixel.y;
+		}
+		return coords;
+	}
+
 	public PixelNode getOtherNode(PixelNode pixelNode) {
 		if (nodeList.size() != 2) {
 			return null;
@@ -188,7 +303,17 @@ public class PixelEdge {
 		}
 	}
 
+	/** pixel nearest midPoint; the first pixel is only returned if it is the only one.
+	 * 
+	 * if held as chain code the pixels are not made and a new pixel is returned.
+	 * 
+	 * @param midPoint
+	 * @return
+	 */
 	public Pixel getNearestPixelToMidPoint(Real2 midPoint) {
+		if (chainCode != null) {
+			return getNearestChainPixelToMidPoint(midPoint);
+		}
 		Pixel midPixel = null;
 		double distMin = Double.MAX_VALUE;
 		for (Pixel pixel :pixelList) {
@@ -206,9 +331,25 @@ public class PixelEdge {
 		return midPixel;
 	}
 
+	private Pixel getNearestChainPixelToMidPoint(Real2 midPoint) {
+		int[] coords = chainCode.createCoordinates();
+		int nearest = 0;
+		double distMin = Double.MAX_VALUE;
+		for (int i = 2; i < coords.length; i += 2) {
+			double dx = coords[i] - midPoint.getX();
+			double dy = coords[i + 1] - midPoint.getY();
+			double dist = Math.sqrt(dx * dx + dy * dy);
+			if (dist < distMin) {
+				distMin = dist;
+				nearest = i;
+			}
+		}
+		return new Pixel(coords[nearest], coords[nearest + 1]);
+	}
+
 	public SVGG createPixelSVG(String colour) {
 		SVGG g = new SVGG();
-		for (Pixel pixel : pixelList) {
+		for (Pixel pixel : getPixelList()) {
 			SVGRect rect = pixel.getSVGRect(1, colour);
 			g.appendChild(rect);
 		}
@@ -231,9 +372,9 @@ public class PixelEdge {
 	public boolean isZeroCircular() {
 		boolean circular = false;
 		if (nodeList.size() == 0) {
-			circular = pixelList.size() <= 1;
+			circular = size() <= 1;
 		} else if (nodeList.size() == 2) {
-			circular = pixelList.size() <= 1;
+			circular = size() <= 1;
 		}
 		return circular;
 	}
@@ -300,20 +441,24 @@ public class PixelEdge {
 	public SVGG getOrCreateSVG() {
 		if (svgg == null) {
 			svgg = new SVGG();
-			svgg.appendChild(pixelList.plotPixels("blue"));
+			svgg.appendChild(getPixelList().plotPixels("blue"));
 		}
 		return svgg;
 	}
 	
 	public Int2Range getInt2BoundingBox() {
 		if (boundingBox == null) {
-			boundingBox = pixelList == null ? null : pixelList.getIntBoundingBox();
+			if (chainCode != null) {
+				boundingBox = chainCode.getIntBoundingBox();
+			} else {
+				boundingBox = pixelList == null ? null : pixelList.getIntBoundingBox();
+			}
 		}
 		return boundingBox;
 	}
 
 	public Pixel getClosestPixel(Real2 point) {
-		return (pixelList == null || pixelList.size() == 0) ? null : pixelList.getClosestPixel(point);
+		return size() == 0 ? null : getPixelList().getClosestPixel(point);
 	}
 
 	public boolean removeNode(PixelNode node) {
@@ -6,6 +6,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
 import org.xmlcml.euclid.Angle;
@@ -16,6 +18,8 @@ import org.xmlcml.euclid.Real2;
 import org.xmlcml.graphics.svg.SVGG;
 import org.xmlcml.graphics.svg.SVGLine;
 import org.xmlcml.image.ImageParameters;
+import org.xmlcml.image.ImageUtil;
+import org.xmlcml.image.geom.DouglasPeuckerSimplifier;
 import org.xmlcml.image.pixel.PixelComparator.ComparatorType;
 import org.xmlcml.image.pixel.PixelNucleus.PixelJunctionType;
 
@@ -43,6 +47,7 @@ public class PixelGraph {
 	private PixelNodeList nodeList; 
 	private PixelList pixelList;
 	private PixelIsland island;
+	private ImageParameters parameters;
 	private Stack<PixelNode> nodeStack;
 	private PixelNode rootNode;
 	
@@ -59,6 +64,19 @@ public class PixelGraph {
 		createGraph(list);
 	}
 	
+	/** graph made elsewhere, without island.
+	 * 
+	 * as PixelSkeletonGraph.createPixelGraph(). There is no pixel list, and the methods that
+	 * need the island's nucleus factory (getPixelNucleusList()) throw.
+	 * 
+	 * @param parameters returned by getParameters() (e.g. for createSegmentedEdges())
+	 */
+	PixelGraph(PixelNodeList nodeList, PixelEdgeList edgeList, ImageParameters parameters) {
+		this.nodeList = nodeList;
+		this.edgeList = edgeList;
+		this.parameters = parameters;
+	}
+
 	/** all pixels have to belong to island
 	 * 
 	 * @param pixelList
@@ -123,7 +141,7 @@ public class PixelGraph {
 			PixelIsland island) {
 		Pixel next = null;
 		PixelList neighbours = current.getOrCreateNeighbours(island);
-		neighbours.remove(last);
+		current.removeNeighbour(last);
 		next = neighbours.size() == 1 ? neighbours.get(0) : null;
 		Long time3 = System.currentTimeMillis();
 		return next;
@@ -138,6 +156,10 @@ public class PixelGraph {
 		return nodeList;
 	}
 
+	/** pixels the graph was made from.
+	 * 
+	 * @return null if made without an island (PixelSkeletonGraph)
+	 */
 	public PixelList getPixelList() {
 		return pixelList;
 	}
@@ -175,11 +197,21 @@ public class PixelGraph {
 	}
 
 	public PixelNode splitEdgeAndInsertNewNode(PixelEdge oldEdge, Pixel midPixel) {
-		PixelNode midNode = new PixelNode(midPixel, this);
-		PixelList neighbours = midPixel.getOrCreateNeighbours(island);
-		if (neighbours.size() != 2) {
-			throw new RuntimeException("Should have exactly 2 neighbours "+neighbours.size());
+		if (island == null) {
+			// no neighbour lists; the pixel must be inside the edge
+			PixelList edgePixelList = oldEdge.getPixelList();
+			int index = edgePixelList.indexOf(midPixel);
+			if (index <= 0 || index >= edgePixelList.size() - 1) {
+				throw new RuntimeException("Pixel is not inside edge: "+midPixel);
+			}
+			midPixel = edgePixelList.get(index);
+		} else {
+			PixelList neighbours = midPixel.getOrCreateNeighbours(island);
+			if (neighbours.size() != 2) {
+				throw new RuntimeException("Should have exactly 2 neighbours "+neighbours.size());
+			}
 		}
+		PixelNode midNode = new PixelNode(midPixel, this);
 
 		PixelEdgeList edgeList = splitEdge(oldEdge, midPixel, midNode);
 		this.addEdge(edgeList.get(0));
@@ -392,8 +424,10 @@ public class PixelGraph {
 
 	public SVGG drawEdgesAndNodes(String[] colours) {
 		SVGG g = new SVGG();
-		SVGG rawPixelG = pixelList.plotPixels("magenta");
-		g.appendChild(rawPixelG);
+		if (pixelList != null) {
+			SVGG rawPixelG = pixelList.plotPixels("magenta");
+			g.appendChild(rawPixelG);
+		}
 		drawEdges(colours, g);
 		drawNodes(colours, g);
 		return g;
@@ -446,13 +480,19 @@ public class PixelGraph {
 //		return rootNode;
 	}
 
+	/** parameters of the island, or those given to a graph made without one.
+	 * 
+	 */
 	public ImageParameters getParameters() {
+		if (island == null && parameters != null) {
+			return parameters;
+		}
 		return getIsland().getParameters();
 	}
 
 	private PixelIsland getIsland() {
 		if (island == null) {
-			throw new RuntimeException("Island is required");
+			throw new RuntimeException("Island (or parameters) is required");
 		}
 		return island;
 	}
@@ -554,7 +594,7 @@ public class PixelGraph {
 
 	private PixelNucleusFactory getNucleusFactory() {
 		if (island == null) {
-			throw new RuntimeException("Island must not be null");
+			throw new RuntimeException("Island must not be null (graph has no nuclei)");
 		}
 		return island.getOrCreateNucleusFactory();
 	}
@@ -572,6 +612,41 @@ public class PixelGraph {
 		return edgeList;
 	}
 
+	/** segment lists of all edges, simplified concurrently.
+	 * 
+	 * as getOrCreateSegmentList(tolerance) on each edge. Edges are shared out in blocks
+	 * with one DouglasPeuckerSimplifier per block.
+	 * 
+	 * @param tolerance
+	 * @param pool if null edges are done in turn
+	 * @return segment lists in edge order
+	 */
+	public List<PixelSegmentList> createSegmentLists(final double tolerance, ForkJoinPool pool) {
+		final PixelEdgeList edges = getEdgeList();
+		int blockCount = pool == null ? 1 : Math.max(1, Math.min(edges.size(), 4 * pool.getParallelism()));
+		int blockSize = (edges.size() + blockCount - 1) / blockCount;
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(blockCount);
+		for (int start = 0; start < edges.size(); start += blockSize) {
+			final int from = start;
+			final int to = Math.min(edges.size(), start + blockSize);
+			tasks.add(new Callable<Boolean>() {
+				public Boolean call() {
+					DouglasPeuckerSimplifier simplifier = new DouglasPeuckerSimplifier(tolerance);
+					for (int i = from; i < to; i++) {
+						edges.get(i).getOrCreateSegmentList(simplifier);
+					}
+					return true;
+				}
+			});
+		}
+		ImageUtil.invokeAll(pool, tasks);
+		List<PixelSegmentList> segmentLists = new ArrayList<PixelSegmentList>(edges.size());
+		for (PixelEdge edge : edges) {
+			segmentLists.add(edge.getOrCreateSegmentList(tolerance));
+		}
+		return segmentLists;
+	}
+
 	public void numberAllNodes() {
 		ensureNodeList();
 		int i = 0;
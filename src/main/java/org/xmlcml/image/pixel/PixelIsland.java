@@ -2,6 +2,10 @@ package org.xmlcml.image.pixel;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -19,6 +23,7 @@ import org.xmlcml.graphics.svg.SVGG;
 import org.xmlcml.graphics.svg.SVGRect;
 import org.xmlcml.graphics.svg.SVGSVG;
 import org.xmlcml.graphics.svg.SVGText;
+import org.xmlcml.image.BinaryImage;
 import org.xmlcml.image.ImageParameters;
 import org.xmlcml.image.ImageUtil;
 
@@ -40,6 +45,11 @@ import org.xmlcml.image.ImageUtil;
  * retaining connectivity</li>
  * </ul>
  * 
+ * Islands from FloodFill are held as PixelSpans and a seed until pixels are needed;
+ * size, statistics, bounding box, contains(), binary image and createImage() work
+ * on the spans. The Pixels (in fill order from the seed) are created on the first call 
+ * needing them, e.g. getPixelList() or iterator().
+ * 
  * @author pm286
  * 
  */
@@ -62,6 +72,8 @@ public class PixelIsland implements Iterable<Pixel> {
 	private static final String DEFAULT_OUTLINE_NAME = "outline";
 	private static final String DEFAULT_RIDGE_NAME = "ridge";
 	private static final String DEFAULT_THINNED_NAME = "thinned";
+	// bitmap words per pixel allowed in createPendingNeighbourMasks(), about a map entry
+	private static final int MAX_MASK_WORDS_PER_PIXEL = 4;
 	
 	
 
@@ -72,7 +84,7 @@ public class PixelIsland implements Iterable<Pixel> {
 	private Int2Range int2range;
 	private Real2Range real2range;
 	private Int2 leftmostCoord;
-	Map<Int2, Pixel> pixelByCoordMap; // find pixel or null
+	PixelCoordinateMap pixelByCoordMap; // find pixel or null
 	private PixelList terminalPixels;
 
 	private String pixelColor = "red";
@@ -82,6 +94,16 @@ public class PixelIsland implements Iterable<Pixel> {
 	private PixelNucleusFactory nucleusFactory;
 	private PixelList orthogonalStubList;
 	private PixelGraph pixelGraph;
+	private BinaryImage binaryImage;
+	private PixelIslandStatistics statistics;
+	private PixelIslandShape shape;
+	// pixels not yet created
+	private PixelSpans pixelSpans;
+	private int seedX;
+	private int seedY;
+	private boolean spansDiagonal;
+	// the map has just been made from pixelList; see createPendingNeighbourMasks()
+	private boolean neighbourMasksPending;
 
 	private SVGG svgg;
 	private String id;
@@ -125,6 +147,35 @@ public class PixelIsland implements Iterable<Pixel> {
 		this(pixelList, false);
 	}
 	
+	/** creates island with new pixels from packed coordinates.
+	 * 
+	 * pixels are in store order and have this as their island.
+	 * 
+	 * @param pixelStore coordinates (e.g. from FloodFill)
+	 * @param diagonal were diagonal neighbours allowed in creating the store?
+	 */
+	public PixelIsland(PixelStore pixelStore, boolean diagonal) {
+		this.pixelList = pixelStore.createPixelList(this);
+		this.allowDiagonal = diagonal;
+		setDefaults();
+	}
+
+	/** creates island whose pixels are only created when needed.
+	 * 
+	 * @param pixelSpans connected spans (e.g. from FloodFill); retained
+	 * @param seedX pixels are in fill order from the seed
+	 * @param seedY
+	 * @param diagonal were diagonal neighbours allowed in creating the spans?
+	 */
+	public PixelIsland(PixelSpans pixelSpans, int seedX, int seedY, boolean diagonal) {
+		this.pixelSpans = pixelSpans;
+		this.seedX = seedX;
+		this.seedY = seedY;
+		this.spansDiagonal = diagonal;
+		this.allowDiagonal = diagonal;
+		setDefaults();
+	}
+
 	public static PixelIsland createSeparateIslandWithClonedPixels(PixelList pixelList, boolean diagonal) {
 		PixelIsland cloneIsland = new PixelIsland();
 		for (Pixel pixel : pixelList) {
@@ -138,10 +189,51 @@ public class PixelIsland implements Iterable<Pixel> {
 
 	private void ensurePixelList() {
 		if (pixelList == null) {
-			this.pixelList = new PixelList();
+			if (pixelSpans != null) {
+				this.pixelList = createPixelStore().createPixelList(this);
+				pixelSpans = null;
+			} else {
+				this.pixelList = new PixelList();
+			}
 		}
 	}
 
+	/** frozen copy for concurrent readers.
+	 * 
+	 * does not create pixels if the island is still held as spans.
+	 * 
+	 * @return
+	 */
+	public PixelIslandSnapshot createSnapshot() {
+		return new PixelIslandSnapshot(createPixelStore(), allowDiagonal);
+	}
+
+	/** coordinates in pixel order.
+	 * 
+	 */
+	PixelStore createPixelStore() {
+		if (pixelSpans != null) {
+			return pixelSpans.createPixelStore(seedX, seedY, spansDiagonal, 0, 0);
+		}
+		return PixelStore.createPixelStore(getPixelList());
+	}
+
+	/** have the pixels been created.
+	 * 
+	 * @return false if the island is still held as spans
+	 */
+	public boolean hasPixels() {
+		return pixelSpans == null;
+	}
+
+	/** spans of an island whose pixels have not been created.
+	 * 
+	 * @return null if pixels have been created
+	 */
+	PixelSpans getPixelSpans() {
+		return pixelSpans;
+	}
+
 	/**
 	 * 
 	 * @param pixelList
@@ -166,10 +258,12 @@ public class PixelIsland implements Iterable<Pixel> {
 		if (real2range != null) {
 			return real2range;
 		}
-		ensurePixelList();
+		Int2Range i2r = getIntBoundingBox();
 		Real2Range r2r = new Real2Range();
-		for (Pixel pixel : pixelList) {
-			r2r.add(new Real2(pixel.getInt2()));
+		if (i2r.getXRange().isValid()) {
+			r2r = new Real2Range(
+					new RealRange(i2r.getXRange().getMin(), i2r.getXRange().getMax()),
+					new RealRange(i2r.getYRange().getMin(), i2r.getYRange().getMax()));
 		}
 		real2range = r2r;
 		return r2r;
@@ -179,26 +273,66 @@ public class PixelIsland implements Iterable<Pixel> {
 		if (int2range != null) {
 			return int2range;
 		}
-		ensurePixelList();
-		Int2Range i2r = new Int2Range();
-		for (Pixel pixel : pixelList) {
-			i2r.add(pixel.getInt2());
+		Int2Range i2r = getOrCreateStatistics().getIntBoundingBox();
+		int2range = (i2r == null) ? new Int2Range() : i2r;
+		return int2range;
+	}
+
+	/** area, bounding box, moments, perimeter and extremes.
+	 * 
+	 * islands from FloodFill get these as they are created; otherwise they are
+	 * computed from the pixels. Recomputed after pixels are added or removed through
+	 * the island's methods (which discard them); changes made directly to getPixelList()
+	 * are not seen.
+	 * 
+	 * @return
+	 */
+	public PixelIslandStatistics getOrCreateStatistics() {
+		if (pixelSpans != null) {
+			if (statistics == null) {
+				statistics = pixelSpans.createStatistics(0, 0);
+			}
+		} else if (statistics == null) {
+			statistics = PixelIslandStatistics.createStatistics(getPixelList());
 		}
-		int2range = i2r;
-		return i2r;
+		return statistics;
+	}
+
+	void setStatistics(PixelIslandStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/** convex hull, minimum rectangle and other shape measures.
+	 * 
+	 * works from the bitmap, so lazy islands make no pixels. Cached until pixels 
+	 * are added or removed.
+	 * 
+	 * @return
+	 */
+	public PixelIslandShape getOrCreateShape() {
+		if (shape == null) {
+			shape = new PixelIslandShape(this);
+		}
+		return shape;
 	}
 
 	public void addPixelAndComputeNeighbourNeighbours(Pixel pixel) {
 		ensurePixelList();
 		this.pixelList.add(pixel);
 		createMapAndRanges(pixel);
-		// FIXME - why???
-		pixel.createNeighbourNeighbourList(this);
+		pixel.updateNeighbourNeighbours(this);
+		updateLabel(pixel);
 	}
 
 	public void addPixelWithoutComputingNeighbours(Pixel pixel) {
 		ensurePixelList();
 		this.pixelList.add(pixel);
+		// the map (if any) no longer has every pixel
+		neighbourMasksPending = false;
+		binaryImage = null;
+		statistics = null;
+		shape = null;
+		updateLabel(pixel);
 	}
 
 	@Deprecated // does not control neighbour list
@@ -208,8 +342,17 @@ public class PixelIsland implements Iterable<Pixel> {
 		ensurePixelList();
 		this.pixelList.add(pixel);
 		createMapAndRanges(pixel);
-		// FIXME - why???
-		pixel.createNeighbourNeighbourList(this);
+		pixel.updateNeighbourNeighbours(this);
+		updateLabel(pixel);
+	}
+
+	/** keeps the label raster of the islandList in step with an added pixel.
+	 * 
+	 */
+	private void updateLabel(Pixel pixel) {
+		if (islandList != null) {
+			islandList.pixelAdded(this, pixel);
+		}
 	}
 
 	private void createMapAndRanges() {
@@ -222,7 +365,39 @@ public class PixelIsland implements Iterable<Pixel> {
 	void ensurePopulatedMapAndRanges() {
 		ensurePixelByCoordMap();
 		if (pixelByCoordMap.size() == 0) {
-			createMapAndRanges(pixelList);
+			createMapAndRanges(getPixelList());
+			neighbourMasksPending = true;
+		}
+	}
+
+	/** neighbour masks of all pixels in one pass over getOrCreateBinaryImage().
+	 * 
+	 * done once, the first time a mask is needed after the map is made from the pixel list,
+	 * so that the masks agree with those Pixel makes from the map. Pixels that already have
+	 * a mask keep it. Sparse islands (more than MAX_MASK_WORDS_PER_PIXEL bitmap words per
+	 * pixel) are left to Pixel.
+	 */
+	void createPendingNeighbourMasks() {
+		if (!neighbourMasksPending) {
+			return;
+		}
+		neighbourMasksPending = false;
+		int size = size();
+		if (size == 0) {
+			return;
+		}
+		Int2Range bbox = getIntBoundingBox();
+		int xMin = bbox.getXRange().getMin();
+		int yMin = bbox.getYRange().getMin();
+		long words = (long) ((bbox.getXRange().getRange() + 64) >> 6) * (bbox.getYRange().getRange() + 1);
+		if (words > MAX_MASK_WORDS_PER_PIXEL * size) {
+			return;
+		}
+		BinaryImage image = getOrCreateBinaryImage();
+		int bits = allowDiagonal ? 0xff : Pixel.ORTHOGONAL_MASK;
+		for (Pixel pixel : getPixelList()) {
+			int compassMask = image.getNeighbourMask(pixel.x - xMin, pixel.y - yMin);
+			pixel.setNeighbourMaskIfUnknown(Pixel.getMaskFromCompassMask(compassMask) & bits);
 		}
 	}
 
@@ -233,12 +408,15 @@ public class PixelIsland implements Iterable<Pixel> {
 	}
 	private void createMapAndRanges(Pixel pixel) {
 		ensureInt2Range();
-		ensureReal2Range();
 		ensurePixelByCoordMap();
 		Int2 int2 = pixel.getInt2();
-		pixelByCoordMap.put(int2, pixel);
+		pixelByCoordMap.put(pixel.x, pixel.y, pixel);
+		binaryImage = null;
+		statistics = null;
+		shape = null;
 		int2range.add(int2);
-		real2range.add(new Real2(int2));
+		// recreated from int2range when needed
+		real2range = null;
 		if (leftmostCoord == null || leftmostCoord.getX() < int2.getX()) {
 			leftmostCoord = int2;
 		}
@@ -251,13 +429,10 @@ public class PixelIsland implements Iterable<Pixel> {
 		}
 	}
 
-	private void ensureReal2Range() {
-		if (real2range == null) {
-			real2range = new Real2Range();
-		}
-	}
-
 	public int size() {
+		if (pixelSpans != null) {
+			return pixelSpans.getPixelCount();
+		}
 		ensurePixelList();
 		return this.pixelList.size();
 	}
@@ -268,14 +443,25 @@ public class PixelIsland implements Iterable<Pixel> {
 		return pixel;
 	}
 	
-	public Map<Int2, Pixel> getPixelByCoordMap() {
+	/** get pixel without creating Int2.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return pixel or null
+	 */
+	public Pixel getPixelByCoord(int x, int y) {
+		ensurePopulatedMapAndRanges();
+		return pixelByCoordMap.get(x, y);
+	}
+	
+	public PixelCoordinateMap getPixelByCoordMap() {
 		ensurePixelByCoordMap();
 		return pixelByCoordMap;
 	}
 
 	private void ensurePixelByCoordMap() {
 		if (pixelByCoordMap == null) {
-			pixelByCoordMap = new HashMap<Int2, Pixel>();
+			pixelByCoordMap = new PixelCoordinateMap(size());
 		}
 	}
 
@@ -291,7 +477,7 @@ public class PixelIsland implements Iterable<Pixel> {
 
 	public PixelList getPixelsWithNeighbourCount(int neighbourCount) {
 		PixelList pixels = new PixelList();
-		for (Pixel pixel : pixelList) {
+		for (Pixel pixel : getPixelList()) {
 			int nCount = getNeighbourCount(pixel);
 			if (neighbourCount == nCount) {
 				pixels.add(pixel);
@@ -301,7 +487,7 @@ public class PixelIsland implements Iterable<Pixel> {
 	}
 
 	private int getNeighbourCount(Pixel pixel) {
-		return pixel.getOrCreateNeighbours(this).size();
+		return pixel.getNeighbourCount(this);
 	}
 
 	public void setDiagonal(boolean diagonal) {
@@ -316,15 +502,20 @@ public class PixelIsland implements Iterable<Pixel> {
 	 * @param pixel
 	 */
 	public void remove(Pixel pixel) {
-		if (pixelList.remove(pixel)) {
+		if (getPixelList().remove(pixel)) {
 			//Leaves int2range, real2range and leftmostCoord dirty
 			int2range = null;
 			real2range = null;
 			leftmostCoord = null;
-			Int2 coord = pixel.getInt2();
-			pixelByCoordMap.remove(coord);
+			binaryImage = null;
+			statistics = null;
+			shape = null;
+			pixelByCoordMap.remove(pixel.x, pixel.y);
 			pixel.removeFromNeighbourNeighbourList(this);
 			pixel.clearNeighbours();
+			if (islandList != null) {
+				islandList.pixelRemoved(this, pixel);
+			}
 			
 		}
 	}
@@ -342,27 +533,19 @@ public class PixelIsland implements Iterable<Pixel> {
 	 * @return pixels removed
 	 */
 	public PixelSet removeSteps() {
+		return removeSteps(getPixelList().getList());
+	}
+
+	/** one round of removeSteps() looking only at candidates.
+	 * 
+	 * all candidates are tested before any is removed.
+	 */
+	private PixelSet removeSteps(List<Pixel> candidates) {
 		PixelSet removed = new PixelSet();
-		for (Pixel pixel : pixelList) {
-			if (removed.contains(pixel)) {
-				continue;
-			}
-			PixelList pixelNeighbours = pixel.getOrCreateNeighbours(this);
-			if (pixelNeighbours.size() == 3) { // could be step or tJunction
-				for (int i = 0; i < pixelNeighbours.size(); i++) {
-					Pixel pi = pixelNeighbours.get(i);
-					if (pi.isOrthogonalNeighbour(pixel)) {
-						int j = (i + 1) % 3;
-						Pixel pj = pixelNeighbours.get(j);
-						int k = (i + 2) % 3;
-						Pixel pk = pixelNeighbours.get(k);
-						if (pj.isKnightsMove(pk, pi)) {
-							removed.add(pixel);
-							LOG.trace("removed: " + pixel);
-							// this.remove(pixel);
-						}
-					}
-				}
+		for (Pixel pixel : candidates) {
+			if (!removed.contains(pixel) && isStep(pixel)) {
+				removed.add(pixel);
+				LOG.trace("removed: " + pixel);
 			}
 		}
 		for (Pixel pixel : removed) {
@@ -371,9 +554,28 @@ public class PixelIsland implements Iterable<Pixel> {
 		return removed;
 	}
 
+	private boolean isStep(Pixel pixel) {
+		PixelList pixelNeighbours = pixel.getOrCreateNeighbours(this);
+		if (pixelNeighbours.size() == 3) { // could be step or tJunction
+			for (int i = 0; i < pixelNeighbours.size(); i++) {
+				Pixel pi = pixelNeighbours.get(i);
+				if (pi.isOrthogonalNeighbour(pixel)) {
+					int j = (i + 1) % 3;
+					Pixel pj = pixelNeighbours.get(j);
+					int k = (i + 2) % 3;
+					Pixel pk = pixelNeighbours.get(k);
+					if (pj.isKnightsMove(pk, pi)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
 	public SVGG createSVG() {
 		SVGG g = new SVGG();
-		for (Pixel pixel : pixelList) {
+		for (Pixel pixel : getPixelList()) {
 			g.appendChild(pixel.getSVGRect());
 		}
 		return g;
@@ -410,9 +612,9 @@ public class PixelIsland implements Iterable<Pixel> {
 		double wmin = xSizeRange.getMin();
 		double hmax = ySizeRange.getMax();
 		double hmin = ySizeRange.getMin();
-		Real2Range ibox = getBoundingBox();
-		double width = ibox.getXRange().getRange();
-		double height = ibox.getYRange().getRange();
+		PixelIslandStatistics stats = getOrCreateStatistics();
+		double width = stats.getWidth();
+		double height = stats.getHeight();
 		boolean include = ((width <= wmax && width >= wmin) && (height <= hmax && height >= hmin));
 		return include;
 	}
@@ -421,16 +623,97 @@ public class PixelIsland implements Iterable<Pixel> {
 		return range.includes(getBoundingBox());
 	}
 
+	/** pixels of the bounding box as bits.
+	 * 
+	 * bit (0,0) is the minimum corner of getIntBoundingBox(). Cached until pixels 
+	 * are added or removed.
+	 * 
+	 * @return
+	 */
+	public BinaryImage getOrCreateBinaryImage() {
+		if (binaryImage == null) {
+			if (size() == 0) {
+				binaryImage = new BinaryImage(0, 0);
+			} else {
+				Int2Range bbox = getIntBoundingBox();
+				int xMin = bbox.getXRange().getMin();
+				int yMin = bbox.getYRange().getMin();
+				BinaryImage image = new BinaryImage(
+						bbox.getXRange().getRange() + 1, bbox.getYRange().getRange() + 1);
+				if (pixelSpans != null) {
+					for (int span = 0; span < pixelSpans.getSpanCount(); span++) {
+						image.setRange(pixelSpans.getY(span) - yMin, 
+								pixelSpans.getXMin(span) - xMin, pixelSpans.getXMax(span) - xMin + 1);
+					}
+				} else {
+					for (Pixel pixel : pixelList) {
+						image.set(pixel.x - xMin, pixel.y - yMin);
+					}
+				}
+				binaryImage = image;
+			}
+		}
+		return binaryImage;
+	}
+
+	/**
+	 * correlates bounding boxes cell by cell.
+	 * 
+	 * same score as binaryIslandCorrelation(island2, null) but counts 64 cells
+	 * at a time with XOR and bitCount on the cached getOrCreateBinaryImage()
+	 * of each island. Overlays the minimum corners of the boxes and scores
+	 * +1 for each cell which agrees and -1 for each which does not.
+	 * 
+	 * @param island2
+	 * @return (agreements - disagreements) / cells
+	 */
+	public double binaryIslandCorrelation(PixelIsland island2) {
+		return binaryIslandCorrelation(this.getOrCreateBinaryImage(), island2.getOrCreateBinaryImage());
+	}
+
+	/** correlation of bounding-box bitmaps as in binaryIslandCorrelation(island2).
+	 * 
+	 */
+	static double binaryIslandCorrelation(BinaryImage image1, BinaryImage image2) {
+		// as the Int2Range ranges (max - min) used by binaryIslandCorrelation(island2, title)
+		int xrange = Math.max(0, Math.max(image1.getWidth(), image2.getWidth()) - 1);
+		int yrange = Math.max(0, Math.max(image1.getHeight(), image2.getHeight()) - 1);
+		long[] words1 = image1.getWords();
+		long[] words2 = image2.getWords();
+		int wordsPerRow1 = image1.getWordsPerRow();
+		int wordsPerRow2 = image2.getWordsPerRow();
+		int words = (xrange + 63) >> 6;
+		long lastMask = ((xrange & 63) == 0) ? -1L : -1L >>> -xrange;
+		long disagreements = 0;
+		for (int j = 0; j < yrange; j++) {
+			for (int k = 0; k < words; k++) {
+				long bits1 = (j < image1.getHeight() && k < wordsPerRow1) ? words1[j * wordsPerRow1 + k] : 0L;
+				long bits2 = (j < image2.getHeight() && k < wordsPerRow2) ? words2[j * wordsPerRow2 + k] : 0L;
+				long diff = bits1 ^ bits2;
+				if (k == words - 1) {
+					diff &= lastMask;
+				}
+				disagreements += Long.bitCount(diff);
+			}
+		}
+		double cells = (double) xrange * yrange;
+		return (cells - 2 * disagreements) / cells;
+	}
+
 	/**
 	 * computes correlations and outputs images.
 	 * 
 	 * @param island2
 	 *            must be binarized
 	 * @param title
-	 *            if not null creates title.svg
+	 *            if not null creates title.svg; if null uses 
+	 *            binaryIslandCorrelation(island2)
 	 * @return correlation
 	 */
 	public double binaryIslandCorrelation(PixelIsland island2, String title) {
+		if (title == null) {
+			return binaryIslandCorrelation(island2);
+		}
 		Int2Range bbox1 = this.getIntBoundingBox();
 		Int2Range bbox2 = island2.getIntBoundingBox();
 		int xRange1 = bbox1.getXRange().getRange();
@@ -454,8 +737,8 @@ public class PixelIsland implements Iterable<Pixel> {
 				int y1 = yMin1 + j;
 				int y2 = yMin2 + j;
 				Int2 i2 = new Int2(x1, y1);
-				Pixel pixel1 = pixelByCoordMap.get(i2);
-				Pixel pixel2 = island2.pixelByCoordMap.get(new Int2(x2, y2));
+				Pixel pixel1 = pixelByCoordMap.get(x1, y1);
+				Pixel pixel2 = island2.pixelByCoordMap.get(x2, y2);
 				if (pixel1 != null) {
 					g.appendChild(addRect(i2, "red"));
 				}
@@ -537,24 +820,34 @@ public class PixelIsland implements Iterable<Pixel> {
 			}
 		}
 		int wrote = 0;
-		for (Pixel pixel : this.getPixelList()) {
-			Int2 xy = pixel.getInt2();
-			int x = xy.getX() - xmin;
-			int y = xy.getY() - ymin;
-			if (x < w && y < h) {
-				image.setRGB(x, y, 0);
-				wrote++;
-			} else {
-				LOG.error("Tried to write pixel outside image area "+xy);
+		if (pixelSpans != null) {
+			for (int span = 0; span < pixelSpans.getSpanCount(); span++) {
+				int y = pixelSpans.getY(span) - ymin;
+				for (int x = pixelSpans.getXMin(span) - xmin; x <= pixelSpans.getXMax(span) - xmin; x++) {
+					image.setRGB(x, y, 0);
+					wrote++;
+				}
+			}
+		} else {
+			for (Pixel pixel : this.getPixelList()) {
+				Int2 xy = pixel.getInt2();
+				int x = xy.getX() - xmin;
+				int y = xy.getY() - ymin;
+				if (x < w && y < h) {
+					image.setRGB(x, y, 0);
+					wrote++;
+				} else {
+					LOG.error("Tried to write pixel outside image area "+xy);
+				}
 			}
 		}
-		LOG.trace("created image, size: " + pixelList.size()+" "+wrote);
+		LOG.trace("created image, size: " + size()+" "+wrote);
 		return image;
 	}
 
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		sb.append("pixels " + ((pixelList == null) ? null : pixelList.size()));
+		sb.append("pixels " + ((pixelList == null && pixelSpans == null) ? null : size()));
 		sb.append("; int2range " + int2range);
 		return sb.toString();
 	}
@@ -583,9 +876,8 @@ public class PixelIsland implements Iterable<Pixel> {
 	 */
 	public PixelList createExposedPixelList() {
 		PixelList exposedList = new PixelList();
-		for (Pixel pixel : pixelList) {
-			PixelList neighbours = pixel.getOrCreateNeighbours(this);
-			if (neighbours.size() < 8) {
+		for (Pixel pixel : getPixelList()) {
+			if (pixel.getNeighbourCount(this) < 8) {
 				exposedList.add(pixel);
 			}
 		}
@@ -627,11 +919,9 @@ public class PixelIsland implements Iterable<Pixel> {
 	 */
 	private void markEdges() {
 		PixelList exposedList = new PixelList();
-		for (Pixel pixel : pixelList) {
+		for (Pixel pixel : getPixelList()) {
 			pixel.setValue(NEIGHBOUR8);
-			PixelList neighbours = pixel.getOrCreateNeighbours(this);
-			int size = neighbours.size();
-			if (size < 8) {
+			if (pixel.getNeighbourCount(this) < 8) {
 				exposedList.add(pixel);
 			}
 		}
@@ -647,7 +937,7 @@ public class PixelIsland implements Iterable<Pixel> {
 	 */
 	public PixelList getPixelsWithValue(int v) {
 		PixelList valueList = new PixelList();
-		for (Pixel pixel : pixelList) {
+		for (Pixel pixel : getPixelList()) {
 			if (pixel.getValue() == v) {
 				valueList.add(pixel);
 			}
@@ -699,24 +989,68 @@ public class PixelIsland implements Iterable<Pixel> {
 	}
 
 	public Pixel get(int i) {
-		return pixelList == null || i < 0 || i >= pixelList.size() ? null
-				: pixelList.get(i);
+		return (pixelList == null && pixelSpans == null) || i < 0 || i >= size() ? null
+				: getPixelList().get(i);
 	}
 
 	/** removes the pixels from an incompletely thinned island.
 	 * 
+	 * repeats removeSteps() until nothing is removed. Whether a pixel is a step depends
+	 * only on its neighbours, so after the first round only the neighbours of pixels
+	 * removed in the previous round are tested; the result is the same as rescanning
+	 * the whole island every round.
 	 */
 	public void removeStepsIteratively() {
+		Map<Pixel, Integer> order = createOrder();
+		List<Pixel> candidates = getPixelList().getList();
 		while (true) {
-			PixelSet removed = removeSteps();
+			PixelSet removed = removeSteps(candidates);
 			if (removed.size() == 0) {
 				break;
 			}
+			candidates = getRemainingNeighbours(removed, order);
 		}
 	}
 
+	/** position of every pixel in the current list.
+	 * 
+	 * removal does not change the relative order of the rest.
+	 */
+	private Map<Pixel, Integer> createOrder() {
+		PixelList pixels = getPixelList();
+		Map<Pixel, Integer> order = new HashMap<Pixel, Integer>(2 * pixels.size());
+		for (int i = 0; i < pixels.size(); i++) {
+			order.put(pixels.get(i), i);
+		}
+		return order;
+	}
+
+	/** pixels still in the island among the 8 neighbours of removed pixels.
+	 * 
+	 * @return in island order
+	 */
+	private List<Pixel> getRemainingNeighbours(Collection<Pixel> removed, final Map<Pixel, Integer> order) {
+		PixelCoordinateMap pixelByCoordMap = getPixelByCoordMap();
+		PixelSet neighbourSet = new PixelSet();
+		for (Pixel pixel : removed) {
+			for (int[] offset : Pixel.NEIGHBOUR_OFFSETS8) {
+				Pixel neighbour = pixelByCoordMap.get(pixel.x + offset[0], pixel.y + offset[1]);
+				if (neighbour != null) {
+					neighbourSet.add(neighbour);
+				}
+			}
+		}
+		List<Pixel> neighbours = new ArrayList<Pixel>(neighbourSet);
+		Collections.sort(neighbours, new Comparator<Pixel>() {
+			public int compare(Pixel p0, Pixel p1) {
+				return order.get(p0).compareTo(order.get(p1));
+			}
+		});
+		return neighbours;
+	}
+
 	public Iterator<Pixel> iterator() {
-		return pixelList.iterator();
+		return getPixelList().iterator();
 	}
 
 	/**
@@ -737,7 +1071,7 @@ public class PixelIsland implements Iterable<Pixel> {
 	public SVGG getOrCreateSVGG() {
 		ensurePixelPlotter();
 		if (svgg == null) {
-			svgg = pixelPlotter.plotPixels(pixelList, pixelColor);
+			svgg = pixelPlotter.plotPixels(getPixelList(), pixelColor);
 		}
 		return svgg;
 	}
@@ -748,15 +1082,23 @@ public class PixelIsland implements Iterable<Pixel> {
 		}
 	}
 
-	//FIXME this is timeconsuming if not thinned before use
+	/** repeats makeCornerSet() and removeCornerSet() until there are no corners.
+	 * 
+	 * the whole island is scanned only once. Every corner found is either removed or is
+	 * a neighbour of a removed pixel, and only those neighbours can change, so later
+	 * rounds test just the neighbours of the pixels removed in the previous round (in
+	 * island order, so cornerSet is the same as a full rescan would make).
+	 */
 	public void removeCorners() {
 		int count = 0;
+		Map<Pixel, Integer> order = createOrder();
+		makeCornerSet();
 		while (true) {
-			makeCornerSet();
 			LOG.trace("cornerSet: "+cornerSet.size()+"; "+this.size());
 			if (cornerSet.size() == 0)
 				break;
-			removeCornerSet();
+			List<Pixel> removed = removeCornerSet(cornerSet);
+			makeCornerSet(getRemainingNeighbours(removed, order));
 			count++;
 		}
 		LOG.trace("removeCornerCount "+count);
@@ -771,37 +1113,44 @@ public class PixelIsland implements Iterable<Pixel> {
 	 * 
 	 */
 	private PixelSet makeCornerSet() {
+		return makeCornerSet(getPixelList().getList());
+	}
+
+	private PixelSet makeCornerSet(List<Pixel> candidates) {
 		cornerSet = new PixelSet();
-		for (Pixel pixel : this) {
-			PixelList orthogonalNeighbours = pixel
-					.getOrthogonalNeighbours(this);
-			// two orthogonal at right angles?
-			if (orthogonalNeighbours.size() == 2) {
-				Pixel orthNeigh0 = orthogonalNeighbours.get(0);
-				Pixel orthNeigh1 = orthogonalNeighbours.get(1);
-				// corner?
-				if (orthNeigh0.isDiagonalNeighbour(orthNeigh1)) {
-					PixelList diagonalNeighbours = pixel
-							.getDiagonalNeighbours(this);
-					// is this a diagonal Y-junction?
-					boolean add = true;
-					for (Pixel diagonalNeighbour : diagonalNeighbours) {
-						if (diagonalNeighbour.isKnightsMove(orthNeigh0)
-								&& diagonalNeighbour.isKnightsMove(orthNeigh1)) {
-							LOG.trace("skipped diagonal Y Junction: "
-									+ diagonalNeighbour + "/" + pixel + "/"
-									+ orthNeigh0 + "//" + orthNeigh1);
-							add = false;
-							break; // Y-junction
-						}
-					}
-					if (add) {
-						cornerSet.add(pixel);
+		for (Pixel pixel : candidates) {
+			if (isCorner(pixel)) {
+				cornerSet.add(pixel);
+			}
+		}
+		return cornerSet;
+	}
+
+	private boolean isCorner(Pixel pixel) {
+		PixelList orthogonalNeighbours = pixel
+				.getOrthogonalNeighbours(this);
+		// two orthogonal at right angles?
+		if (orthogonalNeighbours.size() == 2) {
+			Pixel orthNeigh0 = orthogonalNeighbours.get(0);
+			Pixel orthNeigh1 = orthogonalNeighbours.get(1);
+			// corner?
+			if (orthNeigh0.isDiagonalNeighbour(orthNeigh1)) {
+				PixelList diagonalNeighbours = pixel
+						.getDiagonalNeighbours(this);
+				// is this a diagonal Y-junction?
+				for (Pixel diagonalNeighbour : diagonalNeighbours) {
+					if (diagonalNeighbour.isKnightsMove(orthNeigh0)
+							&& diagonalNeighbour.isKnightsMove(orthNeigh1)) {
+						LOG.trace("skipped diagonal Y Junction: "
+								+ diagonalNeighbour + "/" + pixel + "/"
+								+ orthNeigh0 + "//" + orthNeigh1);
+						return false; // Y-junction
 					}
 				}
+				return true;
 			}
 		}
-		return cornerSet;
+		return false;
 	}
 
 	/**
@@ -812,6 +1161,15 @@ public class PixelIsland implements Iterable<Pixel> {
 	 */
 	public void removeCornerSet() {
 		ensureCornerSet();
+		removeCornerSet(cornerSet);
+	}
+
+	/** empties cornerSet.
+	 * 
+	 * @return pixels removed from island
+	 */
+	private List<Pixel> removeCornerSet(PixelSet cornerSet) {
+		List<Pixel> removed = new ArrayList<Pixel>();
 		while (!cornerSet.isEmpty()) {
 			Pixel pixel = cornerSet.iterator().next();
 			PixelList neighbours = pixel.getOrCreateNeighbours(this);
@@ -821,7 +1179,9 @@ public class PixelIsland implements Iterable<Pixel> {
 			}
 			cornerSet.remove(pixel);
 			this.remove(pixel);
+			removed.add(pixel);
 		}
+		return removed;
 	}
 
 	private void ensureCornerSet() {
@@ -857,7 +1217,7 @@ public class PixelIsland implements Iterable<Pixel> {
 	 */
 	public PixelList getNucleusCentrePixelList() {
 		PixelList pixels = new PixelList();
-		for (Pixel pixel : pixelList) {
+		for (Pixel pixel : getPixelList()) {
 			int neighbourCount = getNeighbourCount(pixel);
 			if (neighbourCount != 2) {
 				pixels.add(pixel);
@@ -906,10 +1266,12 @@ public class PixelIsland implements Iterable<Pixel> {
 		if (coord != null) {
 			filledList = new PixelList();
 			ensurePixelByCoordMap();
-			addPixel(filledList, pixelByCoordMap.get(coord.subtract(new Int2(1,0))));
-			addPixel(filledList, pixelByCoordMap.get(coord.subtract(new Int2(0,1))));
-			addPixel(filledList, pixelByCoordMap.get(coord.plus(new Int2(1,0))));
-			addPixel(filledList, pixelByCoordMap.get(coord.plus(new Int2(0,1))));
+			int x = coord.getX();
+			int y = coord.getY();
+			addPixel(filledList, pixelByCoordMap.get(x - 1, y));
+			addPixel(filledList, pixelByCoordMap.get(x, y - 1));
+			addPixel(filledList, pixelByCoordMap.get(x + 1, y));
+			addPixel(filledList, pixelByCoordMap.get(x, y + 1));
 
 		}
 		if (filledList.size() > 0) {
@@ -940,10 +1302,10 @@ public class PixelIsland implements Iterable<Pixel> {
 			IntRange yRange = box.getYRange();
 			int ymin = yRange.getMin();
 			int ymax = yRange.getMax();
-			Map<Int2, Pixel> pixelByCoordMap = getPixelByCoordMap();
+			PixelCoordinateMap pixelByCoordMap = getPixelByCoordMap();
 			for (int i = xmin; i <= xmax; i++) {
 				for (int j = ymin; j <= ymax; j++) {
-					Pixel pixel = pixelByCoordMap.get(new Int2(i, j));
+					Pixel pixel = pixelByCoordMap.get(i, j);
 					if (pixel == null) {
 						emptyPixelList.add(new Pixel(i, j));
 					}
@@ -971,19 +1333,26 @@ public class PixelIsland implements Iterable<Pixel> {
 
 	/** does island contain a pixel?
 	 * 
-	 * crude
+	 * by coordinates, in constant time.
 	 * 
 	 * @param pixel
 	 * @return
 	 */
 	public boolean contains(Pixel pixel) {
-		ensurePixelList();
-		for (Pixel pixel0 : pixelList) {
-			if (pixel.equals(pixel0)) {
-				return true;
-			}
+		return contains(pixel.x, pixel.y);
+	}
+
+	/** is there a pixel at x,y.
+	 * 
+	 * no Pixel is created.
+	 */
+	public boolean contains(int x, int y) {
+		if (pixelSpans != null) {
+			Int2Range bbox = getIntBoundingBox();
+			return getOrCreateBinaryImage().get(x - bbox.getXRange().getMin(), y - bbox.getYRange().getMin());
 		}
-		return false;
+		ensurePixelList();
+		return pixelList.containsCoordinates(x, y);
 	}
 
 	public void trimCornerPixels() {
@@ -1121,8 +1490,11 @@ public class PixelIsland implements Iterable<Pixel> {
 	 * @param size
 	 */
 	public void removeMinorIslands(int size) {
-		pixelList.setIsland(this);
+		getPixelList().setIsland(this);
 		pixelList.removeMinorIslands(size);
+		binaryImage = null;
+		statistics = null;
+		shape = null;
 	}
 
 	// ============= PLOTTING =========
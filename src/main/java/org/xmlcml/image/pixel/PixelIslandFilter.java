@@ -0,0 +1,161 @@
+package org.xmlcml.image.pixel;
+
+import org.xmlcml.euclid.IntRange;
+import org.xmlcml.euclid.Real2Range;
+import org.xmlcml.euclid.RealRange;
+
+/** tests whether an island should be kept, from its statistics alone.
+ *
+ * given to FloodFill.setIslandFilter() so that rejected components (usually speckle)
+ * are painted but never built into PixelIslands. All tests are on PixelIslandStatistics
+ * made from the runs of the component.
+ *
+ * width and height are as in getBoundingBox() (xMax - xMin); aspect ratio is
+ * (width + 1) / (height + 1), i.e. of the extent in pixels.
+ *
+ * setters return this so they can be chained.
+ */
+public class PixelIslandFilter {
+
+	private int minimumArea = 0;
+	private int maximumArea = Integer.MAX_VALUE;
+	private IntRange widthRange;
+	private IntRange heightRange;
+	private RealRange aspectRatioRange;
+	private Real2Range minimumSize;
+	private int maximumIslandCount = Integer.MAX_VALUE;
+
+	public PixelIslandFilter() {
+	}
+
+	/** islands with fewer pixels are rejected.
+	 *
+	 */
+	public PixelIslandFilter setMinimumArea(int minimumArea) {
+		this.minimumArea = minimumArea;
+		return this;
+	}
+
+	/** islands with more pixels are rejected.
+	 *
+	 */
+	public PixelIslandFilter setMaximumArea(int maximumArea) {
+		this.maximumArea = maximumArea;
+		return this;
+	}
+
+	/** islands whose width is outside range are rejected.
+	 *
+	 * @param widthRange null (default) for any
+	 */
+	public PixelIslandFilter setWidthRange(IntRange widthRange) {
+		this.widthRange = widthRange;
+		return this;
+	}
+
+	/** islands whose height is outside range are rejected.
+	 *
+	 * @param heightRange null (default) for any
+	 */
+	public PixelIslandFilter setHeightRange(IntRange heightRange) {
+		this.heightRange = heightRange;
+		return this;
+	}
+
+	/** islands whose aspect ratio (width / height) is outside range are rejected.
+	 *
+	 * @param aspectRatioRange null (default) for any
+	 */
+	public PixelIslandFilter setAspectRatioRange(RealRange aspectRatioRange) {
+		this.aspectRatioRange = aspectRatioRange;
+		return this;
+	}
+
+	/** islands both narrower and lower than minimumSize are rejected.
+	 *
+	 * as PixelIslandList.removeIslandsLessThan().
+	 *
+	 * @param minimumSize null (default) for any
+	 */
+	public PixelIslandFilter setMinimumSize(Real2Range minimumSize) {
+		this.minimumSize = minimumSize;
+		return this;
+	}
+
+	/** only the first islands accepted (in fill order) are kept.
+	 *
+	 */
+	public PixelIslandFilter setMaximumIslandCount(int maximumIslandCount) {
+		this.maximumIslandCount = maximumIslandCount;
+		return this;
+	}
+
+	public int getMinimumArea() {
+		return minimumArea;
+	}
+
+	public int getMaximumArea() {
+		return maximumArea;
+	}
+
+	public IntRange getWidthRange() {
+		return widthRange;
+	}
+
+	public IntRange getHeightRange() {
+		return heightRange;
+	}
+
+	public RealRange getAspectRatioRange() {
+		return aspectRatioRange;
+	}
+
+	public Real2Range getMinimumSize() {
+		return minimumSize;
+	}
+
+	public int getMaximumIslandCount() {
+		return maximumIslandCount;
+	}
+
+	/** does the island pass all tests except the count.
+	 *
+	 * @param statistics of the island
+	 * @return
+	 */
+	public boolean accept(PixelIslandStatistics statistics) {
+		int area = statistics.getArea();
+		if (area < minimumArea || area > maximumArea) {
+			return false;
+		}
+		int width = statistics.getWidth();
+		int height = statistics.getHeight();
+		if (widthRange != null && !widthRange.includes(width)) {
+			return false;
+		}
+		if (heightRange != null && !heightRange.includes(height)) {
+			return false;
+		}
+		if (aspectRatioRange != null && !aspectRatioRange.includes((double) (width + 1) / (height + 1))) {
+			return false;
+		}
+		if (minimumSize != null &&
+				width < minimumSize.getXRange().getRange() && height < minimumSize.getYRange().getRange()) {
+			return false;
+		}
+		return true;
+	}
+
+	/** does the island pass all tests given the number already accepted.
+	 *
+	 */
+	public boolean accept(PixelIslandStatistics statistics, int acceptedCount) {
+		return acceptedCount < maximumIslandCount && accept(statistics);
+	}
+
+	@Override
+	public String toString() {
+		return "area: ("+minimumArea+","+maximumArea+"); width: "+widthRange+"; height: "+heightRange+
+				"; aspect: "+aspectRatioRange+"; minimumSize: "+minimumSize+"; count: "+maximumIslandCount;
+	}
+}
@@ -6,8 +6,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
 import org.xmlcml.euclid.Int2;
@@ -20,6 +23,7 @@ import org.xmlcml.graphics.svg.SVGG;
 import org.xmlcml.graphics.svg.SVGSVG;
 import org.xmlcml.graphics.svg.SVGText;
 import org.xmlcml.image.ImageParameters;
+import org.xmlcml.image.ImageUtil;
 import org.xmlcml.image.pixel.PixelComparator.ComparatorType;
 import org.xmlcml.image.processing.Thinning;
 import org.xmlcml.image.processing.ZhangSuenThinning;
@@ -52,6 +56,20 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 	private boolean diagonal;
 	private List<PixelGraph> graphList;
 	private List<PixelList> outlineList;
+	private ForkJoinPool forkJoinPool;
+
+	// label raster: island label per pixel over the bounding box of all islands
+	private static final int NO_LABEL = 0;
+	private static final int CONFLICT_LABEL = -1;
+	private int[] labels;
+	private int labelXMin;
+	private int labelYMin;
+	private int labelWidth;
+	private int labelHeight;
+	private List<PixelIsland> islandByLabel;
+	private IdentityHashMap<PixelIsland, Integer> labelByIsland;
+	private List<PixelIsland> labelledList;
+	private int labelledSize;
 
 	public PixelIslandList() {
 		list = new ArrayList<PixelIsland>();
@@ -96,6 +114,9 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 			pixelIsland.setIslandList(this);
 		}
 		list.add(pixelIsland);
+		if (labels != null) {
+			addLabels(pixelIsland);
+		}
 	}
 
 	public List<PixelIsland> getList() {
@@ -184,20 +205,40 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 		return islandList;
 	}
 
+	/** pixel at coordinates in any island.
+	 * 
+	 * constant time (label raster).
+	 * 
+	 * @param coord
+	 * @return null if none
+	 * @throws RuntimeException if more than one island has a pixel at coord
+	 */
 	public Pixel getPixelByCoord(Int2 coord) {
-		Pixel pixel = null;
-		for (PixelIsland island : this) {
-			Pixel pixel1 = island.getPixelByCoord(coord);
-			if (pixel1 != null) {
-				if (pixel == null) {
-					pixel = pixel1;
-				} else {
-					throw new RuntimeException("Pixel occurs in two island: "
-							+ coord);
-				}
-			}
+		PixelIsland island = getIslandByCoord(coord.getX(), coord.getY());
+		return island == null ? null : island.getPixelList().getPixelByCoordinate(coord);
+	}
+
+	/** island with a pixel at x,y.
+	 * 
+	 * constant time (label raster).
+	 * 
+	 * @param x
+	 * @param y
+	 * @return null if none
+	 * @throws RuntimeException if more than one island has a pixel at x,y
+	 */
+	public PixelIsland getIslandByCoord(int x, int y) {
+		ensureLabels();
+		int label = getLabel(x, y);
+		if (label == CONFLICT_LABEL) {
+			throw new RuntimeException("Pixel occurs in two island: " + new Int2(x, y));
+		}
+		PixelIsland island = (label == NO_LABEL) ? null : islandByLabel.get(label - 1);
+		// pixels removed without going through PixelIsland.remove()
+		if (island != null && !island.contains(x, y)) {
+			island = null;
 		}
-		return pixel;
+		return island;
 	}
 
 	private void recomputeNeighbours() {
@@ -206,14 +247,172 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 		}
 	}
 
+	/** island containing pixel (by coordinates).
+	 * 
+	 * constant time (label raster).
+	 * 
+	 * @param pixel
+	 * @return null if none
+	 */
 	public PixelIsland getIslandByPixel(Pixel pixel) {
-		// ensureIslandByPixelMap();
-		for (PixelIsland island : this) {
-			if (island.contains(pixel)) {
-				return island;
+		ensureLabels();
+		int label = getLabel(pixel.x, pixel.y);
+		if (label == CONFLICT_LABEL) {
+			// first in list, as before
+			for (PixelIsland island : this) {
+				if (island.contains(pixel)) {
+					return island;
+				}
+			}
+			return null;
+		}
+		PixelIsland island = (label == NO_LABEL) ? null : islandByLabel.get(label - 1);
+		return (island != null && island.contains(pixel)) ? island : null;
+	}
+
+	/** discards the label raster; it is rebuilt when next needed.
+	 * 
+	 * the raster follows add(), PixelIsland.add...() and PixelIsland.remove() and
+	 * changes in size of getList(). Call this after other edits, such as 
+	 * getList().set() or adding pixels directly to an island's PixelList.
+	 */
+	public void clearLabels() {
+		labels = null;
+		islandByLabel = null;
+		labelByIsland = null;
+		labelledList = null;
+	}
+
+	private void ensureLabels() {
+		if (labels != null && (labelledList != list || labelledSize != list.size())) {
+			clearLabels();
+		}
+		if (labels == null) {
+			createLabels();
+		}
+	}
+
+	/** labels every pixel of every island over their combined bounding box.
+	 * 
+	 * islands still held as spans are labelled from the spans and keep no pixels.
+	 */
+	private void createLabels() {
+		int xMin = Integer.MAX_VALUE;
+		int yMin = Integer.MAX_VALUE;
+		int xMax = Integer.MIN_VALUE;
+		int yMax = Integer.MIN_VALUE;
+		for (PixelIsland island : list) {
+			if (!island.hasPixels()) {
+				PixelIslandStatistics statistics = island.getOrCreateStatistics();
+				xMin = Math.min(xMin, statistics.getXMin());
+				yMin = Math.min(yMin, statistics.getYMin());
+				xMax = Math.max(xMax, statistics.getXMax());
+				yMax = Math.max(yMax, statistics.getYMax());
+				continue;
+			}
+			for (Pixel pixel : island.getPixelList()) {
+				xMin = Math.min(xMin, pixel.x);
+				yMin = Math.min(yMin, pixel.y);
+				xMax = Math.max(xMax, pixel.x);
+				yMax = Math.max(yMax, pixel.y);
+			}
+		}
+		labelXMin = xMin;
+		labelYMin = yMin;
+		labelWidth = (xMax < xMin) ? 0 : xMax - xMin + 1;
+		labelHeight = (yMax < yMin) ? 0 : yMax - yMin + 1;
+		labels = new int[labelWidth * labelHeight];
+		islandByLabel = new ArrayList<PixelIsland>(list.size());
+		labelByIsland = new IdentityHashMap<PixelIsland, Integer>(list.size());
+		labelledList = list;
+		labelledSize = list.size();
+		for (PixelIsland island : list) {
+			addLabels(island);
+		}
+	}
+
+	private void addLabels(PixelIsland island) {
+		Integer label = labelByIsland.get(island);
+		if (label == null) {
+			islandByLabel.add(island);
+			label = islandByLabel.size();
+			labelByIsland.put(island, label);
+		}
+		labelledSize = list.size();
+		PixelSpans spans = island.getPixelSpans();
+		if (spans != null) {
+			for (int span = 0; span < spans.getSpanCount(); span++) {
+				for (int x = spans.getXMin(span); x <= spans.getXMax(span); x++) {
+					if (!setLabel(x, spans.getY(span), label)) {
+						clearLabels();
+						return;
+					}
+				}
+			}
+		} else {
+			for (Pixel pixel : island.getPixelList()) {
+				if (!setLabel(pixel.x, pixel.y, label)) {
+					// outside raster; rebuild when needed
+					clearLabels();
+					return;
+				}
+			}
+		}
+	}
+
+	private int getLabel(int x, int y) {
+		int lx = x - labelXMin;
+		int ly = y - labelYMin;
+		if (lx < 0 || lx >= labelWidth || ly < 0 || ly >= labelHeight) {
+			return NO_LABEL;
+		}
+		return labels[ly * labelWidth + lx];
+	}
+
+	/** labels x,y; a pixel already labelled with another island is a conflict.
+	 * 
+	 * @return false if x,y is outside the raster
+	 */
+	private boolean setLabel(int x, int y, int label) {
+		int lx = x - labelXMin;
+		int ly = y - labelYMin;
+		if (lx < 0 || lx >= labelWidth || ly < 0 || ly >= labelHeight) {
+			return false;
+		}
+		int i = ly * labelWidth + lx;
+		labels[i] = (labels[i] == NO_LABEL || labels[i] == label) ? label : CONFLICT_LABEL;
+		return true;
+	}
+
+	/** called by island when it gains a pixel.
+	 * 
+	 */
+	void pixelAdded(PixelIsland island, Pixel pixel) {
+		if (labels == null) {
+			return;
+		}
+		Integer label = labelByIsland.get(island);
+		if (label != null && !setLabel(pixel.x, pixel.y, label)) {
+			clearLabels();
+		}
+	}
+
+	/** called by island when it loses a pixel.
+	 * 
+	 */
+	void pixelRemoved(PixelIsland island, Pixel pixel) {
+		if (labels == null) {
+			return;
+		}
+		Integer label = labelByIsland.get(island);
+		if (label != null) {
+			int currentLabel = getLabel(pixel.x, pixel.y);
+			if (currentLabel == label) {
+				labels[(pixel.y - labelYMin) * labelWidth + pixel.x - labelXMin] = NO_LABEL;
+			} else if (currentLabel == CONFLICT_LABEL) {
+				clearLabels();
 			}
 		}
-		return null;
 	}
 
 //	private void rearrangeYJunctions() {
@@ -232,12 +431,12 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 	public PixelIslandList smallerThan(Real2 box) {
 		List<PixelIsland> newList = new ArrayList<PixelIsland>();
 		for (PixelIsland island : list) {
-			Real2Range bbox = island.getBoundingBox();
-			if (bbox.getXRange().getRange() < box.getX()
-					&& bbox.getYRange().getRange() < box.getY()) {
+			PixelIslandStatistics stats = island.getOrCreateStatistics();
+			if (stats.getWidth() < box.getX()
+					&& stats.getHeight() < box.getY()) {
 				newList.add(island);
 			} else {
-				LOG.trace("omitted " + bbox);
+				LOG.trace("omitted " + stats);
 			}
 		}
 		return new PixelIslandList(newList);
@@ -268,15 +467,148 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 	public Multimap<Integer, PixelIsland> createCharactersByHeight() {
 		Multimap<Integer, PixelIsland> map = ArrayListMultimap.create();
 		for (PixelIsland island : list) {
-			Integer height = (int) island.getBoundingBox().getYRange()
-					.getRange();
+			Integer height = island.getOrCreateStatistics().getHeight();
 			map.put(height, island);
 		}
 		return map;
 	}
 
+	/** correlation of islands i and j.
+	 * 
+	 * no longer writes target/correlate/i-j.svg; use
+	 * PixelIsland.binaryIslandCorrelation(island2, title) for that.
+	 */
 	public double correlation(int i, int j) {
-		return list.get(i).binaryIslandCorrelation(list.get(j), i + "-" + j);
+		return list.get(i).binaryIslandCorrelation(list.get(j));
+	}
+
+	/** correlations of all pairs of islands.
+	 * 
+	 * @return symmetric matrix [i][j] = correlation(i, j)
+	 */
+	public double[][] createCorrelationMatrix() {
+		final double[][] matrix = new double[list.size()][list.size()];
+		ensureBinaryImages(this);
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(list.size());
+		for (int row = 0; row < list.size(); row++) {
+			final int i = row;
+			tasks.add(new Callable<Boolean>() {
+				public Boolean call() {
+					PixelIsland island = list.get(i);
+					for (int j = 0; j <= i; j++) {
+						matrix[i][j] = island.binaryIslandCorrelation(list.get(j));
+					}
+					return true;
+				}
+			});
+		}
+		ImageUtil.invokeAll(forkJoinPool, tasks);
+		for (int i = 0; i < list.size(); i++) {
+			for (int j = 0; j < i; j++) {
+				matrix[j][i] = matrix[i][j];
+			}
+		}
+		return matrix;
+	}
+
+	/** correlations of each island with each of a reference list (e.g. an alphabet).
+	 * 
+	 * @param referenceList
+	 * @return matrix [i][j] = correlation of this.get(i) with referenceList.get(j)
+	 */
+	public double[][] createCorrelationMatrix(final PixelIslandList referenceList) {
+		final double[][] matrix = new double[list.size()][referenceList.size()];
+		ensureBinaryImages(this);
+		ensureBinaryImages(referenceList);
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(list.size());
+		for (int row = 0; row < list.size(); row++) {
+			final int i = row;
+			tasks.add(new Callable<Boolean>() {
+				public Boolean call() {
+					PixelIsland island = list.get(i);
+					for (int j = 0; j < referenceList.size(); j++) {
+						matrix[i][j] = island.binaryIslandCorrelation(referenceList.get(j));
+					}
+					return true;
+				}
+			});
+		}
+		ImageUtil.invokeAll(forkJoinPool, tasks);
+		return matrix;
+	}
+
+	/** one shape measure of every island.
+	 * 
+	 * @return values in list order
+	 */
+	public double[] getShapeColumn(PixelIslandShape.Feature feature) {
+		return createShapeColumns(feature)[0];
+	}
+
+	/** shape measures of every island as columns.
+	 * 
+	 * shapes are made (and cached on the islands) with the pool if set.
+	 * 
+	 * @param features
+	 * @return [feature][island] in list order
+	 */
+	public double[][] createShapeColumns(PixelIslandShape.Feature... features) {
+		List<Callable<PixelIslandShape>> tasks = new ArrayList<Callable<PixelIslandShape>>(list.size());
+		for (final PixelIsland island : list) {
+			tasks.add(new Callable<PixelIslandShape>() {
+				public PixelIslandShape call() {
+					return island.getOrCreateShape();
+				}
+			});
+		}
+		List<PixelIslandShape> shapes = ImageUtil.invokeAll(forkJoinPool, tasks);
+		double[][] columns = new double[features.length][shapes.size()];
+		for (int i = 0; i < shapes.size(); i++) {
+			PixelIslandShape shape = shapes.get(i);
+			for (int f = 0; f < features.length; f++) {
+				columns[f][i] = shape.getValue(features[f]);
+			}
+		}
+		return columns;
+	}
+
+	/** creates the cached bitmaps before islands are shared between threads.
+	 * 
+	 */
+	private static void ensureBinaryImages(PixelIslandList islandList) {
+		for (PixelIsland island : islandList) {
+			island.getOrCreateBinaryImage();
+		}
+	}
+
+	/** pool for per-island analysis and correlation matrices.
+	 * 
+	 * doSuperThinning(), getOrCreateGraphList(), fillSingleHoles(), trimOrthogonalStubs(),
+	 * doTJunctionThinning(), createShapeColumns() and the correlation matrices then process
+	 * islands concurrently; results stay in list order. Islands must not share pixels. The
+	 * label raster is cleared first so that islands do not update it while they change;
+	 * ImageParameters are only read.
+	 * 
+	 * @param forkJoinPool if null (default) islands are processed in turn on the calling thread
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/** runs task on every island with the pool.
+	 * 
+	 * @return results in list order
+	 */
+	private <T> List<T> analyzeIslands(List<Callable<T>> tasks) {
+		if (forkJoinPool != null) {
+			// island edits would otherwise update the raster concurrently
+			clearLabels();
+		}
+		return ImageUtil.invokeAll(forkJoinPool, tasks);
 	}
 
 	public SVGG plotPixels() {
@@ -507,14 +839,19 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 	 * 
 	 */
 	public void doSuperThinning() {
-		List<PixelIsland> newIslandList = new ArrayList<PixelIsland>();
-		for (PixelIsland island : this) {
-			PixelIsland newIsland = new PixelIsland(island.getPixelList());
-			newIsland.setDiagonal(island.getDiagonal());
-			newIsland.doSuperThinning();
-			newIslandList.add(newIsland);
+		List<Callable<PixelIsland>> tasks = new ArrayList<Callable<PixelIsland>>(list.size());
+		for (final PixelIsland island : this) {
+			tasks.add(new Callable<PixelIsland>() {
+				public PixelIsland call() {
+					PixelIsland newIsland = new PixelIsland(island.getPixelList());
+					newIsland.setDiagonal(island.getDiagonal());
+					newIsland.doSuperThinning();
+					return newIsland;
+				}
+			});
 		}
-		this.list = newIslandList;
+		this.list = analyzeIslands(tasks);
+		clearLabels();
 	}
 
 	private void createCleanIslandList() {
@@ -526,6 +863,7 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 			newIslandList.add(newIsland);
 			this.list = newIslandList;
 		}
+		clearLabels();
 	}
 
 //	@Deprecated
@@ -562,14 +900,18 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 	public List<PixelGraph> getOrCreateGraphList() {
 //		this.debugIslands();
 		if (graphList == null) {
-			graphList = new ArrayList<PixelGraph>();
 			doSuperThinning();
 			// main tree
+			List<Callable<PixelGraph>> tasks = new ArrayList<Callable<PixelGraph>>();
 			for (int i = 0; i < Math.min(size(), mainProcessor.getMaxIsland()); i++) {
-				PixelIsland island = get(i);
-				PixelGraph graph = island.getOrCreateGraph();
-				graphList.add(graph);
+				final PixelIsland island = get(i);
+				tasks.add(new Callable<PixelGraph>() {
+					public PixelGraph call() {
+						return island.getOrCreateGraph();
+					}
+				});
 			}
+			graphList = analyzeIslands(tasks);
 		}
 		LOG.trace("pixelGraphList: "+graphList.size());
 		return graphList;
@@ -626,10 +968,17 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 	 * 
 	 */
 	public void fillSingleHoles() {
-		for (PixelIsland island : this) {
-			island.fillSingleHoles();
-			island.trimCornerPixels();
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(list.size());
+		for (final PixelIsland island : this) {
+			tasks.add(new Callable<Boolean>() {
+				public Boolean call() {
+					island.fillSingleHoles();
+					island.trimCornerPixels();
+					return true;
+				}
+			});
 		}
+		analyzeIslands(tasks);
 	}
 
 	/**
@@ -637,19 +986,16 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 	 * 
 	 */
 	public PixelList trimOrthogonalStubs() {
-		PixelList stubs = new PixelList();
-		for (PixelIsland island : this) {
-			PixelList stubs0 = getOrCreateOrthogonalStubList();
-			island.trimOrthogonalStubs();
-			stubs.addAll(stubs0);
+		List<Callable<PixelList>> tasks = new ArrayList<Callable<PixelList>>(list.size());
+		for (final PixelIsland island : this) {
+			tasks.add(new Callable<PixelList>() {
+				public PixelList call() {
+					return island.trimOrthogonalStubs();
+				}
+			});
 		}
-		return stubs;
-	}
-
-	private PixelList getOrCreateOrthogonalStubList() {
 		PixelList stubs = new PixelList();
-		for (PixelIsland island : this) {
-			PixelList stubs0 = island.getOrCreateOrthogonalStubList();
+		for (PixelList stubs0 : analyzeIslands(tasks)) {
 			stubs.addAll(stubs0);
 		}
 		return stubs;
@@ -660,9 +1006,16 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 	 * 
 	 */
 	public void doTJunctionThinning() {
-		for (PixelIsland island : this) {
-			island.doTJunctionThinning();
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(list.size());
+		for (final PixelIsland island : this) {
+			tasks.add(new Callable<Boolean>() {
+				public Boolean call() {
+					island.doTJunctionThinning();
+					return true;
+				}
+			});
 		}
+		analyzeIslands(tasks);
 	}
 
 	public void sortBySizeDescending() {
@@ -712,6 +1065,7 @@ public class PixelIslandList implements Iterable<PixelIsland> {
 			Real2Range bbox = island.getBoundingBox();
 			if (bbox.isLessThan(minimumIslandSize)) {
 				list.remove(island);
+				clearLabels();
 			}
 			
 		}
@@ -0,0 +1,440 @@
+package org.xmlcml.image.pixel;
+
+import org.xmlcml.euclid.Real2;
+import org.xmlcml.euclid.Real2Array;
+import org.xmlcml.image.BinaryImage;
+
+/** convex hull and shape measures of an island.
+ *
+ * made by PixelIsland.getOrCreateShape() from the island's bitmap and statistics and
+ * cached there until pixels are added or removed. Everything is computed when the shape is
+ * made and nothing changes afterwards.
+ *
+ * the hull is of the pixel squares, so its vertices are pixel corners: pixel (x,y) covers
+ * x..x+1, y..y+1 and a single pixel has a unit-square hull. Only the leftmost and rightmost
+ * pixel of each row can give hull vertices, so the hull is an integer monotone chain over at
+ * most 4 points per row. Vertices are counterclockwise on the screen (y down), without
+ * collinear points.
+ *
+ * from the hull, by rotating calipers: diameter and minimum-area bounding rectangle.
+ * Also:
+ * <ul>
+ * <li>perimeter: number of pixel edges between the island and background (holes included)</li>
+ * <li>solidity: area / hull area</li>
+ * <li>convexity: hull perimeter / perimeter</li>
+ * <li>rectangularity: area / minimum rectangle area</li>
+ * <li>orientation: angle of the major axis from the second moments</li>
+ * </ul>
+ * angles are in radians from the x axis towards the y axis (clockwise on the screen).
+ */
+public class PixelIslandShape {
+
+	/** measures that PixelIslandList can give as columns.
+	 *
+	 */
+	public enum Feature {
+		AREA,
+		PERIMETER,
+		HULL_AREA,
+		HULL_PERIMETER,
+		SOLIDITY,
+		CONVEXITY,
+		DIAMETER,
+		RECTANGLE_AREA,
+		RECTANGLE_WIDTH,
+		RECTANGLE_LENGTH,
+		RECTANGLE_ANGLE,
+		RECTANGULARITY,
+		ORIENTATION,
+	}
+
+	private int area;
+	private int perimeter;
+	private int[] hullX = new int[0];
+	private int[] hullY = new int[0];
+	private double hullArea;
+	private double hullPerimeter;
+	private double diameter;
+	private double rectangleArea;
+	private double rectangleWidth;
+	private double rectangleLength;
+	private double rectangleAngle;
+	private double[] rectangleCorners = new double[8];
+	private double orientation;
+
+	PixelIslandShape(PixelIsland island) {
+		PixelIslandStatistics statistics = island.getOrCreateStatistics();
+		area = statistics.getArea();
+		if (area == 0) {
+			return;
+		}
+		BinaryImage image = island.getOrCreateBinaryImage();
+		perimeter = countPerimeter(image);
+		makeHull(image, statistics.getXMin(), statistics.getYMin());
+		measureHull();
+		makeMinimumRectangle();
+		orientation = 0.5 * Math.atan2(2.0 * statistics.getCovarianceXY(),
+				statistics.getVarianceX() - statistics.getVarianceY());
+	}
+
+	/** pixel edges with background on one side.
+	 *
+	 * counted a word at a time: row against row above, and each row against itself shifted.
+	 */
+	private static int countPerimeter(BinaryImage image) {
+		long[] words = image.getWords();
+		int wordsPerRow = image.getWordsPerRow();
+		int count = 0;
+		for (int y = 0; y <= image.getHeight(); y++) {
+			int base = y * wordsPerRow;
+			int baseAbove = base - wordsPerRow;
+			long carry = 0;
+			for (int w = 0; w < wordsPerRow; w++) {
+				long row = y < image.getHeight() ? words[base + w] : 0L;
+				long above = y > 0 ? words[baseAbove + w] : 0L;
+				count += Long.bitCount(row ^ above);
+				count += Long.bitCount(row ^ ((row << 1) | carry));
+				carry = row >>> 63;
+			}
+			count += (int) carry;
+		}
+		return count;
+	}
+
+	/** monotone chain over the corners of the row extremes, taken in y then x order.
+	 *
+	 */
+	private void makeHull(BinaryImage image, int xMin, int yMin) {
+		int height = image.getHeight();
+		int[] rowLeft = new int[height];
+		int[] rowRight = new int[height];
+		for (int y = 0; y < height; y++) {
+			rowLeft[y] = image.nextSetBit(0, y);
+			rowRight[y] = rowLeft[y] < image.getWidth() ? getLastSetBit(image, y) + 1 : -1;
+		}
+		// corner row Y is the top of pixel row Y and the bottom of pixel row Y - 1
+		int[] px = new int[2 * (height + 1)];
+		int[] py = new int[2 * (height + 1)];
+		int n = 0;
+		for (int y = 0; y <= height; y++) {
+			int left = Integer.MAX_VALUE;
+			int right = -1;
+			if (y < height && rowRight[y] >= 0) {
+				left = rowLeft[y];
+				right = rowRight[y];
+			}
+			if (y > 0 && rowRight[y - 1] >= 0) {
+				left = Math.min(left, rowLeft[y - 1]);
+				right = Math.max(right, rowRight[y - 1]);
+			}
+			if (right >= 0) {
+				px[n] = left;
+				py[n++] = y;
+				px[n] = right;
+				py[n++] = y;
+			}
+		}
+		int[] hx = new int[2 * n];
+		int[] hy = new int[2 * n];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			while (k >= 2 && cross(hx[k - 2], hy[k - 2], hx[k - 1], hy[k - 1], px[i], py[i]) <= 0) {
+				k--;
+			}
+			hx[k] = px[i];
+			hy[k++] = py[i];
+		}
+		for (int i = n - 2, lower = k + 1; i >= 0; i--) {
+			while (k >= lower && cross(hx[k - 2], hy[k - 2], hx[k - 1], hy[k - 1], px[i], py[i]) <= 0) {
+				k--;
+			}
+			hx[k] = px[i];
+			hy[k++] = py[i];
+		}
+		// last point is the first again
+		k--;
+		// sorted by y then x the chain turns clockwise on the screen; reverse it
+		hullX = new int[k];
+		hullY = new int[k];
+		for (int i = 0; i < k; i++) {
+			hullX[i] = hx[k - 1 - i] + xMin;
+			hullY[i] = hy[k - 1 - i] + yMin;
+		}
+	}
+
+	private static int getLastSetBit(BinaryImage image, int y) {
+		long[] words = image.getWords();
+		int base = y * image.getWordsPerRow();
+		for (int w = image.getWordsPerRow() - 1; w >= 0; w--) {
+			long bits = words[base + w];
+			if (bits != 0) {
+				return (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+			}
+		}
+		return -1;
+	}
+
+	private static long cross(long ox, long oy, long ax, long ay, long bx, long by) {
+		return (ax - ox) * (by - oy) - (ay - oy) * (bx - ox);
+	}
+
+	private void measureHull() {
+		int n = hullX.length;
+		long twiceArea = 0;
+		hullPerimeter = 0;
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			twiceArea += (long) hullX[i] * hullY[j] - (long) hullX[j] * hullY[i];
+			hullPerimeter += Math.hypot(hullX[j] - hullX[i], hullY[j] - hullY[i]);
+		}
+		hullArea = Math.abs(twiceArea) / 2.0;
+		// antipodal pairs
+		long maxSquared = 0;
+		for (int i = 0, j = 1; i < n; i++) {
+			int i1 = (i + 1) % n;
+			while (Math.abs(cross(hullX[i], hullY[i], hullX[i1], hullY[i1], hullX[(j + 1) % n], hullY[(j + 1) % n])) >
+					Math.abs(cross(hullX[i], hullY[i], hullX[i1], hullY[i1], hullX[j], hullY[j]))) {
+				j = (j + 1) % n;
+			}
+			maxSquared = Math.max(maxSquared, getSquaredDistance(i, j));
+			maxSquared = Math.max(maxSquared, getSquaredDistance(i1, j));
+		}
+		diameter = Math.sqrt(maxSquared);
+	}
+
+	private long getSquaredDistance(int i, int j) {
+		long dx = hullX[i] - hullX[j];
+		long dy = hullY[i] - hullY[j];
+		return dx * dx + dy * dy;
+	}
+
+	/** one side of the minimum-area rectangle lies on a hull edge.
+	 *
+	 * for each edge the extreme vertices along it, away from it and back along it are
+	 * found by pointers that only move forward.
+	 */
+	private void makeMinimumRectangle() {
+		int n = hullX.length;
+		rectangleArea = Double.MAX_VALUE;
+		int right = 0;
+		int top = 0;
+		int left = 0;
+		for (int i = 0; i < n; i++) {
+			int i1 = (i + 1) % n;
+			long ex = hullX[i1] - hullX[i];
+			long ey = hullY[i1] - hullY[i];
+			if (i == 0) {
+				right = i1;
+			}
+			while (dot(ex, ey, i, (right + 1) % n) > dot(ex, ey, i, right)) {
+				right = (right + 1) % n;
+			}
+			if (i == 0) {
+				top = right;
+			}
+			while (Math.abs(cross(ex, ey, i, (top + 1) % n)) > Math.abs(cross(ex, ey, i, top))) {
+				top = (top + 1) % n;
+			}
+			if (i == 0) {
+				left = top;
+			}
+			while (dot(ex, ey, i, (left + 1) % n) < dot(ex, ey, i, left)) {
+				left = (left + 1) % n;
+			}
+			double length = Math.sqrt(ex * ex + ey * ey);
+			double along = (dot(ex, ey, i, right) - dot(ex, ey, i, left)) / length;
+			double across = Math.abs(cross(ex, ey, i, top)) / length;
+			double rectArea = along * across;
+			if (rectArea < rectangleArea) {
+				rectangleArea = rectArea;
+				double ux = ex / length;
+				double uy = ey / length;
+				// unit normal into the hull
+				double sign = Math.signum(cross(ex, ey, i, top));
+				double nx = -uy * sign;
+				double ny = ux * sign;
+				double low = dot(ex, ey, i, left) / length;
+				double high = dot(ex, ey, i, right) / length;
+				setCorner(0, hullX[i] + ux * low, hullY[i] + uy * low);
+				setCorner(1, hullX[i] + ux * high, hullY[i] + uy * high);
+				setCorner(2, hullX[i] + ux * high + nx * across, hullY[i] + uy * high + ny * across);
+				setCorner(3, hullX[i] + ux * low + nx * across, hullY[i] + uy * low + ny * across);
+				double angle;
+				if (along >= across) {
+					rectangleLength = along;
+					rectangleWidth = across;
+					angle = Math.atan2(uy, ux);
+				} else {
+					rectangleLength = across;
+					rectangleWidth = along;
+					angle = Math.atan2(ny, nx);
+				}
+				rectangleAngle = angle < 0 ? angle + Math.PI : (angle >= Math.PI ? angle - Math.PI : angle);
+			}
+		}
+	}
+
+	private long dot(long ex, long ey, int i, int j) {
+		return ex * (hullX[j] - hullX[i]) + ey * (hullY[j] - hullY[i]);
+	}
+
+	private long cross(long ex, long ey, int i, int j) {
+		return ex * (hullY[j] - hullY[i]) - ey * (hullX[j] - hullX[i]);
+	}
+
+	private void setCorner(int corner, double x, double y) {
+		rectangleCorners[2 * corner] = x;
+		rectangleCorners[2 * corner + 1] = y;
+	}
+
+	/** number of pixels.
+	 *
+	 */
+	public int getArea() {
+		return area;
+	}
+
+	/** number of pixel edges between island and background, including holes.
+	 *
+	 */
+	public int getPerimeter() {
+		return perimeter;
+	}
+
+	public int getHullVertexCount() {
+		return hullX.length;
+	}
+
+	public int getHullX(int i) {
+		return hullX[i];
+	}
+
+	public int getHullY(int i) {
+		return hullY[i];
+	}
+
+	/** hull vertices (pixel corners) in order.
+	 *
+	 */
+	public Real2Array createHull() {
+		Real2Array hull = new Real2Array();
+		for (int i = 0; i < hullX.length; i++) {
+			hull.add(new Real2(hullX[i], hullY[i]));
+		}
+		return hull;
+	}
+
+	public double getHullArea() {
+		return hullArea;
+	}
+
+	public double getHullPerimeter() {
+		return hullPerimeter;
+	}
+
+	/** area / hull area.
+	 *
+	 * @return 0 if empty
+	 */
+	public double getSolidity() {
+		return hullArea == 0 ? 0.0 : area / hullArea;
+	}
+
+	/** hull perimeter / perimeter.
+	 *
+	 * @return 0 if empty
+	 */
+	public double getConvexity() {
+		return perimeter == 0 ? 0.0 : hullPerimeter / perimeter;
+	}
+
+	/** greatest distance between hull vertices.
+	 *
+	 */
+	public double getDiameter() {
+		return diameter;
+	}
+
+	/** area of the smallest rectangle (any angle) containing the hull.
+	 *
+	 */
+	public double getRectangleArea() {
+		return area == 0 ? 0.0 : rectangleArea;
+	}
+
+	/** shorter side of the minimum rectangle.
+	 *
+	 */
+	public double getRectangleWidth() {
+		return rectangleWidth;
+	}
+
+	/** longer side of the minimum rectangle.
+	 *
+	 */
+	public double getRectangleLength() {
+		return rectangleLength;
+	}
+
+	/** angle of the longer side of the minimum rectangle, 0 .. PI.
+	 *
+	 */
+	public double getRectangleAngle() {
+		return rectangleAngle;
+	}
+
+	/** the 4 corners of the minimum rectangle in order.
+	 *
+	 * @return empty if island is empty
+	 */
+	public Real2Array createRectangle() {
+		Real2Array corners = new Real2Array();
+		if (area > 0) {
+			for (int corner = 0; corner < 4; corner++) {
+				corners.add(new Real2(rectangleCorners[2 * corner], rectangleCorners[2 * corner + 1]));
+			}
+		}
+		return corners;
+	}
+
+	/** area / minimum rectangle area.
+	 *
+	 * @return 0 if empty
+	 */
+	public double getRectangularity() {
+		return area == 0 ? 0.0 : area / rectangleArea;
+	}
+
+	/** angle of the major axis of the pixels, -PI/2 .. PI/2.
+	 *
+	 */
+	public double getOrientation() {
+		return orientation;
+	}
+
+	public double getValue(Feature feature) {
+		switch (feature) {
+		case AREA: return getArea();
+		case PERIMETER: return getPerimeter();
+		case HULL_AREA: return getHullArea();
+		case HULL_PERIMETER: return getHullPerimeter();
+		case SOLIDITY: return getSolidity();
+		case CONVEXITY: return getConvexity();
+		case DIAMETER: return getDiameter();
+		case RECTANGLE_AREA: return getRectangleArea();
+		case RECTANGLE_WIDTH: return getRectangleWidth();
+		case RECTANGLE_LENGTH: return getRectangleLength();
+		case RECTANGLE_ANGLE: return getRectangleAngle();
+		case RECTANGULARITY: return getRectangularity();
+		case ORIENTATION: return getOrientation();
+		default: throw new RuntimeException("unknown feature: " + feature);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "area: " + area + "; hull: " + hullX.length + " vertices, area " + hullArea +
+				"; solidity: " + getSolidity() + "; convexity: " + getConvexity() + "; diameter: " + diameter +
+				"; rectangle: " + rectangleLength + " x " + rectangleWidth + " at " + rectangleAngle;
+	}
+}
@@ -0,0 +1,203 @@
+package org.xmlcml.image.pixel;
+
+import org.xmlcml.euclid.Int2;
+import org.xmlcml.euclid.Int2Range;
+import org.xmlcml.euclid.IntRange;
+import org.xmlcml.euclid.Real2Range;
+import org.xmlcml.euclid.RealRange;
+import org.xmlcml.image.BinaryImage;
+
+/** immutable copy of a finished island.
+ *
+ * made by PixelIsland.createSnapshot(). Everything is computed when the snapshot is made:
+ * coordinates (in island order), bounding box, statistics, coordinate index, bounding-box
+ * bitmap and the 8-neighbour mask of every pixel. Nothing is cached later and nothing
+ * changes, so one snapshot can be read by any number of threads (graph building, moments,
+ * correlation, outlines) without locking. Later edits to the island do not affect it.
+ *
+ * Pixels are referred to by index (0 .. size() - 1). Neighbour masks use the bit order of
+ * Pixel.getOrCreateNeighbourMask(): (+1,0), (-1,0), (+1,+1), (-1,+1), (0,+1), (0,-1), (+1,-1), (-1,-1).
+ */
+public final class PixelIslandSnapshot {
+
+	private final int[] coords;
+	private final int size;
+	private final boolean diagonal;
+	private final int xMin;
+	private final int yMin;
+	private final int xMax;
+	private final int yMax;
+	private final PixelCoordinateIndex index;
+	private final byte[] neighbourMasks;
+	private final BinaryImage binaryImage;
+	private final PixelIslandStatistics statistics;
+
+	PixelIslandSnapshot(PixelStore store, boolean diagonal) {
+		this.size = store.size();
+		this.diagonal = diagonal;
+		this.coords = new int[2 * size];
+		this.index = new PixelCoordinateIndex(size);
+		for (int i = 0; i < size; i++) {
+			coords[2 * i] = store.getX(i);
+			coords[2 * i + 1] = store.getY(i);
+			index.put(coords[2 * i], coords[2 * i + 1], i);
+		}
+		this.xMin = store.getXMin();
+		this.yMin = store.getYMin();
+		this.xMax = store.getXMax();
+		this.yMax = store.getYMax();
+		this.neighbourMasks = new byte[size];
+		BinaryImage image = new BinaryImage(size == 0 ? 0 : xMax - xMin + 1, size == 0 ? 0 : yMax - yMin + 1);
+		PixelIslandStatistics stats = new PixelIslandStatistics();
+		int perimeterCount = 0;
+		for (int i = 0; i < size; i++) {
+			int x = coords[2 * i];
+			int y = coords[2 * i + 1];
+			int mask = 0;
+			for (int bit = 0; bit < Pixel.NEIGHBOUR_OFFSETS8.length; bit++) {
+				if (index.get(x + Pixel.NEIGHBOUR_OFFSETS8[bit][0], y + Pixel.NEIGHBOUR_OFFSETS8[bit][1]) >= 0) {
+					mask |= 1 << bit;
+				}
+			}
+			neighbourMasks[i] = (byte) mask;
+			if (mask != 0xff) {
+				perimeterCount++;
+			}
+			image.set(x - xMin, y - yMin);
+			stats.addRun(y, x, x);
+		}
+		stats.setPerimeterCount(perimeterCount);
+		this.binaryImage = image;
+		this.statistics = stats;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** were diagonal neighbours allowed in the island.
+	 *
+	 */
+	public boolean getDiagonal() {
+		return diagonal;
+	}
+
+	public int getX(int i) {
+		return coords[2 * i];
+	}
+
+	public int getY(int i) {
+		return coords[2 * i + 1];
+	}
+
+	public Int2 getInt2(int i) {
+		return new Int2(coords[2 * i], coords[2 * i + 1]);
+	}
+
+	/** position of x,y in the island.
+	 *
+	 * @return index or -1
+	 */
+	public int indexOf(int x, int y) {
+		return index.get(x, y);
+	}
+
+	public boolean contains(int x, int y) {
+		return index.get(x, y) >= 0;
+	}
+
+	public boolean contains(Pixel pixel) {
+		return contains(pixel.x, pixel.y);
+	}
+
+	/** new bounding box.
+	 *
+	 * @return null if empty
+	 */
+	public Int2Range getIntBoundingBox() {
+		return size == 0 ? null : new Int2Range(new IntRange(xMin, xMax), new IntRange(yMin, yMax));
+	}
+
+	/** new bounding box.
+	 *
+	 * @return null if empty
+	 */
+	public Real2Range getBoundingBox() {
+		return size == 0 ? null : new Real2Range(new RealRange(xMin, xMax), new RealRange(yMin, yMax));
+	}
+
+	/** area, moments, perimeter and extremes.
+	 *
+	 * the statistics have no public mutators.
+	 */
+	public PixelIslandStatistics getStatistics() {
+		return statistics;
+	}
+
+	/** neighbours of pixel i in the island as bits.
+	 *
+	 * as Pixel.getOrCreateNeighbourMask(); diagonal bits only if getDiagonal().
+	 */
+	public int getNeighbourMask(int i) {
+		int mask = neighbourMasks[i] & 0xff;
+		return diagonal ? mask : mask & Pixel.ORTHOGONAL_MASK;
+	}
+
+	/** all 8 neighbours of pixel i as bits, whether or not the island is diagonal.
+	 *
+	 */
+	public int getNeighbourMask8(int i) {
+		return neighbourMasks[i] & 0xff;
+	}
+
+	public int getNeighbourCount(int i) {
+		return Integer.bitCount(getNeighbourMask(i));
+	}
+
+	public int getOrthogonalNeighbourCount(int i) {
+		return Integer.bitCount(getNeighbourMask(i) & Pixel.ORTHOGONAL_MASK);
+	}
+
+	public int getDiagonalNeighbourCount(int i) {
+		return Integer.bitCount(getNeighbourMask(i) & Pixel.DIAGONAL_MASK);
+	}
+
+	/** has pixel i fewer than 8 neighbours (outline and internal holes).
+	 *
+	 */
+	public boolean isExposed(int i) {
+		return neighbourMasks[i] != (byte) 0xff;
+	}
+
+	/** pixels of the bounding box as bits; bit (0,0) is the minimum corner.
+	 *
+	 * @return new copy
+	 */
+	public BinaryImage createBinaryImage() {
+		return new BinaryImage(binaryImage);
+	}
+
+	/** as PixelIsland.binaryIslandCorrelation(island2).
+	 *
+	 */
+	public double binaryIslandCorrelation(PixelIslandSnapshot snapshot2) {
+		return PixelIsland.binaryIslandCorrelation(binaryImage, snapshot2.binaryImage);
+	}
+
+	/** new mutable island with new pixels in snapshot order.
+	 *
+	 */
+	public PixelIsland createPixelIsland() {
+		PixelStore store = new PixelStore(size);
+		for (int i = 0; i < size; i++) {
+			store.add(coords[2 * i], coords[2 * i + 1]);
+		}
+		PixelIsland island = new PixelIsland(store, diagonal);
+		return island;
+	}
+
+	@Override
+	public String toString() {
+		return "snapshot: pixels " + size + "; bbox " + getIntBoundingBox();
+	}
+}
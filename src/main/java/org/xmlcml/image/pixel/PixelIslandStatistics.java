@@ -0,0 +1,242 @@
+package org.xmlcml.image.pixel;
+
+import org.xmlcml.euclid.Int2;
+import org.xmlcml.euclid.Int2Range;
+import org.xmlcml.euclid.IntRange;
+import org.xmlcml.euclid.Real2;
+import org.xmlcml.euclid.Real2Range;
+import org.xmlcml.euclid.RealRange;
+
+/** summary of the pixels of an island.
+ *
+ * area, bounding box, first and second moments, number of perimeter pixels and
+ * extreme pixels. FloodFill fills this from the runs of each island as the island is
+ * created (PixelSpans.createStatistics()); otherwise it is made from the pixels
+ * (createStatistics(PixelList)). Filters and sorts can then work without touching pixels.
+ *
+ * a perimeter pixel has at least one of its 8 neighbours outside the island.
+ *
+ * extreme pixels are the leftmost (then topmost), rightmost (then topmost),
+ * topmost (then leftmost) and bottommost (then leftmost).
+ */
+public class PixelIslandStatistics {
+
+	private int area;
+	private int xMin = Integer.MAX_VALUE;
+	private int xMax = Integer.MIN_VALUE;
+	private int yMin = Integer.MAX_VALUE;
+	private int yMax = Integer.MIN_VALUE;
+	// y of leftmost and rightmost, x of topmost and bottommost
+	private int xMinY;
+	private int xMaxY;
+	private int yMinX;
+	private int yMaxX;
+	private long sumX;
+	private long sumY;
+	private long sumXX;
+	private long sumYY;
+	private long sumXY;
+	private int perimeterCount;
+
+	PixelIslandStatistics() {
+	}
+
+	/** statistics of pixels in a list.
+	 *
+	 * @param pixelList pixels should have distinct coordinates
+	 * @return
+	 */
+	public static PixelIslandStatistics createStatistics(PixelList pixelList) {
+		PixelIslandStatistics statistics = new PixelIslandStatistics();
+		int perimeterCount = 0;
+		for (Pixel pixel : pixelList) {
+			statistics.addRun(pixel.y, pixel.x, pixel.x);
+			if (!pixelList.containsCoordinates(pixel.x - 1, pixel.y - 1) ||
+					!pixelList.containsCoordinates(pixel.x, pixel.y - 1) ||
+					!pixelList.containsCoordinates(pixel.x + 1, pixel.y - 1) ||
+					!pixelList.containsCoordinates(pixel.x - 1, pixel.y) ||
+					!pixelList.containsCoordinates(pixel.x + 1, pixel.y) ||
+					!pixelList.containsCoordinates(pixel.x - 1, pixel.y + 1) ||
+					!pixelList.containsCoordinates(pixel.x, pixel.y + 1) ||
+					!pixelList.containsCoordinates(pixel.x + 1, pixel.y + 1)) {
+				perimeterCount++;
+			}
+		}
+		statistics.perimeterCount = perimeterCount;
+		return statistics;
+	}
+
+	/** adds pixels y, xmin..xmax (inclusive).
+	 *
+	 * sums are from the series so the cost does not depend on the length of the run.
+	 */
+	void addRun(int y, int xmin, int xmax) {
+		long n = xmax - xmin + 1;
+		long runSumX = (long) xmin * n + n * (n - 1) / 2;
+		area += n;
+		sumX += runSumX;
+		sumXX += sumOfSquares(xmax) - sumOfSquares(xmin - 1);
+		sumY += n * y;
+		sumYY += n * y * y;
+		sumXY += runSumX * y;
+		if (xmin < xMin || (xmin == xMin && y < xMinY)) {
+			xMin = xmin;
+			xMinY = y;
+		}
+		if (xmax > xMax || (xmax == xMax && y < xMaxY)) {
+			xMax = xmax;
+			xMaxY = y;
+		}
+		if (y < yMin || (y == yMin && xmin < yMinX)) {
+			yMin = y;
+			yMinX = xmin;
+		}
+		if (y > yMax || (y == yMax && xmin < yMaxX)) {
+			yMax = y;
+			yMaxX = xmin;
+		}
+	}
+
+	/** 0^2 + 1^2 + ... + k^2 (also correct for negative k as a difference).
+	 *
+	 */
+	private static long sumOfSquares(long k) {
+		return k * (k + 1) * (2 * k + 1) / 6;
+	}
+
+	void setPerimeterCount(int perimeterCount) {
+		this.perimeterCount = perimeterCount;
+	}
+
+	/** number of pixels.
+	 *
+	 */
+	public int getArea() {
+		return area;
+	}
+
+	public int getXMin() {
+		return xMin;
+	}
+
+	public int getXMax() {
+		return xMax;
+	}
+
+	public int getYMin() {
+		return yMin;
+	}
+
+	public int getYMax() {
+		return yMax;
+	}
+
+	/** xMax - xMin, as getBoundingBox().getXRange().getRange().
+	 *
+	 */
+	public int getWidth() {
+		return area == 0 ? 0 : xMax - xMin;
+	}
+
+	/** yMax - yMin, as getBoundingBox().getYRange().getRange().
+	 *
+	 */
+	public int getHeight() {
+		return area == 0 ? 0 : yMax - yMin;
+	}
+
+	/** new bounding box.
+	 *
+	 * @return null if empty
+	 */
+	public Int2Range getIntBoundingBox() {
+		return area == 0 ? null : new Int2Range(new IntRange(xMin, xMax), new IntRange(yMin, yMax));
+	}
+
+	/** new bounding box.
+	 *
+	 * @return null if empty
+	 */
+	public Real2Range getBoundingBox() {
+		return area == 0 ? null : new Real2Range(new RealRange(xMin, xMax), new RealRange(yMin, yMax));
+	}
+
+	/** mean of pixel coordinates.
+	 *
+	 * @return null if empty
+	 */
+	public Real2 getCentroid() {
+		return area == 0 ? null : new Real2((double) sumX / area, (double) sumY / area);
+	}
+
+	public long getSumX() {
+		return sumX;
+	}
+
+	public long getSumY() {
+		return sumY;
+	}
+
+	public long getSumXX() {
+		return sumXX;
+	}
+
+	public long getSumYY() {
+		return sumYY;
+	}
+
+	public long getSumXY() {
+		return sumXY;
+	}
+
+	/** second central moment in x divided by area.
+	 *
+	 */
+	public double getVarianceX() {
+		double meanX = (double) sumX / area;
+		return (double) sumXX / area - meanX * meanX;
+	}
+
+	/** second central moment in y divided by area.
+	 *
+	 */
+	public double getVarianceY() {
+		double meanY = (double) sumY / area;
+		return (double) sumYY / area - meanY * meanY;
+	}
+
+	/** mixed second central moment divided by area.
+	 *
+	 */
+	public double getCovarianceXY() {
+		return (double) sumXY / area - ((double) sumX / area) * ((double) sumY / area);
+	}
+
+	/** number of pixels with at least one of 8 neighbours outside the island.
+	 *
+	 */
+	public int getPerimeterCount() {
+		return perimeterCount;
+	}
+
+	public Int2 getLeftmost() {
+		return area == 0 ? null : new Int2(xMin, xMinY);
+	}
+
+	public Int2 getRightmost() {
+		return area == 0 ? null : new Int2(xMax, xMaxY);
+	}
+
+	public Int2 getTopmost() {
+		return area == 0 ? null : new Int2(yMinX, yMin);
+	}
+
+	public Int2 getBottommost() {
+		return area == 0 ? null : new Int2(yMaxX, yMax);
+	}
+
+	@Override
+	public String toString() {
+		return "area: "+area+"; bbox: "+getIntBoundingBox()+"; perimeter: "+perimeterCount;
+	}
+}
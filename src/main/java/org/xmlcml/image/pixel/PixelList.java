@@ -5,10 +5,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -41,7 +39,7 @@ public class PixelList implements Iterable<Pixel> {
 	private List<Pixel> list;
 	private Real2Array points;
 	private PixelIsland island;
-	private Map<Int2, Pixel> pixelByCoordinateMap;
+	private PixelCoordinateMap pixelByCoordinateMap;
 
 	Int2Range bbox;
 	
@@ -50,6 +48,15 @@ public class PixelList implements Iterable<Pixel> {
 		ensurePixelByCoordinateMap();
 	}
 
+	/** empty list with space for size pixels.
+	 * 
+	 * @param size
+	 */
+	public PixelList(int size) {
+		list = new ArrayList<Pixel>(size);
+		pixelByCoordinateMap = new PixelCoordinateMap(size);
+	}
+
 	private void ensureList() {
 		if (list == null) {
 			list = new ArrayList<Pixel>();
@@ -75,12 +82,12 @@ public class PixelList implements Iterable<Pixel> {
 
 	private void ensurePixelByCoordinateMap() {
 		if (pixelByCoordinateMap == null) {
-			pixelByCoordinateMap = new HashMap<Int2, Pixel>();
+			pixelByCoordinateMap = new PixelCoordinateMap(size());
 			for (Pixel pixel : this) {
 				if (pixel == null) {
 					throw new RuntimeException("null pixel");
 				}
-				pixelByCoordinateMap.put(pixel.getInt2(), pixel);
+				pixelByCoordinateMap.put(pixel.x, pixel.y, pixel);
 			}
 		}
 	}
@@ -143,8 +150,8 @@ public class PixelList implements Iterable<Pixel> {
 
 	private void addToMap(Pixel pixel) {
 		ensurePixelByCoordinateMap();
-		if (pixel != null && pixel.getInt2() != null) {
-			this.pixelByCoordinateMap.put(pixel.getInt2(), pixel);
+		if (pixel != null) {
+			this.pixelByCoordinateMap.put(pixel.x, pixel.y, pixel);
 		}
 	}
 
@@ -179,14 +186,26 @@ public class PixelList implements Iterable<Pixel> {
 		}
 	}
 
+	/** is there a pixel at the coordinates of pixel.
+	 * 
+	 * constant time (coordinate map).
+	 */
 	public boolean contains(Pixel pixel) {
-		return list != null && pixelByCoordinateMap.get(pixel.getInt2()) != null;
+		return list != null && pixelByCoordinateMap.get(pixel.x, pixel.y) != null;
+	}
+
+	/** is there a pixel at x,y.
+	 * 
+	 */
+	public boolean containsCoordinates(int x, int y) {
+		ensurePixelByCoordinateMap();
+		return pixelByCoordinateMap.containsKey(x, y);
 	}
 
 	public boolean remove(Pixel pixel) {
 		if (list != null) {
 			ensurePixelByCoordinateMap();
-			pixelByCoordinateMap.remove(pixel.getInt2());
+			pixelByCoordinateMap.remove(pixel.x, pixel.y);
 			return list.remove(pixel);
 		}
 		return false;
@@ -426,7 +445,9 @@ public class PixelList implements Iterable<Pixel> {
 
 	public void addAll(PixelSet set) {
 		ensureList();
-		this.list.addAll(set);
+		for (Pixel pixel : set) {
+			add(pixel);
+		}
 	}
 
 	public PixelIsland getPixelIsland() {
@@ -436,6 +457,7 @@ public class PixelList implements Iterable<Pixel> {
 	public void add(int i, Pixel pixel) {
 		ensureList();
 		this.list.add(i, pixel);
+		addToMap(pixel);
 	}
 
 	public Pixel penultimate() {
@@ -664,7 +686,7 @@ public class PixelList implements Iterable<Pixel> {
 		ensurePixelByCoordinateMap();
 		list.removeAll(smallList);
 		for (Pixel pixel : smallList) {
-			pixelByCoordinateMap.remove(pixel.getInt2());
+			pixelByCoordinateMap.remove(pixel.x, pixel.y);
 		}
 	}
 
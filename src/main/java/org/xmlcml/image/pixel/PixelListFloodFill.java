@@ -1,10 +1,9 @@
 package org.xmlcml.image.pixel;
 
-import java.awt.Point;
-
 import org.apache.log4j.Logger;
 import org.xmlcml.euclid.Int2Range;
 import org.xmlcml.euclid.IntMatrix;
+import org.xmlcml.image.BinaryImage;
 
 /** used for filling a PixelList exterior and interior.
  * 
@@ -53,13 +52,13 @@ public class PixelListFloodFill extends FloodFill {
 		inverted = true;
 		boolean oldDiagonal = diagonal;
 		diagonal = false;
-		painted = new boolean[height][width];
+		painted = new BinaryImage(width, height);
 		addNextUnpaintedBlack(0, 0);
 		PixelList filledList = new PixelList();
 		for (int i = 0; i < width; i++) {
 			for (int j = 0; j < height; j++) {
 				Pixel pixel = new Pixel(i + xMin, j + yMin);
-				if (!painted[j][i] && !pixelList.contains(pixel)) {
+				if (!painted.get(i, j) && !pixelList.contains(pixel)) {
 					filledList.add(pixel);
 				}
 			}
@@ -69,8 +68,13 @@ public class PixelListFloodFill extends FloodFill {
 	}
 	
 	@Override
-	protected Pixel getPixelFromPoint(Point p) {
-		return new Pixel(p.x + xMin, p.y + yMin);
+	protected int getXOffset() {
+		return xMin;
+	}
+
+	@Override
+	protected int getYOffset() {
+		return yMin;
 	}
 
 }
\ No newline at end of file
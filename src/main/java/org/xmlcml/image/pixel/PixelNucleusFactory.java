@@ -1,7 +1,5 @@
 package org.xmlcml.image.pixel;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -67,6 +65,13 @@ public class PixelNucleusFactory {
 	private Map<Pixel, PixelNucleus> nucleusBySpikePixelMap;
 	private PixelSet unusedPixelSet;
 
+	// classes of pixels in a thinned island
+	private static final byte DOT = 0;
+	private static final byte TERMINAL = 1;
+	private static final byte LINE = 2;
+	private static final byte JUNCTION = 3;
+	private static final byte[] PIXEL_CLASS_BY_MASK = createPixelClassByMask();
+
 	public PixelNucleusFactory(PixelIsland island) {
 		this.island = island;
 		island.setNucleusFactory(this);
@@ -150,10 +155,10 @@ public class PixelNucleusFactory {
 		if (allNucleusList == null) {
 			allNucleusList = new PixelNucleusList();
 			LOG.trace(this.hashCode() + "; NucleusList pixelList:"
-					+ island.pixelList.size());
-			for (Pixel pixel : island.pixelList) {
+					+ island.getPixelList().size());
+			for (Pixel pixel : island.getPixelList()) {
 				boolean added = false;
-				if (pixel.getOrCreateNeighbours(island).size() != 2) {
+				if (pixel.getNeighbourCount(island) != 2) {
 					for (PixelNucleus nucleus : allNucleusList) {
 						if (nucleus.canTouch(pixel)) {
 							nucleus.add(pixel);
@@ -179,83 +184,168 @@ public class PixelNucleusFactory {
 	public PixelNucleusList getOrCreateNucleusList() {
 		if (allNucleusList == null) {
 			allNucleusList = new PixelNucleusList();
-			unusedPixelSet = new PixelSet(island.pixelList);
-			makeDotAndTerminalNuclei();
-			makeNonTerminalNuclei();
+			makeMaskedNuclei();
 			makeCyclicNuclei();
 			LOG.trace("Created nucleusList: " + allNucleusList.size());
 		}
 		return allNucleusList;
 	}
 
-	private void makeNonTerminalNuclei() {
-		List<Pixel> pixelList = Arrays.asList(unusedPixelSet
-				.toArray(new Pixel[0]));
-		for (Pixel pixel : pixelList) {
-			if (!unusedPixelSet.contains(pixel)) {
+	/** class of a pixel from its neighbour mask.
+	 * 
+	 * DOT, TERMINAL, LINE (2 neighbours) or JUNCTION (3 or more).
+	 */
+	private static byte[] createPixelClassByMask() {
+		byte[] classByMask = new byte[256];
+		for (int mask = 0; mask < classByMask.length; mask++) {
+			int count = Integer.bitCount(mask);
+			classByMask[mask] = (count == 0) ? DOT : (count == 1) ? TERMINAL : (count == 2) ? LINE : JUNCTION;
+		}
+		return classByMask;
+	}
+
+	/** dot, terminal and junction nuclei from the neighbour masks.
+	 * 
+	 * each pixel is classified once by PIXEL_CLASS_BY_MASK; connected junction pixels are
+	 * grouped in a single labelling pass, in island order, and the groups are typed by
+	 * createSubtypedNucleus(). Nuclei and their pixels come out in the same order as
+	 * when they were grown with PixelSets. Leaves the remaining pixels (all 2-connected)
+	 * in unusedPixelSet.
+	 */
+	private void makeMaskedNuclei() {
+		PixelList pixelList = island.getPixelList();
+		int size = pixelList.size();
+		PixelCoordinateIndex index = new PixelCoordinateIndex(size);
+		for (int i = 0; i < size; i++) {
+			Pixel pixel = pixelList.get(i);
+			index.put(pixel.x, pixel.y, i);
+		}
+		int[] masks = new int[size];
+		byte[] classes = new byte[size];
+		for (int i = 0; i < size; i++) {
+			masks[i] = pixelList.get(i).getOrCreateNeighbourMask(island);
+			classes[i] = PIXEL_CLASS_BY_MASK[masks[i]];
+		}
+		boolean[] used = new boolean[size];
+		makeDotNuclei(pixelList, classes, used);
+		makeTerminalNuclei(pixelList, index, masks, classes, used);
+		makeJunctionNuclei(pixelList, index, masks, classes, used);
+		unusedPixelSet = new PixelSet();
+		for (int i = 0; i < size; i++) {
+			if (!used[i]) {
+				unusedPixelSet.add(pixelList.get(i));
+			}
+		}
+		LOG.trace("Unused: " + unusedPixelSet.size());
+	}
+
+	private void makeDotNuclei(PixelList pixelList, byte[] classes, boolean[] used) {
+		for (int i = 0; i < classes.length; i++) {
+			if (classes[i] == DOT) {
+				used[i] = true;
+				Pixel pixel = pixelList.get(i);
+				PixelList list = new PixelList();
+				list.add(pixel);
+				PixelNucleus nucleus = new DotNucleus(pixel, list, island);
+				nucleus.setJunctionType(PixelJunctionType.DOT);
+				nucleus.add(pixel);
+				LOG.trace("made dot: " + nucleus);
+				allNucleusList.add(nucleus);
+			}
+		}
+	}
+
+	/** terminals; two terminals touching each other make a dot.
+	 * 
+	 */
+	private void makeTerminalNuclei(PixelList pixelList, PixelCoordinateIndex index,
+			int[] masks, byte[] classes, boolean[] used) {
+		for (int i = 0; i < classes.length; i++) {
+			if (classes[i] != TERMINAL || used[i]) {
 				continue;
 			}
-			PixelList neighbours = pixel.getOrCreateNeighbours(island);
-			if (neighbours.size() > 2) {
-				unusedPixelSet.remove(pixel);
-				PixelNucleus nucleus = makeNucleusFromSeed(pixel, island);
-				if (nucleus != null) {
-					allNucleusList.add(nucleus);
-					PixelList nucleusPixelList = nucleus.getPixelList();
-					unusedPixelSet.removeAll(nucleusPixelList);
-				}
-			} else if (neighbours.size() == 2 || neighbours.size() == 0) {
-				// skip these
+			Pixel pixel = pixelList.get(i);
+			int j = getNeighbourIndex(index, pixel, Integer.numberOfTrailingZeros(masks[i]));
+			used[i] = true;
+			if (classes[j] == TERMINAL) {
+				used[j] = true;
+				Pixel neighbour = pixelList.get(j);
+				PixelList list = new PixelList();
+				list.add(pixel);
+				list.add(neighbour);
+				PixelNucleus nucleus = new DotNucleus(pixel, list, island);
+				nucleus.setJunctionType(PixelJunctionType.DOT);
+				nucleus.add(pixel);
+				nucleus.add(neighbour);
+				LOG.trace("Made large dot: " + nucleus);
+				allNucleusList.add(nucleus);
 			} else {
-				throw new RuntimeException("Should have processed this: "
-						+ pixel + "; ");
+				PixelList list = new PixelList();
+				list.add(pixel);
+				PixelNucleus nucleus = new TerminalNucleus(pixel, list, island);
+				nucleus.setJunctionType(PixelJunctionType.TERMINAL);
+				nucleus.add(pixel);
+				LOG.trace("made terminal: " + nucleus);
+				allNucleusList.add(nucleus);
 			}
 		}
-		LOG.trace("Unused: " + unusedPixelSet.size());
 	}
 
-	private void makeDotAndTerminalNuclei() {
-		PixelList dotPixelList = get0ConnectedPixelList();
-		for (Pixel pixel : dotPixelList) {
-			unusedPixelSet.remove(pixel);
-			PixelList list = new PixelList();
-			list.add(pixel);
-			PixelNucleus nucleus = new DotNucleus(pixel, list, island);
-			nucleus.setJunctionType(PixelJunctionType.DOT);
-			nucleus.add(pixel);
-			LOG.trace("made dot: " + nucleus);
-			allNucleusList.add(nucleus);
-		}
-		PixelList terminalPixelList = get1ConnectedPixelList();
-		for (Pixel pixel : terminalPixelList) {
-			if (unusedPixelSet.contains(pixel)) {
-				Pixel neighbour = pixel.getOrCreateNeighbours(getPixelIsland()).get(0);
-				if (terminalPixelList.contains(neighbour)) {
-					unusedPixelSet.remove(pixel);
-					unusedPixelSet.remove(neighbour);
-					PixelList list = new PixelList();
-					list.add(pixel);
-					list.add(neighbour);
-					PixelNucleus nucleus = new DotNucleus(pixel, list, island);
-					nucleus.setJunctionType(PixelJunctionType.DOT);
-					nucleus.add(pixel);
-					nucleus.add(neighbour);
-					LOG.trace("Made large dot: " + nucleus);
-					allNucleusList.add(nucleus);
-				} else {
-					unusedPixelSet.remove(pixel);
-					PixelList list = new PixelList();
-					list.add(pixel);
-					PixelNucleus nucleus = new TerminalNucleus(pixel, list, island);
-					nucleus.setJunctionType(PixelJunctionType.TERMINAL);
-					nucleus.add(pixel);
-					LOG.trace("made terminal: " + nucleus);
-					allNucleusList.add(nucleus);
+	/** groups connected junction pixels breadth-first.
+	 * 
+	 * a group lists the seed's junction neighbours, then the seed, then pixels as they
+	 * are reached.
+	 */
+	private void makeJunctionNuclei(PixelList pixelList, PixelCoordinateIndex index,
+			int[] masks, byte[] classes, boolean[] used) {
+		int[] queue = new int[classes.length];
+		for (int seed = 0; seed < classes.length; seed++) {
+			if (classes[seed] != JUNCTION || used[seed]) {
+				continue;
+			}
+			PixelList nucleusPixelList = new PixelList();
+			int head = 0;
+			int tail = 0;
+			int current = seed;
+			while (true) {
+				Pixel pixel = pixelList.get(current);
+				for (int bit = 0; bit < Pixel.NEIGHBOUR_OFFSETS8.length; bit++) {
+					if ((masks[current] & (1 << bit)) != 0) {
+						int j = getNeighbourIndex(index, pixel, bit);
+						if (classes[j] == JUNCTION && !used[j]) {
+							used[j] = true;
+							nucleusPixelList.add(pixelList.get(j));
+							queue[tail++] = j;
+						}
+					}
 				}
+				if (!used[current]) {
+					used[current] = true;
+					nucleusPixelList.add(pixel);
+				}
+				if (head == tail) {
+					break;
+				}
+				current = queue[head++];
 			}
+			LOG.trace("making nucleus " + nucleusPixelList);
+			PixelNucleus nucleus = createSubtypedNucleus(nucleusPixelList);
+			if (nucleus == null) {
+				LOG.trace("NULL NUCLEUS: " + nucleusPixelList + "; shell :"
+						+ nucleusPixelList.getOrCreateNeighbours().toString() + ":");
+				continue;
+			}
+			for (Pixel pixel : nucleusPixelList) {
+				nucleus.add(pixel);
+			}
+			allNucleusList.add(nucleus);
 		}
 	}
 
+	private int getNeighbourIndex(PixelCoordinateIndex index, Pixel pixel, int bit) {
+		return index.get(pixel.x + Pixel.NEIGHBOUR_OFFSETS8[bit][0], pixel.y + Pixel.NEIGHBOUR_OFFSETS8[bit][1]);
+	}
+
 	/**
 	 * nuclei representing circles.
 	 * 
@@ -350,67 +440,13 @@ public class PixelNucleusFactory {
 	public PixelList get1ConnectedPixelList() {
 		PixelList terminals = new PixelList();
 		for (Pixel pixel : island.getPixelList()) {
-			if (pixel.getOrCreateNeighbours(island).size() == 1) {
+			if (pixel.getNeighbourCount(island) == 1) {
 				terminals.add(pixel);
 			}
 		}
 		return terminals;
 	}
 
-	private PixelNucleus makeNucleusFromSeed(Pixel seed, PixelIsland island) {
-		PixelSet seedSet = new PixelSet();
-		seedSet.add(seed);
-		PixelSet usedSet = new PixelSet();
-		while (!seedSet.isEmpty()) {
-			Pixel pixel = seedSet.next();
-			seedSet.remove(pixel);
-			PixelList neighbours = pixel.getOrCreateNeighbours(island);
-			LOG.trace("next pixel: " + pixel + "; " + neighbours);
-			addNeighboursWith3orMoreNeighbours(island, seedSet, usedSet,
-					neighbours);
-			usedSet.add(pixel);
-		}
-		PixelList nucleusPixelList = new PixelList(
-				new ArrayList<Pixel>(usedSet));
-		LOG.trace("making nucleus " + nucleusPixelList);
-		PixelNucleus nucleus = createSubtypedNucleus(nucleusPixelList);
-		if (nucleus == null) {
-			LOG.trace("island " + island);
-			LOG.trace("NULL NUCLEUS: "
-					+ seed
-					+ "; "
-					+ nucleusPixelList
-					+ "; shell :"
-					+ ((nucleusPixelList == null) ? "" : nucleusPixelList
-							.getOrCreateNeighbours().toString()) + ":");
-//			throw new RuntimeException("NULL NUCLEUS: "
-//			+ seed
-//			+ "; "
-//			+ nucleusPixelList
-//			+ "; shell :"
-//			+ ((nucleusPixelList == null) ? "" : nucleusPixelList
-//					.getOrCreateNeighbours().toString()) + ":");
-			return null;
-		}
-		nucleus.addAll(usedSet);
-		return nucleus;
-	}
-
-	private void addNeighboursWith3orMoreNeighbours(PixelIsland island,
-			PixelSet seedSet, PixelSet used, PixelList neighbours) {
-		for (Pixel neighbour : neighbours) {
-			if (neighbour.getOrCreateNeighbours(island).size() > 2) {
-				if (!used.contains(neighbour)) {
-					seedSet.add(neighbour);
-					LOG.trace("added " + neighbour + " to " + seedSet);
-				}
-				used.add(neighbour);
-				LOG.trace("used " + used);
-			}
-		}
-		LOG.trace("======added neighbours: " + used);
-	}
-
 	private void ensureNucleusByPixelMap() {
 		if (nucleusByPixelMap == null) {
 			nucleusByPixelMap = new HashMap<Pixel, PixelNucleus>();
@@ -849,12 +885,12 @@ public class PixelNucleusFactory {
 		PixelNucleus newNucleus = null;
 		Pixel centrePixel;
 		centrePixel = pixelList.get(0);
-		if (centrePixel.getOrthogonalNeighbours(island).size()
-				+ centrePixel.getDiagonalNeighbours(island).size() == 0) {
+		if (centrePixel.getOrthogonalNeighbourCount(island)
+				+ centrePixel.getDiagonalNeighbourCount(island) == 0) {
 			LOG.trace("2 pixel zero neighbour");
 
-		} else if (centrePixel.getOrthogonalNeighbours(island).size()
-				+ centrePixel.getDiagonalNeighbours(island).size() == 1) {
+		} else if (centrePixel.getOrthogonalNeighbourCount(island)
+				+ centrePixel.getDiagonalNeighbourCount(island) == 1) {
 			LOG.trace("2 pixel single neighbour");
 
 		} else {
@@ -887,12 +923,8 @@ public class PixelNucleusFactory {
 	 */
 	private boolean isNickedT(Pixel centrePixel, PixelIsland island) {
 		if (centrePixel != null) {
-			PixelList diagonalNeighbours = centrePixel
-					.getDiagonalNeighbours(island);
-			PixelList orthogonalNeighbours = centrePixel
-					.getOrthogonalNeighbours(island);
-			if (diagonalNeighbours.size() == 2
-					&& orthogonalNeighbours.size() == 1) {
+			if (centrePixel.getDiagonalNeighbourCount(island) == 2
+					&& centrePixel.getOrthogonalNeighbourCount(island) == 1) {
 				return true;
 			}
 		}
@@ -902,7 +934,7 @@ public class PixelNucleusFactory {
 	private boolean isFilledT(Pixel centrePixel, PixelList pixelList, PixelIsland pixelIsland) {
 		for (Pixel pixel : pixelList) {
 			// find pixel with 3 orthogonal neighbours (assume only one?)
-			if (pixel.getOrthogonalNeighbours(island).size() == 3) {
+			if (pixel.getOrthogonalNeighbourCount(island) == 3) {
 				if (centrePixel != null) {
 					// there are 2 or more, error
 					LOG.trace("Not a filled TJunction " + this);
@@ -957,8 +989,7 @@ public class PixelNucleusFactory {
 	private boolean isRhombus(Pixel centrePixel, PixelList pixelList, PixelIsland island) {
 		PixelList connect3List = new PixelList();
 		for (Pixel pixel : pixelList) {
-			PixelList neighbours = pixel.getOrCreateNeighbours(island);
-			if (neighbours.size() == 3) {
+			if (pixel.getNeighbourCount(island) == 3) {
 				connect3List.add(pixel);
 			}
 		}
@@ -0,0 +1,463 @@
+package org.xmlcml.image.pixel;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.xmlcml.image.BinaryImage;
+import org.xmlcml.image.ImageParameters;
+
+/** nodes and edges read directly from a thinned bitmap.
+ *
+ * made by createGraph(BinaryImage) (e.g. from ImageProcessor.getBinaryImage() after
+ * thinning) without flood fill, PixelIslands, Pixels or neighbour lists. All 8 neighbours
+ * count (as in a diagonal PixelIsland). Pixels are classified by their crossing number,
+ * the number of runs of set pixels round the 8 neighbours (as Thinning.getSumCyclicChanges()),
+ * so the corners of 4-connected steps left by thinning are line pixels:
+ * <ul>
+ * <li>a pixel with no neighbours is a dot node, with 1 run a terminal node</li>
+ * <li>touching pixels with 3 or more runs (or completely surrounded) together make one
+ * junction node</li>
+ * <li>pixels with 2 runs are traced into edges between nodes; a step is taken orthogonally
+ * where possible, and never diagonally past a set pixel that is orthogonal to both ends</li>
+ * <li>a cycle with no nodes gets a node at its first pixel in raster order</li>
+ * </ul>
+ * A single pixel whose 2 neighbours both belong to the same node is taken as part of
+ * that node's outline, not as an edge. If a trace runs into pixels already used by another
+ * edge it ends at a new terminal node there.
+ *
+ * Everything is held in int arrays. Nodes are numbered in raster order of their first pixel,
+ * cycle and dead end nodes last; each edge runs from a pixel of node 0, through its line
+ * pixels, to a pixel of node 1.
+ * createPixelGraph(ImageParameters) converts to PixelNodes and PixelEdges; the edges hold
+ * their pixels as PixelChainCodes.
+ */
+public class PixelSkeletonGraph {
+
+	private final static Logger LOG = Logger.getLogger(PixelSkeletonGraph.class);
+
+	// bit order of BinaryImage.getNeighbourMask(): N, NE, E, SE, S, SW, W, NW
+	private static final int[] DX = {0, 1, 1, 1, 0, -1, -1, -1};
+	private static final int[] DY = {-1, -1, 0, 1, 1, 1, 0, -1};
+	// orthogonal neighbours first
+	private static final int[] STEP_BITS = {0, 2, 4, 6, 1, 3, 5, 7};
+
+	private BinaryImage image;
+	private BinaryImage visited;
+	private PixelCoordinateIndex nodeByCoord;
+
+	private int nodeCount;
+	// centre x,y of each node
+	private int[] nodeCentres = new int[64];
+	// pixels of node i are nodePixels[2 * nodeStarts[i]] .. [2 * nodeStarts[i + 1]]
+	private int[] nodeStarts = new int[33];
+	private int[] nodePixels = new int[64];
+
+	private int edgeCount;
+	private int[] edgeNodes = new int[64];
+	private int[] edgeStarts = new int[33];
+	private int[] edgePixels = new int[256];
+	private int edgePixelCount;
+
+	private PixelSkeletonGraph(BinaryImage image) {
+		this.image = image;
+		this.visited = new BinaryImage(image.getWidth(), image.getHeight());
+		this.nodeByCoord = new PixelCoordinateIndex();
+	}
+
+	/** nodes and edges of all set pixels.
+	 *
+	 * @param skeleton thinned image; not altered
+	 * @return
+	 */
+	public static PixelSkeletonGraph createGraph(BinaryImage skeleton) {
+		PixelSkeletonGraph graph = new PixelSkeletonGraph(skeleton);
+		graph.makeNodes();
+		graph.makeEdges();
+		graph.makeCycles();
+		graph.visited = null;
+		graph.nodeByCoord = null;
+		LOG.trace("nodes: " + graph.nodeCount + "; edges: " + graph.edgeCount);
+		return graph;
+	}
+
+	private void makeNodes() {
+		int width = image.getWidth();
+		int[] stack = new int[64];
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = image.nextSetBit(0, y); x < width; x = image.nextSetBit(x + 1, y)) {
+				int pixelMask = image.getNeighbourMask(x, y);
+				if (getCrossingNumber(pixelMask) == 2 || visited.get(x, y)) {
+					continue;
+				}
+				int node = startNode();
+				addNodePixel(node, x, y);
+				if (isJunction(pixelMask)) {
+					// flood the touching junction pixels
+					int top = 0;
+					stack = push(stack, top++, x, y);
+					while (top > 0) {
+						top--;
+						int px = stack[2 * top];
+						int py = stack[2 * top + 1];
+						int mask = image.getNeighbourMask(px, py);
+						for (int bit = 0; bit < 8; bit++) {
+							if ((mask & (1 << bit)) != 0) {
+								int qx = px + DX[bit];
+								int qy = py + DY[bit];
+								if (!visited.get(qx, qy) && isJunction(image.getNeighbourMask(qx, qy))) {
+									addNodePixel(node, qx, qy);
+									stack = push(stack, top++, qx, qy);
+								}
+							}
+						}
+					}
+				}
+				endNode(node);
+			}
+		}
+	}
+
+	/** number of 0 to 1 changes going round the neighbours.
+	 *
+	 * 1 at the end of a line, 2 along it (including the corners of steps), 3 or more at
+	 * a branch.
+	 *
+	 * @param mask as BinaryImage.getNeighbourMask()
+	 */
+	private static int getCrossingNumber(int mask) {
+		// bit i is 0 and bit i+1 (cyclically) is 1
+		int next = ((mask >>> 1) | (mask << 7)) & 0xff;
+		return Integer.bitCount(~mask & next);
+	}
+
+	private static boolean isJunction(int mask) {
+		int crossing = getCrossingNumber(mask);
+		return crossing > 2 || (crossing == 0 && mask != 0);
+	}
+
+	/** diagonal step from x,y in direction bit passes a set pixel orthogonal to both ends.
+	 *
+	 * the pixels are connected through that pixel instead.
+	 */
+	private boolean isCutCorner(int x, int y, int bit) {
+		return (bit & 1) != 0 && (image.get(x + DX[bit], y) || image.get(x, y + DY[bit]));
+	}
+
+	private int[] push(int[] stack, int top, int x, int y) {
+		if (2 * top + 2 > stack.length) {
+			stack = Arrays.copyOf(stack, 2 * stack.length);
+		}
+		stack[2 * top] = x;
+		stack[2 * top + 1] = y;
+		return stack;
+	}
+
+	private int startNode() {
+		if (2 * nodeCount + 2 > nodeCentres.length) {
+			nodeCentres = Arrays.copyOf(nodeCentres, 2 * nodeCentres.length);
+		}
+		if (nodeCount + 2 > nodeStarts.length) {
+			nodeStarts = Arrays.copyOf(nodeStarts, 2 * nodeStarts.length);
+		}
+		nodeStarts[nodeCount + 1] = nodeStarts[nodeCount];
+		return nodeCount++;
+	}
+
+	private void addNodePixel(int node, int x, int y) {
+		int n = nodeStarts[node + 1]++;
+		if (2 * n + 2 > nodePixels.length) {
+			nodePixels = Arrays.copyOf(nodePixels, 2 * nodePixels.length);
+		}
+		nodePixels[2 * n] = x;
+		nodePixels[2 * n + 1] = y;
+		visited.set(x, y);
+		nodeByCoord.put(x, y, node);
+	}
+
+	/** centre is the pixel nearest the mean (first if equal).
+	 *
+	 */
+	private void endNode(int node) {
+		int start = nodeStarts[node];
+		int end = nodeStarts[node + 1];
+		long sumX = 0;
+		long sumY = 0;
+		for (int i = start; i < end; i++) {
+			sumX += nodePixels[2 * i];
+			sumY += nodePixels[2 * i + 1];
+		}
+		int n = end - start;
+		int best = start;
+		long bestDistance = Long.MAX_VALUE;
+		for (int i = start; i < end; i++) {
+			// squared distance from mean, scaled by n^2
+			long dx = n * nodePixels[2 * i] - sumX;
+			long dy = n * nodePixels[2 * i + 1] - sumY;
+			long distance = dx * dx + dy * dy;
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				best = i;
+			}
+		}
+		nodeCentres[2 * node] = nodePixels[2 * best];
+		nodeCentres[2 * node + 1] = nodePixels[2 * best + 1];
+	}
+
+	/** traces the lines leaving every node pixel.
+	 *
+	 */
+	private void makeEdges() {
+		for (int node = 0; node < nodeCount; node++) {
+			makeEdges(node);
+		}
+	}
+
+	private void makeEdges(int node) {
+		for (int i = nodeStarts[node]; i < nodeStarts[node + 1]; i++) {
+			int x = nodePixels[2 * i];
+			int y = nodePixels[2 * i + 1];
+			int mask = image.getNeighbourMask(x, y);
+			for (int bit : STEP_BITS) {
+				if ((mask & (1 << bit)) != 0 && !isCutCorner(x, y, bit)) {
+					int qx = x + DX[bit];
+					int qy = y + DY[bit];
+					int other = nodeByCoord.get(qx, qy);
+					if (other > node) {
+						// nodes touch directly (at least one is a terminal)
+						startEdge(node, x, y);
+						addEdgePixel(qx, qy);
+						endEdge(other);
+					} else if (other < 0 && !visited.get(qx, qy)) {
+						traceEdge(node, x, y, qx, qy);
+					}
+				}
+			}
+		}
+	}
+
+	/** follows line pixels from x,y through qx,qy to the next node pixel.
+	 *
+	 * from each pixel the next is a node pixel or else an unused line pixel, orthogonal
+	 * neighbours before diagonal ones.
+	 */
+	private void traceEdge(int node, int x, int y, int qx, int qy) {
+		int start = edgePixelCount;
+		startEdge(node, x, y);
+		int lastX = x;
+		int lastY = y;
+		int currentX = qx;
+		int currentY = qy;
+		while (true) {
+			addEdgePixel(currentX, currentY);
+			int end = nodeByCoord.get(currentX, currentY);
+			if (end >= 0) {
+				if (end == node && edgePixelCount - start == 3) {
+					// one pixel on the outline of the node
+					edgePixelCount = start;
+				} else {
+					endEdge(end);
+				}
+				return;
+			}
+			visited.set(currentX, currentY);
+			int mask = image.getNeighbourMask(currentX, currentY);
+			int nextBit = -1;
+			boolean nextIsNode = false;
+			for (int bit : STEP_BITS) {
+				if (bit == 1 && nextBit >= 0) {
+					// orthogonal step found
+					break;
+				}
+				if ((mask & (1 << bit)) == 0 || isCutCorner(currentX, currentY, bit)) {
+					continue;
+				}
+				int px = currentX + DX[bit];
+				int py = currentY + DY[bit];
+				if (px == lastX && py == lastY) {
+					continue;
+				}
+				if (nodeByCoord.get(px, py) >= 0) {
+					if (!nextIsNode) {
+						nextBit = bit;
+						nextIsNode = true;
+					}
+				} else if (nextBit < 0 && !visited.get(px, py)) {
+					nextBit = bit;
+				}
+			}
+			if (nextBit < 0) {
+				// the rest of the line was taken by another edge
+				int deadEnd = startNode();
+				addNodePixel(deadEnd, currentX, currentY);
+				endNode(deadEnd);
+				endEdge(deadEnd);
+				return;
+			}
+			int nextX = currentX + DX[nextBit];
+			int nextY = currentY + DY[nextBit];
+			lastX = currentX;
+			lastY = currentY;
+			currentX = nextX;
+			currentY = nextY;
+		}
+	}
+
+	private void startEdge(int node, int x, int y) {
+		if (2 * edgeCount + 2 > edgeNodes.length) {
+			edgeNodes = Arrays.copyOf(edgeNodes, 2 * edgeNodes.length);
+		}
+		if (edgeCount + 2 > edgeStarts.length) {
+			edgeStarts = Arrays.copyOf(edgeStarts, 2 * edgeStarts.length);
+		}
+		edgeNodes[2 * edgeCount] = node;
+		edgeStarts[edgeCount] = edgePixelCount;
+		addEdgePixel(x, y);
+	}
+
+	private void addEdgePixel(int x, int y) {
+		if (2 * edgePixelCount + 2 > edgePixels.length) {
+			edgePixels = Arrays.copyOf(edgePixels, 2 * edgePixels.length);
+		}
+		edgePixels[2 * edgePixelCount] = x;
+		edgePixels[2 * edgePixelCount + 1] = y;
+		edgePixelCount++;
+	}
+
+	private void endEdge(int node) {
+		edgeNodes[2 * edgeCount + 1] = node;
+		edgeCount++;
+		edgeStarts[edgeCount] = edgePixelCount;
+	}
+
+	/** pixels not reached from any node are closed 2-connected cycles.
+	 *
+	 */
+	private void makeCycles() {
+		int width = image.getWidth();
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = image.nextSetBit(0, y); x < width; x = image.nextSetBit(x + 1, y)) {
+				if (!visited.get(x, y)) {
+					int node = startNode();
+					addNodePixel(node, x, y);
+					endNode(node);
+					makeEdges(node);
+				}
+			}
+		}
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int getNodeX(int node) {
+		return nodeCentres[2 * node];
+	}
+
+	public int getNodeY(int node) {
+		return nodeCentres[2 * node + 1];
+	}
+
+	/** 1 for dots, terminals and cycles, else the pixels of the junction.
+	 *
+	 */
+	public int getNodePixelCount(int node) {
+		return nodeStarts[node + 1] - nodeStarts[node];
+	}
+
+	/** number of edge ends at node (a cycle counts twice).
+	 *
+	 */
+	public int getNodeDegree(int node) {
+		int degree = 0;
+		for (int i = 0; i < 2 * edgeCount; i++) {
+			if (edgeNodes[i] == node) {
+				degree++;
+			}
+		}
+		return degree;
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/** node at either end.
+	 *
+	 * @param edge
+	 * @param end 0 or 1
+	 */
+	public int getEdgeNode(int edge, int end) {
+		return edgeNodes[2 * edge + end];
+	}
+
+	/** pixels including the node pixel at each end.
+	 *
+	 */
+	public int getEdgePixelCount(int edge) {
+		return edgeStarts[edge + 1] - edgeStarts[edge];
+	}
+
+	public int getEdgeX(int edge, int i) {
+		return edgePixels[2 * (edgeStarts[edge] + i)];
+	}
+
+	public int getEdgeY(int edge, int i) {
+		return edgePixels[2 * (edgeStarts[edge] + i) + 1];
+	}
+
+	/** pixels of edge as a chain code.
+	 *
+	 * @return null if the edge has no pixels or they are not 8-connected
+	 */
+	public PixelChainCode createChainCode(int edge) {
+		int count = getEdgePixelCount(edge);
+		if (count == 0) {
+			return null;
+		}
+		PixelChainCode chainCode = new PixelChainCode(getEdgeX(edge, 0), getEdgeY(edge, 0));
+		for (int i = 1; i < count; i++) {
+			if (!chainCode.addPoint(getEdgeX(edge, i), getEdgeY(edge, i))) {
+				return null;
+			}
+		}
+		return chainCode;
+	}
+
+	/** PixelGraph with a PixelNode at each node centre and a PixelEdge for each edge.
+	 *
+	 * the graph has no island or pixel list; nodes and edges are in the order here.
+	 *
+	 * @param parameters for the graph's getParameters() (e.g. segment tolerance)
+	 */
+	public PixelGraph createPixelGraph(ImageParameters parameters) {
+		PixelNodeList nodeList = new PixelNodeList();
+		PixelEdgeList edgeList = new PixelEdgeList();
+		PixelGraph graph = new PixelGraph(nodeList, edgeList, parameters);
+		PixelNode[] nodes = new PixelNode[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			nodes[node] = new PixelNode(new Pixel(getNodeX(node), getNodeY(node)), graph);
+			nodeList.add(nodes[node]);
+		}
+		for (int edge = 0; edge < edgeCount; edge++) {
+			PixelEdge pixelEdge = new PixelEdge(graph);
+			PixelChainCode chainCode = createChainCode(edge);
+			if (chainCode != null) {
+				pixelEdge.setChainCode(chainCode);
+			} else {
+				for (int i = 0; i < getEdgePixelCount(edge); i++) {
+					pixelEdge.addPixel(new Pixel(getEdgeX(edge, i), getEdgeY(edge, i)));
+				}
+			}
+			pixelEdge.addNode(nodes[getEdgeNode(edge, 0)], 0);
+			pixelEdge.addNode(nodes[getEdgeNode(edge, 1)], 1);
+			edgeList.add(pixelEdge);
+		}
+		return graph;
+	}
+
+	@Override
+	public String toString() {
+		return "nodes: " + nodeCount + "; edges: " + edgeCount;
+	}
+}
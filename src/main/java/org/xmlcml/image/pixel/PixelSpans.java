@@ -0,0 +1,339 @@
+package org.xmlcml.image.pixel;
+
+import java.util.Arrays;
+
+import org.xmlcml.euclid.Int2Range;
+import org.xmlcml.euclid.IntRange;
+
+/** run-length representation of a set of pixels.
+ *
+ * Each span is a horizontal run of pixels y, xmin..xmax (inclusive) held as
+ * triples in a single int[]. FloodFill emits islands as spans so that
+ * no objects are created per pixel while filling.
+ */
+public class PixelSpans {
+
+	private static final int DEFAULT_CAPACITY = 8;
+	// neighbour order of the original queue-based FloodFill
+	private static final int[] FILL_OFFSETS4 = {1, 0, -1, 0, 0, 1, 0, -1};
+	private static final int[] FILL_OFFSETS8 = {1, 0, -1, 0, 0, 1, 0, -1, 1, 1, -1, 1, -1, -1, 1, -1};
+
+	private int[] spans;
+	private int spanCount;
+	private int pixelCount;
+
+	public PixelSpans() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PixelSpans(int capacity) {
+		spans = new int[3 * Math.max(capacity, 1)];
+	}
+
+	/** adds a run.
+	 *
+	 * does not check for overlap with existing spans.
+	 *
+	 * @param y
+	 * @param xmin
+	 * @param xmax inclusive
+	 */
+	public void add(int y, int xmin, int xmax) {
+		if (xmax < xmin) {
+			throw new RuntimeException("bad span: "+xmin+" > "+xmax);
+		}
+		if (3 * spanCount + 3 > spans.length) {
+			spans = Arrays.copyOf(spans, 2 * spans.length);
+		}
+		int i = 3 * spanCount;
+		spans[i] = y;
+		spans[i + 1] = xmin;
+		spans[i + 2] = xmax;
+		spanCount++;
+		pixelCount += xmax - xmin + 1;
+	}
+
+	/** adds dx, dy to every span.
+	 *
+	 */
+	public void translate(int dx, int dy) {
+		if (dx == 0 && dy == 0) {
+			return;
+		}
+		for (int i = 0; i < 3 * spanCount; i += 3) {
+			spans[i] += dy;
+			spans[i + 1] += dx;
+			spans[i + 2] += dx;
+		}
+	}
+
+	/** releases unused capacity.
+	 *
+	 */
+	public void trimToSize() {
+		if (spans.length > 3 * spanCount) {
+			spans = Arrays.copyOf(spans, Math.max(3 * spanCount, 3));
+		}
+	}
+
+	public int getSpanCount() {
+		return spanCount;
+	}
+
+	/** number of pixels in all spans.
+	 *
+	 * @return
+	 */
+	public int getPixelCount() {
+		return pixelCount;
+	}
+
+	public int getY(int span) {
+		return spans[3 * span];
+	}
+
+	public int getXMin(int span) {
+		return spans[3 * span + 1];
+	}
+
+	public int getXMax(int span) {
+		return spans[3 * span + 2];
+	}
+
+	/** bounding box.
+	 *
+	 * @return null if empty
+	 */
+	public Int2Range getIntBoundingBox() {
+		if (spanCount == 0) {
+			return null;
+		}
+		int xmin = Integer.MAX_VALUE;
+		int xmax = Integer.MIN_VALUE;
+		int ymin = Integer.MAX_VALUE;
+		int ymax = Integer.MIN_VALUE;
+		for (int i = 0; i < 3 * spanCount; i += 3) {
+			ymin = Math.min(ymin, spans[i]);
+			ymax = Math.max(ymax, spans[i]);
+			xmin = Math.min(xmin, spans[i + 1]);
+			xmax = Math.max(xmax, spans[i + 2]);
+		}
+		return new Int2Range(new IntRange(xmin, xmax), new IntRange(ymin, ymax));
+	}
+
+	/** sorts spans by y and then xmin.
+	 *
+	 * spans are bucketed by row so this is linear in the number of spans
+	 * except for rows with many spans.
+	 */
+	public void sortRaster() {
+		if (spanCount < 2) {
+			return;
+		}
+		int ymin = Integer.MAX_VALUE;
+		int ymax = Integer.MIN_VALUE;
+		for (int i = 0; i < 3 * spanCount; i += 3) {
+			ymin = Math.min(ymin, spans[i]);
+			ymax = Math.max(ymax, spans[i]);
+		}
+		int[] rowStart = new int[ymax - ymin + 2];
+		for (int i = 0; i < 3 * spanCount; i += 3) {
+			rowStart[spans[i] - ymin + 1]++;
+		}
+		for (int row = 1; row < rowStart.length; row++) {
+			rowStart[row] += rowStart[row - 1];
+		}
+		int[] sorted = new int[3 * spanCount];
+		int[] next = Arrays.copyOf(rowStart, rowStart.length - 1);
+		for (int i = 0; i < 3 * spanCount; i += 3) {
+			int j = 3 * next[spans[i] - ymin]++;
+			int xmin = spans[i + 1];
+			// insertion within row; rows rarely have more than a few spans
+			int rowFirst = 3 * rowStart[spans[i] - ymin];
+			while (j > rowFirst && sorted[j - 2] > xmin) {
+				System.arraycopy(sorted, j - 3, sorted, j, 3);
+				j -= 3;
+			}
+			sorted[j] = spans[i];
+			sorted[j + 1] = xmin;
+			sorted[j + 2] = spans[i + 2];
+		}
+		spans = sorted;
+	}
+
+	/** statistics of the pixels, from the spans alone.
+	 *
+	 * sorts spans into raster order if they are not already (FloodFill emits them in raster order).
+	 * A pixel is interior if the runs above and below cover it and both its neighbours;
+	 * interior pixels are counted by intersecting runs of adjacent rows.
+	 *
+	 * @param xOffset added to every x
+	 * @param yOffset added to every y
+	 * @return
+	 */
+	public PixelIslandStatistics createStatistics(int xOffset, int yOffset) {
+		if (!isRasterOrder()) {
+			sortRaster();
+		}
+		PixelIslandStatistics statistics = new PixelIslandStatistics();
+		int interior = 0;
+		int rowStart = 0;
+		int previousStart = 0;
+		int previousEnd = 0;
+		while (rowStart < spanCount) {
+			int y = spans[3 * rowStart];
+			int rowEnd = rowStart;
+			while (rowEnd < spanCount && spans[3 * rowEnd] == y) {
+				rowEnd++;
+			}
+			boolean hasAbove = previousEnd > previousStart && spans[3 * previousStart] == y - 1;
+			boolean hasBelow = rowEnd < spanCount && spans[3 * rowEnd] == y + 1;
+			int nextEnd = rowEnd;
+			while (hasBelow && nextEnd < spanCount && spans[3 * nextEnd] == y + 1) {
+				nextEnd++;
+			}
+			for (int span = rowStart; span < rowEnd; span++) {
+				int xmin = getXMin(span);
+				int xmax = getXMax(span);
+				statistics.addRun(y + yOffset, xmin + xOffset, xmax + xOffset);
+				if (hasAbove && hasBelow) {
+					interior += countInterior(xmin + 1, xmax - 1, previousStart, previousEnd, rowEnd, nextEnd);
+				}
+			}
+			previousStart = rowStart;
+			previousEnd = rowEnd;
+			rowStart = rowEnd;
+		}
+		statistics.setPerimeterCount(statistics.getArea() - interior);
+		return statistics;
+	}
+
+	private boolean isRasterOrder() {
+		for (int i = 3; i < 3 * spanCount; i += 3) {
+			if (spans[i] < spans[i - 3] || (spans[i] == spans[i - 3] && spans[i + 1] < spans[i - 2])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** number of x in lo..hi covered with both neighbours by a span in above and in below.
+	 *
+	 */
+	private int countInterior(int lo, int hi, int aboveStart, int aboveEnd, int belowStart, int belowEnd) {
+		int count = 0;
+		for (int above = aboveStart; above < aboveEnd; above++) {
+			int aboveLo = Math.max(lo, getXMin(above) + 1);
+			int aboveHi = Math.min(hi, getXMax(above) - 1);
+			if (aboveLo > aboveHi) {
+				continue;
+			}
+			for (int below = belowStart; below < belowEnd; below++) {
+				int belowLo = Math.max(aboveLo, getXMin(below) + 1);
+				int belowHi = Math.min(aboveHi, getXMax(below) - 1);
+				if (belowLo <= belowHi) {
+					count += belowHi - belowLo + 1;
+				}
+			}
+		}
+		return count;
+	}
+
+	/** expands spans into coordinates in span order.
+	 *
+	 * @param xOffset added to every x
+	 * @param yOffset added to every y
+	 * @return store in span order
+	 */
+	public PixelStore createPixelStore(int xOffset, int yOffset) {
+		PixelStore store = new PixelStore(pixelCount);
+		for (int i = 0; i < 3 * spanCount; i += 3) {
+			int y = spans[i] + yOffset;
+			for (int x = spans[i + 1]; x <= spans[i + 2]; x++) {
+				store.add(x + xOffset, y);
+			}
+		}
+		return store;
+	}
+
+	/** expands spans into coordinates in breadth-first order from a seed.
+	 *
+	 * This is the order in which a queue-based flood fill from the seed visits the pixels,
+	 * taking neighbours as +x, -x, +y, -y and then, if diagonal, (+1,+1), (-1,+1), (-1,-1), (+1,-1).
+	 * Membership is held as bits over the bounding box.
+	 *
+	 * @param seedX must be in a span
+	 * @param seedY
+	 * @param diagonal
+	 * @param xOffset added to every x
+	 * @param yOffset added to every y
+	 * @return store in fill order; only pixels connected to the seed are included
+	 */
+	public PixelStore createPixelStore(int seedX, int seedY, boolean diagonal, int xOffset, int yOffset) {
+		Int2Range bbox = getIntBoundingBox();
+		int xmin = bbox.getXRange().getMin();
+		int ymin = bbox.getYRange().getMin();
+		int w = bbox.getXRange().getRange() + 1;
+		int h = bbox.getYRange().getRange() + 1;
+		long[] bits = new long[(int) (((long) w * h + 63) >> 6)];
+		for (int i = 0; i < 3 * spanCount; i += 3) {
+			int row = (spans[i] - ymin) * w - xmin;
+			setBits(bits, row + spans[i + 1], row + spans[i + 2] + 1);
+		}
+		int[] offsets = diagonal ? FILL_OFFSETS8 : FILL_OFFSETS4;
+		PixelStore store = new PixelStore(pixelCount);
+		int[] queue = new int[pixelCount];
+		int head = 0;
+		int tail = 0;
+		int seed = (seedY - ymin) * w + seedX - xmin;
+		bits[seed >> 6] &= ~(1L << seed);
+		queue[tail++] = seed;
+		while (head < tail) {
+			int index = queue[head++];
+			int x = index % w;
+			int y = index / w;
+			store.add(x + xmin + xOffset, y + ymin + yOffset);
+			for (int k = 0; k < offsets.length; k += 2) {
+				int nx = x + offsets[k];
+				int ny = y + offsets[k + 1];
+				if (nx >= 0 && nx < w && ny >= 0 && ny < h) {
+					int neighbour = ny * w + nx;
+					long bit = 1L << neighbour;
+					if ((bits[neighbour >> 6] & bit) != 0) {
+						bits[neighbour >> 6] &= ~bit;
+						queue[tail++] = neighbour;
+					}
+				}
+			}
+		}
+		return store;
+	}
+
+	/** sets bits from (inclusive) to (exclusive).
+	 *
+	 */
+	private static void setBits(long[] bits, int from, int to) {
+		int fromWord = from >> 6;
+		int toWord = (to - 1) >> 6;
+		long fromMask = -1L << from;
+		long toMask = -1L >>> -to;
+		if (fromWord == toWord) {
+			bits[fromWord] |= fromMask & toMask;
+		} else {
+			bits[fromWord] |= fromMask;
+			for (int word = fromWord + 1; word < toWord; word++) {
+				bits[word] = -1L;
+			}
+			bits[toWord] |= toMask;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 3 * spanCount; i += 3) {
+			sb.append("("+spans[i]+":"+spans[i + 1]+"-"+spans[i + 2]+")");
+		}
+		return sb.toString();
+	}
+}
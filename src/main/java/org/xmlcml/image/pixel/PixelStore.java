@@ -0,0 +1,157 @@
+package org.xmlcml.image.pixel;
+
+import java.util.Arrays;
+
+import org.xmlcml.euclid.Int2Range;
+import org.xmlcml.euclid.IntRange;
+
+/** compact store of pixel coordinates for an island.
+ *
+ * Coordinates are packed as x,y pairs in a single int[] in the order they were added
+ * (FloodFill order) and the bounding box is tracked as they are added. A
+ * PixelCoordinateIndex is built on first lookup.
+ *
+ * This is the raw material for PixelIsland; Pixel objects are only created
+ * when the island is built from it (createPixelList()).
+ *
+ */
+public class PixelStore {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] coords;
+	private int size;
+	private int xmin = Integer.MAX_VALUE;
+	private int xmax = Integer.MIN_VALUE;
+	private int ymin = Integer.MAX_VALUE;
+	private int ymax = Integer.MIN_VALUE;
+	private PixelCoordinateIndex index;
+
+	public PixelStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PixelStore(int capacity) {
+		coords = new int[2 * Math.max(capacity, 1)];
+	}
+
+	/** creates store from coordinates of pixels (pixels themselves are not retained).
+	 *
+	 * @param pixelList
+	 * @return
+	 */
+	public static PixelStore createPixelStore(PixelList pixelList) {
+		PixelStore store = new PixelStore(pixelList.size());
+		for (Pixel pixel : pixelList) {
+			store.add(pixel.getX(), pixel.getY());
+		}
+		return store;
+	}
+
+	/** adds coordinates.
+	 *
+	 * does not check for duplicates.
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void add(int x, int y) {
+		if (2 * size + 2 > coords.length) {
+			coords = Arrays.copyOf(coords, 2 * coords.length);
+		}
+		coords[2 * size] = x;
+		coords[2 * size + 1] = y;
+		if (index != null) {
+			index.put(x, y, size);
+		}
+		size++;
+		if (x < xmin) xmin = x;
+		if (x > xmax) xmax = x;
+		if (y < ymin) ymin = y;
+		if (y > ymax) ymax = y;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getX(int i) {
+		return coords[2 * i];
+	}
+
+	public int getY(int i) {
+		return coords[2 * i + 1];
+	}
+
+	/** position of x,y in store.
+	 *
+	 * @param x
+	 * @param y
+	 * @return index or -1
+	 */
+	public int indexOf(int x, int y) {
+		ensureIndex();
+		return index.get(x, y);
+	}
+
+	public boolean contains(int x, int y) {
+		return indexOf(x, y) >= 0;
+	}
+
+	private void ensureIndex() {
+		if (index == null) {
+			index = new PixelCoordinateIndex(size);
+			for (int i = 0; i < size; i++) {
+				index.put(coords[2 * i], coords[2 * i + 1], i);
+			}
+		}
+	}
+
+	public int getXMin() {
+		return xmin;
+	}
+
+	public int getXMax() {
+		return xmax;
+	}
+
+	public int getYMin() {
+		return ymin;
+	}
+
+	public int getYMax() {
+		return ymax;
+	}
+
+	/** bounding box.
+	 *
+	 * @return null if empty
+	 */
+	public Int2Range getIntBoundingBox() {
+		return size == 0 ? null : new Int2Range(new IntRange(xmin, xmax), new IntRange(ymin, ymax));
+	}
+
+	/** creates a new Pixel for every coordinate.
+	 *
+	 * @param island if not null, set as island of each pixel
+	 * @return list in store order
+	 */
+	public PixelList createPixelList(PixelIsland island) {
+		PixelList pixelList = new PixelList(size);
+		for (int i = 0; i < size; i++) {
+			Pixel pixel = new Pixel(coords[2 * i], coords[2 * i + 1]);
+			pixel.setIsland(island);
+			pixelList.add(pixel);
+		}
+		return pixelList;
+	}
+
+	/** releases unused capacity.
+	 *
+	 */
+	public void trimToSize() {
+		if (coords.length > 2 * size) {
+			coords = Arrays.copyOf(coords, Math.max(2 * size, 2));
+		}
+	}
+}
@@ -121,8 +121,10 @@ public class PixelTriangle {
 		getDiagonal();
 		Pixel pixel0 = diagonal.get(0);
 		Pixel pixel1 = diagonal.get(1);
-		pixel0.getOrCreateNeighbours(island).remove(pixel1);
-		pixel1.getOrCreateNeighbours(island).remove(pixel0);
+		pixel0.getOrCreateNeighbours(island);
+		pixel0.removeNeighbour(pixel1);
+		pixel1.getOrCreateNeighbours(island);
+		pixel1.removeNeighbour(pixel0);
 	}
 	
 	public String toString() {
@@ -16,7 +16,7 @@ public class CrossNucleus extends PixelNucleus {
 		int pixelNumber = -1;
 		for (int i = 0; i < 5; i++) {
 			Pixel pixel = pixelList.get(i);
-			if (pixel.getOrthogonalNeighbours(island).size() == 4) {
+			if (pixel.getOrthogonalNeighbourCount(island) == 4) {
 				if (centrePixel != null) {
 					throw new RuntimeException("Bad cross: " + pixelList);
 				}
@@ -2,6 +2,8 @@ package org.xmlcml.image.processing;
 
 import java.awt.image.BufferedImage;
 
+import org.xmlcml.image.BinaryImage;
+
 
 	//http://nayefreza.wordpress.com/2013/05/11/hilditchs-thinning-algorithm-java-implementation/
 /**
@@ -13,6 +15,10 @@ public class HilditchThinning extends Thinning {
     public HilditchThinning(BufferedImage image) {
     	super(image);
     }
+
+	public HilditchThinning(BinaryImage binaryImage) {
+		super(binaryImage);
+	}
 	
 
 	public HilditchThinning() {
@@ -25,15 +31,15 @@ public class HilditchThinning extends Thinning {
         boolean hasChange;
         do {
             hasChange = false;
-            for (int iy = 1; iy + 1 < binary.length; iy++) {
-                for (int jx = 1; jx + 1 < binary[iy].length; jx++) {
+            for (int iy = 1; iy + 1 < binaryImage.getHeight(); iy++) {
+                for (int jx = 1; jx + 1 < binaryImage.getWidth(); jx++) {
                     a = getSumCyclicChanges(iy, jx);
                     b = getNeighbourSum(iy, jx);
                     if (getBinary(iy, jx)==1 && 2 <= b && b <= 6 && a == 1
                         && ((getBinary(iy - 1, jx) * getBinary(iy, jx + 1) * getBinary(iy, jx - 1) == 0) || (getSumCyclicChanges(iy - 1, jx) != 1))
                         && ((getBinary(iy - 1, jx) * getBinary(iy, jx + 1) * getBinary(iy + 1, jx) == 0) || (getSumCyclicChanges(iy, jx + 1) != 1)))
                     {
-                        binary[iy][jx] = 0;
+                        binaryImage.clear(jx, iy);
                         hasChange = true;
                     }
                 }
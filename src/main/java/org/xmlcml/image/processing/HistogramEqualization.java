@@ -1,6 +1,5 @@
 package org.xmlcml.image.processing;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -10,6 +9,7 @@ import javax.imageio.ImageIO;
 
 import org.apache.log4j.Logger;
 import org.xmlcml.graphics.image.ImageIOUtil;
+import org.xmlcml.image.ImageRaster;
  
 /**
  * Image histogram equalization
@@ -67,15 +67,18 @@ public class HistogramEqualization {
         ArrayList<int[]> histLUT = histogramEqualizationLUT(originalImage);
  
         equalizedImage = new BufferedImage(originalImage.getWidth(), originalImage.getHeight(), originalImage.getType());
+        ImageRaster originalRaster = new ImageRaster(originalImage);
+        ImageRaster equalizedRaster = new ImageRaster(equalizedImage);
  
         for(int i=0; i<originalImage.getWidth(); i++) {
             for(int j=0; j<originalImage.getHeight(); j++) {
  
-                // Get pixels by R, G, B
-                alpha = new Color(originalImage.getRGB (i, j)).getAlpha();
-                red = new Color(originalImage.getRGB (i, j)).getRed();
-                green = new Color(originalImage.getRGB (i, j)).getGreen();
-                blue = new Color(originalImage.getRGB (i, j)).getBlue();
+                // Get pixels by R, G, B; alpha is taken as opaque
+                int rgb = originalRaster.getRGB(i, j);
+                alpha = 0xff;
+                red = (rgb >> 16) & 0xff;
+                green = (rgb >> 8) & 0xff;
+                blue = rgb & 0xff;
  
                 // Set new pixel values using the histogram lookup table
                 red = histLUT.get(0)[red];
@@ -86,7 +89,7 @@ public class HistogramEqualization {
                 newPixel = colorToRGB(alpha, red, green, blue);
  
                 // Write pixels into image
-                equalizedImage.setRGB(i, j, newPixel);
+                equalizedRaster.setRGB(i, j, newPixel);
  
             }
         }
@@ -166,12 +169,14 @@ public class HistogramEqualization {
         for(int i=0; i<ghistogram.length; i++) ghistogram[i] = 0;
         for(int i=0; i<bhistogram.length; i++) bhistogram[i] = 0;
  
+        ImageRaster raster = new ImageRaster(input);
         for(int i=0; i<input.getWidth(); i++) {
             for(int j=0; j<input.getHeight(); j++) {
  
-                int red = new Color(input.getRGB (i, j)).getRed();
-                int green = new Color(input.getRGB (i, j)).getGreen();
-                int blue = new Color(input.getRGB (i, j)).getBlue();
+                int rgb = raster.getRGB(i, j);
+                int red = (rgb >> 16) & 0xff;
+                int green = (rgb >> 8) & 0xff;
+                int blue = rgb & 0xff;
  
                 // Increase the values of colors
                 rhistogram[red]++; ghistogram[green]++; bhistogram[blue]++;
@@ -0,0 +1,188 @@
+package org.xmlcml.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.xmlcml.image.BinaryImage;
+
+/** Zhang-Suen thinning driven by lookup tables.
+ *
+ * gives exactly the same pixels as ZhangSuenThinning. The 3x3 neighbourhood of a pixel
+ * is packed into an 8-bit mask (BinaryImage.getNeighbourMask()) which indexes a 256-entry
+ * table for each sub-iteration, so neighbour sums, cyclic changes and triangle tests are
+ * only evaluated once, when the tables are built.
+ *
+ * The only mask for which ZhangSuenThinning looks further is E|SE|S (top left of a 2x2 block);
+ * the block is kept if it is isolated. This is looked up as DELETE_UNLESS_BLOCK.
+ *
+ * Candidates are held in a primitive work-list of black pixels which have at least one white
+ * neighbour; neighbours of deleted pixels are added as they are exposed.
+ */
+public class LookupZhangSuenThinning extends Thinning {
+
+	private static final byte KEEP = 0;
+	private static final byte DELETE = 1;
+	private static final byte DELETE_UNLESS_BLOCK = 2;
+
+	private static final int BLOCK_MASK = BinaryImage.E | BinaryImage.SE | BinaryImage.S;
+	private static final int ALL_NEIGHBOURS = 0xff;
+
+	/** first sub-iteration (ZhangSuenThinning "rb") */
+	private static final byte[] RIGHT_BOTTOM_TABLE = createTable(true);
+	/** second sub-iteration (ZhangSuenThinning "lt") */
+	private static final byte[] LEFT_TOP_TABLE = createTable(false);
+
+	// packed y * width + x
+	private int[] candidates;
+	private int candidateCount;
+	private int[] deletions;
+	private BinaryImage inList;
+
+	public LookupZhangSuenThinning(BufferedImage image) {
+		super(image);
+	}
+
+	public LookupZhangSuenThinning(BinaryImage binaryImage) {
+		super(binaryImage);
+	}
+
+	public LookupZhangSuenThinning() {
+		super();
+	}
+
+	private static byte[] createTable(boolean rightBottom) {
+		byte[] table = new byte[256];
+		for (int mask = 0; mask < 256; mask++) {
+			int p2 = mask & 1;
+			int p4 = (mask >> 2) & 1;
+			int p6 = (mask >> 4) & 1;
+			int p8 = (mask >> 6) & 1;
+			int neighbourSum = Integer.bitCount(mask);
+			int cyclicChanges = Integer.bitCount(~mask & (((mask >>> 1) | (mask << 7)) & 0xff));
+			boolean triangles = rightBottom ?
+					(p2 * p4 * p6 == 0) && (p4 * p6 * p8 == 0) :
+					(p2 * p4 * p8 == 0) && (p2 * p6 * p8 == 0);
+			if (3 <= neighbourSum && neighbourSum <= 6 && cyclicChanges == 1 && triangles) {
+				table[mask] = (mask == BLOCK_MASK) ? DELETE_UNLESS_BLOCK : DELETE;
+			} else {
+				table[mask] = KEEP;
+			}
+		}
+		return table;
+	}
+
+	@Override
+	public void doThinning() {
+		createCandidates();
+		boolean hasChange;
+		do {
+			hasChange = iterate(RIGHT_BOTTOM_TABLE);
+			hasChange |= iterate(LEFT_TOP_TABLE);
+		} while (hasChange);
+		candidates = null;
+		deletions = null;
+		inList = null;
+	}
+
+	/** black pixels which are not surrounded.
+	 *
+	 */
+	private void createCandidates() {
+		int width = binaryImage.getWidth();
+		int height = binaryImage.getHeight();
+		candidates = new int[64];
+		candidateCount = 0;
+		inList = new BinaryImage(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = binaryImage.nextSetBit(0, y); x < width; x = binaryImage.nextSetBit(x + 1, y)) {
+				if (binaryImage.getNeighbourMask(x, y) != ALL_NEIGHBOURS) {
+					addCandidate(x, y);
+				}
+			}
+		}
+		deletions = new int[candidates.length];
+	}
+
+	private void addCandidate(int x, int y) {
+		if (candidateCount == candidates.length) {
+			candidates = Arrays.copyOf(candidates, 2 * candidates.length);
+		}
+		candidates[candidateCount++] = y * binaryImage.getWidth() + x;
+		inList.set(x, y);
+	}
+
+	/** one sub-iteration; deletions are made after all candidates are tested.
+	 *
+	 * @return true if any pixel was deleted
+	 */
+	private boolean iterate(byte[] table) {
+		int width = binaryImage.getWidth();
+		if (deletions.length < candidateCount) {
+			deletions = new int[candidates.length];
+		}
+		int deletionCount = 0;
+		int kept = 0;
+		for (int i = 0; i < candidateCount; i++) {
+			int index = candidates[i];
+			int x = index % width;
+			int y = index / width;
+			if (isDeletable(binaryImage, x, y, table)) {
+				deletions[deletionCount++] = index;
+				inList.clear(x, y);
+			} else {
+				candidates[kept++] = index;
+			}
+		}
+		candidateCount = kept;
+		for (int i = 0; i < deletionCount; i++) {
+			int index = deletions[i];
+			binaryImage.clear(index % width, index / width);
+		}
+		for (int i = 0; i < deletionCount; i++) {
+			addExposedNeighbours(deletions[i] % width, deletions[i] / width);
+		}
+		return deletionCount > 0;
+	}
+
+	/** black neighbours of a deleted pixel which are not yet candidates.
+	 *
+	 */
+	private void addExposedNeighbours(int x, int y) {
+		for (int ny = y - 1; ny <= y + 1; ny++) {
+			for (int nx = x - 1; nx <= x + 1; nx++) {
+				if (binaryImage.get(nx, ny) && !inList.get(nx, ny)) {
+					addCandidate(nx, ny);
+				}
+			}
+		}
+	}
+
+	/** would black pixel x,y be deleted in a sub-iteration.
+	 *
+	 * reads pixels up to 2 away from x,y.
+	 *
+	 * @param rightBottom first sub-iteration, else second
+	 */
+	static boolean isDeletable(BinaryImage binaryImage, int x, int y, boolean rightBottom) {
+		return isDeletable(binaryImage, x, y, rightBottom ? RIGHT_BOTTOM_TABLE : LEFT_TOP_TABLE);
+	}
+
+	private static boolean isDeletable(BinaryImage binaryImage, int x, int y, byte[] table) {
+		byte action = table[binaryImage.getNeighbourMask(x, y)];
+		return action == DELETE || (action == DELETE_UNLESS_BLOCK && !isIsolatedBlock(binaryImage, x, y));
+	}
+
+	/** x,y is the top left of a 2x2 block with only white pixels round it.
+	 *
+	 * the 3x3 neighbourhood is already known to be BLOCK_MASK; this checks the rest of the 4x4 ring.
+	 */
+	private static boolean isIsolatedBlock(BinaryImage binaryImage, int x, int y) {
+		return binaryImage.getBit(x + 2, y - 1) == 0 &&
+				binaryImage.getBit(x + 2, y) == 0 &&
+				binaryImage.getBit(x + 2, y + 1) == 0 &&
+				binaryImage.getBit(x + 2, y + 2) == 0 &&
+				binaryImage.getBit(x + 1, y + 2) == 0 &&
+				binaryImage.getBit(x, y + 2) == 0 &&
+				binaryImage.getBit(x - 1, y + 2) == 0;
+	}
+}
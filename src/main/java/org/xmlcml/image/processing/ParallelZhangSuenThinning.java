@@ -0,0 +1,147 @@
+package org.xmlcml.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import org.xmlcml.image.BinaryImage;
+import org.xmlcml.image.ImageUtil;
+
+/** Zhang-Suen thinning over horizontal strips in parallel.
+ *
+ * gives exactly the same pixels as ZhangSuenThinning. In each sub-iteration every strip
+ * marks its deletable pixels concurrently while the image is only read; a pixel's decision
+ * reads up to 2 rows into the neighbouring strips, which serve as its halo. When all strips
+ * have finished (the barrier) each strip clears its own marked pixels; strips own whole rows
+ * of BinaryImage words so this is also done concurrently.
+ *
+ * Deletion in HilditchThinning is not deferred, so it cannot be split this way.
+ */
+public class ParallelZhangSuenThinning extends Thinning {
+
+	/** strips are not made smaller than this */
+	public static final int MIN_STRIP_HEIGHT = 32;
+
+	private ForkJoinPool forkJoinPool;
+
+	public ParallelZhangSuenThinning(BufferedImage image) {
+		super(image);
+	}
+
+	public ParallelZhangSuenThinning(BinaryImage binaryImage) {
+		super(binaryImage);
+	}
+
+	public ParallelZhangSuenThinning() {
+		super();
+	}
+
+	/** pool for strips.
+	 *
+	 * @param forkJoinPool if null (default) strips are processed on the calling thread
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	@Override
+	public void doThinning() {
+		List<Strip> strips = createStrips();
+		boolean hasChange;
+		do {
+			hasChange = iterate(strips, true);
+			hasChange |= iterate(strips, false);
+		} while (hasChange);
+	}
+
+	private List<Strip> createStrips() {
+		int height = binaryImage.getHeight();
+		int stripCount = (forkJoinPool == null) ? 1 :
+			Math.max(1, Math.min(height / MIN_STRIP_HEIGHT, 4 * forkJoinPool.getParallelism()));
+		int stripHeight = Math.max(1, (height + stripCount - 1) / stripCount);
+		List<Strip> strips = new ArrayList<Strip>();
+		for (int y = 0; y < height; y += stripHeight) {
+			strips.add(new Strip(y, Math.min(height, y + stripHeight)));
+		}
+		return strips;
+	}
+
+	/** marks all strips, waits, then deletes in all strips.
+	 *
+	 * @return true if any pixel was deleted
+	 */
+	private boolean iterate(List<Strip> strips, final boolean rightBottom) {
+		List<Callable<Boolean>> markTasks = new ArrayList<Callable<Boolean>>(strips.size());
+		List<Callable<Boolean>> deleteTasks = new ArrayList<Callable<Boolean>>(strips.size());
+		for (final Strip strip : strips) {
+			markTasks.add(new Callable<Boolean>() {
+				public Boolean call() {
+					return strip.mark(rightBottom);
+				}
+			});
+			deleteTasks.add(new Callable<Boolean>() {
+				public Boolean call() {
+					strip.delete();
+					return true;
+				}
+			});
+		}
+		boolean hasChange = false;
+		for (Boolean marked : ImageUtil.invokeAll(forkJoinPool, markTasks)) {
+			hasChange |= marked;
+		}
+		if (hasChange) {
+			ImageUtil.invokeAll(forkJoinPool, deleteTasks);
+		}
+		return hasChange;
+	}
+
+	/** rows ymin..ymax (exclusive) and the pixels marked for deletion in them.
+	 *
+	 */
+	private class Strip {
+
+		private int ymin;
+		private int ymax;
+		// pairs of x, y
+		private int[] marked = new int[64];
+		private int markedCount;
+
+		Strip(int ymin, int ymax) {
+			this.ymin = ymin;
+			this.ymax = ymax;
+		}
+
+		boolean mark(boolean rightBottom) {
+			markedCount = 0;
+			int width = binaryImage.getWidth();
+			for (int y = ymin; y < ymax; y++) {
+				for (int x = binaryImage.nextSetBit(0, y); x < width; x = binaryImage.nextSetBit(x + 1, y)) {
+					if (LookupZhangSuenThinning.isDeletable(binaryImage, x, y, rightBottom)) {
+						if (2 * markedCount + 2 > marked.length) {
+							marked = Arrays.copyOf(marked, 2 * marked.length);
+						}
+						marked[2 * markedCount] = x;
+						marked[2 * markedCount + 1] = y;
+						markedCount++;
+					}
+				}
+			}
+			return markedCount > 0;
+		}
+
+		void delete() {
+			for (int i = 0; i < markedCount; i++) {
+				binaryImage.clear(marked[2 * i], marked[2 * i + 1]);
+			}
+			markedCount = 0;
+		}
+	}
+}
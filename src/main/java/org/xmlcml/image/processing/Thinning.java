@@ -3,59 +3,91 @@ package org.xmlcml.image.processing;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 
+import org.xmlcml.image.BinaryImage;
+import org.xmlcml.image.ImageRaster;
+
+/** thins a black/white image.
+ * 
+ * pixels are held as a BinaryImage. Thinning can start from a BufferedImage
+ * (black pixels are set) or directly from a BinaryImage, in which case
+ * no BufferedImage is created unless getThinnedImage() is called.
+ * 
+ */
 public abstract class Thinning {
 
 	protected BufferedImage image;
-	protected int[][] binary;
+	protected BinaryImage binaryImage;
 	
 	public Thinning(BufferedImage image) {
     	createBinary(image);
 	}
 	
+	public Thinning(BinaryImage binaryImage) {
+		createBinary(binaryImage);
+	}
+	
 	public Thinning() {
 	}
 
 	public void createBinary(BufferedImage image) {
 		this.image = image;
-	    binary = copyImageToBinary(image);
+	    binaryImage = BinaryImage.createBinaryImage(image);
+	}
+	
+	/** thins binaryImage in place.
+	 * 
+	 * @param binaryImage
+	 */
+	public void createBinary(BinaryImage binaryImage) {
+		this.image = null;
+		this.binaryImage = binaryImage;
 	}
 	
 	public void setBinary(int[][] b) {
 		if (b != null && b[0] != null) {
-			int ly = b.length;
-			int lx = b[0].length;
-			this.binary = new int[ly][lx];
-			for (int y = 0; y < ly; y++) {
-		       for (int x = 0; x < lx; x++) {
-		    	   binary[y][x] = b[y][x];
-		       }
-			}
+			this.binaryImage = BinaryImage.createBinaryImage(b);
 		}
 	}
 	
+	/** copy of pixels as 0/1 indexed [y][x].
+	 * 
+	 * @return
+	 */
 	public int[][] getBinary() {
-		return binary;
+		return binaryImage == null ? null : binaryImage.createIntArray();
+	}
+	
+	public BinaryImage getBinaryImage() {
+		return binaryImage;
 	}
 	
 	public int getBinary(int y, int x) {
-		try {
-			return binary[y][x];
-		} catch (IndexOutOfBoundsException e) {
-			return 0;
-		}
+		return binaryImage.getBit(x, y);
 	}
 	
+	/** thinned pixels as image.
+	 * 
+	 * writes into the original image if there was one, else creates a gray image.
+	 * 
+	 * @return
+	 */
 	public BufferedImage getThinnedImage() {
-	    copyBinaryToImage(image, binary);
+		if (image == null) {
+			image = binaryImage.createBufferedImage();
+		} else {
+			copyBinaryToImage(image, binaryImage);
+		}
 		return image;
 	}
 	
 	public static int[][] copyImageToBinary(BufferedImage image) {
 		int[][] imageData = new int[image.getHeight()][image.getWidth()];
+		ImageRaster raster = new ImageRaster(image);
+		int black = Color.BLACK.getRGB();
 		for (int y = 0; y < imageData.length; y++) {
 	       for (int x = 0; x < imageData[y].length; x++) {
 	
-	           if (image.getRGB(x, y) == Color.BLACK.getRGB()) {
+	           if (raster.getRGB(x, y) == black) {
 	               imageData[y][x] = 1;
 	           } else {
 	               imageData[y][x] = 0;
@@ -67,15 +99,18 @@ public abstract class Thinning {
 	}
 	
 	public static void copyBinaryToImage(BufferedImage image, int[][] imageData) {
+		ImageRaster raster = new ImageRaster(image);
+		int black = Color.BLACK.getRGB();
+		int white = Color.WHITE.getRGB();
 		for (int y = 0; y < imageData.length; y++) {
 	
 	           for (int x = 0; x < imageData[y].length; x++) {
 	
 	               if (imageData[y][x] == 1) {
-	                   image.setRGB(x, y, Color.BLACK.getRGB());
+	                   raster.setRGB(x, y, black);
 	
 	               } else {
-	                   image.setRGB(x, y, Color.WHITE.getRGB());
+	                   raster.setRGB(x, y, white);
 	               }
 	
 	
@@ -83,16 +118,34 @@ public abstract class Thinning {
 	       }
 	}
 
+	public static void copyBinaryToImage(BufferedImage image, BinaryImage binaryImage) {
+		ImageRaster raster = new ImageRaster(image);
+		int black = Color.BLACK.getRGB();
+		int white = Color.WHITE.getRGB();
+		for (int y = 0; y < binaryImage.getHeight(); y++) {
+			for (int x = 0; x < binaryImage.getWidth(); x++) {
+				raster.setRGB(x, y, binaryImage.get(x, y) ? black : white);
+			}
+		}
+	}
+
 	/** creates a thinned array 
 	 * 
 	 */
 	public abstract void doThinning();
 
+	/** neighbours of x,y as BinaryImage.getNeighbourMask().
+	 * 
+	 * @param y
+	 * @param x
+	 * @return bit 0..7 = p2..p9
+	 */
+	protected int getNeighbourMask(int y, int x) {
+		return binaryImage.getNeighbourMask(x, y);
+	}
+
 	protected int getNeighbourSum(int y, int x) {
-	
-	    return getBinary(y - 1, x) + getBinary(y - 1, x + 1) + getBinary(y, x + 1)
-	            + getBinary(y + 1, x + 1) + getBinary(y + 1, x) + getBinary(y + 1, x - 1)
-	            + getBinary(y, x - 1) + getBinary(y - 1, x - 1);
+	    return Integer.bitCount(getNeighbourMask(y, x));
 	}
 
 	/**
@@ -106,50 +159,10 @@ public abstract class Thinning {
 	 * @return
 	 */
 	protected int getSumCyclicChanges(int y, int x) {
-	
-	    int count = 0;
-	    //p2 p3
-	    int binary2 = getBinary(y - 1, x);
-		int binary3 = getBinary(y - 1, x + 1);
-		if (binary2 == 0 && binary3 == 1) {
-	        count++;
-	    }
-	    //p3 p4
-	    int binary4 = getBinary(y, x + 1);
-		if (binary3 == 0 && binary4 == 1) {
-	        count++;
-	    }
-	    //p4 p5
-	    int binary5 = getBinary(y + 1, x + 1);
-		if (binary4 == 0 && binary5 == 1) {
-	        count++;
-	    }
-	    //p5 p6
-	    int binary6 = getBinary(y + 1, x);
-		if (binary5 == 0 && binary6 == 1) {
-	        count++;
-	    }
-	    //p6 p7
-	    int binary7 = getBinary(y + 1, x - 1);
-		if (binary6 == 0 && binary7 == 1) {
-	        count++;
-	    }
-	    //p7 p8
-	    int binary8 = getBinary(y, x - 1);
-		if (binary7 == 0 && binary8 == 1) {
-	        count++;
-	    }
-	    //p8 p9
-	    int binary9 = getBinary(y - 1, x - 1);
-		if (binary8 == 0 && binary9 == 1) {
-	        count++;
-	    }
-	    //p9 p2
-	    if (binary9 == 0 && binary2 == 1) {
-	        count++;
-	    }
-	
-	    return count;
+		int mask = getNeighbourMask(y, x);
+		// bit i is 0 and bit i+1 (cyclically) is 1
+		int next = ((mask >>> 1) | (mask << 7)) & 0xff;
+		return Integer.bitCount(~mask & next);
 	}
 
 
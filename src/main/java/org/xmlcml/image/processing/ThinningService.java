@@ -9,6 +9,8 @@ import java.util.LinkedList;
 import java.util.List;
 
 import javax.imageio.ImageIO;
+
+import org.xmlcml.image.ImageRaster;
  
 /**
  *
@@ -201,10 +203,12 @@ public class ThinningService {
    }
    
 	private void copyImageToBinary(BufferedImage image, int[][] imageData) {
+		ImageRaster raster = new ImageRaster(image);
+		int black = Color.BLACK.getRGB();
 		for (int y = 0; y < imageData.length; y++) {
            for (int x = 0; x < imageData[y].length; x++) {
 
-               if (image.getRGB(x, y) == Color.BLACK.getRGB()) {
+               if (raster.getRGB(x, y) == black) {
                    imageData[y][x] = 1;
                } else {
                    imageData[y][x] = 0;
@@ -215,15 +219,18 @@ public class ThinningService {
 	}
 	
 	private void copyBinaryToImage(BufferedImage image, int[][] imageData) {
+		ImageRaster raster = new ImageRaster(image);
+		int black = Color.BLACK.getRGB();
+		int white = Color.WHITE.getRGB();
 		for (int y = 0; y < imageData.length; y++) {
 
 	           for (int x = 0; x < imageData[y].length; x++) {
 
 	               if (imageData[y][x] == 1) {
-	                   image.setRGB(x, y, Color.BLACK.getRGB());
+	                   raster.setRGB(x, y, black);
 
 	               } else {
-	                   image.setRGB(x, y, Color.WHITE.getRGB());
+	                   raster.setRGB(x, y, white);
 	               }
 
 
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.xmlcml.euclid.Int2;
+import org.xmlcml.image.BinaryImage;
  
 /**
  *
@@ -26,6 +27,10 @@ public class ZhangSuenThinning extends Thinning {
     	super(image);
     }
 
+	public ZhangSuenThinning(BinaryImage binaryImage) {
+		super(binaryImage);
+	}
+
 
 	public ZhangSuenThinning() {
 		super();
@@ -49,8 +54,8 @@ public class ZhangSuenThinning extends Thinning {
 	private boolean iterateOverPoints(String trbl, boolean all) {
 		List<Int2> pointsToChange = new ArrayList<Int2>();
 		if (all) {
-			for (int y = 0; y < binary.length; y++) {
-			    for (int x = 0; x < binary[y].length; x++) {
+			for (int y = 0; y < binaryImage.getHeight(); y++) {
+			    for (int x = 0; x < binaryImage.getWidth(); x++) {
 			        processPoint(trbl, pointsToChange, y, x);
 			        if (getBinary(y, x) == 1) {
 			        	blackPixels.add(new Int2(x, y));
@@ -152,7 +157,7 @@ public class ZhangSuenThinning extends Thinning {
 
 	private void resetChangedPointsToZeroAndClearList(List<Int2> pointsToChange) {
 		for (Int2 point : pointsToChange) {
-		    binary[point.getY()][point.getX()] = 0;
+		    binaryImage.clear(point.getX(), point.getY());
 		}
         pointsToChange.clear();
 	}
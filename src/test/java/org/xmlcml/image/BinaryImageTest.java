@@ -0,0 +1,120 @@
+package org.xmlcml.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlcml.image.processing.Thinning;
+import org.xmlcml.image.processing.ZhangSuenThinning;
+
+public class BinaryImageTest {
+
+	@Test
+	public void testSetGet() {
+		BinaryImage binaryImage = new BinaryImage(130, 3);
+		Assert.assertEquals(3, binaryImage.getWordsPerRow());
+		binaryImage.set(0, 0);
+		binaryImage.set(63, 1);
+		binaryImage.set(64, 1);
+		binaryImage.set(129, 2);
+		Assert.assertTrue(binaryImage.get(63, 1));
+		Assert.assertTrue(binaryImage.get(64, 1));
+		Assert.assertFalse(binaryImage.get(65, 1));
+		Assert.assertFalse(binaryImage.get(-1, 0));
+		Assert.assertFalse(binaryImage.get(130, 2));
+		Assert.assertEquals(0, binaryImage.getBit(0, 3));
+		Assert.assertEquals(4, binaryImage.cardinality());
+		binaryImage.clear(64, 1);
+		Assert.assertFalse(binaryImage.get(64, 1));
+		Assert.assertEquals(3, binaryImage.cardinality());
+		try {
+			binaryImage.set(130, 0);
+			Assert.fail("should throw");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testNextBits() {
+		BinaryImage binaryImage = new BinaryImage(200, 1);
+		binaryImage.setRange(0, 5, 70);
+		binaryImage.setRange(0, 130, 200);
+		Assert.assertEquals(135, binaryImage.cardinality());
+		Assert.assertEquals(5, binaryImage.nextSetBit(0, 0));
+		Assert.assertEquals(70, binaryImage.nextClearBit(5, 0));
+		Assert.assertEquals(130, binaryImage.nextSetBit(70, 0));
+		Assert.assertEquals(200, binaryImage.nextClearBit(130, 0));
+		Assert.assertEquals(200, binaryImage.nextSetBit(200, 0));
+		BinaryImage empty = new BinaryImage(10, 1);
+		Assert.assertEquals(10, empty.nextSetBit(0, 0));
+		Assert.assertEquals(0, empty.nextClearBit(0, 0));
+	}
+
+	/** mask agrees with the neighbour sums of Thinning, including at word and image edges.
+	 * 
+	 */
+	@Test
+	public void testNeighbourMask() {
+		Random random = new Random(3);
+		int[][] binary = new int[7][131];
+		for (int y = 0; y < binary.length; y++) {
+			for (int x = 0; x < binary[y].length; x++) {
+				binary[y][x] = random.nextInt(2);
+			}
+		}
+		BinaryImage binaryImage = BinaryImage.createBinaryImage(binary);
+		int[][] dxdy = {{0, -1}, {1, -1}, {1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}};
+		for (int y = 0; y < binary.length; y++) {
+			for (int x = 0; x < binary[y].length; x++) {
+				int mask = 0;
+				for (int i = 0; i < dxdy.length; i++) {
+					mask |= binaryImage.getBit(x + dxdy[i][0], y + dxdy[i][1]) << i;
+				}
+				Assert.assertEquals(x+","+y, mask, binaryImage.getNeighbourMask(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testBufferedImage() {
+		BinaryImage binaryImage = new BinaryImage(70, 5);
+		binaryImage.setRange(2, 1, 69);
+		binaryImage.set(0, 4);
+		BufferedImage image = binaryImage.createBufferedImage();
+		Assert.assertEquals(0xff000000, image.getRGB(0, 4));
+		Assert.assertEquals(0xffffffff, image.getRGB(0, 2));
+		Assert.assertEquals(binaryImage, BinaryImage.createBinaryImage(image));
+		Assert.assertArrayEquals(binaryImage.createIntArray(), Thinning.copyImageToBinary(image));
+	}
+
+	@Test
+	public void testBinarizeThreshold() {
+		BufferedImage image = new BufferedImage(256, 1, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < 256; x++) {
+			image.setRGB(x, 0, (x << 16) | (x << 8) | x);
+		}
+		BinaryImage binaryImage = ImageUtil.boofCVBinarizeToBinaryImage(image, 128);
+		Assert.assertEquals(BinaryImage.createBinaryImage(ImageUtil.boofCVBinarization(image, 128)), binaryImage);
+		Assert.assertTrue(binaryImage.get(127, 0));
+		Assert.assertFalse(binaryImage.get(128, 0));
+	}
+
+	/** binarizing and thinning as bits gives the same pixels as through BufferedImages.
+	 * 
+	 */
+	@Test
+	public void testBinarizeAndThin() throws IOException {
+		BufferedImage image = ImageIO.read(Fixtures.MALTORYZINE_BINARY_PNG);
+		BufferedImage binarized = ImageUtil.boofCVBinarization(image, 128);
+		BinaryImage binaryImage = ImageUtil.boofCVBinarizeToBinaryImage(image, 128);
+		Assert.assertEquals(BinaryImage.createBinaryImage(binarized), binaryImage);
+		BufferedImage thinned = ImageUtil.thin(binarized, new ZhangSuenThinning());
+		ImageUtil.thin(binaryImage, new ZhangSuenThinning());
+		Assert.assertEquals(BinaryImage.createBinaryImage(thinned), binaryImage);
+	}
+}
@@ -116,6 +116,20 @@ public class ImageProcessorTest {
 		 Assert.assertEquals("pixelIslandList",  221, pixelIslandList.size());
 		 
 	}
+
+	/** only the largest islands are built.
+	 * 
+	 */
+	@Test
+	public void testLargestIslandsThroughCommandLine() {
+		String argString = "--input src/test/resources/org/xmlcml/image/processing/36933.png --island 0 --largest 3";
+		PROCESSOR.parseArgsAndRun(argString);
+		Assert.assertEquals("largest", 3, PROCESSOR.getPixelProcessor().getParameters().getLargestIslandCount());
+		PixelIslandList pixelIslandList = PROCESSOR.getOrCreatePixelIslandList();
+		Assert.assertEquals("pixelIslandList", 3, pixelIslandList.size());
+		Assert.assertEquals("pixelIsland", 23670, PROCESSOR.getPixelIsland().size());
+	}
+
 	/** get PixelIsland through CommandLine.
 	 * 
 	 */
@@ -0,0 +1,78 @@
+package org.xmlcml.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImageRasterTest {
+
+	private static final int[] TYPES = {
+		BufferedImage.TYPE_INT_RGB,
+		BufferedImage.TYPE_INT_ARGB,
+		BufferedImage.TYPE_INT_ARGB_PRE,
+		BufferedImage.TYPE_BYTE_GRAY,
+		BufferedImage.TYPE_BYTE_BINARY,
+		BufferedImage.TYPE_BYTE_INDEXED,
+		BufferedImage.TYPE_3BYTE_BGR,
+		BufferedImage.TYPE_4BYTE_ABGR,
+		BufferedImage.TYPE_USHORT_GRAY,
+	};
+
+	/** every type, whole images and subimages, agrees with BufferedImage.getRGB().
+	 *
+	 */
+	@Test
+	public void testGetRGB() {
+		Random random = new Random(17);
+		for (int type : TYPES) {
+			BufferedImage image = new BufferedImage(37, 23, type);
+			for (int x = 0; x < image.getWidth(); x++) {
+				for (int y = 0; y < image.getHeight(); y++) {
+					image.setRGB(x, y, random.nextInt());
+				}
+			}
+			assertSameRGB(image);
+			assertSameRGB(image.getSubimage(3, 5, 29, 11));
+		}
+	}
+
+	@Test
+	public void testFixtures() throws IOException {
+		for (File file : new File[] {Fixtures.MALTORYZINE_THINNED_PNG, Fixtures.MALTORYZINE_BINARY_PNG,
+				new File(Fixtures.LINES_DIR, "1471-2148-13-93-1-l.jpg")}) {
+			assertSameRGB(ImageIO.read(file));
+		}
+	}
+
+	@Test
+	public void testSetRGB() {
+		for (int type : TYPES) {
+			BufferedImage image = new BufferedImage(5, 4, type);
+			BufferedImage image1 = new BufferedImage(5, 4, type);
+			ImageRaster raster = new ImageRaster(image1);
+			image.setRGB(2, 3, 0xff102030);
+			raster.setRGB(2, 3, 0xff102030);
+			Assert.assertEquals(image.getRGB(2, 3), image1.getRGB(2, 3));
+			Assert.assertEquals(image.getRGB(2, 3), raster.getRGB(2, 3));
+		}
+	}
+
+	private static void assertSameRGB(BufferedImage image) {
+		ImageRaster raster = new ImageRaster(image);
+		int[] row = null;
+		for (int y = 0; y < image.getHeight(); y++) {
+			row = raster.getRGBRow(y, row);
+			for (int x = 0; x < image.getWidth(); x++) {
+				int rgb = image.getRGB(x, y);
+				Assert.assertEquals("type "+image.getType()+" ("+x+","+y+")", rgb, raster.getRGB(x, y));
+				Assert.assertEquals(rgb, row[x]);
+			}
+		}
+	}
+}
@@ -3,6 +3,7 @@ package org.xmlcml.image.geom;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -112,4 +113,42 @@ public class DouglasPeuckerTest {
 		SVGSVG.wrapAndWriteAsSVG(g, new File(file, "1r.svg"));
 	}
 
+	@Test
+	public void testSimplifierArrays() {
+		DouglasPeuckerSimplifier simplifier = new DouglasPeuckerSimplifier(0.5);
+		// L with a step
+		int[] coords = {0,0, 1,0, 2,0, 3,0, 3,1, 3,2, 3,3, 4,4, 5,5};
+		int[] kept = new int[9];
+		int count = simplifier.reduce(coords, 9, kept);
+		Assert.assertEquals(4, count);
+		Assert.assertEquals("[0, 3, 6, 8]", Arrays.toString(Arrays.copyOf(kept, count)));
+		// work arrays are reused for a shorter shape
+		count = simplifier.reduce(new int[] {0,0, 1,1, 2,2}, 3, kept);
+		Assert.assertEquals("[0, 2]", Arrays.toString(Arrays.copyOf(kept, count)));
+		Assert.assertEquals("[0.0, 0.0, 3.0, 0.0, 3.0, 3.0, 5.0, 5.0]", 
+				Arrays.toString(simplifier.reduce(new double[] {0,0, 1,0, 2,0, 3,0, 3,1, 3,2, 3,3, 4,4, 5,5})));
+	}
+
+	@Test
+	public void testSimplifierMatchesDouglasPeucker() {
+		// closed shape with corner finding is rotated to start at its sharpest corner
+		List<Real2> points = new ArrayList<Real2>();
+		double[] coords = new double[2 * 41];
+		for (int i = 0; i <= 40; i++) {
+			double angle = Math.PI * 2 * i / 40;
+			double r = (i % 10 == 5) ? 12.0 : 10.0;
+			points.add(new Real2(r * Math.cos(angle), r * Math.sin(angle)));
+			coords[2 * i] = points.get(i).getX();
+			coords[2 * i + 1] = points.get(i).getY();
+		}
+		List<Real2> reducedList = new DouglasPeucker(1.0, 2, 0.5, 1.0, 3).reduce(points);
+		double[] reduced = new DouglasPeuckerSimplifier(1.0, 2, 0.5, 1.0, 3).reduce(coords);
+		Assert.assertEquals(2 * reducedList.size(), reduced.length);
+		for (int i = 0; i < reducedList.size(); i++) {
+			Assert.assertEquals(reducedList.get(i).getX(), reduced[2 * i], 0.0);
+			Assert.assertEquals(reducedList.get(i).getY(), reduced[2 * i + 1], 0.0);
+		}
+		Assert.assertFalse(reducedList.get(0).equals(points.get(0)));
+	}
+
 }
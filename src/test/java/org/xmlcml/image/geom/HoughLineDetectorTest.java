@@ -0,0 +1,168 @@
+package org.xmlcml.image.geom;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlcml.image.BinaryImage;
+
+public class HoughLineDetectorTest {
+
+	/** skewed axes with short ticks and a sloping line.
+	 *
+	 */
+	private static BinaryImage createAxes() {
+		BinaryImage image = new BinaryImage(300, 200);
+		// x-axis falls 3 pixels over 250, y-axis leans 2 pixels over 160
+		drawLine(image, 30, 180, 280, 177);
+		drawLine(image, 30, 180, 32, 20);
+		// ticks are shorter than the minimum length
+		for (int x = 60; x <= 260; x += 40) {
+			drawLine(image, x, 179, x, 184);
+		}
+		drawLine(image, 60, 150, 240, 50);
+		return image;
+	}
+
+	private static void drawLine(BinaryImage image, int x1, int y1, int x2, int y2) {
+		int steps = Math.max(Math.abs(x2 - x1), Math.abs(y2 - y1));
+		for (int i = 0; i <= steps; i++) {
+			int x = (int) Math.round(x1 + (double) (x2 - x1) * i / steps);
+			int y = (int) Math.round(y1 + (double) (y2 - y1) * i / steps);
+			image.set(x, y);
+		}
+	}
+
+	/** index of the segment with angle near angle (either direction).
+	 *
+	 */
+	private static int findSegment(HoughLineDetector detector, double angle) {
+		int found = -1;
+		for (int i = 0; i < detector.getSegmentCount(); i++) {
+			double delta = Math.abs(detector.getAngle(i) - angle) % 180.0;
+			if (Math.min(delta, 180.0 - delta) < 1.0) {
+				Assert.assertEquals("one segment at " + angle, -1, found);
+				found = i;
+			}
+		}
+		Assert.assertTrue("segment at " + angle, found >= 0);
+		return found;
+	}
+
+	@Test
+	public void testSkewedAxes() {
+		HoughLineDetector detector = new HoughLineDetector();
+		Assert.assertEquals(3, detector.detect(createAxes()));
+		int xAxis = findSegment(detector, Math.toDegrees(Math.atan2(-3, 250)));
+		Assert.assertEquals(250.0, detector.getLength(xAxis), 2.0);
+		double[] segment = detector.getSegment(xAxis);
+		Assert.assertEquals(30.0, Math.min(segment[0], segment[2]), 1.0);
+		Assert.assertEquals(280.0, Math.max(segment[0], segment[2]), 1.0);
+		int yAxis = findSegment(detector, Math.toDegrees(Math.atan2(-160, 2)));
+		// corner pixels went to the x-axis
+		Assert.assertEquals(160.0, detector.getLength(yAxis), 4.0);
+		int slope = findSegment(detector, Math.toDegrees(Math.atan2(-100, 180)));
+		Assert.assertEquals(Math.sqrt(180 * 180 + 100 * 100), detector.getLength(slope), 2.0);
+		Assert.assertEquals(3, detector.getLines().size());
+	}
+
+	@Test
+	public void testGapsAndThickLines() {
+		BinaryImage image = new BinaryImage(200, 100);
+		// dashed: gaps of 2 are bridged, the gap of 10 is not
+		for (int x = 10; x < 190; x++) {
+			if ((x % 10 < 8 && x < 100) || x > 110) {
+				image.set(x, 20);
+			}
+		}
+		// 3 pixels thick
+		for (int y = 60; y < 63; y++) {
+			drawLine(image, 20, y, 180, y + 4);
+		}
+		HoughLineDetector detector = new HoughLineDetector();
+		detector.setThreshold(40);
+		Assert.assertEquals(3, detector.detect(image));
+		int dashed = 0;
+		for (int i = 0; i < detector.getSegmentCount(); i++) {
+			double[] segment = detector.getSegment(i);
+			if (segment[1] < 40) {
+				dashed++;
+				Assert.assertEquals(20.0, segment[1], 0.5);
+				Assert.assertEquals(20.0, segment[3], 0.5);
+			} else {
+				Assert.assertEquals(160.0, detector.getLength(i), 2.0);
+			}
+		}
+		Assert.assertEquals(2, dashed);
+		// the widest band takes all of a steep line 20 pixels thick
+		image = new BinaryImage(200, 200);
+		for (int x = 80; x < 100; x++) {
+			drawLine(image, x, 20, x + 10, 180);
+		}
+		detector.setLineWidth(HoughLineDetector.MAX_LINE_WIDTH);
+		Assert.assertEquals(1, detector.detect(image));
+		try {
+			detector.setLineWidth(HoughLineDetector.MAX_LINE_WIDTH + 1);
+			Assert.fail("line width too large");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testParallelAndSampled() {
+		BinaryImage image = createAxes();
+		// no pool by default
+		HoughLineDetector sequential = new HoughLineDetector();
+		sequential.detect(image);
+		HoughLineDetector parallel = new HoughLineDetector();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			parallel.setForkJoinPool(pool);
+			parallel.detect(image);
+		} finally {
+			pool.shutdown();
+		}
+		Assert.assertEquals(sequential.getSegmentCount(), parallel.getSegmentCount());
+		for (int i = 0; i < sequential.getSegmentCount(); i++) {
+			Assert.assertArrayEquals(sequential.getSegment(i), parallel.getSegment(i), 0.0);
+		}
+		// a third of the pixels vote
+		HoughLineDetector sampled = new HoughLineDetector();
+		sampled.setMaxVotingPixels(image.cardinality() / 3);
+		Assert.assertEquals(3, sampled.detect(image));
+		Assert.assertEquals(250.0, sampled.getLength(findSegment(sampled, Math.toDegrees(Math.atan2(-3, 250)))), 2.0);
+		// image is not changed
+		Assert.assertEquals(createAxes(), image);
+	}
+
+	@Test
+	public void testReadImageFile() throws IOException {
+		BufferedImage image = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 200, 150);
+		g.setColor(Color.DARK_GRAY);
+		g.drawLine(20, 130, 180, 127);
+		g.setColor(Color.LIGHT_GRAY);
+		g.drawLine(20, 30, 180, 30);
+		g.dispose();
+		File file = new File("target/hough/axis.png");
+		file.getParentFile().mkdirs();
+		ImageIO.write(image, "png", file);
+		HoughLineDetector detector = new HoughLineDetector();
+		detector.readImageFile(file);
+		// light gray is above the cutoff
+		Assert.assertEquals(1, detector.getSegmentCount());
+		Assert.assertEquals(160.0, detector.getLength(0), 2.0);
+		detector.writeFile(new File("target/hough/axis.binary.png"));
+		detector.writeSvg(new File("target/hough/axis.svg"));
+	}
+}
@@ -2,12 +2,16 @@ package org.xmlcml.image.pixel;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.imageio.ImageIO;
 
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.xmlcml.euclid.RealRange;
 import org.xmlcml.image.Fixtures;
 
 public class FloodFillTest {
@@ -52,4 +56,199 @@ public class FloodFillTest {
 	}
 	
 	
+	/** islands come out in raster order of first pixel, pixels in breadth-first order.
+	 * 
+	 */
+	@Test
+	public void testFillOrder() {
+		BufferedImage image = new BufferedImage(6, 5, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < 6; x++) {
+			for (int y = 0; y < 5; y++) {
+				image.setRGB(x, y, 0xffffff);
+			}
+		}
+		// U shape whose arms are joined only at the bottom
+		int[][] black = {{1, 0}, {1, 1}, {1, 2}, {2, 2}, {3, 2}, {3, 1}, {3, 0}, {5, 4}, {4, 3}};
+		for (int[] xy : black) {
+			image.setRGB(xy[0], xy[1], 0);
+		}
+		FloodFill floodFill = new ImageFloodFill(image);
+		PixelIslandList islandList = floodFill.getIslandList();
+		Assert.assertEquals(3, islandList.size());
+		Assert.assertEquals("(1,0)(1,1)(1,2)(2,2)(3,2)(3,1)(3,0)", islandList.get(0).getPixelList().toString());
+		Assert.assertEquals("(4,3)", islandList.get(1).getPixelList().toString());
+		floodFill = new ImageFloodFill(image);
+		floodFill.setDiagonal(true);
+		islandList = floodFill.getIslandList();
+		Assert.assertEquals(1, islandList.size());
+		Assert.assertEquals(9, islandList.get(0).size());
+	}
+
+	@Test
+	public void testSpans() {
+		PixelSpans spans = new PixelSpans(1);
+		spans.add(3, 2, 4);
+		spans.add(1, 5, 5);
+		spans.add(3, 0, 0);
+		spans.add(1, 1, 2);
+		Assert.assertEquals(7, spans.getPixelCount());
+		spans.sortRaster();
+		Assert.assertEquals("(1:1-2)(1:5-5)(3:0-0)(3:2-4)", spans.toString());
+		Assert.assertEquals("((0,5),(1,3))", spans.getIntBoundingBox().toString());
+		PixelStore store = spans.createPixelStore(10, 0);
+		Assert.assertEquals(7, store.size());
+		Assert.assertEquals(11, store.getX(0));
+	}
+	
+	@Test
+	public void testSpansStatistics() {
+		PixelSpans spans = new PixelSpans();
+		for (int y = 0; y < 3; y++) {
+			spans.add(y, 0, 2);
+		}
+		spans.add(3, 2, 2);
+		PixelIslandStatistics stats = spans.createStatistics(10, 20);
+		Assert.assertEquals(10, stats.getArea());
+		Assert.assertEquals("one interior pixel", 9, stats.getPerimeterCount());
+		Assert.assertEquals("((10,12),(20,23))", stats.getIntBoundingBox().toString());
+		Assert.assertEquals(2, stats.getWidth());
+		Assert.assertEquals(3, stats.getHeight());
+		Assert.assertEquals(11.1, stats.getCentroid().getX(), 1.0e-10);
+		Assert.assertEquals(21.2, stats.getCentroid().getY(), 1.0e-10);
+		Assert.assertEquals("(10,20)", stats.getLeftmost().toString());
+		Assert.assertEquals("(12,23)", stats.getBottommost().toString());
+	}
+
+	/** statistics follow edits which leave the size unchanged.
+	 * 
+	 */
+	@Test
+	public void testStatisticsAfterMove() {
+		PixelIsland island = new PixelIsland();
+		Pixel moved = new Pixel(2, 0);
+		island.addPixelAndComputeNeighbourNeighbours(new Pixel(0, 0));
+		island.addPixelAndComputeNeighbourNeighbours(new Pixel(1, 0));
+		island.addPixelAndComputeNeighbourNeighbours(moved);
+		Assert.assertEquals(1.0, island.getOrCreateStatistics().getCentroid().getX(), 1.0e-10);
+		island.remove(moved);
+		island.addPixelAndComputeNeighbourNeighbours(new Pixel(5, 0));
+		Assert.assertEquals(3, island.getOrCreateStatistics().getArea());
+		Assert.assertEquals(2.0, island.getOrCreateStatistics().getCentroid().getX(), 1.0e-10);
+	}
+
+	/** statistics made while filling agree with those made from the pixels.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testFillStatisticsAgreeWithPixels() throws IOException {
+		BufferedImage image = ImageIO.read(Fixtures.MALTORYZINE_BINARY_PNG);
+		FloodFill floodFill = new ImageFloodFill(image);
+		floodFill.setDiagonal(true);
+		for (PixelIsland island : floodFill.getIslandList()) {
+			PixelIslandStatistics fillStats = island.getOrCreateStatistics();
+			PixelIslandStatistics pixelStats = PixelIslandStatistics.createStatistics(island.getPixelList());
+			Assert.assertEquals(pixelStats.toString(), fillStats.toString());
+			Assert.assertEquals(pixelStats.getSumXX(), fillStats.getSumXX());
+			Assert.assertEquals(pixelStats.getSumXY(), fillStats.getSumXY());
+			Assert.assertEquals(pixelStats.getSumYY(), fillStats.getSumYY());
+			Assert.assertEquals(pixelStats.getRightmost().toString(), fillStats.getRightmost().toString());
+			Assert.assertEquals(pixelStats.getTopmost().toString(), fillStats.getTopmost().toString());
+			Assert.assertEquals(island.getPixelList().getIntBoundingBox().toString(), 
+					island.getIntBoundingBox().toString());
+		}
+	}
+
+	/** filtered fill keeps the same islands as filtering afterwards.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testIslandFilter() throws IOException {
+		BufferedImage image = ImageIO.read(Fixtures.MALTORYZINE_BINARY_PNG);
+		FloodFill floodFill = new ImageFloodFill(image);
+		floodFill.setDiagonal(true);
+		PixelIslandList allIslands = floodFill.getIslandList();
+		PixelIslandFilter islandFilter = new PixelIslandFilter().setMinimumArea(20).setAspectRatioRange(new RealRange(0.2, 5.0));
+		List<String> expected = new ArrayList<String>();
+		for (PixelIsland island : allIslands) {
+			if (islandFilter.accept(island.getOrCreateStatistics())) {
+				expected.add(island.getIntBoundingBox().toString());
+			}
+		}
+		Assert.assertTrue(expected.size() > 0 && expected.size() < allIslands.size());
+
+		floodFill = new ImageFloodFill(image);
+		floodFill.setDiagonal(true);
+		floodFill.setIslandFilter(islandFilter);
+		PixelIslandList filteredIslands = floodFill.getIslandList();
+		Assert.assertEquals(allIslands.size() - expected.size(), floodFill.getRejectedCount());
+		Assert.assertEquals(expected.size(), filteredIslands.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i), filteredIslands.get(i).getIntBoundingBox().toString());
+		}
+
+		floodFill = new ImageFloodFill(image);
+		floodFill.setDiagonal(true);
+		floodFill.setIslandFilter(new PixelIslandFilter().setMinimumArea(20).setAspectRatioRange(new RealRange(0.2, 5.0)).setMaximumIslandCount(2));
+		filteredIslands = floodFill.getIslandList();
+		Assert.assertEquals(2, filteredIslands.size());
+		Assert.assertEquals(expected.get(1), filteredIslands.get(1).getIntBoundingBox().toString());
+	}
+
+	/** the largest islands are those at the head of the sorted full list.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testLargestIslands() throws IOException {
+		BufferedImage image = ImageIO.read(Fixtures.MALTORYZINE_BINARY_PNG);
+		FloodFill floodFill = new ImageFloodFill(image);
+		floodFill.setDiagonal(true);
+		PixelIslandList allIslands = floodFill.getIslandList();
+		allIslands.sortBySizeDescending();
+		for (int k : new int[] {1, 3, allIslands.size() - 1, allIslands.size() + 1}) {
+			floodFill = new ImageFloodFill(image);
+			floodFill.setDiagonal(true);
+			floodFill.setLargestIslandCount(k);
+			PixelIslandList largestIslands = floodFill.getIslandList();
+			Assert.assertEquals(Math.min(k, allIslands.size()), largestIslands.size());
+			largestIslands.sortBySizeDescending();
+			for (int i = 0; i < largestIslands.size(); i++) {
+				Assert.assertEquals(allIslands.get(i).size(), largestIslands.get(i).size());
+				Assert.assertEquals(allIslands.get(i).getIntBoundingBox().toString(), 
+						largestIslands.get(i).getIntBoundingBox().toString());
+			}
+		}
+	}
+
+	/** strips labelled on a pool give the same islands in the same order.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testForkJoinPool() throws IOException {
+		BufferedImage image = ImageIO.read(Fixtures.MALTORYZINE_THINNED_PNG);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (boolean diagonal : new boolean[] {false, true}) {
+				FloodFill floodFill = new ImageFloodFill(image);
+				floodFill.setDiagonal(diagonal);
+				Assert.assertNull(floodFill.getForkJoinPool());
+				PixelIslandList islandList = floodFill.getIslandList();
+				floodFill = new ImageFloodFill(image);
+				floodFill.setDiagonal(diagonal);
+				floodFill.setForkJoinPool(pool);
+				PixelIslandList parallelList = floodFill.getIslandList();
+				Assert.assertEquals(islandList.size(), parallelList.size());
+				for (int i = 0; i < islandList.size(); i++) {
+					Assert.assertEquals(islandList.get(i).getPixelList().toString(),
+							parallelList.get(i).getPixelList().toString());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
 }
@@ -1,6 +1,7 @@
 package org.xmlcml.image.pixel;
 
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -413,6 +414,62 @@ public class NeighbourPixelTest {
 		Assert.assertEquals(0, DOT1.getPixelsWithNeighbourCount(1).size());
 	}
 	
+	@Test
+	public void testNeighbourCountsFollowAddedPixels() {
+		PixelIsland island = new PixelIsland();
+		island.setDiagonal(true);
+		Pixel centre = new Pixel(1, 1);
+		island.addPixelAndComputeNeighbourNeighbours(centre);
+		Assert.assertEquals(0, centre.getNeighbourCount(island));
+		island.addPixelAndComputeNeighbourNeighbours(new Pixel(1, 0));
+		island.addPixelAndComputeNeighbourNeighbours(new Pixel(2, 2));
+		island.addPixelAndComputeNeighbourNeighbours(new Pixel(0, 1));
+		Assert.assertEquals(3, centre.getNeighbourCount(island));
+		Assert.assertEquals(2, centre.getOrthogonalNeighbourCount(island));
+		Assert.assertEquals(1, centre.getDiagonalNeighbourCount(island));
+		Assert.assertEquals(3, centre.getOrCreateNeighbours(island).size());
+		Assert.assertEquals(2, centre.getOrthogonalNeighbours(island).size());
+		Pixel corner = island.getPixelByCoord(new Int2(2, 2));
+		centre.removeNeighbour(corner);
+		Assert.assertEquals(2, centre.getNeighbourCount(island));
+		Assert.assertEquals(0, centre.getDiagonalNeighbourCount(island));
+		Assert.assertEquals(2, centre.getOrCreateNeighbours(island).size());
+	}
+
+	@Test
+	public void testNeighbourMasksOfWholeIsland() {
+		for (boolean diagonal : new boolean[] {false, true}) {
+			// masks from the bitmap in one pass and pixel by pixel from the map
+			PixelIsland island = new PixelIsland();
+			PixelIsland copy = new PixelIsland();
+			island.setDiagonal(diagonal);
+			copy.setDiagonal(diagonal);
+			Random random = new Random(3);
+			for (int y = 0; y < 20; y++) {
+				for (int x = 0; x < 30; x++) {
+					if (random.nextInt(3) > 0) {
+						island.addPixelWithoutComputingNeighbours(new Pixel(x, y));
+						copy.addPixelWithoutComputingNeighbours(new Pixel(x, y));
+					}
+				}
+			}
+			copy.ensurePopulatedMapAndRanges();
+			for (Pixel pixel : copy.getPixelList()) {
+				pixel.createNeighbourList(copy);
+			}
+			for (int i = 0; i < island.size(); i++) {
+				Pixel pixel = island.getPixelList().get(i);
+				Pixel copyPixel = copy.getPixelList().get(i);
+				Assert.assertEquals(copyPixel.getOrCreateNeighbourMask(copy), pixel.getOrCreateNeighbourMask(island));
+				Assert.assertEquals(copyPixel.getOrCreateNeighbours(copy).toString(), pixel.getOrCreateNeighbours(island).toString());
+				Assert.assertEquals(copyPixel.getOrthogonalNeighbours(copy).toString(), pixel.getOrthogonalNeighbours(island).toString());
+				Assert.assertEquals(copyPixel.getDiagonalNeighbours(copy).toString(), pixel.getDiagonalNeighbours(island).toString());
+				Assert.assertEquals(pixel.getNeighbourCount(island), 
+						pixel.getOrthogonalNeighbours(island).size() + pixel.getDiagonalNeighbours(island).size());
+			}
+		}
+	}
+
 	@Test
 	public void testLine2Size() {
 		makeLINE2();
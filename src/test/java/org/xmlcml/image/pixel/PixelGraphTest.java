@@ -3,6 +3,9 @@ package org.xmlcml.image.pixel;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.imageio.ImageIO;
 
@@ -11,7 +14,10 @@ import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.xmlcml.graphics.image.ImageIOUtil;
+import org.xmlcml.graphics.svg.SVGG;
+import org.xmlcml.image.BinaryImage;
 import org.xmlcml.image.Fixtures;
+import org.xmlcml.image.ImageParameters;
 import org.xmlcml.image.ImageUtil;
 import org.xmlcml.image.processing.ZhangSuenThinning;
 
@@ -217,5 +223,195 @@ public class PixelGraphTest {
 			e.printStackTrace();
 		}
 	}
+
+	@Test
+	public void testSkeletonGraphFromBitmap() {
+		BinaryImage skeleton = new BinaryImage(30, 20);
+		// H
+		for (int y = 1; y <= 9; y++) {
+			skeleton.set(2, y);
+			skeleton.set(8, y);
+		}
+		skeleton.setRange(5, 3, 8);
+		// dot and a ring with no junctions
+		skeleton.set(27, 15);
+		int[][] ring = {{20,2},{21,3},{22,4},{23,5},{22,6},{21,7},{20,8},{19,7},{18,6},{17,5},{18,4},{19,3}};
+		for (int[] xy : ring) {
+			skeleton.set(xy[0], xy[1]);
+		}
+		PixelSkeletonGraph graph = PixelSkeletonGraph.createGraph(skeleton);
+		StringBuilder sb = new StringBuilder();
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			sb.append("("+graph.getNodeX(node)+","+graph.getNodeY(node)+")"+graph.getNodePixelCount(node)+
+					"/"+graph.getNodeDegree(node)+" ");
+		}
+		Assert.assertEquals("nodes", "(2,1)1/1 (8,1)1/1 (2,5)1/3 (8,5)1/3 (2,9)1/1 (8,9)1/1 (27,15)1/0 (20,2)1/2 ", 
+				sb.toString());
+		sb = new StringBuilder();
+		for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+			sb.append(graph.getEdgeNode(edge, 0)+"-"+graph.getEdgeNode(edge, 1)+":"+graph.getEdgePixelCount(edge)+" ");
+		}
+		Assert.assertEquals("edges", "0-2:5 1-3:5 2-3:7 2-4:5 3-5:5 7-7:13 ", sb.toString());
+		Assert.assertEquals(3, graph.getEdgeX(2, 1));
+		Assert.assertEquals(5, graph.getEdgeY(2, 1));
+
+		PixelGraph pixelGraph = graph.createPixelGraph(new ImageParameters());
+		Assert.assertEquals(8, pixelGraph.getNodeList().size());
+		Assert.assertEquals(6, pixelGraph.getEdgeList().size());
+		PixelEdge edge = pixelGraph.getEdgeList().get(2);
+		Assert.assertEquals("(2,5)", edge.getPixelNode(0).getCentrePixel().toString());
+		Assert.assertEquals("(8,5)", edge.getPixelNode(1).getCentrePixel().toString());
+		Assert.assertEquals("(2,5)(3,5)(4,5)(5,5)(6,5)(7,5)(8,5)", edge.getPixelList().toString());
+	}
+
+	@Test
+	public void testSkeletonGraphOfThinnedStroke() {
+		// thick stroke from (10,10) to (100,60); thinning leaves 4-connected steps
+		BinaryImage image = new BinaryImage(120, 80);
+		for (int y = 0; y < 80; y++) {
+			for (int x = 0; x < 120; x++) {
+				double t = Math.max(0.0, Math.min(1.0, ((x - 10) * 90.0 + (y - 10) * 50.0) / (90 * 90 + 50 * 50)));
+				double dx = 10 + 90 * t - x;
+				double dy = 10 + 50 * t - y;
+				if (dx * dx + dy * dy <= 4.0) {
+					image.set(x, y);
+				}
+			}
+		}
+		ZhangSuenThinning thinning = new ZhangSuenThinning(image);
+		thinning.doThinning();
+		BinaryImage skeleton = thinning.getBinaryImage();
+		PixelSkeletonGraph graph = PixelSkeletonGraph.createGraph(skeleton);
+		Assert.assertEquals(2, graph.getNodeCount());
+		Assert.assertEquals(1, graph.getEdgeCount());
+		for (int node = 0; node < 2; node++) {
+			Assert.assertEquals(1, graph.getNodePixelCount(node));
+			Assert.assertEquals(1, graph.getNodeDegree(node));
+		}
+		Assert.assertEquals(0, graph.getEdgeNode(0, 0));
+		Assert.assertEquals(1, graph.getEdgeNode(0, 1));
+		// every pixel, corners of steps included
+		Assert.assertEquals(skeleton.cardinality(), graph.getEdgePixelCount(0));
+		Assert.assertNotNull(graph.createChainCode(0));
+	}
+
+	@Test
+	public void testSkeletonPixelGraph() {
+		BinaryImage skeleton = new BinaryImage(20, 20);
+		// T with a bent stem
+		skeleton.setRange(2, 2, 17);
+		for (int y = 3; y <= 10; y++) {
+			skeleton.set(9, y);
+		}
+		for (int i = 1; i <= 5; i++) {
+			skeleton.set(9 + i, 10 + i);
+		}
+		ImageParameters parameters = new ImageParameters();
+		PixelGraph pixelGraph = PixelSkeletonGraph.createGraph(skeleton).createPixelGraph(parameters);
+		Assert.assertSame(parameters, pixelGraph.getParameters());
+		Assert.assertNull(pixelGraph.getPixelList());
+		Assert.assertEquals(4, pixelGraph.getNodeList().size());
+		Assert.assertEquals(3, pixelGraph.getEdgeList().size());
+		SVGG g = pixelGraph.createSegmentedEdges();
+		Assert.assertEquals(3, g.getChildElements().size());
+		// stem is bent
+		PixelEdge stem = pixelGraph.getEdgeList().get(2);
+		Assert.assertEquals(2, stem.getOrCreateSegmentList(parameters.getSegmentTolerance()).size());
+
+		PixelNode midNode = pixelGraph.splitEdgeAndInsertNewNode(stem, new Pixel(9, 6));
+		Assert.assertEquals("(9,6)", midNode.getCentrePixel().toString());
+		Assert.assertEquals(5, pixelGraph.getNodeList().size());
+		Assert.assertEquals(4, pixelGraph.getEdgeList().size());
+		try {
+			pixelGraph.splitEdgeAndInsertNewNode(pixelGraph.getEdgeList().get(0), new Pixel(15, 15));
+			Assert.fail("pixel not in edge");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testEdgeChainCode() {
+		PixelList pixelList = PixelList.createPixelList("(3,0)(2,0)(1,1)(0,2)(1,3)(1,4)", null);
+		PixelChainCode chainCode = PixelChainCode.createChainCode(pixelList);
+		Assert.assertEquals("(3,0)45576", chainCode.toString());
+		Assert.assertEquals(6, chainCode.size());
+		Assert.assertEquals(pixelList.toString(), chainCode.createPixelList().toString());
+		Assert.assertEquals(pixelList.toString(), PixelChainCode.createChainCode("(3,0)45576").createPixelList().toString());
+		Assert.assertEquals(2.0 + 3 * Math.sqrt(2.0), chainCode.getLength(), 0.000001);
+		Assert.assertEquals(pixelList.getIntBoundingBox().toString(), chainCode.getIntBoundingBox().toString());
+		Assert.assertEquals("[0, 0, 0, 0, 1, 2, 1, 1]", Arrays.toString(chainCode.getDirectionHistogram()));
+		// 4 to 5 left, 5 to 5 none, 5 to 7 left, 7 to 6 right
+		Assert.assertEquals(1, chainCode.getTurn(1));
+		Assert.assertEquals(2, chainCode.getTotalTurn());
+		Assert.assertEquals(4, chainCode.getTotalAbsoluteTurn());
+		Assert.assertNull(PixelChainCode.createChainCode(PixelList.createPixelList("(0,0)(2,0)", null)));
+
+		// ring: one circuit counterclockwise on the screen
+		PixelChainCode ring = PixelChainCode.createChainCode("(0,0)6666000022224444");
+		Assert.assertTrue(ring.isClosed());
+		Assert.assertEquals(6, ring.getTotalTurn());
+		Assert.assertEquals(16.0, ring.getLength(), 0.000001);
+
+		// edge held as chain code gives the same answers as one held as pixels
+		PixelIsland island = new PixelIsland();
+		PixelGraph graph = new PixelGraph(island);
+		PixelEdge pixelEdge = PixelEdge.createEdge("{(3,0)(2,0)(1,1)(0,2)(1,3)(1,4)}/[(3,0)(1,4)]", island);
+		PixelEdge chainEdge = new PixelEdge(graph);
+		chainEdge.addNode(new PixelNode(new Pixel(3, 0), graph), 0);
+		chainEdge.addNode(new PixelNode(new Pixel(1, 4), graph), 1);
+		chainEdge.setChainCode(chainCode);
+		Assert.assertEquals(pixelEdge.getMidPoint().toString(), chainEdge.getMidPoint().toString());
+		Assert.assertEquals(pixelEdge.getNearestPixelToMidPoint().toString(), chainEdge.getNearestPixelToMidPoint().toString());
+		Assert.assertEquals(pixelEdge.getInt2BoundingBox().toString(), chainEdge.getInt2BoundingBox().toString());
+		Assert.assertEquals(pixelEdge.getOrCreateSegmentList(1.0).toString(), chainEdge.getOrCreateSegmentList(1.0).toString());
+		Assert.assertEquals(6, chainEdge.size());
+		Assert.assertEquals("(1,4)", chainEdge.getLast().toString());
+		Pixel last = chainEdge.getLast();
+		Assert.assertSame(last, chainEdge.getLast());
+		Assert.assertEquals(pixelList.toString(), chainEdge.getPixelList().toString());
+		Assert.assertSame(last, chainEdge.getPixelList().get(5));
+		// compacting keeps the end pixels
+		Pixel first = chainEdge.getFirst();
+		Assert.assertTrue(chainEdge.compactToChainCode());
+		Assert.assertEquals("(3,0)45576", chainEdge.getChainCode().toString());
+		Assert.assertSame(first, chainEdge.getFirst());
+		Assert.assertSame(last, chainEdge.getLast());
+		Assert.assertSame(first, chainEdge.getPixelList().get(0));
+		Assert.assertSame(last, chainEdge.getPixelList().get(5));
+	}
+
+	@Test
+	public void testCreateSegmentListsInParallel() {
+		BinaryImage skeleton = new BinaryImage(50, 30);
+		// comb of bent teeth
+		skeleton.setRange(2, 1, 39);
+		for (int tooth = 0; tooth < 6; tooth++) {
+			int x = 3 + 6 * tooth;
+			for (int y = 3; y < 20; y++) {
+				skeleton.set(x, y);
+			}
+			for (int i = 1; i < 4 + tooth; i++) {
+				skeleton.set(x + i, 19 + i);
+			}
+		}
+		PixelGraph sequential = PixelSkeletonGraph.createGraph(skeleton).createPixelGraph(new ImageParameters());
+		PixelGraph parallel = PixelSkeletonGraph.createGraph(skeleton).createPixelGraph(new ImageParameters());
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			List<PixelSegmentList> segmentLists = parallel.createSegmentLists(1.0, pool);
+			Assert.assertEquals(sequential.getEdgeList().size(), segmentLists.size());
+			int bentCount = 0;
+			for (int i = 0; i < segmentLists.size(); i++) {
+				PixelSegmentList segmentList = sequential.getEdgeList().get(i).getOrCreateSegmentList(1.0);
+				Assert.assertEquals(segmentList.getReal2Array().toString(), segmentLists.get(i).getReal2Array().toString());
+				Assert.assertSame(segmentLists.get(i), parallel.getEdgeList().get(i).getOrCreateSegmentList(1.0));
+				bentCount += segmentList.size() == 2 ? 1 : 0;
+			}
+			Assert.assertEquals("bent teeth", 6, bentCount);
+		} finally {
+			pool.shutdown();
+		}
+	}
 	
 }
@@ -5,8 +5,13 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
@@ -28,6 +33,7 @@ import org.xmlcml.graphics.svg.SVGElement;
 import org.xmlcml.graphics.svg.SVGG;
 import org.xmlcml.graphics.svg.SVGRect;
 import org.xmlcml.graphics.svg.SVGSVG;
+import org.xmlcml.image.BinaryImage;
 import org.xmlcml.image.Fixtures;
 import org.xmlcml.image.ImageProcessor;
 import org.xmlcml.image.ImageUtil;
@@ -1063,6 +1069,326 @@ public class PixelIslandTest {
 		}
 	}
 
+	@Test
+	public void testBitsetCorrelationAgreesWithPixelCorrelation() {
+		Random random = new Random(42);
+		PixelIsland wide = createRandomIsland(random, 5, 7, 70, 20);
+		PixelIsland tall = createRandomIsland(random, 100, 3, 40, 25);
+		PixelIsland small = createRandomIsland(random, 0, 0, 9, 9);
+		PixelIsland[] islands = {wide, tall, small};
+		for (PixelIsland island1 : islands) {
+			for (PixelIsland island2 : islands) {
+				Assert.assertEquals(island1.binaryIslandCorrelation(island2, "bitsetTest"),
+						island1.binaryIslandCorrelation(island2), 1.0e-12);
+			}
+		}
+		Assert.assertEquals(1.0, wide.binaryIslandCorrelation(wide), 1.0e-12);
+		PixelIslandList islandList = new PixelIslandList();
+		for (PixelIsland island : islands) {
+			islandList.add(island);
+		}
+		double[][] matrix = islandList.createCorrelationMatrix();
+		Assert.assertEquals(3, matrix.length);
+		Assert.assertEquals(tall.binaryIslandCorrelation(wide), matrix[1][0], 1.0e-12);
+		Assert.assertEquals(matrix[1][0], matrix[0][1], 1.0e-12);
+		double[][] referenceMatrix = islandList.createCorrelationMatrix(new PixelIslandList(Collections.singletonList(small)));
+		Assert.assertEquals(wide.binaryIslandCorrelation(small), referenceMatrix[0][0], 1.0e-12);
+		Assert.assertNull(islandList.getForkJoinPool());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			islandList.setForkJoinPool(pool);
+			double[][] parallelMatrix = islandList.createCorrelationMatrix();
+			for (int i = 0; i < matrix.length; i++) {
+				Assert.assertArrayEquals(matrix[i], parallelMatrix[i], 0.0);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testLabelLookupFollowsEdits() {
+		PixelIslandList islandList = new PixelIslandList();
+		PixelIsland island1 = createRandomIsland(new Random(1), 0, 0, 10, 10);
+		PixelIsland island2 = createRandomIsland(new Random(2), 20, 5, 10, 10);
+		islandList.add(island1);
+		islandList.add(island2);
+		Assert.assertSame(island1, islandList.getIslandByCoord(0, 0));
+		Assert.assertSame(island2, islandList.getIslandByPixel(new Pixel(29, 14)));
+		Assert.assertNull(islandList.getIslandByCoord(15, 5));
+		Assert.assertNull(islandList.getPixelByCoord(new Int2(-100, 5)));
+		Pixel corner = islandList.getPixelByCoord(new Int2(9, 9));
+		Assert.assertTrue(island1.contains(corner));
+		island1.remove(corner);
+		Assert.assertNull(islandList.getIslandByCoord(9, 9));
+		Assert.assertFalse(island1.contains(corner));
+		Assert.assertFalse(island1.contains(9, 9));
+		Assert.assertTrue(island1.contains(0, 0));
+		// outside the current raster
+		island2.addPixelWithoutComputingNeighbours(new Pixel(40, 40));
+		Assert.assertSame(island2, islandList.getIslandByCoord(40, 40));
+		island1.addPixelWithoutComputingNeighbours(new Pixel(15, 5));
+		Assert.assertSame(island1, islandList.getIslandByCoord(15, 5));
+		islandList.sortSize();
+		Assert.assertSame(island1, islandList.getIslandByCoord(0, 0));
+		PixelIsland island3 = createRandomIsland(new Random(3), 50, 50, 3, 3);
+		islandList.getList().add(island3);
+		Assert.assertSame(island3, islandList.getIslandByCoord(50, 50));
+	}
+
+	@Test
+	public void testIslandsFromFloodFillCreatePixelsWhenNeeded() throws IOException {
+		BufferedImage image = ImageIO.read(Fixtures.MALTORYZINE_BINARY_PNG);
+		FloodFill floodFill = new ImageFloodFill(image);
+		floodFill.setDiagonal(true);
+		PixelIslandList islandList = floodFill.getIslandList();
+		islandList.sortBySizeDescending();
+		PixelIsland island = islandList.get(0);
+		Int2Range bbox = island.getIntBoundingBox();
+		int xMin = bbox.getXRange().getMin();
+		int yMin = bbox.getYRange().getMin();
+		int size = island.size();
+		BufferedImage islandImage = island.createImage();
+		BinaryImage binaryImage = island.getOrCreateBinaryImage();
+		Assert.assertSame(island, islandList.getIslandByCoord(island.getOrCreateStatistics().getXMin(),
+				island.getOrCreateStatistics().getLeftmost().getY()));
+		for (PixelIsland island1 : islandList) {
+			Assert.assertFalse(island1.hasPixels());
+		}
+
+		// pixels are made on request and agree with the spans
+		Assert.assertEquals(size, island.getPixelList().size());
+		Assert.assertTrue(island.hasPixels());
+		Assert.assertFalse(islandList.get(1).hasPixels());
+		Assert.assertEquals(bbox.toString(), island.getPixelList().getIntBoundingBox().toString());
+		Assert.assertEquals(binaryImage.cardinality(), size);
+		for (Pixel pixel : island) {
+			Assert.assertSame(island, pixel.getIsland());
+			Assert.assertTrue(binaryImage.get(pixel.x - xMin, pixel.y - yMin));
+			Assert.assertEquals(0, islandImage.getRGB(pixel.x - xMin, pixel.y - yMin) & 0xffffff);
+		}
+		PixelIsland island1 = islandList.get(1);
+		for (Pixel pixel : island) {
+			Assert.assertFalse(island1.contains(pixel));
+		}
+		Assert.assertTrue(island1.contains(island1.getPixelList().get(0)));
+	}
+
+	@Test
+	public void testAnalysisPoolGivesSameIslands() throws IOException {
+		BufferedImage image = ImageIO.read(Fixtures.MALTORYZINE_THINNED_PNG);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<String> results = new ArrayList<String>();
+			for (ForkJoinPool analysisPool : new ForkJoinPool[] {null, pool}) {
+				MainPixelProcessor processor = new MainPixelProcessor(image).setAnalysisPool(analysisPool);
+				processor.setDefaults();
+				PixelIslandList islandList = processor.getOrCreatePixelIslandList(true);
+				Assert.assertSame(analysisPool, islandList.getForkJoinPool());
+				islandList.fillSingleHoles();
+				PixelList stubs = islandList.trimOrthogonalStubs();
+				StringBuilder sb = new StringBuilder("stubs: " + stubs.size());
+				for (PixelGraph graph : islandList.getOrCreateGraphList()) {
+					sb.append("; " + graph.getNodeList().size() + "/" + graph.getEdgeList().size());
+				}
+				for (PixelIsland island : islandList) {
+					sb.append("; " + island.size() + " " + island.getIntBoundingBox());
+					for (Pixel pixel : island) {
+						sb.append(" " + pixel.getInt2());
+					}
+				}
+				results.add(sb.toString());
+			}
+			Assert.assertEquals(results.get(0), results.get(1));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSnapshot() throws Exception {
+		PixelIsland island = createRandomIsland(new Random(4), 10, 20, 30, 25);
+		PixelIsland island2 = createRandomIsland(new Random(5), 0, 0, 28, 25);
+		final PixelIslandSnapshot snapshot = island.createSnapshot();
+		final PixelIslandSnapshot snapshot2 = island2.createSnapshot();
+		Assert.assertEquals(island.size(), snapshot.size());
+		Assert.assertEquals(island.getIntBoundingBox().toString(), snapshot.getIntBoundingBox().toString());
+		Assert.assertEquals(PixelIslandStatistics.createStatistics(island.getPixelList()).toString(), 
+				snapshot.getStatistics().toString());
+		for (int i = 0; i < island.size(); i++) {
+			Pixel pixel = island.get(i);
+			Assert.assertEquals(i, snapshot.indexOf(pixel.x, pixel.y));
+			Assert.assertEquals(pixel.getOrCreateNeighbourMask(island), snapshot.getNeighbourMask(i));
+		}
+		Assert.assertEquals(island.binaryIslandCorrelation(island2), snapshot.binaryIslandCorrelation(snapshot2), 1.0e-10);
+
+		// later edits do not change the snapshot
+		Pixel corner = island.get(0);
+		island.remove(corner);
+		Assert.assertTrue(snapshot.contains(corner));
+		Assert.assertEquals(island.size() + 1, snapshot.size());
+		Assert.assertEquals(snapshot.size(), snapshot.createPixelIsland().size());
+
+		// concurrent readers
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+			for (int t = 0; t < 8; t++) {
+				tasks.add(new Callable<Double>() {
+					public Double call() {
+						double sum = snapshot.binaryIslandCorrelation(snapshot2);
+						for (int i = 0; i < snapshot.size(); i++) {
+							sum += snapshot.getNeighbourCount(i) + snapshot.indexOf(snapshot.getX(i), snapshot.getY(i));
+						}
+						return sum;
+					}
+				});
+			}
+			List<Future<Double>> futures = pool.invokeAll(tasks);
+			for (Future<Double> future : futures) {
+				Assert.assertEquals(futures.get(0).get(), future.get(), 0.0);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testIncrementalThinningAgreesWithFullRescan() {
+		for (int seed = 0; seed < 6; seed++) {
+			boolean diagonal = seed % 2 == 1;
+			PixelIsland island = copyIsland(createRandomIsland(new Random(seed), 3, 7, 40, 30), diagonal);
+
+			PixelIsland rescanned = copyIsland(island, diagonal);
+			while (rescanned.removeSteps().size() > 0) {
+			}
+			PixelIsland incremental = copyIsland(island, diagonal);
+			incremental.removeStepsIteratively();
+			Assert.assertEquals(rescanned.getPixelList().toString(), incremental.getPixelList().toString());
+
+			// a fresh copy has no cornerSet so removeCornerSet() rescans the whole island
+			rescanned = copyIsland(island, diagonal);
+			int size;
+			do {
+				size = rescanned.size();
+				rescanned = copyIsland(rescanned, diagonal);
+				rescanned.removeCornerSet();
+			} while (rescanned.size() < size);
+			incremental = copyIsland(island, diagonal);
+			incremental.removeCorners();
+			Assert.assertTrue(incremental.size() < island.size());
+			Assert.assertEquals(rescanned.getPixelList().toString(), incremental.getPixelList().toString());
+		}
+	}
+
+	@Test
+	public void testShape() {
+		PixelIsland dot = createIsland(PixelList.createPixelList("(5,5)", null));
+		PixelIslandShape shape = dot.getOrCreateShape();
+		Assert.assertEquals(4, shape.getHullVertexCount());
+		Assert.assertEquals(4, shape.getPerimeter());
+		Assert.assertEquals(1.0, shape.getHullArea(), 0.0);
+		Assert.assertEquals(1.0, shape.getSolidity(), 0.0);
+		Assert.assertEquals(1.0, shape.getRectangleArea(), 0.000001);
+		Assert.assertSame(shape, dot.getOrCreateShape());
+
+		PixelList box = new PixelList();
+		for (int x = 10; x < 15; x++) {
+			for (int y = 20; y < 23; y++) {
+				box.add(new Pixel(x, y));
+			}
+		}
+		shape = createIsland(box).getOrCreateShape();
+		// counterclockwise on the screen
+		Assert.assertEquals("(10,23)(15,23)(15,20)(10,20)", getHullString(shape));
+		Assert.assertEquals(16, shape.getPerimeter());
+		Assert.assertEquals(16.0, shape.getHullPerimeter(), 0.000001);
+		Assert.assertEquals(Math.sqrt(34.0), shape.getDiameter(), 0.000001);
+		Assert.assertEquals(5.0, shape.getRectangleLength(), 0.000001);
+		Assert.assertEquals(3.0, shape.getRectangleWidth(), 0.000001);
+		Assert.assertEquals(0.0, shape.getRectangleAngle(), 0.000001);
+		Assert.assertEquals(1.0, shape.getRectangularity(), 0.000001);
+		Assert.assertEquals(0.0, shape.getOrientation(), 0.000001);
+
+		PixelIsland ell = createIsland(PixelList.createPixelList("(0,0)(0,1)(0,2)(1,2)(2,2)", null));
+		shape = ell.getOrCreateShape();
+		Assert.assertEquals("(0,3)(3,3)(3,2)(1,0)(0,0)", getHullString(shape));
+		Assert.assertEquals(7.0, shape.getHullArea(), 0.0);
+		Assert.assertEquals(5.0 / 7.0, shape.getSolidity(), 0.000001);
+		Assert.assertEquals(12, shape.getPerimeter());
+		// removing a pixel clears the cached shape
+		ell.remove(ell.getPixelList().get(4));
+		Assert.assertEquals(4, ell.getOrCreateShape().getArea());
+		Assert.assertEquals(5.0, ell.getOrCreateShape().getHullArea(), 0.0);
+
+		PixelList diagonal = new PixelList();
+		for (int i = 0; i < 8; i++) {
+			diagonal.add(new Pixel(i, i));
+		}
+		shape = createIsland(diagonal).getOrCreateShape();
+		Assert.assertEquals(Math.PI / 4, shape.getRectangleAngle(), 0.000001);
+		Assert.assertEquals(Math.PI / 4, shape.getOrientation(), 0.000001);
+		Assert.assertEquals(4, shape.createRectangle().size());
+
+		PixelIslandList islandList = new PixelIslandList();
+		islandList.add(dot);
+		islandList.add(ell);
+		islandList.add(createIsland(diagonal));
+		double[][] columns = islandList.createShapeColumns(PixelIslandShape.Feature.AREA, PixelIslandShape.Feature.SOLIDITY);
+		Assert.assertEquals("[1.0, 4.0, 8.0]", Arrays.toString(columns[0]));
+		Assert.assertEquals(1.0, columns[1][0], 0.0);
+		Assert.assertEquals(4.0 / 5.0, columns[1][1], 0.000001);
+		Assert.assertArrayEquals(columns[1], islandList.getShapeColumn(PixelIslandShape.Feature.SOLIDITY), 0.0);
+		// same columns from a pool
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			islandList.setForkJoinPool(pool);
+			double[][] pooledColumns = islandList.createShapeColumns(PixelIslandShape.Feature.AREA, PixelIslandShape.Feature.SOLIDITY);
+			Assert.assertArrayEquals(columns[0], pooledColumns[0], 0.0);
+			Assert.assertArrayEquals(columns[1], pooledColumns[1], 0.0);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static String getHullString(PixelIslandShape shape) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < shape.getHullVertexCount(); i++) {
+			sb.append("(" + shape.getHullX(i) + "," + shape.getHullY(i) + ")");
+		}
+		return sb.toString();
+	}
+
+	private PixelIsland createIsland(PixelList pixelList) {
+		PixelIsland island = new PixelIsland();
+		for (Pixel pixel : pixelList) {
+			island.addPixelAndComputeNeighbourNeighbours(new Pixel(pixel.x, pixel.y));
+		}
+		return island;
+	}
+
+	private PixelIsland copyIsland(PixelIsland island, boolean diagonal) {
+		PixelIsland copy = new PixelIsland();
+		copy.setDiagonal(diagonal);
+		for (Pixel pixel : island) {
+			copy.addPixelAndComputeNeighbourNeighbours(new Pixel(pixel.x, pixel.y));
+		}
+		return copy;
+	}
+
+	private PixelIsland createRandomIsland(Random random, int x0, int y0, int width, int height) {
+		PixelIsland island = new PixelIsland();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				// keep the corners so the bounding box is width x height
+				if (random.nextBoolean() || (x % (width - 1) == 0 && y % (height - 1) == 0)) {
+					island.addPixelAndComputeNeighbourNeighbours(new Pixel(x0 + x, y0 + y));
+				}
+			}
+		}
+		return island;
+	}
+
 	private PixelIsland createFirstPixelIsland(File file) throws IOException {
 		MainPixelProcessor pixelProcessor = new MainPixelProcessor(ImageIO.read(file));
 		return pixelProcessor.getOrCreatePixelIslandList().get(0);
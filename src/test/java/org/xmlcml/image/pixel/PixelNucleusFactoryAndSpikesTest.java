@@ -204,7 +204,42 @@ public class PixelNucleusFactoryAndSpikesTest {
 				factory.getEdgeList().toString());
 	}
 
-	
+	@Test
+	public void testNucleusListForManyJunctions() {
+		PixelIsland island = new PixelIsland();
+		island.setDiagonal(true);
+		for (int i = 0; i <= 24; i++) {
+			for (int j = 0; j <= 24; j++) {
+				// lattice lines, a diagonal, a filled block, dots and a stub
+				if (i % 6 == 0 || j % 8 == 0 || (i == j && i < 20) || (i == 23 && j == 23) ||
+						(i >= 14 && i <= 16 && j >= 3 && j <= 5) || (i == 3 && j == 11) ||
+						(j == 3 && (i == 9 || i == 10)) || (j == 12 && i >= 21)) {
+					island.addPixelAndComputeNeighbourNeighbours(new Pixel(i, j));
+				}
+			}
+		}
+		PixelNucleusList nucleusList = new PixelNucleusFactory(island).getOrCreateNucleusList();
+		StringBuilder sb = new StringBuilder();
+		for (PixelNucleus nucleus : nucleusList) {
+			sb.append(nucleus.getClass().getSimpleName()+nucleus.getPixelList()+" ");
+		}
+		Assert.assertEquals("nuclei", 
+				"DotNucleus(3,11) DotNucleus(9,3)(10,3) TerminalNucleus(21,12) " +
+				"SixSevenPixelNucleus(1,0)(1,1)(0,1)(0,0)(2,0)(0,2) ThreeWayNucleus(1,8)(0,8)(0,7)(0,9) " +
+				"ThreeWayNucleus(1,16)(0,16)(0,15)(0,17) TwoWayNucleus(1,24)(0,23) " +
+				"ThreeWayNucleus(6,0)(6,1)(5,0)(7,0) " +
+				"EightPlusPixelNucleus(6,5)(6,6)(6,4)(5,5)(7,7)(6,7)(8,8)(6,8)(7,8)(5,8)(9,8)(9,9)(6,9)(10,8)(11,8)(12,8)(12,9)(12,7)(13,8)(12,10)(11,11)(12,11)(12,12)(13,13)(12,13)(12,14)(12,15)(13,16)(11,16)(12,16)(14,16)(12,17)(15,16)(15,15)(16,16)(17,16)(17,17)(18,16)(18,17)(18,15)(18,18)(19,16)(19,19)(18,19)(18,20) " +
+				"CrossNucleus(6,16)(6,17)(6,15)(5,16)(7,16) ThreeWayNucleus(6,24)(6,23)(5,24)(7,24) " +
+				"ThreeWayNucleus(12,0)(12,1)(11,0)(13,0) ThreeWayNucleus(12,24)(12,23)(11,24)(13,24) " +
+				"EightPlusPixelNucleus(15,3)(15,4)(14,4)(14,3)(16,3)(16,4)(16,5)(14,5)(15,5) " +
+				"ThreeWayNucleus(18,0)(18,1)(17,0)(19,0) CrossNucleus(18,8)(18,9)(18,7)(17,8)(19,8) " +
+				"ThreeWayNucleus(18,24)(18,23)(17,24)(19,24) " +
+				"SixSevenPixelNucleus(23,24)(23,23)(22,24)(24,24)(24,23)(24,22) TwoWayNucleus(24,1)(23,0) " +
+				"ThreeWayNucleus(24,8)(24,9)(24,7)(23,8) ThreeWayNucleus(24,12)(24,13)(24,11)(23,12) " +
+				"ThreeWayNucleus(24,16)(24,17)(24,15)(23,16) ",
+				sb.toString());
+	}
+
 	// ====================================
 	
 	private void debugSpikes(PixelNucleusList nucleusList) {
@@ -54,6 +54,35 @@ public class PixelOutlinerTest {
 		}
 		SVGSVG.wrapAndWriteAsSVG(g, new File("target/pixels/twoIslands.svg"));
 	}
+
+	@Test
+	public void testContoursWithHoles() {
+		PixelIsland island = new PixelIsland();
+		for (int y = 0; y < 9; y++) {
+			for (int x = 0; x < 9; x++) {
+				// 2-pixel thick square frame with a dot in the hole, and a nick in the frame
+				boolean frame = x < 2 || x > 6 || y < 2 || y > 6;
+				if ((frame && !(x == 8 && y == 4)) || (x == 4 && y == 4)) {
+					island.addPixelWithoutComputingNeighbours(new Pixel(x + 10, y + 20));
+				}
+			}
+		}
+		PixelContourTracer tracer = new PixelContourTracer(island);
+		Assert.assertEquals(3, tracer.traceContours());
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < tracer.getContourCount(); i++) {
+			sb.append((tracer.isHole(i) ? "hole" : "outer")+" "+tracer.getParent(i)+" "+tracer.getDepth(i)+
+					" "+tracer.getContourPixelCount(i)+"; ");
+		}
+		Assert.assertEquals("outer -1 0 32; hole 0 1 20; outer 1 2 1; ", sb.toString());
+		Assert.assertEquals("(14,24)", tracer.getContourPixels(2).toString());
+		// hole runs clockwise
+		Assert.assertEquals("(11,22)(12,21)(13,21)(14,21)(15,21)(16,21)(17,22)(17,23)(17,24)(17,25)(17,26)"+
+				"(16,27)(15,27)(14,27)(13,27)(12,27)(11,26)(11,25)(11,24)(11,23)", tracer.getContourPixels(1).toString());
+		Assert.assertEquals(2, tracer.createRingList(false).size());
+		Assert.assertEquals(1, tracer.createRingList(true).size());
+		Assert.assertEquals(3, tracer.createPolygonList().size());
+	}
 	
 
 
@@ -0,0 +1,79 @@
+package org.xmlcml.image.pixel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlcml.euclid.Int2;
+
+public class PixelStoreTest {
+
+	@Test
+	public void testStore() {
+		PixelStore store = new PixelStore(2);
+		store.add(3, 4);
+		store.add(1, 7);
+		store.add(5, 5);
+		Assert.assertEquals(3, store.size());
+		Assert.assertEquals(1, store.getX(1));
+		Assert.assertEquals(7, store.getY(1));
+		Assert.assertEquals(2, store.indexOf(5, 5));
+		Assert.assertEquals(-1, store.indexOf(5, 4));
+		Assert.assertEquals("((1,5),(4,7))", store.getIntBoundingBox().toString());
+		store.add(0, 0);
+		Assert.assertTrue("index kept up to date", store.contains(0, 0));
+	}
+
+	@Test
+	public void testIslandFromStore() {
+		PixelStore store = new PixelStore();
+		store.add(1, 1);
+		store.add(2, 1);
+		store.add(3, 2);
+		PixelIsland island = new PixelIsland(store, true);
+		Assert.assertEquals(3, island.size());
+		Assert.assertEquals("(1,1)", island.get(0).toString());
+		Assert.assertSame(island, island.get(0).getIsland());
+		Assert.assertNotNull(island.getPixelByCoord(3, 2));
+		Assert.assertNull(island.getPixelByCoord(3, 1));
+		Assert.assertEquals(2, island.get(1).getOrCreateNeighbours(island).size());
+	}
+
+	/** random adds and removes checked against HashMap.
+	 *
+	 * exercises backward-shift deletion
+	 */
+	@Test
+	public void testCoordinateMapAgainstHashMap() {
+		Random random = new Random(42);
+		PixelCoordinateMap map = new PixelCoordinateMap();
+		Map<Int2, Pixel> hashMap = new HashMap<Int2, Pixel>();
+		for (int i = 0; i < 20000; i++) {
+			int x = random.nextInt(40);
+			int y = random.nextInt(40);
+			Int2 xy = new Int2(x, y);
+			if (random.nextInt(3) == 0) {
+				Assert.assertEquals(hashMap.remove(xy), map.remove(xy));
+			} else {
+				Pixel pixel = new Pixel(x, y);
+				Assert.assertEquals(hashMap.put(xy, pixel), map.put(xy, pixel));
+			}
+			Assert.assertEquals(hashMap.size(), map.size());
+		}
+		for (int x = 0; x < 40; x++) {
+			for (int y = 0; y < 40; y++) {
+				Assert.assertSame(hashMap.get(new Int2(x, y)), map.get(x, y));
+			}
+		}
+		Assert.assertEquals(hashMap.size(), map.entrySet().size());
+	}
+
+	@Test
+	public void testPixelHashAndEquals() {
+		Pixel pixel = new Pixel(3, -2);
+		Assert.assertEquals(new Pixel(new java.awt.Point(3, -2)), pixel);
+		Assert.assertEquals(31 + new java.awt.Point(3, -2).hashCode(), pixel.hashCode());
+	}
+}
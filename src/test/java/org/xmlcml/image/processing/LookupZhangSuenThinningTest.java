@@ -0,0 +1,80 @@
+package org.xmlcml.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlcml.image.BinaryImage;
+import org.xmlcml.image.Fixtures;
+import org.xmlcml.image.ImageUtil;
+
+public class LookupZhangSuenThinningTest {
+
+	@Test
+	public void testSameAsZhangSuen() throws IOException {
+		for (File file : new File[] {Fixtures.MALTORYZINE_BINARY_PNG, Fixtures.MALTORYZINE_PNG,
+				Fixtures.BRANCH_PNG, Fixtures.HEXAGON_PNG, Fixtures.ZIGZAG_PNG, Fixtures.TREE_PNG,
+				new File(Fixtures.TEXT_DIR, "gibbons.png")}) {
+			BinaryImage binaryImage = ImageUtil.boofCVBinarizeToBinaryImage(ImageIO.read(file), 128);
+			assertSameThinning(file.toString(), binaryImage);
+		}
+	}
+
+	/** random blobs include isolated 2x2 blocks and pixels at the image edges.
+	 * 
+	 */
+	@Test
+	public void testRandomSameAsZhangSuen() {
+		Random random = new Random(11);
+		for (int test = 0; test < 20; test++) {
+			BinaryImage binaryImage = new BinaryImage(67, 40);
+			for (int i = 0; i < 40; i++) {
+				int x = random.nextInt(67);
+				int y = random.nextInt(40);
+				int w = 1 + random.nextInt(12);
+				int h = 1 + random.nextInt(8);
+				for (int yy = y; yy < Math.min(40, y + h); yy++) {
+					binaryImage.setRange(yy, x, Math.min(67, x + w));
+				}
+			}
+			assertSameThinning("random "+test, binaryImage);
+		}
+	}
+
+	/** 2x2 blocks, isolated and touching other pixels.
+	 * 
+	 */
+	@Test
+	public void testBlocks() {
+		BinaryImage binaryImage = new BinaryImage(12, 6);
+		binaryImage.setRange(0, 0, 2);
+		binaryImage.setRange(1, 0, 2);
+		binaryImage.setRange(2, 4, 6);
+		binaryImage.setRange(3, 4, 6);
+		binaryImage.setRange(2, 8, 10);
+		binaryImage.setRange(3, 8, 10);
+		binaryImage.set(11, 4);
+		assertSameThinning("blocks", binaryImage);
+	}
+
+	@Test
+	public void testThinnedImage() throws IOException {
+		BufferedImage image = ImageIO.read(Fixtures.MALTORYZINE_BINARY_PNG);
+		BufferedImage expected = ImageUtil.thin(ImageIO.read(Fixtures.MALTORYZINE_BINARY_PNG), new ZhangSuenThinning());
+		BufferedImage thinned = ImageUtil.thin(image, new LookupZhangSuenThinning());
+		Assert.assertEquals(BinaryImage.createBinaryImage(expected), BinaryImage.createBinaryImage(thinned));
+	}
+
+	private static void assertSameThinning(String message, BinaryImage binaryImage) {
+		Thinning expected = new ZhangSuenThinning(BinaryImage.createBinaryImage(binaryImage.createIntArray()));
+		expected.doThinning();
+		Thinning lookup = new LookupZhangSuenThinning(new BinaryImage(binaryImage));
+		lookup.doThinning();
+		Assert.assertEquals(message, expected.getBinaryImage(), lookup.getBinaryImage());
+	}
+}
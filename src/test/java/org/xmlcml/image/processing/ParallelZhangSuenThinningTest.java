@@ -0,0 +1,47 @@
+package org.xmlcml.image.processing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlcml.image.BinaryImage;
+import org.xmlcml.image.Fixtures;
+import org.xmlcml.image.ImageProcessor;
+import org.xmlcml.image.ImageUtil;
+
+public class ParallelZhangSuenThinningTest {
+
+	@Test
+	public void testSameAsZhangSuen() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (File file : new File[] {Fixtures.MALTORYZINE_BINARY_PNG, Fixtures.TREE_PNG,
+					Fixtures.PHYLO_14811_2_PNG, new File(Fixtures.TEXT_DIR, "gibbons.png")}) {
+				BinaryImage binaryImage = ImageUtil.boofCVBinarizeToBinaryImage(ImageIO.read(file), 128);
+				Thinning expected = new ZhangSuenThinning(new BinaryImage(binaryImage));
+				expected.doThinning();
+				ParallelZhangSuenThinning parallel = new ParallelZhangSuenThinning(new BinaryImage(binaryImage));
+				parallel.setForkJoinPool(pool);
+				parallel.doThinning();
+				Assert.assertEquals(file.toString(), expected.getBinaryImage(), parallel.getBinaryImage());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testCommandLine() {
+		ImageProcessor imageProcessor = new ImageProcessor();
+		imageProcessor.parseArgs("-v zp");
+		Assert.assertEquals(ParallelZhangSuenThinning.class, imageProcessor.getThinning().getClass());
+		// the command line asks for the common pool; the class itself defaults to none
+		Assert.assertSame(ForkJoinPool.commonPool(),
+				((ParallelZhangSuenThinning) imageProcessor.getThinning()).getForkJoinPool());
+		Assert.assertNull(new ParallelZhangSuenThinning().getForkJoinPool());
+	}
+}